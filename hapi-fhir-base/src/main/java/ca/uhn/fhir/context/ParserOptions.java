@@ -48,6 +48,7 @@ public class ParserOptions {
 	private boolean myAutoContainReferenceTargetsWithNoId = true;
 	private Set<String> myEncodeElementsForSummaryMode = null;
 	private Set<String> myDontEncodeElementsForSummaryMode = null;
+	private boolean myStreamingJsonParsing = false;
 
 	/**
 	 * If set to {@literal true} (which is the default), contained resources may be specified by
@@ -337,4 +338,47 @@ public class ParserOptions {
 	public Set<String> getDontEncodeElementsForSummaryMode() {
 		return myDontEncodeElementsForSummaryMode;
 	}
+
+	/**
+	 * If set to {@literal true} (default is {@literal false}), the JSON parser will build resources
+	 * directly from the Jackson token stream instead of first reading the entire document into a
+	 * Jackson tree and then walking that tree. This roughly halves the transient allocation involved
+	 * in parsing large resources such as Bundles.
+	 * <p>
+	 * The resulting resources are the same as in the default mode, with one limitation: a
+	 * <code>_element</code> sibling containing the id/extensions of a primitive element may appear
+	 * anywhere in the enclosing object, but a <code>_element</code> sibling for a complex (non-primitive)
+	 * element is only honoured if it appears before the element itself. Content is also buffered
+	 * (in token form) for any resource whose <code>resourceType</code> is not its first property,
+	 * and any extension whose <code>url</code> is not its first property.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isStreamingJsonParsing() {
+		return myStreamingJsonParsing;
+	}
+
+	/**
+	 * If set to {@literal true} (default is {@literal false}), the JSON parser will build resources
+	 * directly from the Jackson token stream instead of first reading the entire document into a
+	 * Jackson tree and then walking that tree. This roughly halves the transient allocation involved
+	 * in parsing large resources such as Bundles.
+	 * <p>
+	 * The resulting resources are the same as in the default mode, with one limitation: a
+	 * <code>_element</code> sibling containing the id/extensions of a primitive element may appear
+	 * anywhere in the enclosing object, but a <code>_element</code> sibling for a complex (non-primitive)
+	 * element is only honoured if it appears before the element itself. Content is also buffered
+	 * (in token form) for any resource whose <code>resourceType</code> is not its first property,
+	 * and any extension whose <code>url</code> is not its first property.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	@SuppressWarnings({"UnusedReturnValue"})
+	@Nonnull
+	public ParserOptions setStreamingJsonParsing(boolean theStreamingJsonParsing) {
+		myStreamingJsonParsing = theStreamingJsonParsing;
+		return this;
+	}
 }
@@ -45,6 +45,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -53,6 +56,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -81,6 +85,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	private final Object myRegistryMutex = new Object();
 	private final Class<POINTCUT> myPointcutType;
 	private volatile EnumSet<POINTCUT> myRegisteredPointcuts;
+	private volatile Map<POINTCUT, List<IInvoker>> myInvokersSnapshot;
 	private boolean myWarnOnInterceptorWithNoHooks = true;
 
 	/**
@@ -224,10 +229,26 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 		}
 	}
 
+	/**
+	 * Must be called (while holding {@link #myRegistryMutex}) any time the registered
+	 * invokers change. In addition to the set of registered pointcuts, this builds
+	 * an immutable, already sorted snapshot of the invokers for each pointcut so that
+	 * hook dispatch doesn't need to acquire the registry mutex or merge/sort lists.
+	 */
 	private void rebuildRegisteredPointcutSet() {
 		EnumSet<POINTCUT> registeredPointcuts = EnumSet.noneOf(myPointcutType);
 		registeredPointcuts.addAll(myAnonymousInvokers.keySet());
 		registeredPointcuts.addAll(myGlobalInvokers.keySet());
+
+		Map<POINTCUT, List<IInvoker>> invokersSnapshot = new EnumMap<>(myPointcutType);
+		for (POINTCUT nextPointcut : registeredPointcuts) {
+			List<IInvoker> globalInvokers = myGlobalInvokers.get(nextPointcut);
+			List<IInvoker> anonymousInvokers = myAnonymousInvokers.get(nextPointcut);
+			List<IInvoker> invokers = union(Arrays.asList(globalInvokers, anonymousInvokers));
+			invokersSnapshot.put(nextPointcut, List.copyOf(invokers));
+		}
+
+		myInvokersSnapshot = invokersSnapshot;
 		myRegisteredPointcuts = registeredPointcuts;
 	}
 
@@ -294,7 +315,10 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	}
 
 	private Object doCallHooks(POINTCUT thePointcut, HookParams theParams) {
-		List<IInvoker> invokers = getInvokersForPointcut(thePointcut);
+		List<IInvoker> invokers = myInvokersSnapshot.get(thePointcut);
+		if (invokers == null) {
+			return null;
+		}
 		return callInvokers(thePointcut, theParams, invokers);
 	}
 
@@ -314,15 +338,11 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	 */
 	@Override
 	public List<IInvoker> getInvokersForPointcut(POINTCUT thePointcut) {
-		List<IInvoker> invokers;
-
-		synchronized (myRegistryMutex) {
-			List<IInvoker> globalInvokers = myGlobalInvokers.get(thePointcut);
-			List<IInvoker> anonymousInvokers = myAnonymousInvokers.get(thePointcut);
-			invokers = union(Arrays.asList(globalInvokers, anonymousInvokers));
+		List<IInvoker> invokers = myInvokersSnapshot.get(thePointcut);
+		if (invokers == null) {
+			return new ArrayList<>();
 		}
-
-		return invokers;
+		return new ArrayList<>(invokers);
 	}
 
 	/**
@@ -525,7 +545,9 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	private class HookInvoker extends BaseInvoker {
 
 		private final Method myMethod;
+		private final MethodHandle myMethodHandle;
 		private final Class<?>[] myParameterTypes;
+		private final boolean[] myParameterIsPointcut;
 		private final int[] myParameterIndexes;
 		private final POINTCUT myPointcut;
 
@@ -557,13 +579,36 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 			}
 
 			myParameterIndexes = new int[myParameterTypes.length];
+			myParameterIsPointcut = new boolean[myParameterTypes.length];
 			Map<Class<?>, AtomicInteger> typeToCount = new HashMap<>();
 			for (int i = 0; i < myParameterTypes.length; i++) {
 				AtomicInteger counter = typeToCount.computeIfAbsent(myParameterTypes[i], t -> new AtomicInteger(0));
 				myParameterIndexes[i] = counter.getAndIncrement();
+				myParameterIsPointcut[i] = myParameterTypes[i].equals(Pointcut.class);
 			}
 
 			myMethod.setAccessible(true);
+			myMethodHandle = createMethodHandle(theHookMethod);
+		}
+
+		/**
+		 * Creates a method handle for the hook method which accepts the interceptor and an
+		 * argument array, and always returns an Object (boxing primitive returns and returning
+		 * <code>null</code> for void methods). This is created once at registration time, and
+		 * avoids the reflective access checks and argument unwrapping of {@link Method#invoke(Object, Object...)}
+		 * on every hook invocation. If the handle can't be created, we fall back to plain reflection.
+		 */
+		@Nullable
+		private MethodHandle createMethodHandle(Method theHookMethod) {
+			try {
+				return MethodHandles.lookup()
+						.unreflect(theHookMethod)
+						.asSpreader(Object[].class, myParameterTypes.length)
+						.asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+			} catch (IllegalAccessException | RuntimeException e) {
+				ourLog.debug("Unable to create method handle for hook method {}, using reflection", theHookMethod, e);
+				return null;
+			}
 		}
 
 		@Override
@@ -590,12 +635,11 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 
 			Object[] args = new Object[myParameterTypes.length];
 			for (int i = 0; i < myParameterTypes.length; i++) {
-				Class<?> nextParamType = myParameterTypes[i];
-				if (nextParamType.equals(Pointcut.class)) {
+				if (myParameterIsPointcut[i]) {
 					args[i] = myPointcut;
 				} else {
 					int nextParamIndex = myParameterIndexes[i];
-					Object nextParamValue = theParams.get(nextParamType, nextParamIndex);
+					Object nextParamValue = theParams.get(myParameterTypes[i], nextParamIndex);
 					args[i] = nextParamValue;
 				}
 			}
@@ -636,6 +680,14 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 					myMethod.getDeclaringClass().getName());
 			currentSpan.setAttribute(OTEL_INTERCEPTOR_METHOD_NAME_ATT_KEY, myMethod.getName());
 
+			if (myMethodHandle != null) {
+				try {
+					return (Object) myMethodHandle.invokeExact(getInterceptor(), args);
+				} catch (Throwable t) {
+					throw new InvocationTargetException(t);
+				}
+			}
+
 			return myMethod.invoke(getInterceptor(), args);
 		}
 	}
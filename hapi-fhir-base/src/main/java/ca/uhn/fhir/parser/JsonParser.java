@@ -238,6 +238,11 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 	@Override
 	protected void doParseIntoComplexStructure(Reader theSource, IBase theTarget) {
+		if (getContext().getParserOptions().isStreamingJsonParsing()) {
+			new JsonStreamingResourceReader(this).parseIntoComplexStructure(theSource, theTarget);
+			return;
+		}
+
 		JsonLikeStructure jsonStructure = new JacksonStructure();
 		jsonStructure.load(theSource);
 
@@ -252,6 +257,10 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 	@Override
 	public <T extends IBaseResource> T doParseResource(Class<T> theResourceType, Reader theReader) {
+		if (getContext().getParserOptions().isStreamingJsonParsing()) {
+			return new JsonStreamingResourceReader(this).parseResource(theResourceType, theReader);
+		}
+
 		JsonLikeStructure jsonStructure = new JacksonStructure();
 		jsonStructure.load(theReader);
 
@@ -816,7 +825,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		}
 	}
 
-	private boolean isSupportsFhirComment() {
+	boolean isSupportsFhirComment() {
 		if (myIsSupportsFhirComment == null) {
 			myIsSupportsFhirComment = !getContext().getVersion().getVersion().isNewerThan(FhirVersionEnum.DSTU2_1);
 		}
@@ -1263,7 +1272,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return object.getAsArray();
 	}
 
-	private void parseAlternates(
+	void parseAlternates(
 			BaseJsonLikeValue theAlternateVal,
 			ParserState<?> theState,
 			String theElementName,
@@ -1408,7 +1417,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		}
 	}
 
-	private void parseChildren(
+	void parseChildren(
 			ParserState<?> theState,
 			String theName,
 			BaseJsonLikeValue theJsonVal,
@@ -1485,7 +1494,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		}
 	}
 
-	private void parseExtension(ParserState<?> theState, BaseJsonLikeArray theValues, boolean theIsModifier) {
+	void parseExtension(ParserState<?> theState, BaseJsonLikeArray theValues, boolean theIsModifier) {
 		int allUnderscoreNames = 0;
 		int handledUnderscoreNames = 0;
 
@@ -1581,7 +1590,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return parentElementName;
 	}
 
-	private void parseFhirComments(BaseJsonLikeValue theObject, ParserState<?> theState) {
+	void parseFhirComments(BaseJsonLikeValue theObject, ParserState<?> theState) {
 		if (isSupportsFhirComment()) {
 			if (theObject.isArray()) {
 				BaseJsonLikeArray comments = theObject.getAsArray();
@@ -0,0 +1,501 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.json.BaseJsonLikeArray;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ScalarType;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ValueType;
+import ca.uhn.fhir.parser.json.jackson.JacksonStructure;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Drives {@link ParserState} directly from a Jackson token stream, as an alternative to
+ * the tree-based parsing in {@link JsonParser}. This avoids materializing the whole
+ * document as a Jackson tree before walking it.
+ * <p>
+ * Objects are streamed. Primitive values (and arrays of primitive values) are read into
+ * small fragments and held until the end of the enclosing object so that they can be paired
+ * with their <code>_element</code> sibling, at which point they are handed to the same
+ * tree-based logic that the default mode uses. This keeps the semantics of the two modes
+ * aligned while only ever holding leaf values in memory.
+ * </p>
+ *
+ * @see ca.uhn.fhir.context.ParserOptions#setStreamingJsonParsing(boolean)
+ */
+final class JsonStreamingResourceReader {
+
+	private static final String RESOURCE_TYPE = "resourceType";
+	private static final String URL = "url";
+
+	private final JsonParser myParser;
+
+	JsonStreamingResourceReader(JsonParser theParser) {
+		myParser = theParser;
+	}
+
+	<T extends IBaseResource> T parseResource(Class<T> theResourceType, Reader theReader) {
+		ParserState<? extends IBaseResource> state = ParserState.getPreResourceInstance(
+				myParser, theResourceType, myParser.getContext(), true, myParser.getErrorHandler());
+
+		try (com.fasterxml.jackson.core.JsonParser jp = JacksonStructure.createStreamingParser(theReader)) {
+			jp.nextToken();
+			parseResourceObject(jp, state, true);
+			state.endingElement();
+			verifyNoTrailingTokens(jp);
+		} catch (IOException e) {
+			throw JacksonStructure.toDataFormatException(e);
+		}
+
+		@SuppressWarnings("unchecked")
+		T retVal = (T) state.getObject();
+
+		return retVal;
+	}
+
+	void parseIntoComplexStructure(Reader theReader, IBase theTarget) {
+		ParserState<IBase> state = ParserState.getComplexObjectState(
+				myParser, myParser.getContext(), myParser.getContext(), true, theTarget, myParser.getErrorHandler());
+		state.enteringNewElement(null, null);
+
+		try (com.fasterxml.jackson.core.JsonParser jp = JacksonStructure.createStreamingParser(theReader)) {
+			jp.nextToken();
+			parseChildren(jp, state, false);
+			verifyNoTrailingTokens(jp);
+		} catch (IOException e) {
+			throw JacksonStructure.toDataFormatException(e);
+		}
+
+		state.endingElement();
+	}
+
+	/**
+	 * Parses a resource body. The parser must be positioned on the START_OBJECT token. The
+	 * <code>resourceType</code> property is needed before anything else can be handed to the
+	 * parser state, so if it is not the first property the object is buffered in token form
+	 * until it is found.
+	 */
+	private void parseResourceObject(
+			com.fasterxml.jackson.core.JsonParser theJsonParser, ParserState<?> theState, boolean theToplevel)
+			throws IOException {
+		JsonToken token = theJsonParser.nextToken();
+		if (token == JsonToken.FIELD_NAME && RESOURCE_TYPE.equals(theJsonParser.currentName())) {
+			String resourceType = readScalarStringOrNull(theJsonParser);
+			enterResource(theState, resourceType, theToplevel);
+			parseChildren(theJsonParser, theState, false);
+			theState.endingElement();
+			return;
+		}
+
+		TokenBuffer buffer = newBuffer(theJsonParser);
+		String resourceType = null;
+		while (token == JsonToken.FIELD_NAME) {
+			if (RESOURCE_TYPE.equals(theJsonParser.currentName())) {
+				resourceType = readScalarStringOrNull(theJsonParser);
+			} else {
+				buffer.copyCurrentStructure(theJsonParser);
+			}
+			token = theJsonParser.nextToken();
+		}
+		buffer.writeEndObject();
+
+		enterResource(theState, resourceType, theToplevel);
+		try (com.fasterxml.jackson.core.JsonParser replay = buffer.asParser()) {
+			replay.nextToken();
+			parseChildren(replay, theState, false);
+		}
+		theState.endingElement();
+	}
+
+	private void enterResource(ParserState<?> theState, String theResourceType, boolean theToplevel) {
+		if (theToplevel) {
+			if (isBlank(theResourceType)) {
+				throw new DataFormatException(
+						Msg.code(2851) + "Invalid JSON content detected, missing required element: 'resourceType'");
+			}
+		} else if (theResourceType == null) {
+			throw new DataFormatException(Msg.code(2852)
+					+ "Missing required element 'resourceType' from JSON resource object, unable to parse");
+		}
+		theState.enteringNewElement(null, theResourceType);
+	}
+
+	/**
+	 * Parses the properties of an object. The parser must be positioned on the token immediately
+	 * preceding the first property (normally the START_OBJECT token), and is left on the END_OBJECT
+	 * token.
+	 */
+	private void parseChildren(
+			com.fasterxml.jackson.core.JsonParser theJsonParser, ParserState<?> theState, boolean theInExtension)
+			throws IOException {
+		Map<String, BaseJsonLikeValue> pendingPrimitives = null;
+		Map<String, BaseJsonLikeValue> pendingAlternates = null;
+		Set<String> streamedNames = null;
+
+		while (theJsonParser.nextToken() == JsonToken.FIELD_NAME) {
+			String nextName = theJsonParser.currentName();
+			JsonToken valueToken = theJsonParser.nextToken();
+
+			if (RESOURCE_TYPE.equals(nextName) && !theInExtension && theState.isToplevelResourceElement()) {
+				theJsonParser.skipChildren();
+				continue;
+			} else if (URL.equals(nextName) && theInExtension) {
+				theJsonParser.skipChildren();
+				continue;
+			} else if ("extension".equals(nextName)) {
+				parseExtensionArray(theJsonParser, theState, nextName, valueToken, false, theInExtension);
+				continue;
+			} else if ("modifierExtension".equals(nextName)) {
+				parseExtensionArray(theJsonParser, theState, nextName, valueToken, true, theInExtension);
+				continue;
+			} else if ("fhir_comments".equals(nextName) && !theInExtension) {
+				myParser.parseFhirComments(JacksonStructure.readStreamingValue(theJsonParser), theState);
+				continue;
+			} else if (nextName.charAt(0) == '_') {
+				BaseJsonLikeValue alternateVal = JacksonStructure.readStreamingValue(theJsonParser);
+				String name = nextName.substring(1);
+				BaseJsonLikeValue primitiveVal = pendingPrimitives != null ? pendingPrimitives.remove(name) : null;
+				if (primitiveVal != null) {
+					myParser.parseChildren(theState, name, primitiveVal, alternateVal, nextName, false);
+				} else if (streamedNames != null && streamedNames.contains(name)) {
+					myParser.getErrorHandler().unknownElement(null, nextName);
+				} else {
+					if (pendingAlternates == null) {
+						pendingAlternates = new HashMap<>();
+					}
+					pendingAlternates.put(name, alternateVal);
+				}
+				continue;
+			}
+
+			String alternateName = '_' + nextName;
+			BaseJsonLikeValue alternateVal = pendingAlternates != null ? pendingAlternates.remove(nextName) : null;
+
+			if (valueToken == JsonToken.START_OBJECT) {
+				parseObject(theJsonParser, theState, nextName, alternateVal, alternateName, false);
+				streamedNames = addStreamedName(streamedNames, nextName);
+			} else if (valueToken == JsonToken.START_ARRAY && theJsonParser.nextToken() == JsonToken.START_OBJECT) {
+				parseArrayOfObjects(theJsonParser, theState, nextName, alternateVal, alternateName);
+				streamedNames = addStreamedName(streamedNames, nextName);
+			} else {
+				BaseJsonLikeValue value;
+				if (valueToken == JsonToken.START_ARRAY) {
+					value = readRemainingArray(theJsonParser);
+				} else {
+					value = JacksonStructure.readStreamingValue(theJsonParser);
+				}
+				if (alternateVal != null) {
+					myParser.parseChildren(theState, nextName, value, alternateVal, alternateName, false);
+				} else {
+					if (pendingPrimitives == null) {
+						pendingPrimitives = new LinkedHashMap<>();
+					}
+					pendingPrimitives.put(nextName, value);
+				}
+			}
+		}
+
+		if (pendingPrimitives != null) {
+			for (Map.Entry<String, BaseJsonLikeValue> next : pendingPrimitives.entrySet()) {
+				String name = next.getKey();
+				myParser.parseChildren(theState, name, next.getValue(), null, '_' + name, false);
+			}
+		}
+
+		/*
+		 * This happens if an element has an extension but no actual value. I.e.
+		 * if a resource has a "_status" element but no corresponding "status"
+		 * element. This could be used to handle a null value with an extension
+		 * for example.
+		 */
+		if (pendingAlternates != null) {
+			for (Map.Entry<String, BaseJsonLikeValue> next : pendingAlternates.entrySet()) {
+				String name = next.getKey();
+				if (name.isEmpty()) {
+					continue;
+				}
+				String alternateName = '_' + name;
+				BaseJsonLikeValue alternateVal = next.getValue();
+				if (alternateVal.isObject()) {
+					theState.enteringNewElement(null, name);
+					myParser.parseAlternates(alternateVal, theState, alternateName, alternateName);
+					theState.endingElement();
+				} else {
+					myParser.getErrorHandler()
+							.incorrectJsonType(
+									null, alternateName, ValueType.OBJECT, null, alternateVal.getJsonType(), null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses a child element whose value is an object. The parser must be positioned on
+	 * the START_OBJECT token, and is left on the matching END_OBJECT token.
+	 */
+	private void parseObject(
+			com.fasterxml.jackson.core.JsonParser theJsonParser,
+			ParserState<?> theState,
+			String theName,
+			BaseJsonLikeValue theAlternateVal,
+			String theAlternateName,
+			boolean theInArray)
+			throws IOException {
+		if (theName.equals("id")) {
+			myParser.getErrorHandler()
+					.incorrectJsonType(null, "id", ValueType.SCALAR, ScalarType.STRING, ValueType.OBJECT, null);
+		}
+		if (!theInArray && theState.elementIsRepeating(theName)) {
+			myParser.getErrorHandler().incorrectJsonType(null, theName, ValueType.ARRAY, null, ValueType.OBJECT, null);
+		}
+
+		theState.enteringNewElement(null, theName);
+		myParser.parseAlternates(theAlternateVal, theState, theAlternateName, theAlternateName);
+		if (theState.isPreResource()) {
+			parseResourceObject(theJsonParser, theState, false);
+		} else {
+			parseChildren(theJsonParser, theState, false);
+		}
+		theState.endingElement();
+	}
+
+	/**
+	 * Parses a repeating child element whose first value is an object. The parser must be
+	 * positioned on the START_OBJECT token of the first value, and is left on the END_ARRAY token.
+	 */
+	private void parseArrayOfObjects(
+			com.fasterxml.jackson.core.JsonParser theJsonParser,
+			ParserState<?> theState,
+			String theName,
+			BaseJsonLikeValue theAlternateVal,
+			String theAlternateName)
+			throws IOException {
+		BaseJsonLikeArray alternateArray = null;
+		if (theAlternateVal != null) {
+			if (theAlternateVal.isArray()) {
+				alternateArray = theAlternateVal.getAsArray();
+			} else {
+				myParser.getErrorHandler()
+						.incorrectJsonType(
+								null, theAlternateName, ValueType.ARRAY, null, theAlternateVal.getJsonType(), null);
+			}
+		}
+
+		int index = 0;
+		for (JsonToken token = theJsonParser.currentToken();
+				token != JsonToken.END_ARRAY;
+				token = theJsonParser.nextToken(), index++) {
+			BaseJsonLikeValue alternateVal = null;
+			if (alternateArray != null && alternateArray.size() > index) {
+				alternateVal = alternateArray.get(index);
+			}
+			if (token == JsonToken.START_OBJECT) {
+				parseObject(theJsonParser, theState, theName, alternateVal, theAlternateName, true);
+			} else {
+				BaseJsonLikeValue value = JacksonStructure.readStreamingValue(theJsonParser);
+				myParser.parseChildren(theState, theName, value, alternateVal, theAlternateName, true);
+			}
+		}
+	}
+
+	/**
+	 * Parses an <code>extension</code> or <code>modifierExtension</code> array. The parser must
+	 * be positioned on the first token of the value, and is left on its last token.
+	 */
+	private void parseExtensionArray(
+			com.fasterxml.jackson.core.JsonParser theJsonParser,
+			ParserState<?> theState,
+			String theName,
+			JsonToken theValueToken,
+			boolean theIsModifier,
+			boolean theInExtension)
+			throws IOException {
+		if (theValueToken != JsonToken.START_ARRAY) {
+			if (theValueToken != JsonToken.VALUE_NULL && !theInExtension) {
+				ValueType found = theValueToken == JsonToken.START_OBJECT ? ValueType.OBJECT : ValueType.SCALAR;
+				throw new DataFormatException(
+						Msg.code(2831) + "Syntax error parsing JSON FHIR structure: Expected ARRAY at element '"
+								+ theName + "', found '" + found + "'");
+			}
+			theJsonParser.skipChildren();
+			myParser.parseExtension(theState, null, theIsModifier);
+			return;
+		}
+
+		for (JsonToken token = theJsonParser.nextToken();
+				token != JsonToken.END_ARRAY;
+				token = theJsonParser.nextToken()) {
+			if (token == JsonToken.START_OBJECT) {
+				parseExtensionObject(theJsonParser, theState, theIsModifier);
+			} else {
+				// Not valid content, so let the tree-based logic report it
+				BaseJsonLikeValue value = JacksonStructure.readStreamingValue(theJsonParser);
+				BaseJsonLikeArray singleton = new SingleValueArray(value);
+				myParser.parseExtension(theState, singleton, theIsModifier);
+			}
+		}
+	}
+
+	/**
+	 * Parses a single extension. The <code>url</code> property is needed before anything else
+	 * can be handed to the parser state, so if it is not the first property the object is
+	 * buffered in token form until it is found.
+	 */
+	private void parseExtensionObject(
+			com.fasterxml.jackson.core.JsonParser theJsonParser, ParserState<?> theState, boolean theIsModifier)
+			throws IOException {
+		JsonToken token = theJsonParser.nextToken();
+		if (token == JsonToken.FIELD_NAME && URL.equals(theJsonParser.currentName())) {
+			theJsonParser.nextToken();
+			BaseJsonLikeValue url = JacksonStructure.readStreamingValue(theJsonParser);
+			enterExtension(theState, url, theIsModifier);
+			parseChildren(theJsonParser, theState, true);
+			theState.endingElement();
+			return;
+		}
+
+		TokenBuffer buffer = newBuffer(theJsonParser);
+		BaseJsonLikeValue url = null;
+		while (token == JsonToken.FIELD_NAME) {
+			if (URL.equals(theJsonParser.currentName())) {
+				theJsonParser.nextToken();
+				url = JacksonStructure.readStreamingValue(theJsonParser);
+			} else {
+				buffer.copyCurrentStructure(theJsonParser);
+			}
+			token = theJsonParser.nextToken();
+		}
+		buffer.writeEndObject();
+
+		enterExtension(theState, url, theIsModifier);
+		try (com.fasterxml.jackson.core.JsonParser replay = buffer.asParser()) {
+			replay.nextToken();
+			parseChildren(replay, theState, true);
+		}
+		theState.endingElement();
+	}
+
+	private void enterExtension(ParserState<?> theState, BaseJsonLikeValue theUrl, boolean theIsModifier) {
+		String url;
+		if (theUrl == null || !theUrl.isScalar()) {
+			String parentElementName = theIsModifier ? "modifierExtension" : "extension";
+			myParser.getErrorHandler()
+					.missingRequiredElement(new ParseLocation().setParentElementName(parentElementName), URL);
+			url = null;
+		} else {
+			url = myParser.getExtensionUrl(theUrl.getAsString());
+		}
+		theState.enteringNewElementExtension(null, url, theIsModifier, myParser.getServerBaseUrl());
+	}
+
+	/**
+	 * Reads the rest of an array whose first element token has already been consumed,
+	 * leaving the parser on the END_ARRAY token.
+	 */
+	private static BaseJsonLikeValue readRemainingArray(com.fasterxml.jackson.core.JsonParser theJsonParser)
+			throws IOException {
+		TokenBuffer buffer = new TokenBuffer(theJsonParser).forceUseOfBigDecimal(true);
+		buffer.writeStartArray();
+		for (JsonToken token = theJsonParser.currentToken();
+				token != JsonToken.END_ARRAY;
+				token = theJsonParser.nextToken()) {
+			buffer.copyCurrentStructure(theJsonParser);
+		}
+		buffer.writeEndArray();
+		try (com.fasterxml.jackson.core.JsonParser replay = buffer.asParser()) {
+			replay.nextToken();
+			return JacksonStructure.readStreamingValue(replay);
+		}
+	}
+
+	/**
+	 * Reads the value of the current property (the parser must be positioned on the FIELD_NAME
+	 * token), returning it if it is a string and skipping it otherwise.
+	 */
+	private static String readScalarStringOrNull(com.fasterxml.jackson.core.JsonParser theJsonParser)
+			throws IOException {
+		JsonToken token = theJsonParser.nextToken();
+		if (token == JsonToken.VALUE_STRING) {
+			return theJsonParser.getText();
+		}
+		theJsonParser.skipChildren();
+		return null;
+	}
+
+	private static TokenBuffer newBuffer(com.fasterxml.jackson.core.JsonParser theJsonParser) throws IOException {
+		TokenBuffer retVal = new TokenBuffer(theJsonParser).forceUseOfBigDecimal(true);
+		retVal.writeStartObject();
+		return retVal;
+	}
+
+	private static Set<String> addStreamedName(Set<String> theStreamedNames, String theName) {
+		Set<String> retVal = theStreamedNames;
+		if (retVal == null) {
+			retVal = new HashSet<>();
+		}
+		retVal.add(theName);
+		return retVal;
+	}
+
+	private static void verifyNoTrailingTokens(com.fasterxml.jackson.core.JsonParser theJsonParser) throws IOException {
+		JsonToken trailing = theJsonParser.nextToken();
+		if (trailing != null) {
+			throw new JsonParseException(theJsonParser, "Trailing token (of type " + trailing + ") found after value");
+		}
+	}
+
+	private static class SingleValueArray extends BaseJsonLikeArray {
+		private final BaseJsonLikeValue myValue;
+
+		private SingleValueArray(BaseJsonLikeValue theValue) {
+			myValue = theValue;
+		}
+
+		@Override
+		public int size() {
+			return 1;
+		}
+
+		@Override
+		public BaseJsonLikeValue get(int theIndex) {
+			return theIndex == 0 ? myValue : null;
+		}
+
+		@Override
+		public Object getValue() {
+			return null;
+		}
+	}
+}
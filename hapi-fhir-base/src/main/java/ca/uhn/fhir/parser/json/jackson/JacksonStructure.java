@@ -34,6 +34,7 @@ import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.DecimalNode;
@@ -54,6 +55,8 @@ import java.util.Map;
 public class JacksonStructure implements JsonLikeStructure {
 
 	private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+	private static final ObjectReader STREAMING_VALUE_READER =
+			OBJECT_MAPPER.readerFor(JsonNode.class).without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
 	private JacksonWriter jacksonWriter;
 	private ROOT_TYPE rootType = null;
 	private JsonNode nativeRoot = null;
@@ -82,73 +85,118 @@ public class JacksonStructure implements JsonLikeStructure {
 	@Override
 	public void load(Reader theReader, boolean allowArray) throws DataFormatException {
 		PushbackReader pbr = new PushbackReader(theReader);
-		int nextInt;
 		try {
-			while (true) {
-				nextInt = pbr.read();
-				if (nextInt == -1) {
-					throw new DataFormatException(Msg.code(1857) + "Did not find any content to parse");
-				}
-				if (nextInt == '{') {
-					pbr.unread(nextInt);
-					break;
-				}
-				if (Character.isWhitespace(nextInt)) {
-					continue;
-				}
-				if (allowArray) {
-					if (nextInt == '[') {
-						pbr.unread(nextInt);
-						break;
-					}
-					throw new DataFormatException(Msg.code(1858)
-							+ "Content does not appear to be FHIR JSON, first non-whitespace character was: '"
-							+ (char) nextInt + "' (must be '{' or '[')");
-				}
-				throw new DataFormatException(Msg.code(1859)
-						+ "Content does not appear to be FHIR JSON, first non-whitespace character was: '"
-						+ (char) nextInt + "' (must be '{')");
-			}
-
+			int nextInt = readToContentStart(pbr, allowArray);
 			if (nextInt == '{') {
 				setNativeObject((ObjectNode) OBJECT_MAPPER.readTree(pbr));
 			} else {
 				setNativeArray((ArrayNode) OBJECT_MAPPER.readTree(pbr));
 			}
 		} catch (Exception e) {
-			String message;
-			if (e instanceof JsonProcessingException) {
-				/*
-				 * Currently there is no way of preventing Jackson from adding this
-				 * annoying REDACTED message from certain messages we get back from
-				 * the parser, so we just manually strip them. Hopefully Jackson
-				 * will accept this request at some point:
-				 * https://github.com/FasterXML/jackson-core/issues/1158
-				 */
-				JsonProcessingException jpe = (JsonProcessingException) e;
-				StringBuilder messageBuilder = new StringBuilder();
-				String originalMessage = jpe.getOriginalMessage();
-				originalMessage = originalMessage.replace(
-						"Source: REDACTED (`StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION` disabled); ", "");
-				messageBuilder.append(originalMessage);
-				if (jpe.getLocation() != null) {
-					messageBuilder.append("\n at [");
-					jpe.getLocation().appendOffsetDescription(messageBuilder);
-					messageBuilder.append("]");
-				}
-				message = messageBuilder.toString();
-			} else {
-				message = e.getMessage();
+			throw toDataFormatException(e);
+		}
+	}
+
+	/**
+	 * Creates a Jackson token stream over the given reader, configured identically to the
+	 * mapper used by {@link #load(Reader)}. This is used by the streaming parse mode, which
+	 * walks the tokens directly instead of first materializing an {@link ObjectNode} tree.
+	 * The content must be a JSON object.
+	 *
+	 * @since 8.8.0
+	 */
+	public static JsonParser createStreamingParser(Reader theReader) throws DataFormatException {
+		PushbackReader pbr = new PushbackReader(theReader);
+		try {
+			readToContentStart(pbr, false);
+			return OBJECT_MAPPER.getFactory().createParser(pbr);
+		} catch (Exception e) {
+			throw toDataFormatException(e);
+		}
+	}
+
+	/**
+	 * Reads the value at the current token of a parser created by {@link #createStreamingParser(Reader)}
+	 * into a small tree, leaving the parser positioned on the last token of the value. This is used for
+	 * the small fragments (primitive values and their <code>_element</code> siblings) where the streaming
+	 * parse mode delegates to the tree-based logic.
+	 *
+	 * @since 8.8.0
+	 */
+	public static BaseJsonLikeValue readStreamingValue(JsonParser theParser) throws IOException {
+		JsonNode node = STREAMING_VALUE_READER.readTree(theParser);
+		return new JacksonJsonValue(node);
+	}
+
+	/**
+	 * Converts a failure raised by Jackson while reading JSON content into the
+	 * {@link DataFormatException} reported to parser callers.
+	 *
+	 * @since 8.8.0
+	 */
+	public static DataFormatException toDataFormatException(Exception e) {
+		String message;
+		if (e instanceof JsonProcessingException) {
+			/*
+			 * Currently there is no way of preventing Jackson from adding this
+			 * annoying REDACTED message from certain messages we get back from
+			 * the parser, so we just manually strip them. Hopefully Jackson
+			 * will accept this request at some point:
+			 * https://github.com/FasterXML/jackson-core/issues/1158
+			 */
+			JsonProcessingException jpe = (JsonProcessingException) e;
+			StringBuilder messageBuilder = new StringBuilder();
+			String originalMessage = jpe.getOriginalMessage();
+			originalMessage = originalMessage.replace(
+					"Source: REDACTED (`StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION` disabled); ", "");
+			messageBuilder.append(originalMessage);
+			if (jpe.getLocation() != null) {
+				messageBuilder.append("\n at [");
+				jpe.getLocation().appendOffsetDescription(messageBuilder);
+				messageBuilder.append("]");
 			}
+			message = messageBuilder.toString();
+		} else {
+			message = e.getMessage();
+		}
+
+		if (message.startsWith("Unexpected char 39")) {
+			return new DataFormatException(
+					Msg.code(1860) + "Failed to parse JSON encoded FHIR content: " + message + " - "
+							+ "This may indicate that single quotes are being used as JSON escapes where double quotes are required",
+					e);
+		}
+		return new DataFormatException(Msg.code(1861) + "Failed to parse JSON encoded FHIR content: " + message, e);
+	}
 
-			if (message.startsWith("Unexpected char 39")) {
-				throw new DataFormatException(
-						Msg.code(1860) + "Failed to parse JSON encoded FHIR content: " + message + " - "
-								+ "This may indicate that single quotes are being used as JSON escapes where double quotes are required",
-						e);
+	private static int readToContentStart(PushbackReader thePushbackReader, boolean theAllowArray) throws IOException {
+		int nextInt;
+		while (true) {
+			nextInt = thePushbackReader.read();
+			if (nextInt == -1) {
+				throw new DataFormatException(Msg.code(1857) + "Did not find any content to parse");
+			}
+			if (nextInt == '{') {
+				thePushbackReader.unread(nextInt);
+				break;
+			}
+			if (Character.isWhitespace(nextInt)) {
+				continue;
+			}
+			if (theAllowArray) {
+				if (nextInt == '[') {
+					thePushbackReader.unread(nextInt);
+					break;
+				}
+				throw new DataFormatException(Msg.code(1858)
+						+ "Content does not appear to be FHIR JSON, first non-whitespace character was: '"
+						+ (char) nextInt + "' (must be '{' or '[')");
 			}
-			throw new DataFormatException(Msg.code(1861) + "Failed to parse JSON encoded FHIR content: " + message, e);
+			throw new DataFormatException(Msg.code(1859)
+					+ "Content does not appear to be FHIR JSON, first non-whitespace character was: '"
+					+ (char) nextInt + "' (must be '{')");
 		}
+		return nextInt;
 	}
 
 	@Override
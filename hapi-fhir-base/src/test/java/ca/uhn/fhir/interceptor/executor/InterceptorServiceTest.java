@@ -169,6 +169,69 @@ class InterceptorServiceTest {
 
 	}
 
+	@Test
+	void testInterceptorThrowsCheckedException() {
+
+		class InterceptorThrowingCheckedException {
+			@Hook(Pointcut.TEST_RB)
+			public void test(String theValue) throws Exception {
+				throw new Exception(theValue);
+			}
+		}
+
+		InterceptorService svc = new InterceptorService();
+		svc.registerInterceptor(new InterceptorThrowingCheckedException());
+
+		assertThatThrownBy(() -> svc.callHooks(Pointcut.TEST_RB, new HookParams("A MESSAGE", "B")))
+			.isInstanceOf(InternalErrorException.class)
+			.hasMessage(Msg.code(1910) + "Failure invoking interceptor for pointcut(s) TEST_RB")
+			.hasRootCauseMessage("A MESSAGE");
+	}
+
+	@Test
+	void testInterceptorReceivesParametersInDeclaredOrder() {
+
+		class InterceptorCapturingParameters {
+			private final List<Object> myCaptured = new ArrayList<>();
+
+			@Hook(Pointcut.TEST_RB)
+			public boolean test(String theValue0, Pointcut thePointcut, String theValue1) {
+				myCaptured.add(theValue0);
+				myCaptured.add(thePointcut);
+				myCaptured.add(theValue1);
+				return false;
+			}
+		}
+
+		InterceptorCapturingParameters interceptor = new InterceptorCapturingParameters();
+		InterceptorService svc = new InterceptorService();
+		svc.registerInterceptor(interceptor);
+
+		assertFalse(svc.callHooks(Pointcut.TEST_RB, new HookParams("A", "B")));
+		assertThat(interceptor.myCaptured).containsExactly("A", Pointcut.TEST_RB, "B");
+	}
+
+	@Test
+	void testGetInvokersForPointcutReturnsStableCopy() {
+		InterceptorService svc = new InterceptorService();
+		MyTestInterceptorOne interceptor0 = new MyTestInterceptorOne();
+		MyTestInterceptorTwo interceptor1 = new MyTestInterceptorTwo();
+		svc.registerInterceptor(interceptor0);
+		svc.registerInterceptor(interceptor1);
+
+		List<IBaseInterceptorBroadcaster.IInvoker> invokers = svc.getInvokersForPointcut(Pointcut.TEST_RB);
+		assertThat(invokers).hasSize(2);
+		invokers.clear();
+		assertThat(svc.getInvokersForPointcut(Pointcut.TEST_RB)).hasSize(2);
+
+		svc.unregisterInterceptor(interceptor0);
+		assertThat(svc.getInvokersForPointcut(Pointcut.TEST_RB)).hasSize(1);
+		svc.unregisterInterceptor(interceptor1);
+		assertThat(svc.getInvokersForPointcut(Pointcut.TEST_RB)).isEmpty();
+		assertFalse(svc.hasHooks(Pointcut.TEST_RB));
+		assertTrue(svc.callHooks(Pointcut.TEST_RB, new HookParams("A", "B")));
+	}
+
 	@Test
 	void testInterceptorWithNoHooks() {
 
@@ -31,6 +31,7 @@ import ca.uhn.fhir.batch2.model.WorkChunkCompletionEvent;
 import ca.uhn.fhir.batch2.model.WorkChunkCreateEvent;
 import ca.uhn.fhir.batch2.model.WorkChunkErrorEvent;
 import ca.uhn.fhir.batch2.model.WorkChunkMetadata;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCounts;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.batch2.models.JobInstanceFetchRequest;
 import ca.uhn.fhir.interceptor.api.HookParams;
@@ -69,6 +70,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
@@ -172,15 +174,19 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 		// But how does re-run happen if k8s kills a processor mid run?
 		List<WorkChunkStatusEnum> priorStates =
 				List.of(WorkChunkStatusEnum.QUEUED, WorkChunkStatusEnum.ERRORED, WorkChunkStatusEnum.IN_PROGRESS);
+		Date startTime = new Date();
 		int rowsModified = myWorkChunkRepository.updateChunkStatusForStart(
-				theChunkId, new Date(), WorkChunkStatusEnum.IN_PROGRESS, priorStates);
+				theChunkId, startTime, WorkChunkStatusEnum.IN_PROGRESS, priorStates);
 
 		if (rowsModified == 0) {
 			ourLog.info("Attempting to start chunk {} but it was already started.", theChunkId);
 			return Optional.empty();
 		} else {
-			Optional<Batch2WorkChunkEntity> chunk = myWorkChunkRepository.findById(theChunkId);
-			return chunk.map(this::toChunk);
+			// We hold the row lock, so the locked copy plus the update we just made is exactly what
+			// is in the database - no need to select the chunk (and its data) a second time
+			chunkLock.setStatus(WorkChunkStatusEnum.IN_PROGRESS);
+			chunkLock.setStartTime(startTime);
+			return Optional.of(toChunk(chunkLock));
 		}
 	}
 
@@ -274,6 +280,20 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 				.execute(() -> myWorkChunkRepository.fetchWorkChunkStatusForInstance(theInstanceId));
 	}
 
+	@Nonnull
+	@Override
+	public WorkChunkStatusCounts fetchWorkChunkStatusCounts(String theInstanceId) {
+		List<Object[]> rows = myTransactionService
+				.withSystemRequestOnDefaultPartition()
+				.execute(() -> myWorkChunkRepository.countChunksByStepAndStatus(theInstanceId));
+		WorkChunkStatusCounts retVal = new WorkChunkStatusCounts();
+		for (Object[] next : rows) {
+			retVal.addCount((String) next[0], (WorkChunkStatusEnum) next[1], ((Number) next[2]).longValue());
+			retVal.addTotals((Date) next[3], (Date) next[4], toLong(next[5]), toLong(next[6]));
+		}
+		return retVal;
+	}
+
 	@Nonnull
 	@Override
 	public BatchInstanceStatusDTO fetchBatchInstanceStatus(String theInstanceId) {
@@ -356,6 +376,23 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 		theCallback.accept(updated);
 	}
 
+	@Override
+	public void enqueueWorkChunksForProcessing(List<String> theChunkIds, Consumer<List<String>> theCallback) {
+		List<String> queuedChunkIds = new ArrayList<>(theChunkIds.size());
+		for (List<String> nextBatch : ListUtils.partition(theChunkIds, IJobPersistence.ENQUEUE_BATCH_SIZE)) {
+			// Lock the READY chunks in a single statement, skipping any that another
+			// transaction currently holds (the next maintenance pass will pick those up)
+			List<String> readyChunkIds = myWorkChunkRepository.fetchChunkIdsWithStatusForUpdateSkipLocked(
+					nextBatch, WorkChunkStatusEnum.READY);
+			if (!readyChunkIds.isEmpty()) {
+				myWorkChunkRepository.updateChunksStatus(
+						readyChunkIds, WorkChunkStatusEnum.READY, WorkChunkStatusEnum.QUEUED);
+				queuedChunkIds.addAll(readyChunkIds);
+			}
+		}
+		theCallback.accept(queuedChunkIds);
+	}
+
 	@Override
 	public int updatePollWaitingChunksForJobIfReady(String theInstanceId) {
 		return myWorkChunkRepository.updateWorkChunksForPollWaiting(
@@ -678,4 +715,8 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 
 		return changed;
 	}
+
+	private static long toLong(@Nullable Object theValue) {
+		return theValue != null ? ((Number) theValue).longValue() : 0;
+	}
 }
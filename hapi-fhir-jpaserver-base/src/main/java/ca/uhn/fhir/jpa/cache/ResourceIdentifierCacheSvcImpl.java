@@ -25,6 +25,7 @@ import ca.uhn.fhir.jpa.dao.data.IResourceIdentifierSystemEntityDao;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.model.entity.ResourceIdentifierPatientUniqueEntity;
 import ca.uhn.fhir.jpa.model.entity.ResourceSystemEntity;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.ResourceVersionConflictException;
@@ -44,7 +45,7 @@ import java.util.function.Supplier;
 public class ResourceIdentifierCacheSvcImpl implements IResourceIdentifierCacheSvc {
 
 	private static final Logger ourLog = LoggerFactory.getLogger(ResourceIdentifierCacheSvcImpl.class);
-	private final MemoryCacheService myMemoryCache;
+	private final IMemoryCacheService myMemoryCache;
 	private final IResourceIdentifierSystemEntityDao myResourceIdentifierSystemEntityDao;
 	private final IResourceIdentifierPatientUniqueEntityDao myResourceIdentifierPatientUniqueEntityDao;
 	private final IHapiTransactionService myTransactionService;
@@ -55,7 +56,7 @@ public class ResourceIdentifierCacheSvcImpl implements IResourceIdentifierCacheS
 	 */
 	public ResourceIdentifierCacheSvcImpl(
 			IHapiTransactionService theTransactionService,
-			MemoryCacheService theMemoryCache,
+			IMemoryCacheService theMemoryCache,
 			IResourceIdentifierSystemEntityDao theResourceIdentifierSystemEntityDao,
 			IResourceIdentifierPatientUniqueEntityDao theResourceIdentifierPatientUniqueEntityDao,
 			EntityManager theEntityManager) {
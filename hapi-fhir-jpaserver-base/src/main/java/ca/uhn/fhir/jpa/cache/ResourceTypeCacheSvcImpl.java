@@ -24,6 +24,7 @@ import ca.uhn.fhir.jpa.config.util.ResourceTypeUtil;
 import ca.uhn.fhir.jpa.dao.data.IResourceTypeDao;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.model.entity.ResourceTypeEntity;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import jakarta.annotation.PostConstruct;
@@ -43,12 +44,12 @@ public class ResourceTypeCacheSvcImpl implements IResourceTypeCacheSvc {
 
 	private final IHapiTransactionService myTransactionService;
 	private final IResourceTypeDao myResourceTypeDao;
-	private final MemoryCacheService myMemoryCacheService;
+	private final IMemoryCacheService myMemoryCacheService;
 
 	public ResourceTypeCacheSvcImpl(
 			IHapiTransactionService theTransactionService,
 			IResourceTypeDao theResourceTypeDao,
-			MemoryCacheService theMemoryCacheService) {
+			IMemoryCacheService theMemoryCacheService) {
 		myTransactionService = theTransactionService;
 		myResourceTypeDao = theResourceTypeDao;
 		myMemoryCacheService = theMemoryCacheService;
@@ -24,6 +24,7 @@ import ca.uhn.fhir.batch2.api.IJobPersistence;
 import ca.uhn.fhir.batch2.jobs.export.BulkDataExportProvider;
 import ca.uhn.fhir.batch2.jobs.expunge.DeleteExpungeJobSubmitterImpl;
 import ca.uhn.fhir.batch2.util.Batch2TaskHelper;
+import ca.uhn.fhir.broker.api.IBrokerClient;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.context.support.IValidationSupport;
@@ -65,12 +66,17 @@ import ca.uhn.fhir.jpa.dao.MatchResourceUrlService;
 import ca.uhn.fhir.jpa.dao.ResourceHistoryCalculator;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
 import ca.uhn.fhir.jpa.dao.TransactionProcessor;
+import ca.uhn.fhir.jpa.dao.compression.IResourceCompressionDictionarySvc;
+import ca.uhn.fhir.jpa.dao.compression.ResourceCompressionDictionarySvcImpl;
+import ca.uhn.fhir.jpa.dao.data.IResourceCompressionDictionaryDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceIdentifierPatientUniqueEntityDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceIdentifierSystemEntityDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceIndexedSearchParamIdentityDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceLinkDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceModifiedDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceSearchUrlDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceTableDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceTypeDao;
 import ca.uhn.fhir.jpa.dao.data.ITagDefinitionDao;
 import ca.uhn.fhir.jpa.dao.expunge.ExpungeEverythingService;
@@ -155,16 +161,21 @@ import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryBuilder;
 import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryExecutor;
 import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchTask;
+import ca.uhn.fhir.jpa.search.cache.DatabaseBlockSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.DatabaseSearchCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.DatabaseSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.ISearchResultCacheSvc;
+import ca.uhn.fhir.jpa.search.cache.OffHeapSearchCacheSvcImpl;
+import ca.uhn.fhir.jpa.search.cache.OffHeapSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.elastic.IndexNamePrefixLayoutStrategy;
 import ca.uhn.fhir.jpa.search.reindex.IInstanceReindexService;
 import ca.uhn.fhir.jpa.search.reindex.IResourceReindexingSvc;
 import ca.uhn.fhir.jpa.search.reindex.InstanceReindexServiceImpl;
 import ca.uhn.fhir.jpa.search.reindex.ResourceReindexer;
 import ca.uhn.fhir.jpa.search.reindex.ResourceReindexingSvcImpl;
+import ca.uhn.fhir.jpa.search.stats.ISearchParamStatisticsSvc;
+import ca.uhn.fhir.jpa.search.stats.SearchParamStatisticsSvcImpl;
 import ca.uhn.fhir.jpa.search.warm.CacheWarmingSvcImpl;
 import ca.uhn.fhir.jpa.search.warm.ICacheWarmingSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
@@ -186,7 +197,12 @@ import ca.uhn.fhir.jpa.term.api.ITermConceptMappingSvc;
 import ca.uhn.fhir.jpa.term.api.ITermReadSvc;
 import ca.uhn.fhir.jpa.term.api.ITermReindexingSvc;
 import ca.uhn.fhir.jpa.term.config.TermCodeSystemConfig;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
+import ca.uhn.fhir.jpa.util.IMemoryCacheSharedTier;
 import ca.uhn.fhir.jpa.util.JpaHapiTransactionService;
+import ca.uhn.fhir.jpa.util.MemoryCacheAdaptiveSizingSvc;
+import ca.uhn.fhir.jpa.util.MemoryCacheInvalidationBroadcaster;
+import ca.uhn.fhir.jpa.util.MemoryCacheJmxExporter;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.PartitionedIdModeVerificationSvc;
 import ca.uhn.fhir.jpa.util.PersistenceContextProvider;
@@ -236,6 +252,7 @@ import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Date;
 import java.util.List;
+import javax.management.MBeanServer;
 
 @Configuration
 // repositoryFactoryBeanClass: EnversRevisionRepositoryFactoryBean is needed primarily for unit testing
@@ -415,8 +432,37 @@ public class JpaConfig {
 	}
 
 	@Bean
-	public MemoryCacheService memoryCacheService(JpaStorageSettings theStorageSettings) {
-		return new MemoryCacheService(theStorageSettings);
+	public MemoryCacheService memoryCacheService(
+			JpaStorageSettings theStorageSettings,
+			@Autowired(required = false) IMemoryCacheSharedTier theMemoryCacheSharedTier) {
+		MemoryCacheService retVal = new MemoryCacheService(theStorageSettings);
+		retVal.setSharedTier(theMemoryCacheSharedTier);
+		return retVal;
+	}
+
+	@Bean
+	public MemoryCacheInvalidationBroadcaster memoryCacheInvalidationBroadcaster(
+			MemoryCacheService theMemoryCacheService,
+			JpaStorageSettings theStorageSettings,
+			@Autowired(required = false) IBrokerClient theBrokerClient) {
+		return new MemoryCacheInvalidationBroadcaster(theBrokerClient, theMemoryCacheService, theStorageSettings);
+	}
+
+	@Bean
+	public MemoryCacheJmxExporter memoryCacheJmxExporter(
+			MemoryCacheService theMemoryCacheService,
+			JpaStorageSettings theStorageSettings,
+			@Autowired(required = false) MBeanServer theMBeanServer) {
+		if (theMBeanServer != null) {
+			return new MemoryCacheJmxExporter(theMemoryCacheService, theStorageSettings, theMBeanServer);
+		}
+		return new MemoryCacheJmxExporter(theMemoryCacheService, theStorageSettings);
+	}
+
+	@Bean
+	public MemoryCacheAdaptiveSizingSvc memoryCacheAdaptiveSizingSvc(
+			MemoryCacheService theMemoryCacheService, JpaStorageSettings theStorageSettings) {
+		return new MemoryCacheAdaptiveSizingSvc(theMemoryCacheService, theStorageSettings);
 	}
 
 	@Bean
@@ -441,13 +487,30 @@ public class JpaConfig {
 	}
 
 	@Bean
-	public ISearchCacheSvc searchCacheSvc() {
+	public ISearchCacheSvc searchCacheSvc(JpaStorageSettings theStorageSettings) {
+		if (theStorageSettings.getSearchResultCacheStorageMode()
+				== JpaStorageSettings.SearchResultCacheStorageModeEnum.OFF_HEAP) {
+			return new OffHeapSearchCacheSvcImpl();
+		}
 		return new DatabaseSearchCacheSvcImpl();
 	}
 
 	@Bean
-	public ISearchResultCacheSvc searchResultCacheSvc() {
-		return new DatabaseSearchResultCacheSvcImpl();
+	public ISearchResultCacheSvc searchResultCacheSvc(JpaStorageSettings theStorageSettings) {
+		switch (theStorageSettings.getSearchResultCacheStorageMode()) {
+			case BLOCKS:
+				return new DatabaseBlockSearchResultCacheSvcImpl();
+			case OFF_HEAP:
+				return new OffHeapSearchResultCacheSvcImpl(theStorageSettings.getSearchResultCacheOffHeapMaxBytes());
+			case ROWS:
+			default:
+				return new DatabaseSearchResultCacheSvcImpl();
+		}
+	}
+
+	@Bean
+	public ISearchParamStatisticsSvc searchParamStatisticsSvc() {
+		return new SearchParamStatisticsSvcImpl();
 	}
 
 	@Bean
@@ -1039,8 +1102,30 @@ public class JpaConfig {
 
 	@Bean
 	public ResourceHistoryCalculator resourceHistoryCalculator(
-			FhirContext theFhirContext, HibernatePropertiesProvider theHibernatePropertiesProvider) {
-		return new ResourceHistoryCalculator(theFhirContext, theHibernatePropertiesProvider.isOracleDialect());
+			FhirContext theFhirContext,
+			HibernatePropertiesProvider theHibernatePropertiesProvider,
+			IResourceCompressionDictionarySvc theCompressionDictionarySvc) {
+		ResourceHistoryCalculator retVal =
+				new ResourceHistoryCalculator(theFhirContext, theHibernatePropertiesProvider.isOracleDialect());
+		retVal.setCompressionDictionarySvc(theCompressionDictionarySvc);
+		return retVal;
+	}
+
+	@Bean
+	public IResourceCompressionDictionarySvc resourceCompressionDictionarySvc(
+			JpaStorageSettings theStorageSettings,
+			IHapiTransactionService theTransactionService,
+			IResourceCompressionDictionaryDao theDictionaryDao,
+			IResourceHistoryTableDao theResourceHistoryTableDao,
+			IResourceTableDao theResourceTableDao,
+			IMemoryCacheService theMemoryCacheService) {
+		return new ResourceCompressionDictionarySvcImpl(
+				theStorageSettings,
+				theTransactionService,
+				theDictionaryDao,
+				theResourceHistoryTableDao,
+				theResourceTableDao,
+				theMemoryCacheService);
 	}
 
 	@Bean
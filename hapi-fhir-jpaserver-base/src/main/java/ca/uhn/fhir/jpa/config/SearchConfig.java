@@ -40,6 +40,10 @@ import ca.uhn.fhir.jpa.search.ISynchronousSearchSvc;
 import ca.uhn.fhir.jpa.search.PersistedJpaBundleProviderFactory;
 import ca.uhn.fhir.jpa.search.SearchCoordinatorSvcImpl;
 import ca.uhn.fhir.jpa.search.SearchStrategyFactory;
+import ca.uhn.fhir.jpa.search.builder.IncludeLoadingExecutor;
+import ca.uhn.fhir.jpa.search.builder.PredicateIntersectionExecutor;
+import ca.uhn.fhir.jpa.search.builder.PredicateSelectivityEstimator;
+import ca.uhn.fhir.jpa.search.builder.ResourceParsingExecutor;
 import ca.uhn.fhir.jpa.search.builder.SearchBuilder;
 import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchContinuationTask;
@@ -47,6 +51,7 @@ import ca.uhn.fhir.jpa.search.builder.tasks.SearchTask;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchTaskParameters;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.ISearchResultCacheSvc;
+import ca.uhn.fhir.jpa.search.stats.ISearchParamStatisticsSvc;
 import ca.uhn.fhir.rest.server.IPagingProvider;
 import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
 import jakarta.annotation.PostConstruct;
@@ -160,6 +165,27 @@ public class SearchConfig {
 		return new ExceptionService(myContext);
 	}
 
+	@Bean
+	public PredicateSelectivityEstimator predicateSelectivityEstimator(
+			ISearchParamStatisticsSvc theSearchParamStatisticsSvc) {
+		return new PredicateSelectivityEstimator(myPartitionSettings, theSearchParamStatisticsSvc);
+	}
+
+	@Bean
+	public PredicateIntersectionExecutor predicateIntersectionExecutor() {
+		return new PredicateIntersectionExecutor(myStorageSettings);
+	}
+
+	@Bean
+	public IncludeLoadingExecutor includeLoadingExecutor() {
+		return new IncludeLoadingExecutor(myStorageSettings);
+	}
+
+	@Bean
+	public ResourceParsingExecutor resourceParsingExecutor() {
+		return new ResourceParsingExecutor(myStorageSettings);
+	}
+
 	@Bean(name = ISearchBuilder.SEARCH_BUILDER_BEAN_NAME)
 	@Scope("prototype")
 	public ISearchBuilder newSearchBuilder(String theResourceName, Class<? extends IBaseResource> theResourceType) {
@@ -482,6 +482,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		byte[] resourceBinary;
 		String resourceText;
 		ResourceEncodingEnum encoding;
+		Long compressionDictionaryId = null;
 		boolean changed = false;
 
 		if (theEntity.getDeleted() == null) {
@@ -521,6 +522,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 					resourceText = calculate.getResourceText();
 					resourceBinary = calculate.getResourceBinary();
 					encoding = calculate.getEncoding(); // This may be a no-op
+					compressionDictionaryId = calculate.getCompressionDictionaryId();
 					final HashCode hashCode = calculate.getHashCode();
 
 					String hashSha256 = hashCode.toString();
@@ -585,7 +587,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 					// TODO:  LD: Once 2024-02 it out the door we should consider further refactoring here to move
 					// more of this logic within the calculator and eliminate more local variables
 					changed = myResourceHistoryCalculator.isResourceHistoryChanged(
-							currentHistoryVersion, resourceBinary, resourceText);
+							currentHistoryVersion, encoding, resourceBinary, resourceText, compressionDictionaryId);
 				}
 			}
 		}
@@ -594,6 +596,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		retVal.setEncoding(encoding);
 		retVal.setResourceBinary(resourceBinary);
 		retVal.setResourceText(resourceText);
+		retVal.setCompressionDictionaryId(compressionDictionaryId);
 		retVal.setChanged(changed);
 
 		return retVal;
@@ -1258,11 +1261,14 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			ResourceEncodingEnum encoding = myStorageSettings.getResourceEncoding();
 			List<String> excludeElements = new ArrayList<>(8);
 			getExcludedElements(historyEntity.getResourceType(), excludeElements, theResource.getMeta());
-			String encodedResourceString =
-					myResourceHistoryCalculator.encodeResource(theResource, encoding, excludeElements);
-			byte[] resourceBinary = ResourceHistoryCalculator.getResourceBinary(encoding, encodedResourceString);
+			final ResourceHistoryState calculate =
+					myResourceHistoryCalculator.calculateResourceHistoryState(theResource, encoding, excludeElements);
 			final boolean changed = myResourceHistoryCalculator.isResourceHistoryChanged(
-					historyEntity, resourceBinary, encodedResourceString);
+					historyEntity,
+					calculate.getEncoding(),
+					calculate.getResourceBinary(),
+					calculate.getResourceText(),
+					calculate.getCompressionDictionaryId());
 
 			historyEntity.setUpdated(theTransactionDetails.getTransactionDate());
 
@@ -1274,8 +1280,12 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 				return historyEntity;
 			}
 
-			myResourceHistoryCalculator.populateEncodedResource(
-					encodedResource, encodedResourceString, resourceBinary, encoding);
+			populateEncodedResource(
+					encodedResource,
+					calculate.getResourceText(),
+					calculate.getResourceBinary(),
+					calculate.getEncoding());
+			encodedResource.setCompressionDictionaryId(calculate.getCompressionDictionaryId());
 		}
 		/*
 		 * Save the resource itself to the resourceHistoryTable
@@ -1284,6 +1294,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		historyEntity.setEncoding(encodedResource.getEncoding());
 		historyEntity.setResource(encodedResource.getResourceBinary());
 		historyEntity.setResourceTextVc(encodedResource.getResourceText());
+		historyEntity.setCompressionDictionaryId(encodedResource.getCompressionDictionaryId());
 		myResourceHistoryTableDao.save(historyEntity);
 
 		myJpaStorageResourceParser.updateResourceMetadata(historyEntity, theResource);
@@ -1339,6 +1350,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		historyEntry.setEncoding(theChanged.getEncoding());
 		historyEntry.setResource(theChanged.getResourceBinary());
 		historyEntry.setResourceTextVc(theChanged.getResourceText());
+		historyEntry.setCompressionDictionaryId(theChanged.getCompressionDictionaryId());
 
 		ourLog.debug("Saving history entry ID[{}] for RES_ID[{}]", historyEntry.getId(), historyEntry.getResourceId());
 		myEntityManager.persist(historyEntry);
@@ -1797,6 +1809,14 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			case JSONC:
 				resourceText = GZipUtil.decompress(theResourceBytes);
 				break;
+			case ZSTD:
+			case ZSTDD:
+				// ZSTDD bodies compressed with a dictionary are decoded by ResourceHistoryCalculator
+				resourceText = ZstdUtil.decompress(theResourceBytes);
+				break;
+			case LZ4:
+				resourceText = Lz4Util.decompress(theResourceBytes);
+				break;
 			case DEL:
 			case ESR:
 				break;
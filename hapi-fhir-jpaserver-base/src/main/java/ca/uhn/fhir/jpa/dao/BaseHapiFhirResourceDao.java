@@ -76,6 +76,7 @@ import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.ResourceSearch;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.update.UpdateParameters;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.model.api.IQueryParameterType;
@@ -232,7 +233,7 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	private PersistedJpaBundleProviderFactory myPersistedJpaBundleProviderFactory;
 
 	@Autowired
-	private MemoryCacheService myMemoryCacheService;
+	private IMemoryCacheService myMemoryCacheService;
 
 	private TransactionTemplate myTxTemplate;
 
@@ -1931,12 +1932,21 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	 * in order to avoid growing the number of resources in memory to be too big
 	 */
 	private void reindexOptimizeStorageHistoryEntity(ResourceTable entity, ResourceHistoryTable historyEntity) {
-		if (historyEntity.getEncoding() == ResourceEncodingEnum.JSONC
-				|| historyEntity.getEncoding() == ResourceEncodingEnum.JSON) {
-			byte[] resourceBytes = historyEntity.getResource();
-			if (resourceBytes != null) {
-				String resourceText = decodeResource(resourceBytes, historyEntity.getEncoding());
-				myResourceHistoryCalculator.conditionallyAlterHistoryEntity(entity, historyEntity, resourceText);
+		ResourceEncodingEnum encoding = historyEntity.getEncoding();
+		if (encoding == ResourceEncodingEnum.JSONC
+				|| encoding == ResourceEncodingEnum.JSON
+				|| encoding.isCompressedOnAllDialects()) {
+			String resourceText = null;
+			// Also rewrite VARCHAR bodies when switching to (or away from) an encoding which
+			// compresses on all dialects, so that existing rows are recompressed in place
+			if (historyEntity.getResource() != null
+					|| myStorageSettings.getResourceEncoding().isCompressedOnAllDialects()
+					|| encoding.isCompressedOnAllDialects()) {
+				resourceText = myResourceHistoryCalculator.decodeResource(historyEntity);
+			}
+			if (resourceText != null) {
+				myResourceHistoryCalculator.conditionallyAlterHistoryEntity(
+						entity, historyEntity, resourceText, myStorageSettings.getResourceEncoding());
 			}
 		}
 		if (myStorageSettings.isAccessMetaSourceInformationFromProvenanceTable()) {
@@ -27,6 +27,7 @@ class EncodedResource {
 	private byte[] myResource;
 	private ResourceEncodingEnum myEncoding;
 	private String myResourceText;
+	private Long myCompressionDictionaryId;
 
 	public ResourceEncodingEnum getEncoding() {
 		return myEncoding;
@@ -59,4 +60,12 @@ class EncodedResource {
 	public void setResourceText(String theResourceText) {
 		myResourceText = theResourceText;
 	}
+
+	public Long getCompressionDictionaryId() {
+		return myCompressionDictionaryId;
+	}
+
+	public void setCompressionDictionaryId(Long theCompressionDictionaryId) {
+		myCompressionDictionaryId = theCompressionDictionaryId;
+	}
 }
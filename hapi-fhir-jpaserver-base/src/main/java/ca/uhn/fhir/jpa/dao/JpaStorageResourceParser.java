@@ -26,6 +26,8 @@ import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.IDao;
+import ca.uhn.fhir.jpa.dao.compression.IResourceCompressionDictionarySvc;
+import ca.uhn.fhir.jpa.dao.compression.ResourceCompressionDictionary;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryProvenanceDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
 import ca.uhn.fhir.jpa.entity.PartitionEntity;
@@ -114,6 +116,9 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 	@Autowired
 	private IInterceptorBroadcaster myInterceptorBroadcaster;
 
+	@Autowired
+	private IResourceCompressionDictionarySvc myCompressionDictionarySvc;
+
 	@Override
 	public IBaseResource toResource(IBasePersistedResource theEntity, boolean theForHistoryOperation) {
 		RuntimeResourceDefinition type = myFhirContext.getResourceDefinition(theEntity.getResourceType());
@@ -133,6 +138,7 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		byte[] resourceBytes;
 		String resourceText;
 		ResourceEncodingEnum resourceEncoding;
+		Long compressionDictionaryId;
 		@Nullable Collection<? extends BaseTag> tagList;
 		long version;
 		String provenanceSourceUri = null;
@@ -143,6 +149,7 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 			resourceBytes = history.getResource();
 			resourceText = history.getResourceTextVc();
 			resourceEncoding = history.getEncoding();
+			compressionDictionaryId = history.getCompressionDictionaryId();
 
 			// For search results we get the list of tags passed in because we load it
 			// in bulk for all resources we're going to return, but for read results
@@ -206,6 +213,7 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 			resourceBytes = history.getResource();
 			resourceEncoding = history.getEncoding();
 			resourceText = history.getResourceTextVc();
+			compressionDictionaryId = history.getCompressionDictionaryId();
 			switch (myStorageSettings.getTagStorageMode()) {
 				case VERSIONED:
 				case NON_VERSIONED:
@@ -240,7 +248,8 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		}
 
 		// 2. get The text
-		String decodedResourceText = decodedResourceText(resourceBytes, resourceText, resourceEncoding);
+		String decodedResourceText =
+				decodedResourceText(resourceBytes, resourceText, resourceEncoding, compressionDictionaryId);
 
 		// 3. Use the appropriate custom type if one is specified in the context
 		Class<R> resourceType = determineTypeToParse(theResourceType, tagList);
@@ -572,11 +581,21 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		return FhirContext.forCached(theVersion);
 	}
 
-	private static String decodedResourceText(
-			byte[] resourceBytes, String resourceText, ResourceEncodingEnum resourceEncoding) {
+	private String decodedResourceText(
+			byte[] resourceBytes,
+			String resourceText,
+			ResourceEncodingEnum resourceEncoding,
+			@Nullable Long theCompressionDictionaryId) {
+		if (theCompressionDictionaryId != null) {
+			ResourceCompressionDictionary dictionary =
+					myCompressionDictionarySvc.getDictionary(theCompressionDictionaryId);
+			return ResourceHistoryCalculator.decodeResourceBody(
+					resourceBytes, resourceText, resourceEncoding, dictionary);
+		}
+
 		String decodedResourceText;
 		if (resourceText != null) {
-			decodedResourceText = resourceText;
+			decodedResourceText = ResourceHistoryCalculator.decodeResourceTextVc(resourceText, resourceEncoding);
 		} else {
 			decodedResourceText = decodeResource(resourceBytes, resourceEncoding);
 		}
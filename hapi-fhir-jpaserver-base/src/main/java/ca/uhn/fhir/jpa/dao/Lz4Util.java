@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.DataFormatException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * LZ4 counterpart to {@link GZipUtil}, used for the
+ * {@link ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum#LZ4} encoding.
+ * <p>
+ * Contents are stored as a raw LZ4 block, prefixed with the uncompressed
+ * length as a 4 byte big-endian integer.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class Lz4Util {
+
+	private static final int LENGTH_PREFIX_BYTES = Integer.BYTES;
+	/**
+	 * LZ4 can't compress better than this, so anything claiming a higher ratio is corrupt
+	 */
+	private static final int MAX_COMPRESSION_RATIO = 256;
+
+	private static final LZ4Compressor ourCompressor =
+			LZ4Factory.fastestInstance().fastCompressor();
+	private static final LZ4SafeDecompressor ourDecompressor =
+			LZ4Factory.fastestInstance().safeDecompressor();
+
+	public static String decompress(byte[] theResource) {
+		if (theResource.length < LENGTH_PREFIX_BYTES) {
+			throw new DataFormatException(Msg.code(2835) + "Failed to decompress contents: Invalid LZ4 block");
+		}
+		int length = ByteBuffer.wrap(theResource).getInt();
+		if (length < 0 || length > MAX_COMPRESSION_RATIO * (long) theResource.length) {
+			throw new DataFormatException(Msg.code(2836) + "Failed to decompress contents: Invalid LZ4 block");
+		}
+		try {
+			byte[] decompressed = new byte[length];
+			int actualLength = ourDecompressor.decompress(
+					theResource, LENGTH_PREFIX_BYTES, theResource.length - LENGTH_PREFIX_BYTES, decompressed, 0);
+			if (actualLength == length) {
+				return new String(decompressed, StandardCharsets.UTF_8);
+			}
+		} catch (LZ4Exception e) {
+			throw new DataFormatException(Msg.code(2837) + "Failed to decompress contents", e);
+		}
+		throw new DataFormatException(Msg.code(2838) + "Failed to decompress contents: Truncated LZ4 block");
+	}
+
+	public static byte[] compress(String theEncoded) {
+		byte[] input = theEncoded.getBytes(StandardCharsets.UTF_8);
+		byte[] output = new byte[LENGTH_PREFIX_BYTES + ourCompressor.maxCompressedLength(input.length)];
+		ByteBuffer.wrap(output).putInt(input.length);
+		int compressedLength = ourCompressor.compress(input, 0, input.length, output, LENGTH_PREFIX_BYTES);
+		byte[] retVal = new byte[LENGTH_PREFIX_BYTES + compressedLength];
+		System.arraycopy(output, 0, retVal, 0, retVal.length);
+		return retVal;
+	}
+}
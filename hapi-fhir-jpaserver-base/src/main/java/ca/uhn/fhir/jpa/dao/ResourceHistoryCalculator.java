@@ -20,10 +20,14 @@
 package ca.uhn.fhir.jpa.dao;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.dao.compression.IResourceCompressionDictionarySvc;
+import ca.uhn.fhir.jpa.dao.compression.ResourceCompressionDictionary;
 import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
@@ -34,12 +38,27 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Responsible for various resource history-centric and {@link FhirContext} aware operations called by
  * {@link BaseHapiFhirDao} or {@link BaseHapiFhirResourceDao} that require knowledge of whether an Oracle database is
  * being used.
+ * <p>
+ * On Oracle, resource bodies are stored in the binary column using the configured encoding. On all other
+ * databases they are stored in the VARCHAR column, as plain JSON unless the encoding is
+ * {@link ResourceEncodingEnum#isCompressedOnAllDialects() compressed on all dialects}, in which case the
+ * compressed bytes are stored Base64 encoded.
+ * </p>
+ * <p>
+ * The {@link ResourceEncodingEnum#ZSTDD} encoding additionally needs the
+ * {@link IResourceCompressionDictionarySvc compression dictionary service} in order to
+ * find the current dictionary for each resource type. If no service is configured, or no
+ * dictionary has been trained yet for a given type, {@link ResourceEncodingEnum#ZSTD} is
+ * used instead.
+ * </p>
  */
 public class ResourceHistoryCalculator {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ResourceHistoryCalculator.class);
@@ -48,24 +67,45 @@ public class ResourceHistoryCalculator {
 	private final FhirContext myFhirContext;
 	private final boolean myIsOracleDialect;
 
+	@Nullable
+	private IResourceCompressionDictionarySvc myCompressionDictionarySvc;
+
 	public ResourceHistoryCalculator(FhirContext theFhirContext, boolean theIsOracleDialect) {
 		myFhirContext = theFhirContext;
 		myIsOracleDialect = theIsOracleDialect;
 	}
 
+	/**
+	 * @since 8.8.0
+	 */
+	public void setCompressionDictionarySvc(@Nullable IResourceCompressionDictionarySvc theCompressionDictionarySvc) {
+		myCompressionDictionarySvc = theCompressionDictionarySvc;
+	}
+
 	ResourceHistoryState calculateResourceHistoryState(
 			IBaseResource theResource, ResourceEncodingEnum theEncoding, List<String> theExcludeElements) {
 		final String encodedResource = encodeResource(theResource, theEncoding, theExcludeElements);
 		final byte[] resourceBinary;
 		final String resourceText;
-		final ResourceEncodingEnum encoding;
 		final HashCode hashCode;
 
+		ResourceEncodingEnum encoding = theEncoding;
+		ResourceCompressionDictionary dictionary = null;
+		if (theEncoding == ResourceEncodingEnum.ZSTDD) {
+			dictionary = getCurrentDictionary(myFhirContext.getResourceType(theResource));
+			if (dictionary == null) {
+				encoding = ResourceEncodingEnum.ZSTD;
+			}
+		}
+
 		if (myIsOracleDialect) {
 			resourceText = null;
-			resourceBinary = getResourceBinary(theEncoding, encodedResource);
-			encoding = theEncoding;
+			resourceBinary = getResourceBinary(encoding, encodedResource, dictionary);
 			hashCode = SHA_256.hashBytes(resourceBinary);
+		} else if (encoding.isCompressedOnAllDialects()) {
+			resourceText = toResourceTextVc(encoding, getResourceBinary(encoding, encodedResource, dictionary));
+			resourceBinary = null;
+			hashCode = SHA_256.hashUnencodedChars(encodedResource);
 		} else {
 			resourceText = encodedResource;
 			resourceBinary = null;
@@ -73,12 +113,60 @@ public class ResourceHistoryCalculator {
 			hashCode = SHA_256.hashUnencodedChars(encodedResource);
 		}
 
-		return new ResourceHistoryState(resourceText, resourceBinary, encoding, hashCode);
+		Long dictionaryId = dictionary != null ? dictionary.getId() : null;
+		return new ResourceHistoryState(resourceText, resourceBinary, encoding, hashCode, dictionaryId);
 	}
 
+	/**
+	 * Rewrites the stored body of a history entity so that it uses the storage format which would be
+	 * used for a newly written version with the given encoding. This is used by the optimize storage
+	 * mode of the reindex job, and allows existing history rows to be recompressed in place.
+	 *
+	 * @param theResourceText the decoded (i.e. plain JSON) resource body
+	 * @param theEncoding     the encoding configured for new resource versions
+	 * @return <code>true</code> if the history entity was modified
+	 */
 	boolean conditionallyAlterHistoryEntity(
-			ResourceTable theEntity, ResourceHistoryTable theHistoryEntity, String theResourceText) {
+			ResourceTable theEntity,
+			ResourceHistoryTable theHistoryEntity,
+			String theResourceText,
+			ResourceEncodingEnum theEncoding) {
+		if (theEncoding.isCompressedOnAllDialects()) {
+			ResourceEncodingEnum encoding = theEncoding;
+			ResourceCompressionDictionary dictionary = null;
+			if (theEncoding == ResourceEncodingEnum.ZSTDD) {
+				dictionary = getCurrentDictionary(theEntity.getResourceType());
+				if (dictionary == null) {
+					encoding = ResourceEncodingEnum.ZSTD;
+				}
+			}
+			Long dictionaryId = dictionary != null ? dictionary.getId() : null;
+			if (theHistoryEntity.getEncoding() == encoding
+					&& Objects.equals(theHistoryEntity.getCompressionDictionaryId(), dictionaryId)) {
+				return false;
+			}
+			ourLog.debug(
+					"Storing text of resource {} version {} using encoding {}",
+					theEntity.getResourceId(),
+					theHistoryEntity.getVersion(),
+					encoding);
+			byte[] resourceBinary = getResourceBinary(encoding, theResourceText, dictionary);
+			if (myIsOracleDialect) {
+				theHistoryEntity.setResource(resourceBinary);
+				theHistoryEntity.setResourceTextVc(null);
+			} else {
+				theHistoryEntity.setResource(null);
+				theHistoryEntity.setResourceTextVc(toResourceTextVc(encoding, resourceBinary));
+			}
+			theHistoryEntity.setEncoding(encoding);
+			theHistoryEntity.setCompressionDictionaryId(dictionaryId);
+			return true;
+		}
+
 		if (!myIsOracleDialect) {
+			if (theHistoryEntity.getEncoding() == ResourceEncodingEnum.JSON && theHistoryEntity.getResource() == null) {
+				return false;
+			}
 			ourLog.debug(
 					"Storing text of resource {} version {} as inline VARCHAR",
 					theEntity.getResourceId(),
@@ -86,6 +174,7 @@ public class ResourceHistoryCalculator {
 			theHistoryEntity.setResourceTextVc(theResourceText);
 			theHistoryEntity.setResource(null);
 			theHistoryEntity.setEncoding(ResourceEncodingEnum.JSON);
+			theHistoryEntity.setCompressionDictionaryId(null);
 			return true;
 		}
 
@@ -103,6 +192,28 @@ public class ResourceHistoryCalculator {
 		return !StringUtils.equals(theCurrentHistoryVersion.getResourceTextVc(), resourceText);
 	}
 
+	/**
+	 * Like {@link #isResourceHistoryChanged(ResourceHistoryTable, byte[], String)}, but also handles
+	 * the case where the current version was compressed using a different dictionary (e.g. because
+	 * a new dictionary has been trained since), in which case identical content is stored differently
+	 * and the decoded contents need to be compared instead.
+	 */
+	boolean isResourceHistoryChanged(
+			ResourceHistoryTable theCurrentHistoryVersion,
+			ResourceEncodingEnum theEncoding,
+			@Nullable byte[] theResourceBinary,
+			@Nullable String theResourceText,
+			@Nullable Long theCompressionDictionaryId) {
+		if (!Objects.equals(theCurrentHistoryVersion.getCompressionDictionaryId(), theCompressionDictionaryId)) {
+			ResourceCompressionDictionary dictionary =
+					theCompressionDictionaryId != null ? getDictionary(theCompressionDictionaryId) : null;
+			String newResourceText = decodeResourceBody(theResourceBinary, theResourceText, theEncoding, dictionary);
+			return !StringUtils.equals(decodeResource(theCurrentHistoryVersion), newResourceText);
+		}
+
+		return isResourceHistoryChanged(theCurrentHistoryVersion, theResourceBinary, theResourceText);
+	}
+
 	String encodeResource(
 			IBaseResource theResource, ResourceEncodingEnum theEncoding, List<String> theExcludeElements) {
 		final IParser parser = theEncoding.newParser(myFhirContext);
@@ -124,11 +235,29 @@ public class ResourceHistoryCalculator {
 				return theEncodedResource.getBytes(StandardCharsets.UTF_8);
 			case JSONC:
 				return GZipUtil.compress(theEncodedResource);
+			case ZSTD:
+				return ZstdUtil.compress(theEncodedResource);
+			case LZ4:
+				return Lz4Util.compress(theEncodedResource);
+			case ZSTDD:
+				// Without a dictionary this is a plain Zstandard frame, which ZSTDD can always read
+				return ZstdUtil.compress(theEncodedResource);
 			default:
 				return new byte[0];
 		}
 	}
 
+	private static byte[] getResourceBinary(
+			ResourceEncodingEnum theEncoding,
+			String theEncodedResource,
+			@Nullable ResourceCompressionDictionary theDictionary) {
+		if (theDictionary != null) {
+			assert theEncoding == ResourceEncodingEnum.ZSTDD;
+			return theDictionary.compress(theEncodedResource);
+		}
+		return getResourceBinary(theEncoding, theEncodedResource);
+	}
+
 	void populateEncodedResource(
 			EncodedResource theEncodedResource,
 			String theEncodedResourceString,
@@ -136,11 +265,90 @@ public class ResourceHistoryCalculator {
 			ResourceEncodingEnum theEncoding) {
 		if (myIsOracleDialect) {
 			populateEncodedResourceInner(theEncodedResource, null, theResourceBinary, theEncoding);
+		} else if (theEncoding.isCompressedOnAllDialects()) {
+			populateEncodedResourceInner(
+					theEncodedResource, toResourceTextVc(theEncoding, theResourceBinary), null, theEncoding);
 		} else {
 			populateEncodedResourceInner(theEncodedResource, theEncodedResourceString, null, ResourceEncodingEnum.JSON);
 		}
 	}
 
+	/**
+	 * Decodes the body stored in {@link ResourceHistoryTable#getResourceTextVc()} for the given encoding
+	 * back into plain JSON text.
+	 */
+	@Nullable
+	static String decodeResourceTextVc(@Nullable String theResourceTextVc, ResourceEncodingEnum theEncoding) {
+		return decodeResourceBody(null, theResourceTextVc, theEncoding, null);
+	}
+
+	/**
+	 * Decodes the stored body of the given history entity back into plain JSON text, looking up
+	 * the compression dictionary it was encoded with if necessary.
+	 *
+	 * @since 8.8.0
+	 */
+	@Nullable
+	public String decodeResource(ResourceHistoryTable theHistoryEntity) {
+		ResourceCompressionDictionary dictionary = null;
+		if (theHistoryEntity.getCompressionDictionaryId() != null) {
+			dictionary = getDictionary(theHistoryEntity.getCompressionDictionaryId());
+		}
+		return decodeResourceBody(
+				theHistoryEntity.getResource(),
+				theHistoryEntity.getResourceTextVc(),
+				theHistoryEntity.getEncoding(),
+				dictionary);
+	}
+
+	/**
+	 * Decodes a stored resource body back into plain JSON text. The body is read from the binary
+	 * column if present, and from the VARCHAR column otherwise.
+	 *
+	 * @param theDictionary The dictionary the body was compressed with, or <code>null</code> if none
+	 * @since 8.8.0
+	 */
+	@Nullable
+	public static String decodeResourceBody(
+			@Nullable byte[] theResourceBinary,
+			@Nullable String theResourceTextVc,
+			ResourceEncodingEnum theEncoding,
+			@Nullable ResourceCompressionDictionary theDictionary) {
+		byte[] resourceBinary = theResourceBinary;
+		if (resourceBinary == null) {
+			if (theResourceTextVc == null || !theEncoding.isCompressedOnAllDialects()) {
+				return theResourceTextVc;
+			}
+			resourceBinary = Base64.getDecoder().decode(theResourceTextVc);
+		}
+		if (theDictionary != null) {
+			return theDictionary.decompress(resourceBinary);
+		}
+		return BaseHapiFhirDao.decodeResource(resourceBinary, theEncoding);
+	}
+
+	@Nullable
+	private ResourceCompressionDictionary getCurrentDictionary(String theResourceType) {
+		if (myCompressionDictionarySvc == null) {
+			return null;
+		}
+		return myCompressionDictionarySvc.getCurrentDictionary(theResourceType);
+	}
+
+	private ResourceCompressionDictionary getDictionary(long theId) {
+		if (myCompressionDictionarySvc == null) {
+			throw new InternalErrorException(Msg.code(2840)
+					+ "Resource is compressed using dictionary " + theId
+					+ " but no compression dictionary service is configured");
+		}
+		return myCompressionDictionarySvc.getDictionary(theId);
+	}
+
+	private static String toResourceTextVc(ResourceEncodingEnum theEncoding, byte[] theResourceBinary) {
+		assert theEncoding.isCompressedOnAllDialects();
+		return Base64.getEncoder().encodeToString(theResourceBinary);
+	}
+
 	private void populateEncodedResourceInner(
 			EncodedResource encodedResource,
 			String encodedResourceString,
@@ -42,15 +42,28 @@ public class ResourceHistoryState {
 	private final ResourceEncodingEnum myEncoding;
 	private final HashCode myHashCode;
 
+	@Nullable
+	private final Long myCompressionDictionaryId;
+
 	public ResourceHistoryState(
 			@Nullable String theResourceText,
 			@Nullable byte[] theResourceBinary,
 			ResourceEncodingEnum theEncoding,
 			HashCode theHashCode) {
+		this(theResourceText, theResourceBinary, theEncoding, theHashCode, null);
+	}
+
+	public ResourceHistoryState(
+			@Nullable String theResourceText,
+			@Nullable byte[] theResourceBinary,
+			ResourceEncodingEnum theEncoding,
+			HashCode theHashCode,
+			@Nullable Long theCompressionDictionaryId) {
 		myResourceText = theResourceText;
 		myResourceBinary = theResourceBinary;
 		myEncoding = theEncoding;
 		myHashCode = theHashCode;
+		myCompressionDictionaryId = theCompressionDictionaryId;
 	}
 
 	@Nullable
@@ -71,6 +84,14 @@ public class ResourceHistoryState {
 		return myHashCode;
 	}
 
+	/**
+	 * @since 8.8.0
+	 */
+	@Nullable
+	public Long getCompressionDictionaryId() {
+		return myCompressionDictionaryId;
+	}
+
 	@Override
 	public boolean equals(Object theO) {
 		if (this == theO) {
@@ -83,12 +104,13 @@ public class ResourceHistoryState {
 		return Objects.equals(myResourceText, that.myResourceText)
 				&& Arrays.equals(myResourceBinary, that.myResourceBinary)
 				&& myEncoding == that.myEncoding
-				&& Objects.equals(myHashCode, that.myHashCode);
+				&& Objects.equals(myHashCode, that.myHashCode)
+				&& Objects.equals(myCompressionDictionaryId, that.myCompressionDictionaryId);
 	}
 
 	@Override
 	public int hashCode() {
-		int result = Objects.hash(myResourceText, myEncoding, myHashCode);
+		int result = Objects.hash(myResourceText, myEncoding, myHashCode, myCompressionDictionaryId);
 		result = 31 * result + Arrays.hashCode(myResourceBinary);
 		return result;
 	}
@@ -100,6 +122,7 @@ public class ResourceHistoryState {
 				.add("myResourceBinary=" + Arrays.toString(myResourceBinary))
 				.add("myEncoding=" + myEncoding)
 				.add("myHashCode=" + myHashCode)
+				.add("myCompressionDictionaryId=" + myCompressionDictionaryId)
 				.toString();
 	}
 }
@@ -21,6 +21,7 @@ package ca.uhn.fhir.jpa.dao;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.model.ReadPartitionIdRequestDetails;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
@@ -39,8 +40,12 @@ import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.search.ResourceSearchUrlSvc;
+import ca.uhn.fhir.jpa.search.builder.SearchBuilder;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.model.api.IQueryParameterType;
@@ -48,10 +53,12 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.util.FhirTerser;
 import ca.uhn.fhir.util.ResourceReferenceInfo;
 import ca.uhn.fhir.util.StopWatch;
 import ca.uhn.fhir.util.TaskChunker;
+import ca.uhn.fhir.util.ThreadPoolUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
@@ -59,6 +66,7 @@ import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.FlushModeType;
 import jakarta.persistence.PersistenceContext;
@@ -82,6 +90,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -94,6 +103,10 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -140,11 +153,16 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 	private ResourceSearchUrlSvc myResourceSearchUrlSvc;
 
 	@Autowired
-	private MemoryCacheService myMemoryCacheService;
+	private IMemoryCacheService myMemoryCacheService;
 
 	@Autowired
 	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
 
+	@Autowired
+	private SearchParamExtractorService mySearchParamExtractorService;
+
+	private ThreadPoolTaskExecutor myIndexingExecutor;
+
 	public void setEntityManagerForUnitTest(EntityManager theEntityManager) {
 		myEntityManager = theEntityManager;
 	}
@@ -514,8 +532,15 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 			inputIdsToPreFetch.removeAll(outcomesFromTransactionDetails.keySet());
 		}
 
-		Map<IIdType, IResourceLookup<JpaPid>> outcomes =
-				myIdHelperService.resolveResourceIdentities(theRequestPartitionId, inputIdsToPreFetch, theResolveMode);
+		Map<IIdType, IResourceLookup<JpaPid>> outcomes;
+		if (inputIdsToPreFetch.size() > SearchBuilder.getMaximumPageSize() / 2) {
+			// Large transactions (e.g. bulk import batches) resolve their IDs in large sorted chunks
+			outcomes = myIdHelperService.resolveResourceIdentitiesInBulk(
+					theRequestPartitionId, inputIdsToPreFetch.stream(), theResolveMode);
+		} else {
+			outcomes = myIdHelperService.resolveResourceIdentities(
+					theRequestPartitionId, inputIdsToPreFetch, theResolveMode);
+		}
 
 		if (outcomesFromTransactionDetails != null) {
 			outcomes.putAll(outcomesFromTransactionDetails);
@@ -1106,6 +1131,75 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 		return hashToSearch;
 	}
 
+	@PreDestroy
+	public synchronized void stop() {
+		if (myIndexingExecutor != null) {
+			myIndexingExecutor.shutdown();
+			myIndexingExecutor = null;
+		}
+	}
+
+	private synchronized ThreadPoolTaskExecutor getIndexingExecutor() {
+		if (myIndexingExecutor == null) {
+			int threadCount = myStorageSettings.getTransactionIndexingPipelineThreadCount();
+			myIndexingExecutor = ThreadPoolUtil.newThreadPool(
+					threadCount, threadCount, "transaction-index-", 0, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return myIndexingExecutor;
+	}
+
+	/**
+	 * If the transaction indexing pipeline is enabled, this starts extracting the non-reference
+	 * search parameters for the given resources on the indexing pool
+	 *
+	 * @see JpaStorageSettings#setTransactionIndexingPipelineEnabled(boolean)
+	 */
+	@Override
+	protected void prepareResourcesForIndexing(
+			RequestDetails theRequestDetails,
+			TransactionDetails theTransactionDetails,
+			List<IBaseResource> theResources) {
+		if (!myStorageSettings.isTransactionIndexingPipelineEnabled() || theResources.size() < 2) {
+			return;
+		}
+
+		/*
+		 * Resources which hold a reference to another resource object in the transaction
+		 * could read that object on a worker thread while it is being saved, so we leave
+		 * them to be extracted on the transaction thread.
+		 */
+		FhirTerser terser = myFhirContext.newTerser();
+		List<IBaseResource> resources = theResources.stream()
+				.filter(t -> terser.getAllResourceReferences(t).stream()
+						.map(ref -> ref.getResourceReference().getResource())
+						.noneMatch(ref -> ref != null && ref.getIdElement().hasResourceType()))
+				.toList();
+
+		IndexingPipeline pipeline = new IndexingPipeline(
+				theRequestDetails, resources, myStorageSettings.getTransactionIndexingPipelineThreadCount());
+		theTransactionDetails.putUserData(IndexingPipeline.class.getName(), pipeline);
+
+		/*
+		 * If the transaction fails before every resource has been awaited, the workers may
+		 * still be reading resources which the other rollback undo actions are about to
+		 * modify. Undo actions run in reverse order, so this one runs before the placeholder
+		 * references (which were replaced before this point) are restored.
+		 */
+		theTransactionDetails.addRollbackUndoAction(() -> {
+			pipeline.drain();
+			theTransactionDetails.clearUserData(IndexingPipeline.class.getName());
+		});
+	}
+
+	@Override
+	protected void awaitResourcePreparedForIndexing(
+			TransactionDetails theTransactionDetails, IBaseResource theResource) {
+		IndexingPipeline pipeline = theTransactionDetails.getUserData(IndexingPipeline.class.getName());
+		if (pipeline != null) {
+			pipeline.await(theTransactionDetails, theResource);
+		}
+	}
+
 	@Override
 	protected void flushSession(Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome) {
 		try {
@@ -1188,6 +1282,86 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 		return typesBuilder.toString();
 	}
 
+	/**
+	 * Extracts search parameters for the resources in a transaction on the indexing pool, in
+	 * the order they will be saved. Only a limited number of resources are extracted ahead of
+	 * the resource being saved by the transaction thread, so that a large transaction doesn't
+	 * monopolize the pool or hold on to the extracted indexes for long.
+	 */
+	private class IndexingPipeline {
+
+		private final RequestDetails myRequestDetails;
+		private final List<IBaseResource> myResources;
+		private final IdentityHashMap<IBaseResource, Future<ResourceIndexedSearchParams>> myFutures =
+				new IdentityHashMap<>();
+		private final int myMaxInFlight;
+		private int myNextIndex;
+
+		private IndexingPipeline(
+				RequestDetails theRequestDetails, List<IBaseResource> theResources, int theMaxInFlight) {
+			myRequestDetails = theRequestDetails;
+			myResources = theResources;
+			myMaxInFlight = theMaxInFlight;
+			submitAhead();
+		}
+
+		private void await(TransactionDetails theTransactionDetails, IBaseResource theResource) {
+			Future<ResourceIndexedSearchParams> future = myFutures.remove(theResource);
+			if (future == null) {
+				return;
+			}
+
+			ResourceIndexedSearchParams searchParams;
+			try {
+				searchParams = future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(Msg.code(2847) + "Interrupted while extracting search parameters", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException runtimeException) {
+					throw runtimeException;
+				}
+				throw new InternalErrorException(
+						Msg.code(2850) + "Failed to extract search parameters: " + e.getCause(), e);
+			}
+			SearchParamExtractorService.addPreExtractedSearchParams(theTransactionDetails, theResource, searchParams);
+
+			submitAhead();
+		}
+
+		/**
+		 * Stops submitting work and waits for any extraction which is still in progress. The
+		 * pool has no queue, so every outstanding task is either already running or finished,
+		 * and waiting for them is bounded by the number of tasks in flight.
+		 */
+		private void drain() {
+			myNextIndex = myResources.size();
+			for (Future<ResourceIndexedSearchParams> next : myFutures.values()) {
+				try {
+					next.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					ourLog.warn("Interrupted while waiting for search parameter extraction to finish");
+					break;
+				} catch (ExecutionException | CancellationException e) {
+					// The transaction is being rolled back anyhow, so the outcome doesn't matter
+				}
+			}
+			myFutures.clear();
+		}
+
+		private void submitAhead() {
+			while (myFutures.size() < myMaxInFlight && myNextIndex < myResources.size()) {
+				IBaseResource resource = myResources.get(myNextIndex++);
+				myFutures.put(
+						resource,
+						getIndexingExecutor()
+								.submit(() -> mySearchParamExtractorService.extractSearchParamsExceptReferences(
+										myRequestDetails, resource)));
+			}
+		}
+	}
+
 	public static class MatchUrlToResolve {
 
 		private final String myRequestUrl;
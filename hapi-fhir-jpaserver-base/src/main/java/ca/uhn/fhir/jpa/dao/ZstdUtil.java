@@ -0,0 +1,82 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.DataFormatException;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+import jakarta.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Zstandard counterpart to {@link GZipUtil}, used for the
+ * {@link ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum#ZSTD} and
+ * {@link ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum#ZSTDD} encodings.
+ *
+ * @since 8.8.0
+ */
+public class ZstdUtil {
+
+	/**
+	 * Zstandard's own default level, which gives a better ratio than GZip at a fraction of the CPU cost
+	 */
+	public static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+	public static String decompress(byte[] theResource) {
+		return decompress(theResource, null);
+	}
+
+	/**
+	 * @param theDictionary The dictionary the contents were compressed with, or <code>null</code> if none
+	 */
+	public static String decompress(byte[] theResource, @Nullable ZstdDictDecompress theDictionary) {
+		try {
+			long size = Zstd.getFrameContentSize(theResource);
+			if (size < 0 || size > Integer.MAX_VALUE) {
+				throw new DataFormatException(
+						Msg.code(2833) + "Failed to decompress contents: Invalid Zstandard frame");
+			}
+			byte[] decompressed;
+			if (theDictionary != null) {
+				decompressed = Zstd.decompress(theResource, theDictionary, (int) size);
+			} else {
+				decompressed = Zstd.decompress(theResource, (int) size);
+			}
+			return new String(decompressed, StandardCharsets.UTF_8);
+		} catch (ZstdException e) {
+			throw new DataFormatException(Msg.code(2834) + "Failed to decompress contents", e);
+		}
+	}
+
+	public static byte[] compress(String theEncoded) {
+		return Zstd.compress(theEncoded.getBytes(StandardCharsets.UTF_8), DEFAULT_COMPRESSION_LEVEL);
+	}
+
+	/**
+	 * @param theDictionary A dictionary prepared using {@link #DEFAULT_COMPRESSION_LEVEL}
+	 */
+	public static byte[] compress(String theEncoded, ZstdDictCompress theDictionary) {
+		return Zstd.compress(theEncoded.getBytes(StandardCharsets.UTF_8), theDictionary);
+	}
+}
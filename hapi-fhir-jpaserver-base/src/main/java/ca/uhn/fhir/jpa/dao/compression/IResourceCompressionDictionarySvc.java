@@ -0,0 +1,73 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.compression;
+
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import jakarta.annotation.Nullable;
+
+/**
+ * Trains, stores and serves the per resource type Zstandard dictionaries used by the
+ * {@link ResourceEncodingEnum#ZSTDD} resource encoding.
+ * <p>
+ * Small documents such as individual FHIR resources compress poorly on their own because each
+ * one has to re-establish the vocabulary (element names, code systems, URLs, etc.) that they
+ * all share. A dictionary trained from a sample of existing resources of the same type
+ * captures that shared vocabulary once, which typically improves the compression ratio of
+ * small resources considerably.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public interface IResourceCompressionDictionarySvc {
+
+	/**
+	 * Returns the most recent dictionary for the given resource type, or <code>null</code>
+	 * if none has been trained yet. This method is cached and is called every time a resource
+	 * version is written.
+	 */
+	@Nullable
+	ResourceCompressionDictionary getCurrentDictionary(String theResourceType);
+
+	/**
+	 * Returns the dictionary with the given ID. This method is cached and is called every
+	 * time a resource version encoded using a dictionary is read.
+	 *
+	 * @throws ca.uhn.fhir.rest.server.exceptions.InternalErrorException If no dictionary exists with the given ID
+	 */
+	ResourceCompressionDictionary getDictionary(long theId);
+
+	/**
+	 * Samples the most recently stored versions of the given resource type, trains a new
+	 * dictionary from them, and stores it as the new current dictionary for the type.
+	 *
+	 * @return The new dictionary, or <code>null</code> if there were not enough stored
+	 * 		resources to train one
+	 */
+	@Nullable
+	ResourceCompressionDictionary trainDictionary(String theResourceType);
+
+	/**
+	 * Trains a new dictionary for every resource type which has enough stored resources and
+	 * either has no dictionary yet or has one which is older than the retraining interval.
+	 * This is invoked by the scheduler, and is a no-op unless the configured resource
+	 * encoding is {@link ResourceEncodingEnum#ZSTDD}.
+	 */
+	void trainDictionariesIfNeeded();
+}
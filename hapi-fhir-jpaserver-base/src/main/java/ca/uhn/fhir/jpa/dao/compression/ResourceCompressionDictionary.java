@@ -0,0 +1,97 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.compression;
+
+import ca.uhn.fhir.jpa.dao.ZstdUtil;
+import ca.uhn.fhir.jpa.entity.ResourceCompressionDictionaryEntity;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * An in-memory, ready to use form of a {@link ResourceCompressionDictionaryEntity}. Preparing
+ * a Zstandard dictionary is relatively expensive, so instances of this class are cached and
+ * shared between threads (the underlying Zstandard dictionary objects are thread safe).
+ *
+ * @since 8.8.0
+ */
+public class ResourceCompressionDictionary {
+
+	private final long myId;
+	private final String myResourceType;
+	private final int myVersion;
+	private final int mySizeBytes;
+	private final ZstdDictCompress myCompressDictionary;
+	private final ZstdDictDecompress myDecompressDictionary;
+
+	/**
+	 * Constructor
+	 */
+	public ResourceCompressionDictionary(long theId, String theResourceType, int theVersion, byte[] theDictionary) {
+		myId = theId;
+		myResourceType = theResourceType;
+		myVersion = theVersion;
+		mySizeBytes = theDictionary.length;
+		myCompressDictionary = new ZstdDictCompress(theDictionary, ZstdUtil.DEFAULT_COMPRESSION_LEVEL);
+		myDecompressDictionary = new ZstdDictDecompress(theDictionary);
+	}
+
+	/**
+	 * Constructor
+	 */
+	public ResourceCompressionDictionary(ResourceCompressionDictionaryEntity theEntity) {
+		this(theEntity.getId(), theEntity.getResourceType(), theEntity.getVersion(), theEntity.getDictionary());
+	}
+
+	public long getId() {
+		return myId;
+	}
+
+	public String getResourceType() {
+		return myResourceType;
+	}
+
+	public int getVersion() {
+		return myVersion;
+	}
+
+	public int getSizeBytes() {
+		return mySizeBytes;
+	}
+
+	public byte[] compress(String theEncoded) {
+		return ZstdUtil.compress(theEncoded, myCompressDictionary);
+	}
+
+	public String decompress(byte[] theCompressed) {
+		return ZstdUtil.decompress(theCompressed, myDecompressDictionary);
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("id", myId)
+				.append("resourceType", myResourceType)
+				.append("version", myVersion)
+				.append("sizeBytes", mySizeBytes)
+				.toString();
+	}
+}
@@ -0,0 +1,295 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.compression;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.dao.ResourceHistoryCalculator;
+import ca.uhn.fhir.jpa.dao.data.IResourceCompressionDictionaryDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceTableDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.ResourceCompressionDictionaryEntity;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.model.sched.HapiJob;
+import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
+import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
+import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
+import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.StopWatch;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.time.DateUtils;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Default implementation of {@link IResourceCompressionDictionarySvc}.
+ * <p>
+ * Dictionaries are trained from the most recently updated versions of each resource type,
+ * using the Zstandard dictionary builder. Stored dictionaries are never modified, since
+ * existing history rows need the exact dictionary they were encoded with in order to be
+ * read back. Retraining therefore stores a new version, and only versions written after
+ * that point use it. Existing rows can be moved to the current dictionary using the
+ * optimize storage mode of the reindex job.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class ResourceCompressionDictionarySvcImpl implements IResourceCompressionDictionarySvc, IHasScheduledJobs {
+	/**
+	 * Zstandard's dictionary builder works best with roughly 100 times as much sample data as
+	 * the size of the dictionary it is building, so the dictionary is sized from the samples up
+	 * to this limit
+	 */
+	static final int MAXIMUM_DICTIONARY_SIZE_BYTES = 32 * 1024;
+
+	static final int MINIMUM_DICTIONARY_SIZE_BYTES = 1024;
+	static final int MAXIMUM_SAMPLES = 2000;
+	static final int MINIMUM_SAMPLES = 100;
+	static final int MAXIMUM_SAMPLE_BYTES = 10 * 1024 * 1024;
+	static final long RETRAIN_INTERVAL_MILLIS = 7 * DateUtils.MILLIS_PER_DAY;
+	static final long SCHEDULED_JOB_INTERVAL_MILLIS = DateUtils.MILLIS_PER_HOUR;
+	private static final Set<ResourceEncodingEnum> SAMPLE_ENCODINGS = EnumSet.of(
+			ResourceEncodingEnum.JSON,
+			ResourceEncodingEnum.JSONC,
+			ResourceEncodingEnum.ZSTD,
+			ResourceEncodingEnum.ZSTDD,
+			ResourceEncodingEnum.LZ4);
+	private static final Logger ourLog = LoggerFactory.getLogger(ResourceCompressionDictionarySvcImpl.class);
+
+	private final JpaStorageSettings myStorageSettings;
+	private final IHapiTransactionService myTransactionService;
+	private final IResourceCompressionDictionaryDao myDictionaryDao;
+	private final IResourceHistoryTableDao myResourceHistoryTableDao;
+	private final IResourceTableDao myResourceTableDao;
+	private final IMemoryCacheService myMemoryCacheService;
+
+	/**
+	 * Constructor
+	 */
+	public ResourceCompressionDictionarySvcImpl(
+			JpaStorageSettings theStorageSettings,
+			IHapiTransactionService theTransactionService,
+			IResourceCompressionDictionaryDao theDictionaryDao,
+			IResourceHistoryTableDao theResourceHistoryTableDao,
+			IResourceTableDao theResourceTableDao,
+			IMemoryCacheService theMemoryCacheService) {
+		myStorageSettings = theStorageSettings;
+		myTransactionService = theTransactionService;
+		myDictionaryDao = theDictionaryDao;
+		myResourceHistoryTableDao = theResourceHistoryTableDao;
+		myResourceTableDao = theResourceTableDao;
+		myMemoryCacheService = theMemoryCacheService;
+	}
+
+	@Override
+	public void scheduleJobs(ISchedulerService theSchedulerService) {
+		ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
+		jobDetail.setId(getClass().getName());
+		jobDetail.setJobClass(Job.class);
+		theSchedulerService.scheduleClusteredJob(SCHEDULED_JOB_INTERVAL_MILLIS, jobDetail);
+	}
+
+	@Nullable
+	@Override
+	public ResourceCompressionDictionary getCurrentDictionary(String theResourceType) {
+		Optional<ResourceCompressionDictionary> retVal = myMemoryCacheService.get(
+				MemoryCacheService.CacheEnum.RES_TYPE_TO_COMPRESSION_DICTIONARY,
+				theResourceType,
+				t -> findLatestEntity(t).map(e -> getDictionary(e.getId())));
+		return retVal.orElse(null);
+	}
+
+	@Override
+	public ResourceCompressionDictionary getDictionary(long theId) {
+		return myMemoryCacheService.get(
+				MemoryCacheService.CacheEnum.COMPRESSION_DICTIONARY_BY_ID, theId, this::loadDictionary);
+	}
+
+	@Nullable
+	@Override
+	public ResourceCompressionDictionary trainDictionary(String theResourceType) {
+		StopWatch sw = new StopWatch();
+
+		List<byte[]> samples = loadSamples(theResourceType);
+		if (samples.size() < MINIMUM_SAMPLES) {
+			ourLog.debug(
+					"Not training a compression dictionary for {}, only {} samples available",
+					theResourceType,
+					samples.size());
+			return null;
+		}
+
+		long totalSampleBytes = samples.stream().mapToLong(t -> t.length).sum();
+		int dictionarySize = (int) Math.max(
+				MINIMUM_DICTIONARY_SIZE_BYTES, Math.min(MAXIMUM_DICTIONARY_SIZE_BYTES, totalSampleBytes / 100));
+
+		byte[] dictionary;
+		try {
+			ZstdDictTrainer trainer = new ZstdDictTrainer((int) totalSampleBytes, dictionarySize);
+			for (byte[] next : samples) {
+				trainer.addSample(next);
+			}
+			dictionary = trainer.trainSamples();
+		} catch (ZstdException e) {
+			ourLog.warn(
+					"Failed to train a compression dictionary for {} from {} samples: {}",
+					theResourceType,
+					samples.size(),
+					e.getMessage());
+			return null;
+		}
+
+		ResourceCompressionDictionaryEntity entity = myTransactionService
+				.withSystemRequestOnDefaultPartition()
+				.withPropagation(Propagation.REQUIRES_NEW)
+				.execute(() -> {
+					int version = findLatestEntity(theResourceType)
+							.map(t -> t.getVersion() + 1)
+							.orElse(1);
+					ResourceCompressionDictionaryEntity newEntity = new ResourceCompressionDictionaryEntity();
+					newEntity.setResourceType(theResourceType);
+					newEntity.setVersion(version);
+					newEntity.setCreated(new Date());
+					newEntity.setSampleCount(samples.size());
+					newEntity.setDictionary(dictionary);
+					return myDictionaryDao.save(newEntity);
+				});
+
+		ResourceCompressionDictionary retVal = new ResourceCompressionDictionary(entity);
+		myMemoryCacheService.put(MemoryCacheService.CacheEnum.COMPRESSION_DICTIONARY_BY_ID, retVal.getId(), retVal);
+		myMemoryCacheService.put(
+				MemoryCacheService.CacheEnum.RES_TYPE_TO_COMPRESSION_DICTIONARY, theResourceType, Optional.of(retVal));
+
+		ourLog.info(
+				"Trained compression dictionary {} version {} ({} bytes) from {} samples ({} bytes) in {}",
+				theResourceType,
+				retVal.getVersion(),
+				dictionary.length,
+				samples.size(),
+				totalSampleBytes,
+				sw);
+		return retVal;
+	}
+
+	@Override
+	public synchronized void trainDictionariesIfNeeded() {
+		if (myStorageSettings.getResourceEncoding() != ResourceEncodingEnum.ZSTDD) {
+			return;
+		}
+
+		List<String> resourceTypes = new ArrayList<>();
+		myTransactionService.withSystemRequestOnDefaultPartition().execute(() -> {
+			Date staleCutoff = new Date(System.currentTimeMillis() - RETRAIN_INTERVAL_MILLIS);
+			for (Map<?, ?> next : myResourceTableDao.getResourceCounts()) {
+				String resourceType = next.get("type").toString();
+				long count = Long.parseLong(next.get("count").toString());
+				if (count < MINIMUM_SAMPLES) {
+					continue;
+				}
+				Optional<ResourceCompressionDictionaryEntity> latest = findLatestEntity(resourceType);
+				if (latest.isEmpty() || latest.get().getCreated().before(staleCutoff)) {
+					resourceTypes.add(resourceType);
+				}
+			}
+		});
+
+		for (String next : resourceTypes) {
+			trainDictionary(next);
+		}
+	}
+
+	private List<byte[]> loadSamples(String theResourceType) {
+		return myTransactionService.withSystemRequestOnDefaultPartition().execute(() -> {
+			List<ResourceHistoryTable> versions = myResourceHistoryTableDao
+					.findMostRecentForResourceType(PageRequest.of(0, MAXIMUM_SAMPLES), theResourceType)
+					.getContent();
+
+			List<byte[]> retVal = new ArrayList<>(versions.size());
+			long totalBytes = 0;
+			for (ResourceHistoryTable next : versions) {
+				if (!SAMPLE_ENCODINGS.contains(next.getEncoding())) {
+					continue;
+				}
+				ResourceCompressionDictionary dictionary = null;
+				if (next.getCompressionDictionaryId() != null) {
+					dictionary = getDictionary(next.getCompressionDictionaryId());
+				}
+				String json = ResourceHistoryCalculator.decodeResourceBody(
+						next.getResource(), next.getResourceTextVc(), next.getEncoding(), dictionary);
+				if (json == null) {
+					continue;
+				}
+				byte[] sample = json.getBytes(StandardCharsets.UTF_8);
+				totalBytes += sample.length;
+				if (totalBytes > MAXIMUM_SAMPLE_BYTES) {
+					break;
+				}
+				retVal.add(sample);
+			}
+			return retVal;
+		});
+	}
+
+	private Optional<ResourceCompressionDictionaryEntity> findLatestEntity(String theResourceType) {
+		return myTransactionService
+				.withSystemRequestOnDefaultPartition()
+				.execute(() -> myDictionaryDao.findLatestForResourceType(PageRequest.of(0, 1), theResourceType).stream()
+						.findFirst());
+	}
+
+	private ResourceCompressionDictionary loadDictionary(Long theId) {
+		ResourceCompressionDictionaryEntity entity = myTransactionService
+				.withSystemRequestOnDefaultPartition()
+				.execute(() -> myDictionaryDao.findById(theId).orElse(null));
+		if (entity == null) {
+			throw new InternalErrorException(Msg.code(2839) + "Unknown resource compression dictionary: " + theId);
+		}
+		return new ResourceCompressionDictionary(entity);
+	}
+
+	public static class Job implements HapiJob {
+		@Autowired
+		private IResourceCompressionDictionarySvc myTarget;
+
+		@Override
+		public void execute(JobExecutionContext theContext) {
+			myTarget.trainDictionariesIfNeeded();
+		}
+	}
+}
@@ -22,10 +22,16 @@ package ca.uhn.fhir.jpa.dao.data;
 import ca.uhn.fhir.batch2.model.BatchWorkChunkStatusDTO;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.jpa.entity.Batch2WorkChunkEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.LockOptions;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
@@ -149,6 +155,26 @@ public interface IBatch2WorkChunkRepository
 			@Param("oldStatus") WorkChunkStatusEnum theOldStatus,
 			@Param("newStatus") WorkChunkStatusEnum theNewStatus);
 
+	@Modifying
+	@Query(
+			"UPDATE Batch2WorkChunkEntity e SET e.myStatus = :newStatus WHERE e.myId IN (:ids) AND e.myStatus = :oldStatus")
+	int updateChunksStatus(
+			@Param("ids") Collection<String> theChunkIds,
+			@Param("oldStatus") WorkChunkStatusEnum theOldStatus,
+			@Param("newStatus") WorkChunkStatusEnum theNewStatus);
+
+	/**
+	 * Selects the IDs of the given chunks which are in the given status, locking them for update.
+	 * Rows which are already locked by another transaction are skipped rather than waited on
+	 * (<code>FOR UPDATE SKIP LOCKED</code>) on databases which support it; on others this is a
+	 * regular <code>FOR UPDATE</code>.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "" + LockOptions.SKIP_LOCKED))
+	@Query("SELECT e.myId FROM Batch2WorkChunkEntity e WHERE e.myId IN (:ids) AND e.myStatus = :status")
+	List<String> fetchChunkIdsWithStatusForUpdateSkipLocked(
+			@Param("ids") Collection<String> theChunkIds, @Param("status") WorkChunkStatusEnum theStatus);
+
 	@Modifying
 	@Query(
 			"UPDATE Batch2WorkChunkEntity e SET e.myStatus = :newStatus WHERE e.myInstanceId = :instanceId AND e.myTargetStepId = :stepId AND e.myStatus IN ( :oldStatuses )")
@@ -172,4 +198,13 @@ public interface IBatch2WorkChunkRepository
 	@Query(
 			"SELECT new ca.uhn.fhir.batch2.model.BatchWorkChunkStatusDTO(e.myTargetStepId, e.myStatus, min(e.myStartTime), max(e.myEndTime), avg(cast((e.myEndTime - e.myStartTime) as long)), count(*)) FROM Batch2WorkChunkEntity e WHERE e.myInstanceId=:instanceId GROUP BY e.myTargetStepId, e.myStatus")
 	List<BatchWorkChunkStatusDTO> fetchWorkChunkStatusForInstance(@Param("instanceId") String theInstanceId);
+
+	/**
+	 * Counts the chunks of an instance by step and status, along with the earliest start time, latest
+	 * end time, total records processed and total error count of each group. This visits every chunk
+	 * of the instance, but does not load the chunk data.
+	 */
+	@Query(
+			"SELECT e.myTargetStepId, e.myStatus, count(*), min(e.myStartTime), max(e.myEndTime), sum(e.myRecordsProcessed), sum(e.myErrorCount) FROM Batch2WorkChunkEntity e WHERE e.myInstanceId = :instanceId GROUP BY e.myTargetStepId, e.myStatus")
+	List<Object[]> countChunksByStepAndStatus(@Param("instanceId") String theInstanceId);
 }
@@ -112,4 +112,17 @@ public interface IResourceHistoryTableDao
 	@Query(
 			"SELECT new ca.uhn.fhir.jpa.model.dao.JpaPid(v.myPartitionIdValue, v.myResourcePid.myId, v.myResourceVersion) FROM ResourceHistoryTable v WHERE v.myResourcePid IN :resIds")
 	Stream<JpaPid> findVersionPidsForResources(Pageable thePage, @Param("resIds") List<JpaPidFk> theIds);
+
+	/**
+	 * Returns the most recently updated versions of the given resource type, used to sample resources
+	 * for training compression dictionaries. The predicate and sort match the columns of the
+	 * <code>IDX_RESVER_TYPE_DATE</code> index so that the query reads only the requested page from the
+	 * end of the index. Callers must skip versions whose encoding has no stored body.
+	 *
+	 * @since 8.8.0
+	 */
+	@Query("SELECT v FROM ResourceHistoryTable v WHERE v.myResourceType = :restype "
+			+ "ORDER BY v.myUpdated DESC, v.myResourcePid.myId DESC")
+	Slice<ResourceHistoryTable> findMostRecentForResourceType(
+			Pageable thePage, @Param("restype") String theResourceType);
 }
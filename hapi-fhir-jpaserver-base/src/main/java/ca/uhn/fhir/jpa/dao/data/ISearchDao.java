@@ -28,6 +28,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -53,6 +54,9 @@ public interface ISearchDao extends JpaRepository<Search, Long>, IHapiFhirJpaRep
 			@Param("hash") int theHashCode,
 			@Param("cutoff") Date theCreatedCutoff);
 
+	@Query("SELECT s.myId FROM Search s WHERE s.myId IN (:pids) AND (s.myDeleted IS NULL OR s.myDeleted = FALSE)")
+	List<Long> findNotDeletedIds(@Param("pids") Collection<Long> thePids);
+
 	@Query("SELECT COUNT(s) FROM Search s WHERE s.myDeleted = TRUE")
 	int countDeleted();
 
@@ -47,7 +47,7 @@ import ca.uhn.fhir.jpa.model.entity.ResourceHistoryProvenanceEntity;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTablePk;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
-import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
@@ -136,7 +136,7 @@ public class JpaResourceExpungeService implements IResourceExpungeService<JpaPid
 	private JpaStorageSettings myStorageSettings;
 
 	@Autowired
-	private MemoryCacheService myMemoryCacheService;
+	private IMemoryCacheService myMemoryCacheService;
 
 	@Autowired
 	private IJpaStorageResourceParser myJpaStorageResourceParser;
@@ -35,6 +35,7 @@ import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.PartitionablePartitionId;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.search.builder.SearchBuilder;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.rest.api.server.storage.BaseResourcePersistentId;
@@ -69,6 +70,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -80,6 +82,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static ca.uhn.fhir.jpa.search.builder.predicate.BaseJoiningPredicateBuilder.replaceDefaultPartitionIdIfNonNull;
 import static ca.uhn.fhir.model.primitive.IdDt.isValidLong;
@@ -118,7 +121,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 	private FhirContext myFhirCtx;
 
 	@Autowired
-	private MemoryCacheService myMemoryCacheService;
+	private IMemoryCacheService myMemoryCacheService;
 
 	@Autowired
 	private IHapiTransactionService myTransactionService;
@@ -210,9 +213,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 		Set<String> idsSet = new HashSet<>(ids.size());
 		for (Iterator<IIdType> iterator = ids.iterator(); iterator.hasNext(); ) {
 			IIdType id = iterator.next();
-			if (!id.hasIdPart()) {
-				throw new InvalidRequestException(Msg.code(1101) + "Parameter value missing in request");
-			}
+			validateIdPartPresent(id);
 			if (!idsSet.add(id.getValue())) {
 				iterator.remove();
 			}
@@ -236,9 +237,24 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 							resolveResourceIdentitiesForFhirIdsUsingDatabase(requestPartitionId, ids, idToLookup));
 		}
 
-		// Convert the multimap into a simple map
-		Map<IIdType, IResourceLookup<JpaPid>> retVal = new HashMap<>(idToLookup.size());
-		for (Map.Entry<IIdType, IResourceLookup<JpaPid>> next : idToLookup.entries()) {
+		return toResourceIdentityMap(idToLookup, theMode);
+	}
+
+	private static void validateIdPartPresent(IIdType theId) {
+		if (!theId.hasIdPart()) {
+			throw new InvalidRequestException(Msg.code(1101) + "Parameter value missing in request");
+		}
+	}
+
+	/**
+	 * Converts the lookups found by a resolution into a simple map, applying the
+	 * deleted resource handling requested by the given mode.
+	 */
+	@Nonnull
+	private Map<IIdType, IResourceLookup<JpaPid>> toResourceIdentityMap(
+			ListMultimap<IIdType, IResourceLookup<JpaPid>> theIdToLookup, ResolveIdentityMode theMode) {
+		Map<IIdType, IResourceLookup<JpaPid>> retVal = new HashMap<>(theIdToLookup.size());
+		for (Map.Entry<IIdType, IResourceLookup<JpaPid>> next : theIdToLookup.entries()) {
 			IResourceLookup<JpaPid> nextLookup = next.getValue();
 
 			IIdType resourceId = myFhirCtx.getVersion().newIdType(nextLookup.getResourceType(), nextLookup.getFhirId());
@@ -275,6 +291,143 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 		return retVal;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The IDs are deduplicated, grouped by resource type and sorted, and then resolved in
+	 * chunks. Each chunk is first probed in the memory cache with a single bulk lookup, and
+	 * any misses are loaded using one <code>IN</code> clause on the FHIR ID per chunk, which
+	 * allows much larger chunks than the per-ID predicates used by
+	 * {@link #resolveResourceIdentities(RequestPartitionId, Collection, ResolveIdentityMode)}.
+	 * </p>
+	 */
+	@Nonnull
+	@Override
+	public Map<IIdType, IResourceLookup<JpaPid>> resolveResourceIdentitiesInBulk(
+			@Nonnull RequestPartitionId theRequestPartitionId,
+			@Nonnull Stream<IIdType> theIds,
+			@Nonnull ResolveIdentityMode theMode) {
+		Map<String, Set<String>> resourceTypeToIdParts = new HashMap<>();
+		theIds.forEach(id -> {
+			validateIdPartPresent(id);
+			String resourceType = StringUtils.trimToNull(id.getResourceType());
+			resourceTypeToIdParts
+					.computeIfAbsent(resourceType, t -> new HashSet<>())
+					.add(id.getIdPart());
+		});
+		if (resourceTypeToIdParts.isEmpty()) {
+			return new HashMap<>();
+		}
+
+		RequestPartitionId requestPartitionId = replaceDefault(theRequestPartitionId);
+		boolean useCache = theMode.isUseCache(myStorageSettings.isDeleteEnabled());
+		ListMultimap<IIdType, IResourceLookup<JpaPid>> idToLookup =
+				MultimapBuilder.hashKeys().arrayListValues(1).build();
+
+		// Each chunk binds one parameter per ID, plus the resource type and partition IDs
+		int chunkSize = SearchBuilder.getMaximumPageSize() - 10;
+
+		myTransactionService
+				.withSystemRequest()
+				.withRequestPartitionId(requestPartitionId)
+				.execute(() -> {
+					Map<MemoryCacheService.ForcedIdCacheKey, List<IResourceLookup<JpaPid>>> valuesToCache =
+							new HashMap<>();
+					for (Map.Entry<String, Set<String>> nextEntry : resourceTypeToIdParts.entrySet()) {
+						String resourceType = nextEntry.getKey();
+						String[] idParts = nextEntry.getValue().toArray(new String[0]);
+						Arrays.sort(idParts);
+
+						TaskChunker.chunk(Arrays.asList(idParts), chunkSize, chunk -> {
+							List<String> misses = chunk;
+							if (useCache) {
+								misses = resolveResourceIdentitiesInBulkUsingCache(
+										requestPartitionId, theMode, resourceType, chunk, idToLookup);
+							}
+							if (!misses.isEmpty()) {
+								resolveResourceIdentitiesInBulkUsingDatabase(
+										requestPartitionId, resourceType, misses, idToLookup, valuesToCache);
+							}
+						});
+					}
+					myMemoryCacheService.putAllAfterCommit(
+							MemoryCacheService.CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID, valuesToCache);
+				});
+
+		return toResourceIdentityMap(idToLookup, theMode);
+	}
+
+	/**
+	 * Probes the memory cache for a chunk of IDs of the same resource type using a single
+	 * bulk lookup.
+	 *
+	 * @return The IDs which were not found in the cache
+	 */
+	private List<String> resolveResourceIdentitiesInBulkUsingCache(
+			RequestPartitionId theRequestPartitionId,
+			ResolveIdentityMode theMode,
+			@Nullable String theResourceType,
+			List<String> theIdParts,
+			ListMultimap<IIdType, IResourceLookup<JpaPid>> theMapToPopulate) {
+		List<MemoryCacheService.ForcedIdCacheKey> keys = new ArrayList<>(theIdParts.size());
+		for (String nextIdPart : theIdParts) {
+			keys.add(new MemoryCacheService.ForcedIdCacheKey(theResourceType, nextIdPart, theRequestPartitionId));
+		}
+		Map<MemoryCacheService.ForcedIdCacheKey, List<IResourceLookup<JpaPid>>> cachedLookups =
+				myMemoryCacheService.getAllPresent(MemoryCacheService.CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID, keys);
+		if (cachedLookups.isEmpty()) {
+			return theIdParts;
+		}
+
+		List<String> retVal = new ArrayList<>(theIdParts.size() - cachedLookups.size());
+		for (int i = 0; i < keys.size(); i++) {
+			MemoryCacheService.ForcedIdCacheKey nextKey = keys.get(i);
+			List<IResourceLookup<JpaPid>> nextLookups = cachedLookups.get(nextKey);
+			if (nextLookups == null || nextLookups.isEmpty()) {
+				retVal.add(theIdParts.get(i));
+				continue;
+			}
+			for (IResourceLookup<JpaPid> nextLookup : nextLookups) {
+				if (theMode.isIncludeDeleted() || nextLookup.getDeleted() == null) {
+					theMapToPopulate.put(nextKey.toIdType(myFhirCtx), nextLookup);
+				}
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Loads a chunk of IDs of the same resource type from the database using a single
+	 * <code>IN</code> clause on the FHIR ID.
+	 */
+	private void resolveResourceIdentitiesInBulkUsingDatabase(
+			RequestPartitionId theRequestPartitionId,
+			@Nullable String theResourceType,
+			List<String> theIdParts,
+			ListMultimap<IIdType, IResourceLookup<JpaPid>> theMapToPopulate,
+			Map<MemoryCacheService.ForcedIdCacheKey, List<IResourceLookup<JpaPid>>> theValuesToCache) {
+		CriteriaBuilder cb = myEntityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = cb.createTupleQuery();
+		Root<ResourceTable> from = criteriaQuery.from(ResourceTable.class);
+		criteriaQuery.multiselect(
+				from.get("myPid"),
+				from.get("myResourceType"),
+				from.get("myFhirId"),
+				from.get("myDeleted"),
+				from.get("myPartitionIdValue"));
+
+		List<Predicate> andPredicates = new ArrayList<>(3);
+		getOptionalPartitionPredicate(theRequestPartitionId, cb, from).ifPresent(andPredicates::add);
+		if (theResourceType != null) {
+			andPredicates.add(cb.equal(from.get("myResourceType"), theResourceType));
+		}
+		andPredicates.add(from.get("myFhirId").in(theIdParts));
+		criteriaQuery.where(cb.and(andPredicates.toArray(EMPTY_PREDICATE_ARRAY)));
+
+		List<Tuple> results = myEntityManager.createQuery(criteriaQuery).getResultList();
+		populateResourceIdentities(theRequestPartitionId, results, theMapToPopulate, theValuesToCache);
+	}
+
 	/**
 	 * Fetch the resource identity ({@link IResourceLookup}) for a collection of
 	 * resource IDs from the internal memory cache if possible. Note that we only
@@ -375,7 +528,23 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 		criteriaQuery.where(cb.and(outerAndPredicates.toArray(EMPTY_PREDICATE_ARRAY)));
 		TypedQuery<Tuple> query = myEntityManager.createQuery(criteriaQuery);
 		List<Tuple> results = query.getResultList();
-		for (Tuple nextId : results) {
+
+		Map<MemoryCacheService.ForcedIdCacheKey, List<IResourceLookup<JpaPid>>> valuesToCache = new HashMap<>();
+		populateResourceIdentities(theRequestPartitionId, results, theMapToPopulate, valuesToCache);
+		myMemoryCacheService.putAllAfterCommit(
+				MemoryCacheService.CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID, valuesToCache);
+	}
+
+	/**
+	 * Converts the rows returned by a resource identity query into lookups, and collects the values which should be added to the memory cache once the
+	 * current transaction commits.
+	 */
+	private void populateResourceIdentities(
+			RequestPartitionId theRequestPartitionId,
+			List<Tuple> theResults,
+			ListMultimap<IIdType, IResourceLookup<JpaPid>> theMapToPopulate,
+			Map<MemoryCacheService.ForcedIdCacheKey, List<IResourceLookup<JpaPid>>> theValuesToCache) {
+		for (Tuple nextId : theResults) {
 			// Check if the nextId has a resource ID. It may have a null resource ID if a commit is still pending.
 			JpaPid resourcePid = nextId.get(0, JpaPid.class);
 			String resourceType = nextId.get(1, String.class);
@@ -394,9 +563,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 				IIdType id = nextKey.toIdType(myFhirCtx);
 				theMapToPopulate.put(id, lookup);
 
-				List<IResourceLookup<JpaPid>> valueToCache = theMapToPopulate.get(id);
-				myMemoryCacheService.putAfterCommit(
-						MemoryCacheService.CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID, nextKey, valueToCache);
+				theValuesToCache.put(nextKey, theMapToPopulate.get(id));
 			}
 		}
 	}
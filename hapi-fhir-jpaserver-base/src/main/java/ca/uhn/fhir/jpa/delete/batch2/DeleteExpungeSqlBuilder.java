@@ -27,6 +27,7 @@ import ca.uhn.fhir.jpa.dao.expunge.ResourceForeignKey;
 import ca.uhn.fhir.jpa.dao.expunge.ResourceTableFKProvider;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.dao.JpaPidSet;
 import ca.uhn.fhir.jpa.model.entity.ResourceLink;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
@@ -35,8 +36,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -69,7 +70,7 @@ public class DeleteExpungeSqlBuilder {
 	DeleteExpungeSqlResult convertPidsToDeleteExpungeSql(
 			List<JpaPid> theJpaPids, boolean theCascade, Integer theCascadeMaxRounds) {
 
-		Set<JpaPid> pids = new HashSet<>(theJpaPids);
+		Set<JpaPid> pids = new JpaPidSet(theJpaPids);
 		validateOkToDeleteAndExpunge(pids, theCascade, theCascadeMaxRounds);
 
 		List<String> rawSql = new ArrayList<>();
@@ -94,7 +95,7 @@ public class DeleteExpungeSqlBuilder {
 
 		List<JpaPid> targetPidsAsResourceIds = List.copyOf(thePids);
 		List<ResourceLink> conflictResourceLinks = Collections.synchronizedList(new ArrayList<>());
-		findResourceLinksWithTargetPidIn(targetPidsAsResourceIds, targetPidsAsResourceIds, conflictResourceLinks);
+		findResourceLinksWithTargetPidIn(thePids, targetPidsAsResourceIds, conflictResourceLinks);
 
 		if (conflictResourceLinks.isEmpty()) {
 			return;
@@ -164,7 +165,7 @@ public class DeleteExpungeSqlBuilder {
 	}
 
 	public void findResourceLinksWithTargetPidIn(
-			List<JpaPid> theAllTargetPids,
+			Collection<JpaPid> theAllTargetPids,
 			List<JpaPid> theSomeTargetPids,
 			List<ResourceLink> theConflictResourceLinks) {
 		// We only need to find one conflict, so if we found one already in an earlier partition run, we can skip the
@@ -0,0 +1,136 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.entity;
+
+import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import jakarta.persistence.UniqueConstraint;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.Length;
+
+import java.util.Date;
+
+/**
+ * A Zstandard compression dictionary trained from a sample of stored resources of
+ * a single resource type. Dictionaries are never modified once stored: retraining
+ * creates a new version, and history rows reference the dictionary they were
+ * encoded with via {@link ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable#getCompressionDictionaryId()}.
+ *
+ * @since 8.8.0
+ */
+@Entity
+@Table(
+		name = ResourceCompressionDictionaryEntity.HFJ_RES_COMPRESS_DICT,
+		uniqueConstraints = {
+			@UniqueConstraint(
+					name = "IDX_RESCOMPDICT_TYPE_VER",
+					columnNames = {"RES_TYPE", "DICT_VERSION"})
+		})
+public class ResourceCompressionDictionaryEntity {
+
+	public static final String HFJ_RES_COMPRESS_DICT = "HFJ_RES_COMPRESS_DICT";
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_RES_COMPRESS_DICT")
+	@SequenceGenerator(name = "SEQ_RES_COMPRESS_DICT", sequenceName = "SEQ_RES_COMPRESS_DICT")
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "RES_TYPE", length = ResourceTable.RESTYPE_LEN, nullable = false)
+	private String myResourceType;
+
+	@Column(name = "DICT_VERSION", nullable = false)
+	private int myVersion;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "CREATED_TIME", nullable = false)
+	private Date myCreated;
+
+	@Column(name = "SAMPLE_COUNT", nullable = false)
+	private int mySampleCount;
+
+	@Column(name = "DICT_DATA", nullable = false, length = Length.LONG32)
+	private byte[] myDictionary;
+
+	public Long getId() {
+		return myId;
+	}
+
+	public String getResourceType() {
+		return myResourceType;
+	}
+
+	public void setResourceType(String theResourceType) {
+		myResourceType = theResourceType;
+	}
+
+	public int getVersion() {
+		return myVersion;
+	}
+
+	public void setVersion(int theVersion) {
+		myVersion = theVersion;
+	}
+
+	public Date getCreated() {
+		return myCreated;
+	}
+
+	public void setCreated(Date theCreated) {
+		myCreated = theCreated;
+	}
+
+	public int getSampleCount() {
+		return mySampleCount;
+	}
+
+	public void setSampleCount(int theSampleCount) {
+		mySampleCount = theSampleCount;
+	}
+
+	public byte[] getDictionary() {
+		return myDictionary;
+	}
+
+	public void setDictionary(byte[] theDictionary) {
+		myDictionary = theDictionary;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("id", myId)
+				.append("resourceType", myResourceType)
+				.append("version", myVersion)
+				.append("created", myCreated)
+				.append("sampleCount", mySampleCount)
+				.append("dictionaryBytes", myDictionary != null ? myDictionary.length : null)
+				.toString();
+	}
+}
@@ -0,0 +1,119 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.Length;
+
+/**
+ * A fixed size block of the PIDs matched by a search, used instead of {@link SearchResult}
+ * when the search result cache storage mode is
+ * {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings.SearchResultCacheStorageModeEnum#BLOCKS}.
+ * Block <code>n</code> holds the results with orders <code>n * blockSize</code> (inclusive) to
+ * <code>(n + 1) * blockSize</code> (exclusive).
+ *
+ * @since 8.8.0
+ */
+@Entity
+@Table(
+		name = "HFJ_SEARCH_RESULT_BLK",
+		uniqueConstraints = {
+			@UniqueConstraint(
+					name = "IDX_SEARCHRESBLK_BLOCK",
+					columnNames = {"SEARCH_PID", "BLOCK_IDX"})
+		})
+public class SearchResultBlock {
+
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_SEARCH_RES_BLK")
+	@SequenceGenerator(name = "SEQ_SEARCH_RES_BLK", sequenceName = "SEQ_SEARCH_RES_BLK")
+	@Id
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "SEARCH_PID", nullable = false, updatable = false)
+	private Long mySearchPid;
+
+	@Column(name = "BLOCK_IDX", nullable = false, updatable = false)
+	private int myBlockIndex;
+
+	@Column(name = "PID_COUNT", nullable = false)
+	private int myPidCount;
+
+	@Column(name = "PIDS_DATA", nullable = false, length = Length.LONG32)
+	private byte[] myPids;
+
+	/**
+	 * Constructor
+	 */
+	public SearchResultBlock() {
+		// nothing
+	}
+
+	/**
+	 * Constructor
+	 */
+	public SearchResultBlock(Search theSearch, int theBlockIndex) {
+		Validate.notNull(theSearch.getId());
+		mySearchPid = theSearch.getId();
+		myBlockIndex = theBlockIndex;
+	}
+
+	public Long getSearchPid() {
+		return mySearchPid;
+	}
+
+	public int getBlockIndex() {
+		return myBlockIndex;
+	}
+
+	public int getPidCount() {
+		return myPidCount;
+	}
+
+	public void setPidCount(int thePidCount) {
+		myPidCount = thePidCount;
+	}
+
+	public byte[] getPids() {
+		return myPids;
+	}
+
+	public void setPids(byte[] thePids) {
+		myPids = thePids;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("search", mySearchPid)
+				.append("blockIndex", myBlockIndex)
+				.append("pidCount", myPidCount)
+				.toString();
+	}
+}
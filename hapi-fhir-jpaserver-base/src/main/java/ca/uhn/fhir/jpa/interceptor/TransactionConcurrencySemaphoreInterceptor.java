@@ -23,6 +23,7 @@ import ca.uhn.fhir.interceptor.api.Hook;
 import ca.uhn.fhir.interceptor.api.Interceptor;
 import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.interceptor.model.TransactionWriteOperationsDetails;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
 import ca.uhn.fhir.sl.cache.Cache;
@@ -51,14 +52,14 @@ public class TransactionConcurrencySemaphoreInterceptor {
 	private static final String HELD_SEMAPHORES =
 			TransactionConcurrencySemaphoreInterceptor.class.getName() + "_HELD_SEMAPHORES";
 	private final Cache<String, Semaphore> mySemaphoreCache;
-	private final MemoryCacheService myMemoryCacheService;
+	private final IMemoryCacheService myMemoryCacheService;
 	private boolean myLogWaits;
 	private final Semaphore myLockingSemaphore = new Semaphore(1);
 
 	/**
 	 * Constructor
 	 */
-	public TransactionConcurrencySemaphoreInterceptor(MemoryCacheService theMemoryCacheService) {
+	public TransactionConcurrencySemaphoreInterceptor(IMemoryCacheService theMemoryCacheService) {
 		myMemoryCacheService = theMemoryCacheService;
 		mySemaphoreCache = CacheFactory.build(TimeUnit.MINUTES.toMillis(1));
 	}
@@ -194,6 +194,44 @@ public class HapiFhirJpaMigrationTasks extends BaseMigrationTasks<VersionEnum> {
 					// note that we do not apply the onlyIf() here since we have now fixed the column.
 					.onlyAppliesToPlatforms(DriverTypeEnum.MSSQL_2012);
 		}
+
+		// Add HFJ_RES_COMPRESS_DICT for the ZSTDD resource encoding
+		{
+			version.addIdGenerator("20251220.1", "SEQ_RES_COMPRESS_DICT", 1);
+			Builder.BuilderAddTableByColumns compressionDictionary =
+					version.addTableByColumns("20251220.2", "HFJ_RES_COMPRESS_DICT", "PID");
+			compressionDictionary.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+			compressionDictionary.addColumn("RES_TYPE").nonNullable().type(ColumnTypeEnum.STRING, 40);
+			compressionDictionary.addColumn("DICT_VERSION").nonNullable().type(ColumnTypeEnum.INT);
+			compressionDictionary.addColumn("CREATED_TIME").nonNullable().type(ColumnTypeEnum.DATE_TIMESTAMP);
+			compressionDictionary.addColumn("SAMPLE_COUNT").nonNullable().type(ColumnTypeEnum.INT);
+			compressionDictionary.addColumn("DICT_DATA").nonNullable().type(ColumnTypeEnum.BINARY);
+			compressionDictionary
+					.addIndex("20251220.3", "IDX_RESCOMPDICT_TYPE_VER")
+					.unique(true)
+					.withColumns("RES_TYPE", "DICT_VERSION");
+
+			version.onTable("HFJ_RES_VER")
+					.addColumn("20251220.4", "COMPRESS_DICT_ID")
+					.nullable()
+					.type(ColumnTypeEnum.LONG);
+		}
+
+		// Add HFJ_SEARCH_RESULT_BLK for the BLOCKS search result cache storage mode
+		{
+			version.addIdGenerator("20251221.1", "SEQ_SEARCH_RES_BLK", 1);
+			Builder.BuilderAddTableByColumns searchResultBlock =
+					version.addTableByColumns("20251221.2", "HFJ_SEARCH_RESULT_BLK", "PID");
+			searchResultBlock.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+			searchResultBlock.addColumn("SEARCH_PID").nonNullable().type(ColumnTypeEnum.LONG);
+			searchResultBlock.addColumn("BLOCK_IDX").nonNullable().type(ColumnTypeEnum.INT);
+			searchResultBlock.addColumn("PID_COUNT").nonNullable().type(ColumnTypeEnum.INT);
+			searchResultBlock.addColumn("PIDS_DATA").nonNullable().type(ColumnTypeEnum.BINARY);
+			searchResultBlock
+					.addIndex("20251221.3", "IDX_SEARCHRESBLK_BLOCK")
+					.unique(true)
+					.withColumns("SEARCH_PID", "BLOCK_IDX");
+		}
 	}
 
 	protected void init860() {
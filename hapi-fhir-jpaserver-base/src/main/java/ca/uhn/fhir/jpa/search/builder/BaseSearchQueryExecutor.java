@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Base class for the bounded pools used to run the independent tasks (usually database
+ * queries) of a single search concurrently. The pool has no queue: when all threads are
+ * busy the calling thread executes the query itself, so a burst of searches degrades to
+ * sequential execution instead of waiting on each other.
+ *
+ * @since 8.8.0
+ */
+abstract class BaseSearchQueryExecutor {
+
+	private final ThreadPoolTaskExecutor myExecutor;
+	private final String myTaskDescription;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theThreadCount      The maximum number of threads
+	 * @param theThreadNamePrefix The prefix for the pool thread names
+	 * @param theTaskDescription  A description of the tasks, used in error messages
+	 */
+	BaseSearchQueryExecutor(int theThreadCount, String theThreadNamePrefix, String theTaskDescription) {
+		myExecutor = ThreadPoolUtil.newThreadPool(
+				theThreadCount, theThreadCount, theThreadNamePrefix, 0, new ThreadPoolExecutor.CallerRunsPolicy());
+		myTaskDescription = theTaskDescription;
+	}
+
+	@PreDestroy
+	public void stop() {
+		myExecutor.shutdown();
+	}
+
+	/**
+	 * Executes all of the given tasks and returns their results in the same order. The first
+	 * task is always executed on the calling thread.
+	 */
+	public <T> List<T> invokeAll(List<Callable<T>> theTasks) {
+		List<Future<T>> futures = new ArrayList<>(theTasks.size());
+		try {
+			for (int i = 1; i < theTasks.size(); i++) {
+				futures.add(myExecutor.submit(theTasks.get(i)));
+			}
+
+			List<T> retVal = new ArrayList<>(theTasks.size());
+			if (!theTasks.isEmpty()) {
+				retVal.add(theTasks.get(0).call());
+			}
+			for (Future<T> next : futures) {
+				retVal.add(getResult(next));
+			}
+			return retVal;
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new InternalErrorException(Msg.code(2844) + "Failed to execute " + myTaskDescription + ": " + e, e);
+		} finally {
+			for (Future<T> next : futures) {
+				next.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Submits a task for execution. If all threads are busy, the task is executed on the
+	 * calling thread before this method returns, which limits the number of outstanding
+	 * tasks for a single caller.
+	 */
+	public <T> Future<T> submit(Callable<T> theTask) {
+		return myExecutor.submit(theTask);
+	}
+
+	/**
+	 * Waits for a task submitted to this executor to complete and returns its result
+	 */
+	public <T> T getResult(Future<T> theFuture) {
+		try {
+			return theFuture.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException(
+					Msg.code(2848) + "Interrupted while executing " + myTaskDescription + "s", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new InternalErrorException(
+					Msg.code(2849) + "Failed to execute " + myTaskDescription + ": " + e.getCause(), e);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+
+/**
+ * Executes the independent <code>_include</code> and <code>_revinclude</code> queries of
+ * a single include round concurrently, when
+ * {@link JpaStorageSettings#isConcurrentIncludeLoadingEnabled()} is enabled.
+ * <p>
+ * The pool is bounded by {@link JpaStorageSettings#getIncludeLoadingThreadCount()}.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class IncludeLoadingExecutor extends BaseSearchQueryExecutor {
+
+	/**
+	 * Constructor
+	 */
+	public IncludeLoadingExecutor(JpaStorageSettings theStorageSettings) {
+		super(theStorageSettings.getIncludeLoadingThreadCount(), "search-include", "include query");
+	}
+}
@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Executes the per-parameter queries used by the
+ * {@link JpaStorageSettings.SearchPredicateExecutionStrategyEnum#PARALLEL_INTERSECTION}
+ * search strategy, and intersects their results.
+ * <p>
+ * The pool is bounded by {@link JpaStorageSettings#getSearchPredicateIntersectionThreadCount()}.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class PredicateIntersectionExecutor extends BaseSearchQueryExecutor {
+
+	/**
+	 * Constructor
+	 */
+	public PredicateIntersectionExecutor(JpaStorageSettings theStorageSettings) {
+		super(theStorageSettings.getSearchPredicateIntersectionThreadCount(), "search-predicate", "search predicate");
+	}
+
+	/**
+	 * Sorts the first <code>theCount</code> entries of the given array and removes duplicates
+	 *
+	 * @return A new array, sorted in ascending order with no duplicates
+	 */
+	public static long[] sortDistinct(long[] theIds, int theCount) {
+		long[] sorted = Arrays.copyOf(theIds, theCount);
+		Arrays.sort(sorted);
+		int size = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (size == 0 || sorted[size - 1] != sorted[i]) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+	}
+
+	/**
+	 * Intersects arrays which are each sorted in ascending order with no duplicates. The
+	 * smallest array is used as the starting point, and each remaining array is probed
+	 * with a binary search, so the cost is driven by the most selective input.
+	 *
+	 * @return A new array, sorted in ascending order, containing the values present in all inputs
+	 */
+	public static long[] intersectSorted(List<long[]> theSortedDistinctIds) {
+		if (theSortedDistinctIds.isEmpty()) {
+			return new long[0];
+		}
+
+		List<long[]> inputs = new ArrayList<>(theSortedDistinctIds);
+		inputs.sort(Comparator.comparingInt(t -> t.length));
+
+		long[] retVal = inputs.get(0).clone();
+		int size = retVal.length;
+		for (int i = 1; i < inputs.size() && size > 0; i++) {
+			long[] next = inputs.get(i);
+			int newSize = 0;
+			int fromIndex = 0;
+			for (int j = 0; j < size; j++) {
+				int index = Arrays.binarySearch(next, fromIndex, next.length, retVal[j]);
+				if (index >= 0) {
+					retVal[newSize++] = retVal[j];
+					fromIndex = index + 1;
+				} else {
+					fromIndex = -index - 1;
+				}
+			}
+			size = newSize;
+		}
+
+		return size == retVal.length ? retVal : Arrays.copyOf(retVal, size);
+	}
+}
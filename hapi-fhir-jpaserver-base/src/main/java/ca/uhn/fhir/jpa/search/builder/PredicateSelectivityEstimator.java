@@ -0,0 +1,226 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.search.stats.ISearchParamStatisticsSvc;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.param.BaseParamWithPrefix;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Estimates how many resources a single search parameter will match, so that the
+ * {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings.SearchPredicateExecutionStrategyEnum#PARALLEL_INTERSECTION}
+ * strategy can pick the most selective parameters to execute separately.
+ * <p>
+ * Estimates come from the sampled index statistics maintained by the
+ * {@link ISearchParamStatisticsSvc} when they are available. Otherwise, they start from a
+ * prior based on the parameter type and the modifiers/prefixes being used, and are then
+ * replaced by the counts actually observed when the parameter was previously executed.
+ * Observations are kept per hash identity (i.e. per resource type, parameter name and
+ * partition) and are normalized to the number of values being searched for, so that
+ * <code>code=a</code> and <code>code=a,b</code> share their statistics.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class PredicateSelectivityEstimator {
+
+	/**
+	 * Estimated matches per value for a parameter that is expected to match a large
+	 * part of the table (e.g. a range search or a <code>:missing</code> search)
+	 */
+	static final long BROAD_MATCHES_PER_VALUE = 1_000_000;
+
+	private static final int MAX_TRACKED_IDENTITIES = 10_000;
+	private static final double OBSERVATION_WEIGHT = 0.5;
+
+	private final PartitionSettings myPartitionSettings;
+	private final ISearchParamStatisticsSvc mySearchParamStatisticsSvc;
+	private final Map<Long, Double> myObservedMatchesPerValue = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 */
+	public PredicateSelectivityEstimator(
+			PartitionSettings thePartitionSettings, ISearchParamStatisticsSvc theSearchParamStatisticsSvc) {
+		myPartitionSettings = thePartitionSettings;
+		mySearchParamStatisticsSvc = theSearchParamStatisticsSvc;
+	}
+
+	/**
+	 * Returns the estimated number of resources of type <code>theResourceName</code> matched
+	 * by the given parameter. Only the relative order of the estimates is meaningful.
+	 */
+	public long estimateMatchCount(
+			RequestPartitionId theRequestPartitionId,
+			String theResourceName,
+			RuntimeSearchParam theSearchParam,
+			List<List<IQueryParameterType>> theAndOrParams) {
+		Long sampled = mySearchParamStatisticsSvc.estimateMatchCount(
+				theRequestPartitionId, theResourceName, theSearchParam, theAndOrParams);
+		if (sampled != null) {
+			return sampled;
+		}
+
+		int valueCount = countValues(theAndOrParams);
+
+		long hashIdentity = BaseResourceIndexedSearchParam.calculateHashIdentity(
+				myPartitionSettings, theRequestPartitionId, theResourceName, theSearchParam.getName());
+		Double observed = myObservedMatchesPerValue.get(hashIdentity);
+
+		double matchesPerValue;
+		if (observed != null && !isBroad(theAndOrParams)) {
+			matchesPerValue = observed;
+		} else {
+			matchesPerValue = estimatePriorMatchesPerValue(theSearchParam, theAndOrParams);
+		}
+
+		return (long) Math.ceil(matchesPerValue * valueCount);
+	}
+
+	/**
+	 * Records the number of resources actually matched by a parameter. Searches using
+	 * prefixes or modifiers that are expected to match broadly are not recorded, since
+	 * they say nothing about how selective a plain search on the same parameter is.
+	 */
+	public void recordMatchCount(
+			RequestPartitionId theRequestPartitionId,
+			String theResourceName,
+			String theParamName,
+			List<List<IQueryParameterType>> theAndOrParams,
+			long theMatchCount) {
+		if (isBroad(theAndOrParams)) {
+			return;
+		}
+
+		if (myObservedMatchesPerValue.size() >= MAX_TRACKED_IDENTITIES) {
+			myObservedMatchesPerValue.clear();
+		}
+
+		double matchesPerValue = (double) theMatchCount / countValues(theAndOrParams);
+		long hashIdentity = BaseResourceIndexedSearchParam.calculateHashIdentity(
+				myPartitionSettings, theRequestPartitionId, theResourceName, theParamName);
+		myObservedMatchesPerValue.merge(
+				hashIdentity,
+				matchesPerValue,
+				(theExisting, theNew) -> theExisting * (1 - OBSERVATION_WEIGHT) + theNew * OBSERVATION_WEIGHT);
+	}
+
+	@VisibleForTesting
+	void clearObservations() {
+		myObservedMatchesPerValue.clear();
+	}
+
+	private static long estimatePriorMatchesPerValue(
+			RuntimeSearchParam theSearchParam, List<List<IQueryParameterType>> theAndOrParams) {
+		if (isBroad(theAndOrParams)) {
+			return BROAD_MATCHES_PER_VALUE;
+		}
+
+		switch (theSearchParam.getParamType()) {
+			case REFERENCE:
+				for (List<IQueryParameterType> nextOrList : theAndOrParams) {
+					for (IQueryParameterType next : nextOrList) {
+						if (next instanceof ReferenceParam referenceParam && isNotBlank(referenceParam.getChain())) {
+							return 10_000;
+						}
+					}
+				}
+				return 100;
+			case TOKEN:
+			case URI:
+				return 1_000;
+			case STRING:
+				for (List<IQueryParameterType> nextOrList : theAndOrParams) {
+					for (IQueryParameterType next : nextOrList) {
+						if (next instanceof StringParam stringParam && !stringParam.isExact()) {
+							return 10_000;
+						}
+					}
+				}
+				return 1_000;
+			case DATE:
+			case NUMBER:
+			case QUANTITY:
+			default:
+				return 10_000;
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if any value uses a modifier, a <code>:missing</code>
+	 * qualifier or a range prefix, which typically match a large part of the table.
+	 */
+	private static boolean isBroad(List<List<IQueryParameterType>> theAndOrParams) {
+		for (List<IQueryParameterType> nextOrList : theAndOrParams) {
+			for (IQueryParameterType next : nextOrList) {
+				if (next.getMissing() != null) {
+					return true;
+				}
+				if (next instanceof ReferenceParam) {
+					// Reference qualifiers are resource types and chains, not modifiers
+					continue;
+				}
+				if (next instanceof StringParam stringParam) {
+					if (stringParam.isContains()) {
+						return true;
+					}
+					if (stringParam.isExact()) {
+						continue;
+					}
+				}
+				if (next instanceof BaseParamWithPrefix<?> paramWithPrefix) {
+					ParamPrefixEnum prefix = paramWithPrefix.getPrefix();
+					if (prefix != null && prefix != ParamPrefixEnum.EQUAL) {
+						return true;
+					}
+				}
+				if (isNotBlank(next.getQueryParameterQualifier())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * An AND of ORs matches at most as many resources as its smallest OR list
+	 */
+	private static int countValues(List<List<IQueryParameterType>> theAndOrParams) {
+		int retVal = Integer.MAX_VALUE;
+		for (List<IQueryParameterType> nextOrList : theAndOrParams) {
+			retVal = Math.min(retVal, nextOrList.size());
+		}
+		return retVal == Integer.MAX_VALUE ? 1 : Math.max(1, retVal);
+	}
+}
@@ -0,0 +1,41 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+
+/**
+ * Parses resource bodies on a worker pool while the next batch of bodies is loaded from the
+ * database, when {@link JpaStorageSettings#isResourceLoadingPipelineEnabled()} is enabled.
+ * <p>
+ * The pool is bounded by {@link JpaStorageSettings#getResourceLoadingPipelineThreadCount()}.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class ResourceParsingExecutor extends BaseSearchQueryExecutor {
+
+	/**
+	 * Constructor
+	 */
+	public ResourceParsingExecutor(JpaStorageSettings theStorageSettings) {
+		super(theStorageSettings.getResourceLoadingPipelineThreadCount(), "search-parse", "resource parse");
+	}
+}
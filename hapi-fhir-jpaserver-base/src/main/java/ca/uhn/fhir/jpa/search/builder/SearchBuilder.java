@@ -44,10 +44,13 @@ import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTagDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceTagDao;
 import ca.uhn.fhir.jpa.dao.search.ResourceNotFoundInIndexException;
+import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.interceptor.JpaPreResourceAccessDetails;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.dao.JpaPidSet;
 import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
 import ca.uhn.fhir.jpa.model.entity.BaseTag;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
@@ -131,6 +134,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.Hibernate;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hl7.fhir.instance.model.api.IAnyResource;
@@ -142,11 +146,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -156,6 +163,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.model.util.JpaConstants.NO_MORE;
@@ -198,6 +207,16 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	private static final String MY_TARGET_RESOURCE_VERSION = "myTargetResourceVersion";
 	public static final JpaPid[] EMPTY_JPA_PID_ARRAY = new JpaPid[0];
 	public static Integer myMaxPageSizeForTests = null;
+	static final String PREDICATE_INTERSECTION_SQL_COMMENT = "/* predicate-intersection */ ";
+	private static final int MAX_INTERSECTED_PREDICATES = 3;
+	private static final Set<RestSearchParameterTypeEnum> SELECTIVITY_ESTIMATE_PARAM_TYPES = EnumSet.of(
+			RestSearchParameterTypeEnum.TOKEN,
+			RestSearchParameterTypeEnum.STRING,
+			RestSearchParameterTypeEnum.DATE,
+			RestSearchParameterTypeEnum.NUMBER,
+			RestSearchParameterTypeEnum.QUANTITY,
+			RestSearchParameterTypeEnum.URI,
+			RestSearchParameterTypeEnum.REFERENCE);
 	protected final IInterceptorBroadcaster myInterceptorBroadcaster;
 	protected final IResourceTagDao myResourceTagDao;
 	private String myResourceName;
@@ -228,7 +247,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	/**
 	 * @see SearchBuilder#setDeduplicateInDatabase(boolean)
 	 */
-	private Set<JpaPid> myPidSet;
+	private JpaPidSet myPidSet;
 
 	private boolean myHasNextIteratorQuery = false;
 	private RequestPartitionId myRequestPartitionId;
@@ -249,6 +268,29 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	@Autowired
 	private IRequestPartitionHelperSvc myPartitionHelperSvc;
 
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	@Autowired
+	private PredicateIntersectionExecutor myPredicateIntersectionExecutor;
+
+	@Autowired
+	private PredicateSelectivityEstimator myPredicateSelectivityEstimator;
+
+	@Autowired
+	private IncludeLoadingExecutor myIncludeLoadingExecutor;
+
+	@Autowired
+	private ResourceParsingExecutor myResourceParsingExecutor;
+
+	/**
+	 * The result of the predicate intersection for the current search. This is calculated once
+	 * per search and reused if the query is executed again with a larger limit.
+	 *
+	 * @see JpaStorageSettings.SearchPredicateExecutionStrategyEnum#PARALLEL_INTERSECTION
+	 */
+	private PredicateIntersection myPredicateIntersection;
+
 	/**
 	 * Constructor
 	 */
@@ -340,6 +382,9 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 				.filter(t -> !t.equals(IAnyResource.SP_RES_ID))
 				.filter(t -> !t.equals(Constants.PARAM_TAG))
 				.collect(Collectors.toList());
+		if (myStorageSettings.isSearchParamStatisticsEnabled()) {
+			sortParamNamesBySelectivity(paramNames);
+		}
 		if (myParams.containsKey(IAnyResource.SP_RES_ID)) {
 			paramNames.add(IAnyResource.SP_RES_ID);
 		}
@@ -367,6 +412,34 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		}
 	}
 
+	/**
+	 * Sorts the given parameter names so that the most selective parameters come first, and
+	 * are therefore the first tables to be joined. Every parameter of a type supported by
+	 * {@link PredicateSelectivityEstimator} receives an estimate, which falls back to a prior
+	 * based on the parameter type when no statistics have been sampled yet, so these
+	 * parameters are always reordered. Only parameters of other types (and unknown
+	 * parameters) keep their relative order, after the others.
+	 */
+	private void sortParamNamesBySelectivity(List<String> theParamNames) {
+		if (myResourceName == null || theParamNames.size() < 2) {
+			return;
+		}
+
+		Map<String, Long> estimates = new HashMap<>();
+		for (String nextParamName : theParamNames) {
+			long estimate = Long.MAX_VALUE;
+			RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(
+					myResourceName, nextParamName, ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH);
+			if (searchParam != null && SELECTIVITY_ESTIMATE_PARAM_TYPES.contains(searchParam.getParamType())) {
+				estimate = myPredicateSelectivityEstimator.estimateMatchCount(
+						myRequestPartitionId, myResourceName, searchParam, myParams.get(nextParamName));
+			}
+			estimates.put(nextParamName, estimate);
+		}
+
+		theParamNames.sort(Comparator.comparing(estimates::get));
+	}
+
 	/**
 	 * This method returns <code>true</code> if the search is potentially a candidate for
 	 * processing using a Combo SearchParameter. This means that:
@@ -418,7 +491,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	 */
 	@Override
 	public void setPreviouslyAddedResourcePids(@Nonnull List<JpaPid> thePidSet) {
-		myPidSet = new HashSet<>(thePidSet);
+		myPidSet = new JpaPidSet(thePidSet);
 	}
 
 	@SuppressWarnings("ConstantConditions")
@@ -434,7 +507,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		init(theParams, theSearchRuntimeDetails.getSearchUuid(), theRequestPartitionId);
 
 		if (myPidSet == null) {
-			myPidSet = new HashSet<>();
+			myPidSet = new JpaPidSet();
 		}
 
 		return new QueryIterator(theSearchRuntimeDetails, theRequest);
@@ -445,8 +518,10 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		// we mutate the params.  Make a private copy.
 		myParams = theParams.clone();
 		mySearchProperties.setSortSpec(myParams.getSort());
+		mySearchProperties.setPredicateExecutionStrategy(myStorageSettings.getSearchPredicateExecutionStrategy());
 		mySearchUuid = theSearchUuid;
 		myRequestPartitionId = theRequestPartitionId;
+		myPredicateIntersection = null;
 	}
 
 	/**
@@ -707,12 +782,284 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		if (myParams.getEverythingMode() != null) {
 			createChunkedQueryForEverythingSearch(
 					theRequest, theParams, theSearchProperties, thePidList, theSearchQueryExecutors);
+		} else if (thePidList == null
+				&& theSearchProperties.getPredicateExecutionStrategy()
+						== JpaStorageSettings.SearchPredicateExecutionStrategyEnum.PARALLEL_INTERSECTION) {
+			createChunkedQueryWithPredicateIntersection(
+					theParams, theSearchProperties, theRequest, theSearchQueryExecutors);
 		} else {
 			createChunkedQueryNormalSearch(
 					theParams, theSearchProperties, theRequest, thePidList, theSearchQueryExecutors);
 		}
 	}
 
+	/**
+	 * Executes the most selective search parameters as separate queries in parallel, intersects
+	 * the resource IDs they return, and then runs the normal search for the remaining parameters
+	 * (plus sorting, paging, etc.) restricted to the resources in the intersection. Falls back to
+	 * a normal search if the search isn't suitable for this strategy.
+	 *
+	 * @see JpaStorageSettings.SearchPredicateExecutionStrategyEnum#PARALLEL_INTERSECTION
+	 */
+	private void createChunkedQueryWithPredicateIntersection(
+			SearchParameterMap theParams,
+			SearchQueryProperties theSearchProperties,
+			RequestDetails theRequest,
+			List<ISearchQueryExecutor> theSearchQueryExecutors) {
+		if (myPredicateIntersection == null) {
+			myPredicateIntersection = executePredicateIntersection(theParams, theRequest);
+		}
+
+		List<JpaPid> matchingPids = myPredicateIntersection.matchingPids();
+		boolean needsSingleQuery = theSearchProperties.isDoCountOnlyFlag()
+				|| theSearchProperties.hasSort()
+				|| theSearchProperties.getOffset() != null;
+		if (myPredicateIntersection == PredicateIntersection.NOT_APPLICABLE
+				|| (matchingPids.size() > getMaximumPageSize() && needsSingleQuery)) {
+			createChunkedQueryNormalSearch(theParams, theSearchProperties, theRequest, null, theSearchQueryExecutors);
+			return;
+		}
+
+		if (matchingPids.isEmpty()) {
+			// Nothing can match, so there's no need for a final query
+			return;
+		}
+
+		SearchParameterMap originalParams = myParams;
+		try {
+			if (matchingPids.size() <= getMaximumPageSize()) {
+				myParams = myPredicateIntersection.remainingParams().clone();
+				createChunkedQueryNormalSearch(
+						myParams,
+						theSearchProperties,
+						theRequest,
+						normalizeIdListForInClause(matchingPids),
+						theSearchQueryExecutors);
+			} else {
+				for (List<JpaPid> nextChunk : Lists.partition(matchingPids, getMaximumPageSize())) {
+					SearchQueryProperties chunkProperties = theSearchProperties.clone();
+					if (!chunkProperties.hasMaxResultsRequested()
+							|| chunkProperties.getMaxResultsRequested() > nextChunk.size()) {
+						chunkProperties.setMaxResultsRequested(nextChunk.size());
+					}
+					myParams = myPredicateIntersection.remainingParams().clone();
+					createChunkedQueryNormalSearch(
+							myParams, chunkProperties, theRequest, nextChunk, theSearchQueryExecutors);
+				}
+			}
+		} finally {
+			myParams = originalParams;
+		}
+	}
+
+	/**
+	 * Selects up to {@link #MAX_INTERSECTED_PREDICATES} of the most selective parameters in the
+	 * search, executes each of them as a standalone query (in parallel), and intersects the results.
+	 */
+	@Nonnull
+	private PredicateIntersection executePredicateIntersection(
+			SearchParameterMap theParams, RequestDetails theRequest) {
+		List<String> candidates = selectPredicateIntersectionCandidates(theParams);
+		if (candidates.size() < 2) {
+			return PredicateIntersection.NOT_APPLICABLE;
+		}
+
+		int maxCandidates = myStorageSettings.getSearchPredicateIntersectionMaxCandidates();
+		List<String> paramNames = new ArrayList<>();
+		List<Callable<long[]>> tasks = new ArrayList<>();
+		for (String nextParamName : candidates) {
+			GeneratedSql sql = generatePredicateIntersectionSql(theRequest, nextParamName, theParams);
+			if (sql == null) {
+				continue;
+			}
+			if (sql.isMatchNothing()) {
+				ourLog.debug("Search parameter {} can not match anything, skipping query", nextParamName);
+				return new PredicateIntersection(theParams, List.of());
+			}
+			paramNames.add(nextParamName);
+			tasks.add(() -> myTransactionService
+					.withRequest(theRequest)
+					.withRequestPartitionId(myRequestPartitionId)
+					.readOnly()
+					.execute(() -> executePredicateIntersectionQuery(sql, maxCandidates)));
+		}
+		if (tasks.size() < 2) {
+			return PredicateIntersection.NOT_APPLICABLE;
+		}
+
+		StopWatch sw = new StopWatch();
+		List<long[]> results = myPredicateIntersectionExecutor.invokeAll(tasks);
+
+		SearchParameterMap remainingParams = theParams.clone();
+		List<long[]> matches = new ArrayList<>();
+		for (int i = 0; i < results.size(); i++) {
+			String nextParamName = paramNames.get(i);
+			long[] nextResult = results.get(i);
+			List<List<IQueryParameterType>> andOrParams = theParams.get(nextParamName);
+			if (nextResult == null) {
+				// Too many matches to be useful, so this parameter stays in the final query
+				myPredicateSelectivityEstimator.recordMatchCount(
+						myRequestPartitionId, myResourceName, nextParamName, andOrParams, maxCandidates + 1L);
+				continue;
+			}
+			myPredicateSelectivityEstimator.recordMatchCount(
+					myRequestPartitionId, myResourceName, nextParamName, andOrParams, nextResult.length);
+			remainingParams.remove(nextParamName);
+			matches.add(nextResult);
+		}
+
+		if (matches.isEmpty()) {
+			ourLog.debug(
+					"Predicate intersection for {} not used, all of {} exceeded {} matches",
+					myResourceName,
+					paramNames,
+					maxCandidates);
+			return PredicateIntersection.NOT_APPLICABLE;
+		}
+
+		long[] intersection = PredicateIntersectionExecutor.intersectSorted(matches);
+		List<JpaPid> matchingPids = new ArrayList<>(intersection.length);
+		for (long next : intersection) {
+			matchingPids.add(JpaPid.fromId(next));
+		}
+
+		ourLog.debug(
+				"Predicate intersection for {} on {} produced {} candidate resources in {}",
+				myResourceName,
+				paramNames,
+				matchingPids.size(),
+				sw);
+		return new PredicateIntersection(remainingParams, matchingPids);
+	}
+
+	/**
+	 * Returns the names of the parameters which can be executed as a standalone query,
+	 * sorted from most to least selective, or an empty list if the search isn't suitable
+	 * for a predicate intersection. The intersection only holds resource IDs, so it isn't
+	 * used in database partition mode where the partition ID is part of the resource key.
+	 */
+	private List<String> selectPredicateIntersectionCandidates(SearchParameterMap theParams) {
+		if (myResourceName == null
+				|| myPredicateIntersectionExecutor == null
+				|| myPartitionSettings.isDatabasePartitionMode()
+				|| theParams.isLastN()
+				|| theParams.getSearchContainedMode() != SearchContainedModeEnum.FALSE
+				|| theParams.getSearchIncludeDeletedMode() != null
+				|| myStorageSettings.isIndexOnContainedResources()
+				|| myContext.getVersion().getVersion().isOlderThan(FhirVersionEnum.R4)) {
+			return List.of();
+		}
+
+		if (isComboSearchCandidate()
+				&& !mySearchParamRegistry
+						.getActiveComboSearchParams(
+								myResourceName,
+								theParams.keySet(),
+								ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH)
+						.isEmpty()) {
+			return List.of();
+		}
+
+		Map<String, Long> estimates = new HashMap<>();
+		for (String nextParamName : theParams.keySet()) {
+			List<List<IQueryParameterType>> andOrParams = theParams.get(nextParamName);
+			if (nextParamName.startsWith("_") || andOrParams == null || andOrParams.isEmpty()) {
+				continue;
+			}
+			RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(
+					myResourceName, nextParamName, ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH);
+			if (searchParam == null || !SELECTIVITY_ESTIMATE_PARAM_TYPES.contains(searchParam.getParamType())) {
+				continue;
+			}
+			estimates.put(
+					nextParamName,
+					myPredicateSelectivityEstimator.estimateMatchCount(
+							myRequestPartitionId, myResourceName, searchParam, andOrParams));
+		}
+
+		return estimates.keySet().stream()
+				.sorted(Comparator.comparing((String t) -> estimates.get(t)).thenComparing(Comparator.naturalOrder()))
+				.limit(MAX_INTERSECTED_PREDICATES)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Generates the standalone query for a single search parameter, or returns <code>null</code>
+	 * if the parameter doesn't produce a predicate
+	 */
+	@Nullable
+	private GeneratedSql generatePredicateIntersectionSql(
+			RequestDetails theRequest, String theParamName, SearchParameterMap theParams) {
+		SearchQueryBuilder sqlBuilder = new SearchQueryBuilder(
+				myContext,
+				myStorageSettings,
+				myPartitionSettings,
+				myRequestPartitionId,
+				myResourceName,
+				mySqlBuilderFactory,
+				myDialectProvider,
+				false,
+				false);
+		SearchParameterMap params = new SearchParameterMap();
+		params.put(theParamName, theParams.get(theParamName));
+		QueryStack queryStack = new QueryStack(
+				theRequest,
+				params,
+				myStorageSettings,
+				myContext,
+				sqlBuilder,
+				mySearchParamRegistry,
+				myPartitionSettings);
+
+		Condition predicate = queryStack.searchForIdsWithAndOr(with().setResourceName(myResourceName)
+				.setParamName(theParamName)
+				.setAndOrParams(params.get(theParamName))
+				.setRequest(theRequest)
+				.setRequestPartitionId(myRequestPartitionId));
+		if (predicate == null) {
+			return null;
+		}
+		sqlBuilder.addPredicate(predicate);
+
+		int maxCandidates = myStorageSettings.getSearchPredicateIntersectionMaxCandidates();
+		GeneratedSql generatedSql = sqlBuilder.generate(null, maxCandidates + 1);
+
+		// Tag the statement so that it can be identified in SQL logs and captures
+		String sql = generatedSql.getSql().replaceFirst("^SELECT ", "SELECT " + PREDICATE_INTERSECTION_SQL_COMMENT);
+		return new GeneratedSql(generatedSql.isMatchNothing(), sql, generatedSql.getBindVariables());
+	}
+
+	/**
+	 * @return The distinct matching resource IDs in ascending order, or <code>null</code> if
+	 * more than <code>theMaxCandidates</code> rows matched
+	 */
+	@Nullable
+	private long[] executePredicateIntersectionQuery(GeneratedSql theGeneratedSql, int theMaxCandidates) {
+		long[] ids = new long[64];
+		int count = 0;
+		try (SearchQueryExecutor executor =
+				mySqlBuilderFactory.newSearchQueryExecutor(theGeneratedSql, theMaxCandidates + 1)) {
+			while (executor.hasNext()) {
+				if (count == theMaxCandidates) {
+					return null;
+				}
+				if (count == ids.length) {
+					ids = Arrays.copyOf(ids, Math.min(ids.length * 2, theMaxCandidates));
+				}
+				ids[count++] = executor.next().getId();
+			}
+		}
+		return PredicateIntersectionExecutor.sortDistinct(ids, count);
+	}
+
+	/**
+	 * @param remainingParams The search parameters which were not satisfied by the intersection
+	 * @param matchingPids    The resources matching every parameter that was satisfied by the intersection
+	 */
+	private record PredicateIntersection(SearchParameterMap remainingParams, List<JpaPid> matchingPids) {
+		private static final PredicateIntersection NOT_APPLICABLE = new PredicateIntersection(null, List.of());
+	}
+
 	private void createChunkedQueryNormalSearch(
 			SearchParameterMap theParams,
 			SearchQueryProperties theSearchProperties,
@@ -1250,7 +1597,91 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			List<IBaseResource> theResourceListToPopulate,
 			boolean theForHistoryOperation,
 			Map<Long, Integer> thePosition) {
+		LoadedResourceEntities entities = loadResourceEntities(theRequest, thePids);
+		List<IBaseResource> resources = parseResourceEntities(theRequest, entities, theForHistoryOperation);
+		addLoadedResources(entities, resources, theIncludedPids, theResourceListToPopulate, thePosition);
+	}
 
+	/**
+	 * Loads resources in batches, parsing each batch on the {@link ResourceParsingExecutor} while
+	 * the next batch is loaded from the database. Batches which can't be parsed without the
+	 * database (see {@link #isParseableWithoutDatabase(LoadedResourceEntities)}) are parsed on
+	 * the calling thread instead, so all database access happens on the calling thread.
+	 */
+	private void doLoadPidsPipelined(
+			RequestDetails theRequest,
+			Collection<JpaPid> thePids,
+			Collection<JpaPid> theIncludedPids,
+			List<IBaseResource> theResourceListToPopulate,
+			boolean theForHistoryOperation,
+			Map<Long, Integer> thePosition) {
+		int batchSize = Math.min(myStorageSettings.getResourceLoadingPipelineBatchSize(), getMaximumPageSize());
+		int maxBatchesInFlight = myStorageSettings.getResourceLoadingPipelineThreadCount();
+
+		Deque<Pair<LoadedResourceEntities, Future<List<IBaseResource>>>> inFlight = new ArrayDeque<>();
+		try {
+			for (List<JpaPid> nextBatch : Lists.partition(new ArrayList<>(thePids), batchSize)) {
+				LoadedResourceEntities entities = loadResourceEntities(theRequest, nextBatch);
+				if (!isParseableWithoutDatabase(entities)) {
+					List<IBaseResource> resources = parseResourceEntities(theRequest, entities, theForHistoryOperation);
+					addLoadedResources(entities, resources, theIncludedPids, theResourceListToPopulate, thePosition);
+					continue;
+				}
+
+				entities.initializeLazyAssociations(myStorageSettings.getTagStorageMode());
+				Future<List<IBaseResource>> parsed = myResourceParsingExecutor.submit(
+						() -> parseResourceEntities(theRequest, entities, theForHistoryOperation));
+				inFlight.add(Pair.of(entities, parsed));
+
+				// Bound the memory used by the pipeline
+				while (inFlight.size() > maxBatchesInFlight
+						|| (!inFlight.isEmpty() && inFlight.peek().getRight().isDone())) {
+					Pair<LoadedResourceEntities, Future<List<IBaseResource>>> next = inFlight.remove();
+					List<IBaseResource> resources = myResourceParsingExecutor.getResult(next.getRight());
+					addLoadedResources(
+							next.getLeft(), resources, theIncludedPids, theResourceListToPopulate, thePosition);
+				}
+			}
+
+			while (!inFlight.isEmpty()) {
+				Pair<LoadedResourceEntities, Future<List<IBaseResource>>> next = inFlight.remove();
+				List<IBaseResource> resources = myResourceParsingExecutor.getResult(next.getRight());
+				addLoadedResources(next.getLeft(), resources, theIncludedPids, theResourceListToPopulate, thePosition);
+			}
+		} finally {
+			inFlight.forEach(t -> t.getRight().cancel(true));
+		}
+	}
+
+	/**
+	 * Returns <code>false</code> if parsing any of the given entities could need to read from
+	 * the database: to look up the meta.source from the provenance table, to look up the partition
+	 * name, or to load the compression dictionary for the resource body. These lookups are mostly
+	 * served from caches, but a cache miss would query the database from the parsing thread.
+	 */
+	private boolean isParseableWithoutDatabase(LoadedResourceEntities theEntities) {
+		boolean checkProvenance = myStorageSettings.isAccessMetaSourceInformationFromProvenanceTable();
+		boolean checkPartition = myPartitionSettings.isPartitioningEnabled();
+		for (ResourceHistoryTable next : theEntities.entities()) {
+			if (next.getCompressionDictionaryId() != null) {
+				return false;
+			}
+			if (checkProvenance && isBlank(next.getSourceUri()) && isBlank(next.getRequestId())) {
+				return false;
+			}
+			if (checkPartition
+					&& next.getPartitionId() != null
+					&& next.getPartitionId().getPartitionId() != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Loads the current (or requested) versions of the given resources, along with their tags
+	 */
+	private LoadedResourceEntities loadResourceEntities(RequestDetails theRequest, Collection<JpaPid> thePids) {
 		Map<JpaPid, Long> resourcePidToVersion = null;
 		for (JpaPid next : thePids) {
 			if (next.getVersion() != null && myStorageSettings.isRespectVersionsForSearchIncludes()) {
@@ -1325,33 +1756,73 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		// -- preload all tags with tag definition if any
 		Map<JpaPid, Collection<BaseTag>> tagMap = getResourceTagMap(resourceSearchViewList);
 
-		for (ResourceHistoryTable next : resourceSearchViewList) {
+		return new LoadedResourceEntities(resourceSearchViewList, tagMap, resourcePidToVersion);
+	}
+
+	/**
+	 * Parses the loaded resource entities. This may only be called from a thread other than the
+	 * one which loaded the entities if {@link #isParseableWithoutDatabase(LoadedResourceEntities)}
+	 * returns <code>true</code> for them and
+	 * {@link LoadedResourceEntities#initializeLazyAssociations(JpaStorageSettings.TagStorageModeEnum)}
+	 * has been called first.
+	 *
+	 * @return A list containing the parsed resource for each entity, or <code>null</code> for entities which were
+	 * 		deleted or could not be parsed
+	 */
+	private List<IBaseResource> parseResourceEntities(
+			RequestDetails theRequest, LoadedResourceEntities theEntities, boolean theForHistoryOperation) {
+		List<IBaseResource> retVal = new ArrayList<>(theEntities.entities().size());
+		for (ResourceHistoryTable next : theEntities.entities()) {
 			if (next.getDeleted() != null) {
+				retVal.add(null);
 				continue;
 			}
 
 			Class<? extends IBaseResource> resourceType =
 					myContext.getResourceDefinition(next.getResourceType()).getImplementingClass();
 
-			JpaPid resourceId = next.getPersistentId();
-
-			if (resourcePidToVersion != null) {
-				Long version = resourcePidToVersion.get(resourceId);
-				resourceId.setVersion(version);
-			}
-
 			IBaseResource resource;
 			resource = myJpaStorageResourceParser.toResource(
-					theRequest, resourceType, next, tagMap.get(next.getResourceId()), theForHistoryOperation);
+					theRequest,
+					resourceType,
+					next,
+					theEntities.tagMap().get(next.getResourceId()),
+					theForHistoryOperation);
 			if (resource == null) {
 				ourLog.warn(
 						"Unable to find resource {}/{}/_history/{} in database",
 						next.getResourceType(),
 						next.getIdDt().getIdPart(),
 						next.getVersion());
+			}
+			retVal.add(resource);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Adds parsed resources to the results at the position of their PID in the original request
+	 */
+	private void addLoadedResources(
+			LoadedResourceEntities theEntities,
+			List<IBaseResource> theResources,
+			Collection<JpaPid> theIncludedPids,
+			List<IBaseResource> theResourceListToPopulate,
+			Map<Long, Integer> thePosition) {
+		Map<JpaPid, Long> resourcePidToVersion = theEntities.resourcePidToVersion();
+		for (int i = 0; i < theResources.size(); i++) {
+			IBaseResource resource = theResources.get(i);
+			if (resource == null) {
 				continue;
 			}
 
+			JpaPid resourceId = theEntities.entities().get(i).getPersistentId();
+
+			if (resourcePidToVersion != null) {
+				Long version = resourcePidToVersion.get(resourceId);
+				resourceId.setVersion(version);
+			}
+
 			Integer index = thePosition.get(resourceId.getId());
 			if (index == null) {
 				ourLog.warn("Got back unexpected resource PID {}", resourceId);
@@ -1539,6 +2010,18 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			}
 		}
 
+		if (myStorageSettings.isResourceLoadingPipelineEnabled()
+				&& thePids.size() > myStorageSettings.getResourceLoadingPipelineBatchSize()) {
+			doLoadPidsPipelined(
+					theRequestDetails,
+					thePids,
+					theIncludedPids,
+					theResourceListToPopulate,
+					theForHistoryOperation,
+					position);
+			return;
+		}
+
 		// We only chunk because some jdbc drivers can't handle long param lists.
 		QueryChunker.chunk(
 				thePids,
@@ -1649,14 +2132,15 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		String findPartitionIdFieldName =
 				reverseMode ? MY_SOURCE_RESOURCE_PARTITION_ID : MY_TARGET_RESOURCE_PARTITION_ID;
 		String findResourceTypeFieldName = reverseMode ? MY_SOURCE_RESOURCE_TYPE : MY_TARGET_RESOURCE_TYPE;
-		String findVersionFieldName = null;
-		if (!reverseMode && myStorageSettings.isRespectVersionsForSearchIncludes()) {
-			findVersionFieldName = MY_TARGET_RESOURCE_VERSION;
-		}
+		String findVersionFieldName = !reverseMode && myStorageSettings.isRespectVersionsForSearchIncludes()
+				? MY_TARGET_RESOURCE_VERSION
+				: null;
+
+		boolean concurrentIncludeLoading = myStorageSettings.isConcurrentIncludeLoadingEnabled();
 
 		List<JpaPid> nextRoundMatches = new ArrayList<>(matches);
 		HashSet<JpaPid> allAdded = new HashSet<>();
-		HashSet<JpaPid> original = new HashSet<>(matches);
+		JpaPidSet original = new JpaPidSet(matches);
 		ArrayList<Include> includes = new ArrayList<>(currentIncludes);
 
 		int roundCounts = 0;
@@ -1667,6 +2151,8 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			roundCounts++;
 
 			HashSet<JpaPid> pidsToInclude = new HashSet<>();
+			List<IncludeQuery> includeQueries = new ArrayList<>();
+			List<SpecificInclude> combinableIncludes = new ArrayList<>();
 
 			for (Iterator<Include> iter = includes.iterator(); iter.hasNext(); ) {
 				Include nextInclude = iter.next();
@@ -1687,36 +2173,85 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 				}
 
 				if (matchAll) {
-					loadIncludesMatchAll(
+					String finalWantResourceType = wantResourceType;
+					includeQueries.add((theEntityManager, thePidsToInclude) -> loadIncludesMatchAll(
 							findPidFieldName,
 							findPartitionIdFieldName,
 							findResourceTypeFieldName,
 							findVersionFieldName,
 							searchPidFieldName,
 							searchPartitionIdFieldName,
-							wantResourceType,
+							finalWantResourceType,
 							reverseMode,
 							hasDesiredResourceTypes,
 							nextRoundMatches,
-							entityManager,
+							theEntityManager,
 							maxCount,
 							desiredResourceTypes,
-							pidsToInclude,
-							request);
+							thePidsToInclude,
+							request));
 				} else {
-					loadIncludesMatchSpecific(
-							nextInclude,
-							fhirContext,
-							findPidFieldName,
-							findPartitionIdFieldName,
-							findVersionFieldName,
-							searchPidFieldName,
-							reverseMode,
-							nextRoundMatches,
-							entityManager,
-							maxCount,
-							pidsToInclude,
-							request);
+					SpecificInclude specificInclude = resolveSpecificInclude(nextInclude, fhirContext, reverseMode);
+					if (specificInclude == null) {
+						continue;
+					}
+
+					if (!concurrentIncludeLoading) {
+						for (String nextPath : specificInclude.paths()) {
+							SpecificInclude pathInclude = specificInclude.withPaths(List.of(nextPath));
+							includeQueries.add((theEntityManager, thePidsToInclude) -> loadIncludesMatchSpecific(
+									List.of(pathInclude),
+									findPidFieldName,
+									findPartitionIdFieldName,
+									findVersionFieldName,
+									searchPidFieldName,
+									reverseMode,
+									nextRoundMatches,
+									theEntityManager,
+									maxCount,
+									thePidsToInclude,
+									request));
+						}
+					} else if (specificInclude.canonicalReferencesPossible()) {
+						includeQueries.add((theEntityManager, thePidsToInclude) -> loadIncludesMatchSpecific(
+								List.of(specificInclude),
+								findPidFieldName,
+								findPartitionIdFieldName,
+								findVersionFieldName,
+								searchPidFieldName,
+								reverseMode,
+								nextRoundMatches,
+								theEntityManager,
+								maxCount,
+								thePidsToInclude,
+								request));
+					} else {
+						// Combined into a single query below
+						combinableIncludes.add(specificInclude);
+					}
+				}
+			}
+
+			if (!combinableIncludes.isEmpty()) {
+				includeQueries.add((theEntityManager, thePidsToInclude) -> loadIncludesMatchSpecific(
+						combinableIncludes,
+						findPidFieldName,
+						findPartitionIdFieldName,
+						findVersionFieldName,
+						searchPidFieldName,
+						reverseMode,
+						nextRoundMatches,
+						theEntityManager,
+						maxCount,
+						thePidsToInclude,
+						request));
+			}
+
+			if (concurrentIncludeLoading && includeQueries.size() > 1) {
+				loadIncludesConcurrently(includeQueries, request, compositeBroadcaster, pidsToInclude);
+			} else {
+				for (IncludeQuery nextQuery : includeQueries) {
+					nextQuery.load(entityManager, pidsToInclude);
 				}
 			}
 
@@ -1780,31 +2315,77 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		return allAdded;
 	}
 
-	private void loadIncludesMatchSpecific(
-			Include nextInclude,
-			FhirContext fhirContext,
-			String findPidFieldName,
-			String findPartitionFieldName,
-			String findVersionFieldName,
-			String searchPidFieldName,
-			boolean reverseMode,
-			List<JpaPid> nextRoundMatches,
-			EntityManager entityManager,
-			Integer maxCount,
-			HashSet<JpaPid> pidsToInclude,
-			RequestDetails theRequest) {
-		List<String> paths;
+	/**
+	 * Executes the include queries for a single include round concurrently, each in its own
+	 * read-only transaction, and adds the results to <code>thePidsToInclude</code>.
+	 */
+	private void loadIncludesConcurrently(
+			List<IncludeQuery> theIncludeQueries,
+			RequestDetails theRequest,
+			IInterceptorBroadcaster theCompositeBroadcaster,
+			HashSet<JpaPid> thePidsToInclude) {
+		RequestPartitionId requestPartitionId = HapiTransactionService.getRequestPartitionAssociatedWithThread();
+		boolean captureSql = theCompositeBroadcaster.hasHooks(Pointcut.JPA_PERFTRACE_RAW_SQL);
+		Thread callingThread = Thread.currentThread();
+
+		List<Callable<IncludeQueryResult>> tasks = new ArrayList<>(theIncludeQueries.size());
+		for (IncludeQuery nextQuery : theIncludeQueries) {
+			tasks.add(() -> {
+				// Queries run on the calling thread are already being captured
+				boolean captureOnThisThread = captureSql && Thread.currentThread() != callingThread;
+				if (captureOnThisThread) {
+					CurrentThreadCaptureQueriesListener.startCapturing();
+				}
+				HashSet<JpaPid> pids = new HashSet<>();
+				SqlQueryList capturedQueries = null;
+				try {
+					myTransactionService
+							.withRequest(theRequest)
+							.withRequestPartitionId(requestPartitionId)
+							.readOnly()
+							.execute(() -> nextQuery.load(myEntityManager, pids));
+				} finally {
+					if (captureOnThisThread) {
+						capturedQueries = CurrentThreadCaptureQueriesListener.getCurrentQueueAndStopCapturing();
+					}
+				}
+				return new IncludeQueryResult(pids, capturedQueries);
+			});
+		}
+
+		StopWatch sw = new StopWatch();
+		List<IncludeQueryResult> results = myIncludeLoadingExecutor.invokeAll(tasks);
+		for (IncludeQueryResult next : results) {
+			thePidsToInclude.addAll(next.pids());
+			if (next.capturedQueries() != null) {
+				CurrentThreadCaptureQueriesListener.addQueriesToCurrentThread(next.capturedQueries());
+			}
+		}
+
+		String message = "Loaded " + thePidsToInclude.size() + " include/revinclude targets using "
+				+ theIncludeQueries.size() + " concurrent queries in " + sw;
+		ourLog.debug(message);
+		if (theCompositeBroadcaster.hasHooks(Pointcut.JPA_PERFTRACE_INFO)) {
+			firePerformanceInfo(theRequest, message);
+		}
+	}
 
-		// Start replace
+	/**
+	 * Resolves the search parameter and paths for a non-wildcard include
+	 *
+	 * @return Returns <code>null</code> if the include does not refer to a known search parameter
+	 */
+	@Nullable
+	private SpecificInclude resolveSpecificInclude(Include nextInclude, FhirContext fhirContext, boolean reverseMode) {
 		RuntimeSearchParam param;
 		String resType = nextInclude.getParamType();
 		if (isBlank(resType)) {
-			return;
+			return null;
 		}
 		RuntimeResourceDefinition def = fhirContext.getResourceDefinition(resType);
 		if (def == null) {
 			ourLog.warn("Unknown resource type in include/revinclude=" + nextInclude.getValue());
-			return;
+			return null;
 		}
 
 		String paramName = nextInclude.getParamName();
@@ -1816,142 +2397,181 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		}
 		if (param == null) {
 			ourLog.warn("Unknown param name in include/revinclude=" + nextInclude.getValue());
-			return;
+			return null;
 		}
 
-		paths = param.getPathsSplitForResourceType(resType);
-		// end replace
-
+		List<String> paths = param.getPathsSplitForResourceType(resType);
 		Set<String> targetResourceTypes = computeTargetResourceTypes(nextInclude, param);
+		boolean canonicalReferencesPossible = canReferenceCanonicalElement(param, reverseMode);
+		return new SpecificInclude(paths, targetResourceTypes, canonicalReferencesPossible);
+	}
 
-		for (String nextPath : paths) {
-			String findPidFieldSqlColumn =
-					findPidFieldName.equals(MY_SOURCE_RESOURCE_PID) ? "src_resource_id" : "target_resource_id";
-			String fieldsToLoad = "r." + findPidFieldSqlColumn + " AS " + RESOURCE_ID_ALIAS;
-			if (findVersionFieldName != null) {
-				fieldsToLoad += ", r.target_resource_version AS " + RESOURCE_VERSION_ALIAS;
-			}
-			if (myPartitionSettings.isDatabasePartitionMode()) {
-				fieldsToLoad += ", r.";
-				fieldsToLoad += findPartitionFieldName.equals(MY_SOURCE_RESOURCE_PARTITION_ID)
-						? "partition_id"
-						: "target_res_partition_id";
-				fieldsToLoad += " as " + PARTITION_ID_ALIAS;
-			}
-
-			// Query for includes lookup has 2 cases
-			// Case 1: Where target_resource_id is available in hfj_res_link table for local references
-			// Case 2: Where target_resource_id is null in hfj_res_link table and referred by a canonical
-			// url in target_resource_url
-
-			// Case 1:
-			Map<String, Object> localReferenceQueryParams = new HashMap<>();
-
-			String searchPidFieldSqlColumn =
-					searchPidFieldName.equals(MY_TARGET_RESOURCE_PID) ? "target_resource_id" : "src_resource_id";
-			StringBuilder localReferenceQuery = new StringBuilder();
-			localReferenceQuery.append("SELECT ").append(fieldsToLoad);
-			localReferenceQuery.append(" FROM hfj_res_link r ");
-			localReferenceQuery.append("WHERE r.src_path = :src_path");
-			if (!"target_resource_id".equals(searchPidFieldSqlColumn)) {
-				localReferenceQuery.append(" AND r.target_resource_id IS NOT NULL");
-			}
-			localReferenceQuery
-					.append(" AND r.")
-					.append(searchPidFieldSqlColumn)
-					.append(" IN (:target_pids) ");
-			if (myPartitionSettings.isDatabasePartitionMode()) {
-				String partitionFieldToSearch = findPartitionFieldName.equals(MY_SOURCE_RESOURCE_PARTITION_ID)
-						? "target_res_partition_id"
-						: "partition_id";
-				localReferenceQuery
-						.append("AND r.")
-						.append(partitionFieldToSearch)
-						.append(" = :search_partition_id ");
-			}
-			localReferenceQueryParams.put("src_path", nextPath);
-			// we loop over target_pids later.
-			if (targetResourceTypes != null) {
-				if (targetResourceTypes.size() == 1) {
-					localReferenceQuery.append("AND r.target_resource_type = :target_resource_type ");
-					localReferenceQueryParams.put(
-							"target_resource_type",
-							targetResourceTypes.iterator().next());
-				} else {
-					localReferenceQuery.append("AND r.target_resource_type in (:target_resource_types) ");
-					localReferenceQueryParams.put("target_resource_types", targetResourceTypes);
+	/**
+	 * Loads the resources linked from (or to, in reverse mode) the current matches through
+	 * any of the given includes, using a single query per chunk of matches. Canonical
+	 * references are only resolved when a single include is supplied.
+	 */
+	private void loadIncludesMatchSpecific(
+			List<SpecificInclude> theIncludes,
+			String findPidFieldName,
+			String findPartitionFieldName,
+			String findVersionFieldName,
+			String searchPidFieldName,
+			boolean reverseMode,
+			List<JpaPid> nextRoundMatches,
+			EntityManager entityManager,
+			Integer maxCount,
+			HashSet<JpaPid> pidsToInclude,
+			RequestDetails theRequest) {
+		String findPidFieldSqlColumn =
+				findPidFieldName.equals(MY_SOURCE_RESOURCE_PID) ? "src_resource_id" : "target_resource_id";
+		String fieldsToLoad = "r." + findPidFieldSqlColumn + " AS " + RESOURCE_ID_ALIAS;
+		if (findVersionFieldName != null) {
+			fieldsToLoad += ", r.target_resource_version AS " + RESOURCE_VERSION_ALIAS;
+		}
+		if (myPartitionSettings.isDatabasePartitionMode()) {
+			fieldsToLoad += ", r.";
+			fieldsToLoad += findPartitionFieldName.equals(MY_SOURCE_RESOURCE_PARTITION_ID)
+					? "partition_id"
+					: "target_res_partition_id";
+			fieldsToLoad += " as " + PARTITION_ID_ALIAS;
+		}
+
+		// Query for includes lookup has 2 cases
+		// Case 1: Where target_resource_id is available in hfj_res_link table for local references
+		// Case 2: Where target_resource_id is null in hfj_res_link table and referred by a canonical
+		// url in target_resource_url
+
+		// Case 1:
+		Map<String, Object> localReferenceQueryParams = new HashMap<>();
+		SpecificInclude singleInclude = theIncludes.size() == 1 ? theIncludes.get(0) : null;
+		String srcPathPredicate;
+		if (singleInclude != null && singleInclude.paths().size() == 1) {
+			srcPathPredicate = "r.src_path = :src_path";
+			localReferenceQueryParams.put("src_path", singleInclude.paths().get(0));
+		} else if (singleInclude != null) {
+			srcPathPredicate = "r.src_path IN (:src_paths)";
+			localReferenceQueryParams.put("src_paths", singleInclude.paths());
+		} else {
+			// Several includes combined into one query, each with its own target types
+			StringBuilder predicate = new StringBuilder("(");
+			for (int i = 0; i < theIncludes.size(); i++) {
+				SpecificInclude nextInclude = theIncludes.get(i);
+				if (i > 0) {
+					predicate.append(" OR ");
 				}
+				predicate.append("(r.src_path IN (:src_paths").append(i).append(')');
+				localReferenceQueryParams.put("src_paths" + i, nextInclude.paths());
+				if (nextInclude.targetResourceTypes() != null) {
+					predicate
+							.append(" AND r.target_resource_type IN (:target_resource_types")
+							.append(i)
+							.append(')');
+					localReferenceQueryParams.put("target_resource_types" + i, nextInclude.targetResourceTypes());
+				}
+				predicate.append(')');
 			}
+			srcPathPredicate = predicate.append(')').toString();
+		}
 
-			// Case 2:
-			Pair<String, Map<String, Object>> canonicalQuery =
-					buildCanonicalUrlQuery(findVersionFieldName, targetResourceTypes, reverseMode, theRequest, param);
-
-			String sql = localReferenceQuery.toString();
-			if (canonicalQuery != null) {
-				sql = localReferenceQuery + "UNION " + canonicalQuery.getLeft();
+		String searchPidFieldSqlColumn =
+				searchPidFieldName.equals(MY_TARGET_RESOURCE_PID) ? "target_resource_id" : "src_resource_id";
+		StringBuilder localReferenceQuery = new StringBuilder();
+		localReferenceQuery.append("SELECT ").append(fieldsToLoad);
+		localReferenceQuery.append(" FROM hfj_res_link r ");
+		localReferenceQuery.append("WHERE ").append(srcPathPredicate);
+		if (!"target_resource_id".equals(searchPidFieldSqlColumn)) {
+			localReferenceQuery.append(" AND r.target_resource_id IS NOT NULL");
+		}
+		localReferenceQuery.append(" AND r.").append(searchPidFieldSqlColumn).append(" IN (:target_pids) ");
+		if (myPartitionSettings.isDatabasePartitionMode()) {
+			String partitionFieldToSearch = findPartitionFieldName.equals(MY_SOURCE_RESOURCE_PARTITION_ID)
+					? "target_res_partition_id"
+					: "partition_id";
+			localReferenceQuery.append("AND r.").append(partitionFieldToSearch).append(" = :search_partition_id ");
+		}
+		// we loop over target_pids later.
+		Set<String> targetResourceTypes = singleInclude != null ? singleInclude.targetResourceTypes() : null;
+		if (targetResourceTypes != null) {
+			if (targetResourceTypes.size() == 1) {
+				localReferenceQuery.append("AND r.target_resource_type = :target_resource_type ");
+				localReferenceQueryParams.put(
+						"target_resource_type", targetResourceTypes.iterator().next());
+			} else {
+				localReferenceQuery.append("AND r.target_resource_type in (:target_resource_types) ");
+				localReferenceQueryParams.put("target_resource_types", targetResourceTypes);
 			}
+		}
 
-			Map<String, Object> limitParams = new HashMap<>();
-			if (maxCount != null) {
-				LinkedList<Object> bindVariables = new LinkedList<>();
-				sql = SearchQueryBuilder.applyLimitToSql(
-						myDialectProvider.getDialect(), null, maxCount, sql, null, bindVariables);
-
-				// The dialect SQL limiter uses positional params, but we're using
-				// named params here, so we need to replace the positional params
-				// with equivalent named ones
-				StringBuilder sb = new StringBuilder();
-				for (int i = 0; i < sql.length(); i++) {
-					char nextChar = sql.charAt(i);
-					if (nextChar == '?') {
-						String nextName = "limit" + i;
-						sb.append(':').append(nextName);
-						limitParams.put(nextName, bindVariables.removeFirst());
-					} else {
-						sb.append(nextChar);
-					}
+		// Case 2:
+		Pair<String, Map<String, Object>> canonicalQuery = null;
+		if (singleInclude != null && singleInclude.canonicalReferencesPossible()) {
+			canonicalQuery = buildCanonicalUrlQuery(
+					findVersionFieldName, targetResourceTypes, reverseMode, theRequest, srcPathPredicate);
+		}
+
+		String sql = localReferenceQuery.toString();
+		if (canonicalQuery != null) {
+			sql = localReferenceQuery + "UNION " + canonicalQuery.getLeft();
+		}
+
+		Map<String, Object> limitParams = new HashMap<>();
+		if (maxCount != null) {
+			LinkedList<Object> bindVariables = new LinkedList<>();
+			sql = SearchQueryBuilder.applyLimitToSql(
+					myDialectProvider.getDialect(), null, maxCount, sql, null, bindVariables);
+
+			// The dialect SQL limiter uses positional params, but we're using
+			// named params here, so we need to replace the positional params
+			// with equivalent named ones
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < sql.length(); i++) {
+				char nextChar = sql.charAt(i);
+				if (nextChar == '?') {
+					String nextName = "limit" + i;
+					sb.append(':').append(nextName);
+					limitParams.put(nextName, bindVariables.removeFirst());
+				} else {
+					sb.append(nextChar);
 				}
-				sql = sb.toString();
 			}
+			sql = sb.toString();
+		}
 
-			List<Collection<JpaPid>> partitions = partitionBySizeAndPartitionId(nextRoundMatches, getMaximumPageSize());
-			for (Collection<JpaPid> nextPartition : partitions) {
-				Query q = entityManager.createNativeQuery(sql, Tuple.class);
-				q.setParameter("target_pids", JpaPid.toLongList(nextPartition));
-				if (myPartitionSettings.isDatabasePartitionMode()) {
-					q.setParameter(
-							"search_partition_id",
-							nextPartition.iterator().next().getPartitionId());
-				}
-				localReferenceQueryParams.forEach(q::setParameter);
-				if (canonicalQuery != null) {
-					canonicalQuery.getRight().forEach(q::setParameter);
-				}
-				limitParams.forEach(q::setParameter);
-
-				try (ScrollableResultsIterator<Tuple> iter = new ScrollableResultsIterator<>(toScrollableResults(q))) {
-					Tuple result;
-					while (iter.hasNext()) {
-						result = iter.next();
-						Long resourceId = NumberUtils.createLong(String.valueOf(result.get(RESOURCE_ID_ALIAS)));
-						Long resourceVersion = null;
-						if (findVersionFieldName != null && result.get(RESOURCE_VERSION_ALIAS) != null) {
-							resourceVersion =
-									NumberUtils.createLong(String.valueOf(result.get(RESOURCE_VERSION_ALIAS)));
-						}
-						Integer partitionId = null;
-						if (myPartitionSettings.isDatabasePartitionMode()) {
-							partitionId = result.get(PARTITION_ID_ALIAS, Integer.class);
-						}
+		List<Collection<JpaPid>> partitions = partitionBySizeAndPartitionId(nextRoundMatches, getMaximumPageSize());
+		for (Collection<JpaPid> nextPartition : partitions) {
+			Query q = entityManager.createNativeQuery(sql, Tuple.class);
+			q.setParameter("target_pids", JpaPid.toLongList(nextPartition));
+			if (myPartitionSettings.isDatabasePartitionMode()) {
+				q.setParameter(
+						"search_partition_id", nextPartition.iterator().next().getPartitionId());
+			}
+			localReferenceQueryParams.forEach(q::setParameter);
+			if (canonicalQuery != null) {
+				canonicalQuery.getRight().forEach(q::setParameter);
+			}
+			limitParams.forEach(q::setParameter);
 
-						JpaPid pid = JpaPid.fromIdAndVersion(resourceId, resourceVersion);
-						pid.setPartitionId(partitionId);
-						pidsToInclude.add(pid);
+			try (ScrollableResultsIterator<Tuple> iter = new ScrollableResultsIterator<>(toScrollableResults(q))) {
+				Tuple result;
+				while (iter.hasNext()) {
+					result = iter.next();
+					Long resourceId = NumberUtils.createLong(String.valueOf(result.get(RESOURCE_ID_ALIAS)));
+					Long resourceVersion = null;
+					if (findVersionFieldName != null && result.get(RESOURCE_VERSION_ALIAS) != null) {
+						resourceVersion = NumberUtils.createLong(String.valueOf(result.get(RESOURCE_VERSION_ALIAS)));
+					}
+					Integer partitionId = null;
+					if (myPartitionSettings.isDatabasePartitionMode()) {
+						partitionId = result.get(PARTITION_ID_ALIAS, Integer.class);
 					}
+
+					JpaPid pid = JpaPid.fromIdAndVersion(resourceId, resourceVersion);
+					pid.setPartitionId(partitionId);
+					pidsToInclude.add(pid);
 				}
-				//				myEntityManager.clear();
 			}
+			//				myEntityManager.clear();
 		}
 	}
 
@@ -2190,23 +2810,24 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		return targetResourceTypes;
 	}
 
+	/**
+	 * Returns <code>false</code> if we know for sure that none of the paths involved in the
+	 * given SearchParameter could be indexing a canonical
+	 */
+	private boolean canReferenceCanonicalElement(RuntimeSearchParam theParam, boolean theReverse) {
+		String[] searchParameterPaths = SearchParameterUtil.splitSearchParameterExpressions(theParam.getPath());
+		return Arrays.stream(searchParameterPaths)
+				.anyMatch(t -> SearchParameterUtil.referencePathCouldPotentiallyReferenceCanonicalElement(
+						myContext, myResourceName, t, theReverse));
+	}
+
 	@Nullable
 	private Pair<String, Map<String, Object>> buildCanonicalUrlQuery(
 			String theVersionFieldName,
 			Set<String> theTargetResourceTypes,
 			boolean theReverse,
 			RequestDetails theRequest,
-			RuntimeSearchParam theParam) {
-
-		String[] searchParameterPaths = SearchParameterUtil.splitSearchParameterExpressions(theParam.getPath());
-
-		// If we know for sure that none of the paths involved in this SearchParameter could
-		// be indexing a canonical
-		if (Arrays.stream(searchParameterPaths)
-				.noneMatch(t -> SearchParameterUtil.referencePathCouldPotentiallyReferenceCanonicalElement(
-						myContext, myResourceName, t, theReverse))) {
-			return null;
-		}
+			String theSrcPathPredicate) {
 
 		String fieldsToLoadFromSpidxUriTable = theReverse ? "r.src_resource_id" : "rUri.res_id";
 		if (theVersionFieldName != null) {
@@ -2256,7 +2877,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		canonicalUrlQuery.append(" AND r.target_resource_url = rUri.sp_uri");
 		canonicalUrlQuery.append(")");
 
-		canonicalUrlQuery.append(" WHERE r.src_path = :src_path AND");
+		canonicalUrlQuery.append(" WHERE ").append(theSrcPathPredicate).append(" AND");
 		canonicalUrlQuery.append(" r.target_resource_id IS NULL");
 		canonicalUrlQuery.append(" AND");
 		if (myPartitionSettings.isDatabasePartitionMode()) {
@@ -2361,6 +2982,54 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		return new CanonicalUrlTargets(hashIdentityValues, partitionIds);
 	}
 
+	/**
+	 * A single include query, which adds the resources it finds to the given set
+	 */
+	@FunctionalInterface
+	private interface IncludeQuery {
+		void load(EntityManager theEntityManager, HashSet<JpaPid> thePidsToInclude);
+	}
+
+	private record IncludeQueryResult(Set<JpaPid> pids, @Nullable SqlQueryList capturedQueries) {}
+
+	/**
+	 * A resolved non-wildcard include
+	 */
+	private record SpecificInclude(
+			List<String> paths, @Nullable Set<String> targetResourceTypes, boolean canonicalReferencesPossible) {
+		SpecificInclude withPaths(List<String> thePaths) {
+			return new SpecificInclude(thePaths, targetResourceTypes, canonicalReferencesPossible);
+		}
+	}
+
+	/**
+	 * Resource entities loaded for a page of results, along with their tags
+	 */
+	private record LoadedResourceEntities(
+			List<ResourceHistoryTable> entities,
+			Map<JpaPid, Collection<BaseTag>> tagMap,
+			@Nullable Map<JpaPid, Long> resourcePidToVersion) {
+
+		/**
+		 * Initializes any lazy associations which will be needed when parsing the entities, so
+		 * that parsing does not need to use the database session
+		 */
+		void initializeLazyAssociations(JpaStorageSettings.TagStorageModeEnum theTagStorageMode) {
+			for (ResourceHistoryTable next : entities) {
+				Hibernate.initialize(next.getResourceTable());
+				if (tagMap.containsKey(next.getResourceId())) {
+					continue;
+				}
+				if (theTagStorageMode == JpaStorageSettings.TagStorageModeEnum.VERSIONED && next.isHasTags()) {
+					Hibernate.initialize(next.getTags());
+				} else if (theTagStorageMode == JpaStorageSettings.TagStorageModeEnum.NON_VERSIONED
+						&& next.getResourceTable().isHasTags()) {
+					Hibernate.initialize(next.getResourceTable().getTags());
+				}
+			}
+		}
+	}
+
 	record CanonicalUrlTargets(@Nonnull Set<Long> hashIdentityValues, @Nonnull Set<Integer> partitionIds) {
 		public boolean isEmpty() {
 			return hashIdentityValues.isEmpty();
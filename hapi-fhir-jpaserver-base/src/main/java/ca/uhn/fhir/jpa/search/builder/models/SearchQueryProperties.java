@@ -56,6 +56,12 @@ public class SearchQueryProperties {
 	 */
 	private SortSpec mySortSpec;
 
+	/**
+	 * How the predicates for the search parameters are executed
+	 */
+	private JpaStorageSettings.SearchPredicateExecutionStrategyEnum myPredicateExecutionStrategy =
+			JpaStorageSettings.SearchPredicateExecutionStrategyEnum.SINGLE_QUERY;
+
 	public boolean isDoCountOnlyFlag() {
 		return myDoCountOnlyFlag;
 	}
@@ -132,12 +138,26 @@ public class SearchQueryProperties {
 		return this;
 	}
 
+	public JpaStorageSettings.SearchPredicateExecutionStrategyEnum getPredicateExecutionStrategy() {
+		return myPredicateExecutionStrategy;
+	}
+
+	/**
+	 * @since 8.8.0
+	 */
+	public SearchQueryProperties setPredicateExecutionStrategy(
+			JpaStorageSettings.SearchPredicateExecutionStrategyEnum thePredicateExecutionStrategy) {
+		myPredicateExecutionStrategy = thePredicateExecutionStrategy;
+		return this;
+	}
+
 	public SearchQueryProperties clone() {
 		return new SearchQueryProperties()
 				.setMaxResultsRequested(myMaxResultsRequested)
 				.setSortSpec(mySortSpec)
 				.setOffset(myOffset)
 				.setDoCountOnlyFlag(myDoCountOnlyFlag)
-				.setDeduplicateInDatabase(myDeduplicateInDB);
+				.setDeduplicateInDatabase(myDeduplicateInDB)
+				.setPredicateExecutionStrategy(myPredicateExecutionStrategy);
 	}
 }
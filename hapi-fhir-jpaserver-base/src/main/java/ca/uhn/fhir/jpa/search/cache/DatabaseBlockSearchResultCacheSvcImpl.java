@@ -0,0 +1,237 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchResultBlock;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Search result cache which stores the PIDs matched by a search in fixed size blocks
+ * (see {@link SearchResultBlock} and {@link SearchResultBlockCodec}) instead of one row
+ * per PID. Because block <code>n</code> always holds orders <code>n * blockSize</code> to
+ * <code>(n + 1) * blockSize</code>, a page is loaded by seeking directly to the one or two
+ * blocks containing it using the unique index on the block index, rather than by an offset
+ * query whose cost grows with the page depth.
+ * <p>
+ * Searches which have no blocks (e.g. searches cached before this implementation was
+ * enabled) are read from the row based storage instead. If the storage mode was changed while a
+ * search was being populated, any orders which are not covered by a block are read from the row
+ * based storage and merged with the blocks.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class DatabaseBlockSearchResultCacheSvcImpl extends DatabaseSearchResultCacheSvcImpl {
+	public static final int DEFAULT_BLOCK_SIZE = 1000;
+	private static final Logger ourLog = LoggerFactory.getLogger(DatabaseBlockSearchResultCacheSvcImpl.class);
+
+	@Autowired
+	private ISearchResultBlockDao mySearchResultBlockDao;
+
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	private int myBlockSize = DEFAULT_BLOCK_SIZE;
+
+	/**
+	 * Changing the block size while searches are cached will cause their results to be read incorrectly
+	 */
+	@VisibleForTesting
+	public void setBlockSizeForUnitTest(int theBlockSize) {
+		myBlockSize = theBlockSize;
+	}
+
+	@Override
+	public List<JpaPid> fetchResultPids(
+			Search theSearch,
+			int theFrom,
+			int theTo,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		if (theTo <= theFrom) {
+			return Collections.emptyList();
+		}
+
+		int fromBlock = theFrom / myBlockSize;
+		int toBlock = (theTo - 1) / myBlockSize;
+		List<SearchResultBlock> blocks = myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> mySearchResultBlockDao.findBlocksInRange(theSearch.getId(), fromBlock, toBlock));
+		if (blocks.isEmpty()) {
+			return super.fetchResultPids(theSearch, theFrom, theTo, theRequestDetails, theRequestPartitionId);
+		}
+
+		List<JpaPid> retVal =
+				assembleResultPids(theSearch, theFrom, theTo, blocks, theRequestDetails, theRequestPartitionId);
+
+		ourLog.debug(
+				"fetchResultPids for range {}-{} read {} blocks and returned {} pids",
+				theFrom,
+				theTo,
+				blocks.size(),
+				retVal.size());
+		return retVal;
+	}
+
+	@Override
+	public List<JpaPid> fetchAllResultPids(
+			Search theSearch, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId) {
+		List<SearchResultBlock> blocks = myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> mySearchResultBlockDao.findAllBlocks(theSearch.getId()));
+		if (blocks.isEmpty()) {
+			return super.fetchAllResultPids(theSearch, theRequestDetails, theRequestPartitionId);
+		}
+
+		List<JpaPid> retVal =
+				assembleResultPids(theSearch, 0, Integer.MAX_VALUE, blocks, theRequestDetails, theRequestPartitionId);
+		ourLog.trace("fetchAllResultPids returned {} pids", retVal.size());
+		return retVal;
+	}
+
+	/**
+	 * Returns the PIDs for orders <code>theFrom</code> to <code>theTo</code> using the given blocks
+	 * (which must be sorted by block index), reading any orders not covered by a block from the row
+	 * based storage. This happens if the storage mode was switched from ROWS to BLOCKS while the
+	 * search was being populated, in which case the earlier results are only stored as rows.
+	 */
+	private List<JpaPid> assembleResultPids(
+			Search theSearch,
+			int theFrom,
+			int theTo,
+			List<SearchResultBlock> theBlocks,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		List<JpaPid> retVal = new ArrayList<>();
+		int position = theFrom;
+		for (SearchResultBlock next : theBlocks) {
+			int blockStart = next.getBlockIndex() * myBlockSize;
+			int blockEnd = blockStart + next.getPidCount();
+			if (position >= theTo) {
+				break;
+			}
+			if (blockEnd <= position) {
+				continue;
+			}
+			if (blockStart > position) {
+				int rowsTo = Math.min(blockStart, theTo);
+				retVal.addAll(
+						super.fetchResultPids(theSearch, position, rowsTo, theRequestDetails, theRequestPartitionId));
+				position = rowsTo;
+				if (position >= theTo) {
+					break;
+				}
+			}
+
+			List<JpaPid> blockPids = SearchResultBlockCodec.decode(next.getPids());
+			int end = Math.min(blockEnd, theTo);
+			retVal.addAll(blockPids.subList(position - blockStart, end - blockStart));
+			position = end;
+		}
+
+		// Results past the last block can only be rows if the search has found more than the blocks hold
+		int rowsTo = Math.min(theTo, theSearch.getNumFound());
+		if (position < rowsTo) {
+			retVal.addAll(super.fetchResultPids(theSearch, position, rowsTo, theRequestDetails, theRequestPartitionId));
+		}
+		return retVal;
+	}
+
+	@Override
+	public void storeResults(
+			Search theSearch,
+			List<JpaPid> thePreviouslyStoredResourcePids,
+			List<JpaPid> theNewResourcePids,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		if (theNewResourcePids.isEmpty()) {
+			return;
+		}
+
+		myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					ourLog.debug(
+							"Storing {} results with {} previous for search",
+							theNewResourcePids.size(),
+							thePreviouslyStoredResourcePids.size());
+
+					int order = thePreviouslyStoredResourcePids.size();
+					int blockIndex = order / myBlockSize;
+					int offsetInBlock = order % myBlockSize;
+					int position = 0;
+
+					List<SearchResultBlock> blocksToSave = new ArrayList<>();
+					if (offsetInBlock != 0) {
+						// The last block is only partly full, so it is rewritten with the new PIDs appended
+						Optional<SearchResultBlock> existing =
+								mySearchResultBlockDao.findBlock(theSearch.getId(), blockIndex);
+						SearchResultBlock block;
+						List<JpaPid> blockPids;
+						if (existing.isPresent()) {
+							block = existing.get();
+							blockPids = new ArrayList<>(SearchResultBlockCodec.decode(block.getPids()));
+						} else {
+							block = new SearchResultBlock(theSearch, blockIndex);
+							blockPids = new ArrayList<>(
+									thePreviouslyStoredResourcePids.subList(blockIndex * myBlockSize, order));
+						}
+						position = Math.min(myBlockSize - offsetInBlock, theNewResourcePids.size());
+						blockPids.addAll(theNewResourcePids.subList(0, position));
+						populateBlock(block, blockPids);
+						blocksToSave.add(block);
+						blockIndex++;
+					}
+
+					while (position < theNewResourcePids.size()) {
+						int end = Math.min(position + myBlockSize, theNewResourcePids.size());
+						SearchResultBlock block = new SearchResultBlock(theSearch, blockIndex);
+						populateBlock(block, theNewResourcePids.subList(position, end));
+						blocksToSave.add(block);
+						position = end;
+						blockIndex++;
+					}
+
+					mySearchResultBlockDao.saveAll(blocksToSave);
+				});
+	}
+
+	private static void populateBlock(SearchResultBlock theBlock, List<JpaPid> thePids) {
+		theBlock.setPids(SearchResultBlockCodec.encode(thePids));
+		theBlock.setPidCount(thePids.size());
+	}
+}
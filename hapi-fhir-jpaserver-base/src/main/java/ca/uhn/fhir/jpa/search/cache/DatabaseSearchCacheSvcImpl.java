@@ -24,6 +24,7 @@ import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.dao.data.ISearchDao;
 import ca.uhn.fhir.jpa.dao.data.ISearchIncludeDao;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
 import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
 import ca.uhn.fhir.jpa.dao.data.SearchIdAndResultSize;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
@@ -88,6 +89,9 @@ public class DatabaseSearchCacheSvcImpl implements ISearchCacheSvc {
 	@Autowired
 	private ISearchIncludeDao mySearchIncludeDao;
 
+	@Autowired
+	private ISearchResultBlockDao mySearchResultBlockDao;
+
 	@Autowired
 	private IHapiTransactionService myTransactionService;
 
@@ -319,6 +323,7 @@ public class DatabaseSearchCacheSvcImpl implements ISearchCacheSvc {
 			ourLog.debug("Deleting {} Search records", myDeleteSearchBatch.size());
 			// referential integrity requires we delete includes before the search
 			mySearchIncludeDao.deleteForSearch(myDeleteSearchBatch);
+			mySearchResultBlockDao.deleteBySearchIds(myDeleteSearchBatch);
 			mySearchDao.deleteByPids(myDeleteSearchBatch);
 			myDeleteSearchBatch.clear();
 			commitOpenChanges();
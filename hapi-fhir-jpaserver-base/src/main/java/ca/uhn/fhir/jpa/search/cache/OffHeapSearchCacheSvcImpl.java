@@ -0,0 +1,48 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+
+/**
+ * Search cache used together with {@link OffHeapSearchResultCacheSvcImpl}. Searches are stored
+ * in the database exactly as they are by {@link DatabaseSearchCacheSvcImpl}, since a search is
+ * only a single row and other servers need to see it in order to reuse it. After each stale
+ * search cleanup pass, the off-heap results of the searches which were deleted are released.
+ *
+ * @since 8.8.0
+ */
+public class OffHeapSearchCacheSvcImpl extends DatabaseSearchCacheSvcImpl {
+
+	@Autowired
+	private ISearchResultCacheSvc mySearchResultCacheSvc;
+
+	@Override
+	public void pollForStaleSearchesAndDeleteThem(RequestPartitionId theRequestPartitionId, Instant theDeadline) {
+		super.pollForStaleSearchesAndDeleteThem(theRequestPartitionId, theDeadline);
+
+		if (mySearchResultCacheSvc instanceof OffHeapSearchResultCacheSvcImpl offHeapSearchResultCacheSvc) {
+			offHeapSearchResultCacheSvc.releaseResultsForDeletedSearches();
+		}
+	}
+}
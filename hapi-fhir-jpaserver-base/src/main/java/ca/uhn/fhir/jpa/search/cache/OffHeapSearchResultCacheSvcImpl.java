@@ -0,0 +1,394 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.ISearchDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.sched.HapiJob;
+import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
+import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
+import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.Validate;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ca.uhn.fhir.jpa.search.cache.DatabaseSearchCacheSvcImpl.SEARCH_CLEANUP_JOB_INTERVAL_MILLIS;
+
+/**
+ * Search result cache which holds the PIDs matched by a search in off-heap memory (direct
+ * {@link ByteBuffer ByteBuffers}) on the server which performed the search, so that paging
+ * through a search does not write or read any search result rows.
+ * <p>
+ * The total size of the held results is bounded. When it is exceeded, the results of the least
+ * recently used searches are written to the database using the block storage provided by
+ * {@link DatabaseBlockSearchResultCacheSvcImpl}, and are read from there afterward. Results of
+ * searches which have been deleted by the stale search cleanup are released by a local scheduled
+ * job (and immediately after each cleanup pass by {@link OffHeapSearchCacheSvcImpl}).
+ * </p>
+ * <p>
+ * Results which have not been written to the database are only visible to this server, so this
+ * implementation is only suitable for single server deployments, or for clusters where all requests
+ * for a given search are routed to the same server.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class OffHeapSearchResultCacheSvcImpl extends DatabaseBlockSearchResultCacheSvcImpl
+		implements IHasScheduledJobs {
+
+	/**
+	 * Each PID is stored as the resource PID followed by the partition ID
+	 */
+	static final int BYTES_PER_PID = 16;
+
+	private static final long NULL_PARTITION_ID = Long.MIN_VALUE;
+	private static final int MINIMUM_CAPACITY = 256;
+	private static final int MAX_IDS_PER_QUERY = 500;
+	private static final Logger ourLog = LoggerFactory.getLogger(OffHeapSearchResultCacheSvcImpl.class);
+
+	/**
+	 * Access ordered, so iteration starts at the least recently used search
+	 */
+	private final LinkedHashMap<Long, CachedSearchResults> myCache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final AtomicLong myUsedBytes = new AtomicLong();
+	private final long myMaxBytes;
+
+	@Autowired
+	private ISearchDao mySearchDao;
+
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theMaxBytes The maximum number of bytes of off-heap memory to use for search results
+	 */
+	public OffHeapSearchResultCacheSvcImpl(long theMaxBytes) {
+		Validate.isTrue(theMaxBytes > 0, "theMaxBytes must be greater than 0");
+		myMaxBytes = theMaxBytes;
+	}
+
+	@Override
+	public void storeResults(
+			Search theSearch,
+			List<JpaPid> thePreviouslyStoredResourcePids,
+			List<JpaPid> theNewResourcePids,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		if (theNewResourcePids.isEmpty()) {
+			return;
+		}
+
+		CachedSearchResults entry;
+		synchronized (myCache) {
+			entry = myCache.get(theSearch.getId());
+			if (entry == null && thePreviouslyStoredResourcePids.isEmpty()) {
+				entry = new CachedSearchResults(theSearch, theRequestPartitionId);
+				myCache.put(theSearch.getId(), entry);
+			}
+		}
+
+		if (entry == null || !entry.append(thePreviouslyStoredResourcePids, theNewResourcePids)) {
+			// The earlier results for this search have already been written to the database
+			super.storeResults(
+					theSearch,
+					thePreviouslyStoredResourcePids,
+					theNewResourcePids,
+					theRequestDetails,
+					theRequestPartitionId);
+			return;
+		}
+
+		evictIfNeeded();
+	}
+
+	@Override
+	public List<JpaPid> fetchResultPids(
+			Search theSearch,
+			int theFrom,
+			int theTo,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		CachedSearchResults entry = getEntry(theSearch.getId());
+		if (entry != null) {
+			List<JpaPid> retVal = entry.read(theFrom, theTo);
+			if (retVal != null) {
+				return retVal;
+			}
+		}
+		return super.fetchResultPids(theSearch, theFrom, theTo, theRequestDetails, theRequestPartitionId);
+	}
+
+	@Override
+	public List<JpaPid> fetchAllResultPids(
+			Search theSearch, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId) {
+		CachedSearchResults entry = getEntry(theSearch.getId());
+		if (entry != null) {
+			List<JpaPid> retVal = entry.read(0, Integer.MAX_VALUE);
+			if (retVal != null) {
+				return retVal;
+			}
+		}
+		return super.fetchAllResultPids(theSearch, theRequestDetails, theRequestPartitionId);
+	}
+
+	/**
+	 * Releases the memory held for any searches which no longer exist in the database,
+	 * e.g. because they have been deleted by the stale search cleanup
+	 */
+	public void releaseResultsForDeletedSearches() {
+		long cutoff = System.currentTimeMillis() - SEARCH_CLEANUP_JOB_INTERVAL_MILLIS;
+		List<Long> searchIds = new ArrayList<>();
+		synchronized (myCache) {
+			for (CachedSearchResults next : myCache.values()) {
+				// Skip very new searches, which may not be committed yet
+				Date created = next.mySearch.getCreated();
+				if (created != null && created.getTime() < cutoff) {
+					searchIds.add(next.mySearch.getId());
+				}
+			}
+		}
+
+		int released = 0;
+		for (List<Long> nextChunk : Lists.partition(searchIds, MAX_IDS_PER_QUERY)) {
+			Set<Long> existing = new HashSet<>(
+					myTransactionService.withSystemRequest().execute(() -> mySearchDao.findNotDeletedIds(nextChunk)));
+			for (Long nextId : nextChunk) {
+				if (!existing.contains(nextId)) {
+					CachedSearchResults entry;
+					synchronized (myCache) {
+						entry = myCache.remove(nextId);
+					}
+					if (entry != null) {
+						entry.release();
+						released++;
+					}
+				}
+			}
+		}
+
+		if (released > 0) {
+			ourLog.debug("Released off-heap results for {} deleted searches", released);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of off-heap memory currently allocated for search results
+	 */
+	public long getUsedBytes() {
+		return myUsedBytes.get();
+	}
+
+	@VisibleForTesting
+	boolean isHeldInMemory(Long theSearchId) {
+		synchronized (myCache) {
+			return myCache.containsKey(theSearchId);
+		}
+	}
+
+	@Override
+	public void scheduleJobs(ISchedulerService theSchedulerService) {
+		ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
+		jobDetail.setId(getClass().getName());
+		jobDetail.setJobClass(Job.class);
+		theSchedulerService.scheduleLocalJob(SEARCH_CLEANUP_JOB_INTERVAL_MILLIS, jobDetail);
+	}
+
+	private CachedSearchResults getEntry(Long theSearchId) {
+		synchronized (myCache) {
+			return myCache.get(theSearchId);
+		}
+	}
+
+	private void evictIfNeeded() {
+		while (myUsedBytes.get() > myMaxBytes) {
+			CachedSearchResults eldest;
+			synchronized (myCache) {
+				Iterator<CachedSearchResults> iterator = myCache.values().iterator();
+				if (!iterator.hasNext()) {
+					return;
+				}
+				eldest = iterator.next();
+			}
+
+			try {
+				spill(eldest);
+			} catch (Exception e) {
+				ourLog.warn("Failed to write search results to the database: {}", e.toString());
+				return;
+			}
+
+			synchronized (myCache) {
+				myCache.remove(eldest.mySearch.getId(), eldest);
+			}
+		}
+	}
+
+	/**
+	 * Writes the results to the database and releases the memory holding them. The entry stays
+	 * locked until the database write completes, so that readers never see a gap between the
+	 * in-memory and the database copy.
+	 */
+	private void spill(CachedSearchResults theEntry) {
+		synchronized (theEntry) {
+			List<JpaPid> pids = theEntry.read(0, Integer.MAX_VALUE);
+			if (pids == null) {
+				return;
+			}
+
+			Search search = theEntry.mySearch;
+			myTransactionService
+					.withSystemRequest()
+					.withRequestPartitionId(theEntry.myRequestPartitionId)
+					.withPropagation(Propagation.REQUIRES_NEW)
+					.execute(() -> {
+						// Don't write results for a search which has been deleted in the meantime
+						if (!mySearchDao
+								.findNotDeletedIds(List.of(search.getId()))
+								.isEmpty()) {
+							super.storeResults(search, List.of(), pids, null, theEntry.myRequestPartitionId);
+						}
+					});
+			ourLog.debug("Wrote {} off-heap results for search {} to the database", pids.size(), search.getId());
+
+			theEntry.release();
+		}
+	}
+
+	/**
+	 * The results for a single search. All access is synchronized on the instance.
+	 */
+	private class CachedSearchResults {
+		private final Search mySearch;
+		private final RequestPartitionId myRequestPartitionId;
+		private ByteBuffer myBuffer;
+		private int mySize;
+		private boolean myReleased;
+
+		private CachedSearchResults(Search theSearch, RequestPartitionId theRequestPartitionId) {
+			mySearch = theSearch;
+			myRequestPartitionId = theRequestPartitionId;
+		}
+
+		/**
+		 * @return Returns <code>false</code> if the results have been released, in which case nothing was stored
+		 */
+		synchronized boolean append(List<JpaPid> thePreviousPids, List<JpaPid> theNewPids) {
+			if (myReleased) {
+				return false;
+			}
+
+			int newSize = thePreviousPids.size() + theNewPids.size();
+			ensureCapacity(newSize);
+			for (int i = mySize; i < thePreviousPids.size(); i++) {
+				write(i, thePreviousPids.get(i));
+			}
+			for (int i = 0; i < theNewPids.size(); i++) {
+				write(thePreviousPids.size() + i, theNewPids.get(i));
+			}
+			mySize = newSize;
+			return true;
+		}
+
+		/**
+		 * @return Returns <code>null</code> if the results have been released
+		 */
+		synchronized List<JpaPid> read(int theFrom, int theTo) {
+			if (myReleased) {
+				return null;
+			}
+
+			int from = Math.min(theFrom, mySize);
+			int to = Math.min(theTo, mySize);
+			List<JpaPid> retVal = new ArrayList<>(Math.max(to - from, 0));
+			for (int i = from; i < to; i++) {
+				int position = i * BYTES_PER_PID;
+				long partitionId = myBuffer.getLong(position + 8);
+				retVal.add(JpaPid.fromId(
+						myBuffer.getLong(position), partitionId == NULL_PARTITION_ID ? null : (int) partitionId));
+			}
+			return retVal;
+		}
+
+		synchronized void release() {
+			if (!myReleased) {
+				myReleased = true;
+				if (myBuffer != null) {
+					myUsedBytes.addAndGet(-myBuffer.capacity());
+					myBuffer = null;
+				}
+			}
+		}
+
+		private void write(int theIndex, JpaPid thePid) {
+			int position = theIndex * BYTES_PER_PID;
+			Integer partitionId = thePid.getPartitionId();
+			myBuffer.putLong(position, thePid.getId());
+			myBuffer.putLong(position + 8, partitionId == null ? NULL_PARTITION_ID : partitionId);
+		}
+
+		private void ensureCapacity(int thePidCount) {
+			int capacity = myBuffer != null ? myBuffer.capacity() / BYTES_PER_PID : 0;
+			if (thePidCount <= capacity) {
+				return;
+			}
+
+			int newCapacity = Math.max(thePidCount, Math.max(capacity * 2, MINIMUM_CAPACITY));
+			ByteBuffer newBuffer = ByteBuffer.allocateDirect(newCapacity * BYTES_PER_PID);
+			if (myBuffer != null) {
+				newBuffer.put(0, myBuffer, 0, mySize * BYTES_PER_PID);
+				myUsedBytes.addAndGet(-myBuffer.capacity());
+			}
+			myBuffer = newBuffer;
+			myUsedBytes.addAndGet(newBuffer.capacity());
+		}
+	}
+
+	public static class Job implements HapiJob {
+		@Autowired
+		private OffHeapSearchResultCacheSvcImpl myTarget;
+
+		@Override
+		public void execute(JobExecutionContext theContext) {
+			myTarget.releaseResultsForDeletedSearches();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compact binary encoding for a block of search result PIDs, used by
+ * {@link DatabaseBlockSearchResultCacheSvcImpl}.
+ * <p>
+ * Resource PIDs are stored as zig-zag varint encoded deltas from the previous PID, so runs of
+ * ascending PIDs (which is what most searches sorted by <code>_id</code> or unsorted return)
+ * take one or two bytes each. Partition IDs are stored once for the whole block if they are
+ * all the same, and per PID otherwise.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public final class SearchResultBlockCodec {
+
+	private static final byte FORMAT_VERSION = 1;
+	private static final byte PARTITION_ALL_NULL = 0;
+	private static final byte PARTITION_ALL_SAME = 1;
+	private static final byte PARTITION_PER_PID = 2;
+
+	private byte[] myBuffer;
+	private int myPosition;
+
+	private SearchResultBlockCodec(byte[] theBuffer) {
+		myBuffer = theBuffer;
+	}
+
+	public static byte[] encode(List<JpaPid> thePids) {
+		SearchResultBlockCodec codec = new SearchResultBlockCodec(new byte[16 + thePids.size() * 3]);
+		codec.writeByte(FORMAT_VERSION);
+		codec.writeVarLong(thePids.size());
+
+		Integer firstPartitionId = thePids.isEmpty() ? null : thePids.get(0).getPartitionId();
+		boolean allSame = true;
+		for (JpaPid next : thePids) {
+			if (!Objects.equals(firstPartitionId, next.getPartitionId())) {
+				allSame = false;
+				break;
+			}
+		}
+		if (allSame && firstPartitionId == null) {
+			codec.writeByte(PARTITION_ALL_NULL);
+		} else if (allSame) {
+			codec.writeByte(PARTITION_ALL_SAME);
+			codec.writeVarLong(zigZag(firstPartitionId));
+		} else {
+			codec.writeByte(PARTITION_PER_PID);
+			for (JpaPid next : thePids) {
+				Integer partitionId = next.getPartitionId();
+				codec.writeVarLong(partitionId == null ? 0 : zigZag(partitionId) + 1);
+			}
+		}
+
+		long previous = 0;
+		for (JpaPid next : thePids) {
+			long pid = next.getId();
+			codec.writeVarLong(zigZag(pid - previous));
+			previous = pid;
+		}
+
+		return Arrays.copyOf(codec.myBuffer, codec.myPosition);
+	}
+
+	public static List<JpaPid> decode(byte[] theEncoded) {
+		SearchResultBlockCodec codec = new SearchResultBlockCodec(theEncoded);
+		byte version = codec.readByte();
+		if (version != FORMAT_VERSION) {
+			throw new InternalErrorException(Msg.code(2841) + "Unknown search result block format: " + version);
+		}
+		int count = (int) codec.readVarLong();
+
+		Integer[] partitionIds = new Integer[count];
+		byte partitionMode = codec.readByte();
+		switch (partitionMode) {
+			case PARTITION_ALL_NULL:
+				break;
+			case PARTITION_ALL_SAME:
+				Arrays.fill(partitionIds, (int) unZigZag(codec.readVarLong()));
+				break;
+			case PARTITION_PER_PID:
+				for (int i = 0; i < count; i++) {
+					long value = codec.readVarLong();
+					partitionIds[i] = value == 0 ? null : (int) unZigZag(value - 1);
+				}
+				break;
+			default:
+				throw new InternalErrorException(
+						Msg.code(2842) + "Unknown search result block partition mode: " + partitionMode);
+		}
+
+		List<JpaPid> retVal = new ArrayList<>(count);
+		long previous = 0;
+		for (int i = 0; i < count; i++) {
+			previous += unZigZag(codec.readVarLong());
+			retVal.add(JpaPid.fromId(previous, partitionIds[i]));
+		}
+		return retVal;
+	}
+
+	private void writeByte(byte theByte) {
+		ensureCapacity(1);
+		myBuffer[myPosition++] = theByte;
+	}
+
+	private void writeVarLong(long theValue) {
+		ensureCapacity(10);
+		long value = theValue;
+		while ((value & ~0x7FL) != 0) {
+			myBuffer[myPosition++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		myBuffer[myPosition++] = (byte) value;
+	}
+
+	private byte readByte() {
+		if (myPosition >= myBuffer.length) {
+			throw newMalformedException();
+		}
+		return myBuffer[myPosition++];
+	}
+
+	private long readVarLong() {
+		long retVal = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte next = readByte();
+			retVal |= (long) (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) {
+				return retVal;
+			}
+		}
+		throw newMalformedException();
+	}
+
+	private static InternalErrorException newMalformedException() {
+		return new InternalErrorException(Msg.code(2843) + "Malformed search result block");
+	}
+
+	private void ensureCapacity(int theBytes) {
+		if (myPosition + theBytes > myBuffer.length) {
+			myBuffer = Arrays.copyOf(myBuffer, Math.max(myBuffer.length * 2, myPosition + theBytes));
+		}
+	}
+
+	private static long zigZag(long theValue) {
+		return (theValue << 1) ^ (theValue >> 63);
+	}
+
+	private static long unZigZag(long theValue) {
+		return (theValue >>> 1) ^ -(theValue & 1);
+	}
+}
@@ -0,0 +1,58 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.stats;
+
+/**
+ * A count-min sketch, used to estimate how often individual 64-bit values occur
+ * in a stream using a fixed amount of memory. Estimates never undercount, and
+ * overcount by a small fraction of the total number of values added.
+ *
+ * @since 8.8.0
+ */
+public class CountMinSketch {
+
+	private static final int DEPTH = 4;
+	private static final int WIDTH = 256;
+	private static final long[] SEEDS =
+			new long[] {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0x27D4EB2F165667C5L};
+
+	private final int[][] myCounts = new int[DEPTH][WIDTH];
+
+	public void add(long theValue) {
+		for (int i = 0; i < DEPTH; i++) {
+			myCounts[i][index(i, theValue)]++;
+		}
+	}
+
+	/**
+	 * @return The estimated number of times the given value was added to this sketch
+	 */
+	public int estimate(long theValue) {
+		int retVal = Integer.MAX_VALUE;
+		for (int i = 0; i < DEPTH; i++) {
+			retVal = Math.min(retVal, myCounts[i][index(i, theValue)]);
+		}
+		return retVal;
+	}
+
+	private static int index(int theRow, long theValue) {
+		return (int) ((HyperLogLog.mix(theValue ^ SEEDS[theRow]) >>> 1) % WIDTH);
+	}
+}
@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.stats;
+
+/**
+ * A HyperLogLog sketch, used to estimate the number of distinct values in a
+ * stream of 64-bit values using a fixed amount of memory.
+ *
+ * @since 8.8.0
+ */
+public class HyperLogLog {
+
+	private static final int PRECISION = 10;
+	private static final int REGISTER_COUNT = 1 << PRECISION;
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+	private final byte[] myRegisters = new byte[REGISTER_COUNT];
+
+	public void add(long theValue) {
+		long hash = mix(theValue);
+		int index = (int) (hash >>> (Long.SIZE - PRECISION));
+		int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+		if (rank > myRegisters[index]) {
+			myRegisters[index] = (byte) rank;
+		}
+	}
+
+	/**
+	 * @return The estimated number of distinct values added to this sketch
+	 */
+	public long estimate() {
+		double sum = 0;
+		int zeroRegisters = 0;
+		for (byte next : myRegisters) {
+			sum += 1.0 / (1L << next);
+			if (next == 0) {
+				zeroRegisters++;
+			}
+		}
+
+		double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+		if (estimate <= 2.5 * REGISTER_COUNT && zeroRegisters > 0) {
+			// Small range correction (linear counting)
+			estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeroRegisters);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * The values being counted are often hashes already, but some (e.g. date ordinals) are
+	 * not, so they are always passed through the MurmurHash3 finalizer to spread their bits.
+	 */
+	static long mix(long theValue) {
+		long retVal = theValue;
+		retVal ^= retVal >>> 33;
+		retVal *= 0xff51afd7ed558ccdL;
+		retVal ^= retVal >>> 33;
+		retVal *= 0xc4ceb9fe1a85ec53L;
+		retVal ^= retVal >>> 33;
+		return retVal;
+	}
+}
@@ -0,0 +1,70 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.stats;
+
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Maintains approximate per-search-parameter statistics (row counts, distinct value counts
+ * and value frequencies) for the search parameter index tables, so that the search builder
+ * can make cost-based decisions without relying on the statistics of the underlying database.
+ *
+ * @see ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setSearchParamStatisticsEnabled(boolean)
+ * @since 8.8.0
+ */
+public interface ISearchParamStatisticsSvc {
+
+	/**
+	 * @return The statistics for the given hash identity, or <code>null</code> if none are available
+	 */
+	@Nullable
+	SearchParamStatistics getStatistics(long theHashIdentity);
+
+	/**
+	 * @return The statistics for the resource links with the given source resource type and path,
+	 * or <code>null</code> if none are available
+	 */
+	@Nullable
+	SearchParamStatistics getReferenceStatistics(String theSourceResourceType, String theSourcePath);
+
+	/**
+	 * Estimates the number of index rows matched by a search parameter.
+	 *
+	 * @return The estimate, or <code>null</code> if there are no statistics for this parameter or
+	 * the values being searched for can not be estimated (e.g. because they use modifiers or prefixes)
+	 */
+	@Nullable
+	Long estimateMatchCount(
+			RequestPartitionId theRequestPartitionId,
+			String theResourceType,
+			RuntimeSearchParam theSearchParam,
+			List<List<IQueryParameterType>> theAndOrParams);
+
+	/**
+	 * Samples the index tables and replaces the current statistics. This is called
+	 * periodically by a scheduled job, but may also be called directly.
+	 */
+	void refreshStatistics();
+}
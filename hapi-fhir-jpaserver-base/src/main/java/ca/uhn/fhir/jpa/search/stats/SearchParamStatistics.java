@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.stats;
+
+/**
+ * Approximate statistics for the index rows belonging to a single search parameter
+ * (i.e. a single hash identity), built from a sample of the index table.
+ *
+ * @see ISearchParamStatisticsSvc
+ * @since 8.8.0
+ */
+public class SearchParamStatistics {
+
+	private final long mySampledRowCount;
+	private final long myEstimatedRowCount;
+	private final long myEstimatedDistinctValueCount;
+	private final CountMinSketch myValueFrequencies;
+	private final double myScaleFactor;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theSampledRowCount      The number of rows for this parameter in the sample
+	 * @param theScaleFactor          The ratio between the estimated size of the table and the sample size
+	 * @param theDistinctValues       The distinct values seen in the sample
+	 * @param theValueFrequencies     The frequency of each value seen in the sample
+	 */
+	public SearchParamStatistics(
+			long theSampledRowCount,
+			double theScaleFactor,
+			HyperLogLog theDistinctValues,
+			CountMinSketch theValueFrequencies) {
+		mySampledRowCount = theSampledRowCount;
+		myScaleFactor = theScaleFactor;
+		myEstimatedRowCount = Math.round(theSampledRowCount * theScaleFactor);
+		myEstimatedDistinctValueCount = Math.max(1, Math.min(theSampledRowCount, theDistinctValues.estimate()));
+		myValueFrequencies = theValueFrequencies;
+	}
+
+	public long getSampledRowCount() {
+		return mySampledRowCount;
+	}
+
+	/**
+	 * @return The estimated number of index rows for this parameter in the whole table
+	 */
+	public long getEstimatedRowCount() {
+		return myEstimatedRowCount;
+	}
+
+	/**
+	 * @return The estimated number of distinct values for this parameter. This is based on
+	 * the sample, so it may be lower than the true value for tables larger than the sample.
+	 */
+	public long getEstimatedDistinctValueCount() {
+		return myEstimatedDistinctValueCount;
+	}
+
+	/**
+	 * @return The estimated number of index rows for a typical value of this parameter
+	 */
+	public long getEstimatedRowsPerValue() {
+		return Math.max(1, myEstimatedRowCount / myEstimatedDistinctValueCount);
+	}
+
+	/**
+	 * @param theValueHash The hash (as stored in the index table) of the value being searched for
+	 * @return The estimated number of index rows with the given value
+	 */
+	public long estimateRowsMatchingValue(long theValueHash) {
+		return Math.round(myValueFrequencies.estimate(theValueHash) * myScaleFactor);
+	}
+}
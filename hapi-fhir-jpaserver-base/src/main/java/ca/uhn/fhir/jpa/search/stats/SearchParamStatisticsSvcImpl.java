@@ -0,0 +1,432 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.stats;
+
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
+import ca.uhn.fhir.jpa.model.sched.HapiJob;
+import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
+import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
+import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import ca.uhn.fhir.jpa.model.util.SearchParamHash;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.param.BaseParamWithPrefix;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.util.StopWatch;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+import org.apache.commons.lang3.time.DateUtils;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Collects {@link SearchParamStatistics} by periodically sampling the token, string, date and
+ * quantity index tables and the resource link table.
+ * <p>
+ * Each table is sampled by reading {@link #SAMPLE_WINDOWS} evenly spaced ranges of primary
+ * keys, so every query is a bounded index range scan regardless of the size of the table. The
+ * size of the table is extrapolated from the density of primary keys in the sampled ranges.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class SearchParamStatisticsSvcImpl implements ISearchParamStatisticsSvc, IHasScheduledJobs {
+
+	public static final int DEFAULT_SAMPLE_SIZE = 100_000;
+	static final int SAMPLE_WINDOWS = 10;
+	private static final Logger ourLog = LoggerFactory.getLogger(SearchParamStatisticsSvcImpl.class);
+
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	@Autowired
+	private PartitionSettings myPartitionSettings;
+
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
+	private EntityManager myEntityManager;
+
+	private int mySampleSize = DEFAULT_SAMPLE_SIZE;
+	private volatile Map<Long, SearchParamStatistics> myStatistics = Map.of();
+
+	@Nullable
+	@Override
+	public SearchParamStatistics getStatistics(long theHashIdentity) {
+		return myStatistics.get(theHashIdentity);
+	}
+
+	@Nullable
+	@Override
+	public SearchParamStatistics getReferenceStatistics(String theSourceResourceType, String theSourcePath) {
+		return myStatistics.get(calculateReferenceIdentity(theSourceResourceType, theSourcePath));
+	}
+
+	@Nullable
+	@Override
+	public Long estimateMatchCount(
+			RequestPartitionId theRequestPartitionId,
+			String theResourceType,
+			RuntimeSearchParam theSearchParam,
+			List<List<IQueryParameterType>> theAndOrParams) {
+		if (myStatistics.isEmpty() || theAndOrParams.isEmpty()) {
+			return null;
+		}
+
+		Long retVal = null;
+		for (List<IQueryParameterType> nextOrList : theAndOrParams) {
+			long orCount = 0;
+			for (IQueryParameterType next : nextOrList) {
+				Long nextCount = estimateMatchCount(theRequestPartitionId, theResourceType, theSearchParam, next);
+				if (nextCount == null) {
+					return null;
+				}
+				orCount += nextCount;
+			}
+			// An AND matches at most as many rows as its most selective clause
+			retVal = retVal == null ? orCount : Math.min(retVal, orCount);
+		}
+		return retVal;
+	}
+
+	@Nullable
+	private Long estimateMatchCount(
+			RequestPartitionId theRequestPartitionId,
+			String theResourceType,
+			RuntimeSearchParam theSearchParam,
+			IQueryParameterType theParam) {
+		if (theParam.getMissing() != null) {
+			return null;
+		}
+
+		String paramName = theSearchParam.getName();
+		switch (theSearchParam.getParamType()) {
+			case TOKEN: {
+				SearchParamStatistics statistics =
+						getStatistics(theRequestPartitionId, theResourceType, theSearchParam);
+				if (statistics == null
+						|| !(theParam instanceof TokenParam tokenParam)
+						|| tokenParam.getModifier() != null
+						|| isBlank(tokenParam.getValue())) {
+					return null;
+				}
+				long hashValue = ResourceIndexedSearchParamToken.calculateHashValue(
+						myPartitionSettings, theRequestPartitionId, theResourceType, paramName, tokenParam.getValue());
+				return statistics.estimateRowsMatchingValue(hashValue);
+			}
+			case STRING: {
+				SearchParamStatistics statistics =
+						getStatistics(theRequestPartitionId, theResourceType, theSearchParam);
+				if (statistics == null
+						|| !(theParam instanceof StringParam stringParam)
+						|| stringParam.isContains()
+						|| stringParam.isText()) {
+					return null;
+				}
+				if (stringParam.isExact()) {
+					long hashExact = ResourceIndexedSearchParamString.calculateHashExact(
+							myPartitionSettings,
+							theRequestPartitionId,
+							theResourceType,
+							paramName,
+							stringParam.getValue());
+					return statistics.estimateRowsMatchingValue(hashExact);
+				}
+				return statistics.getEstimatedRowsPerValue();
+			}
+			case DATE:
+			case QUANTITY: {
+				SearchParamStatistics statistics =
+						getStatistics(theRequestPartitionId, theResourceType, theSearchParam);
+				if (statistics == null || !(theParam instanceof BaseParamWithPrefix<?> paramWithPrefix)) {
+					return null;
+				}
+				ParamPrefixEnum prefix = paramWithPrefix.getPrefix();
+				if (prefix != null && prefix != ParamPrefixEnum.EQUAL) {
+					return null;
+				}
+				return statistics.getEstimatedRowsPerValue();
+			}
+			case REFERENCE: {
+				if (!(theParam instanceof ReferenceParam referenceParam)
+						|| isNotBlank(referenceParam.getChain())
+						|| isBlank(referenceParam.getIdPart())) {
+					return null;
+				}
+				Long retVal = null;
+				for (String nextPath : theSearchParam.getPathsSplitForResourceType(theResourceType)) {
+					SearchParamStatistics statistics = getReferenceStatistics(theResourceType, nextPath);
+					if (statistics != null) {
+						retVal = (retVal == null ? 0 : retVal) + statistics.getEstimatedRowsPerValue();
+					}
+				}
+				return retVal;
+			}
+			default:
+				return null;
+		}
+	}
+
+	@Nullable
+	private SearchParamStatistics getStatistics(
+			RequestPartitionId theRequestPartitionId, String theResourceType, RuntimeSearchParam theSearchParam) {
+		long hashIdentity = BaseResourceIndexedSearchParam.calculateHashIdentity(
+				myPartitionSettings, theRequestPartitionId, theResourceType, theSearchParam.getName());
+		return getStatistics(hashIdentity);
+	}
+
+	@Override
+	public void refreshStatistics() {
+		if (!myStorageSettings.isSearchParamStatisticsEnabled()) {
+			if (!myStatistics.isEmpty()) {
+				myStatistics = Map.of();
+			}
+			return;
+		}
+
+		StopWatch sw = new StopWatch();
+		Map<Long, SearchParamStatistics> statistics = new HashMap<>();
+		for (SampledTableEnum next : SampledTableEnum.values()) {
+			sampleTable(next, statistics);
+		}
+		myStatistics = statistics;
+
+		ourLog.info("Collected search parameter statistics for {} parameters in {}", statistics.size(), sw);
+	}
+
+	private void sampleTable(SampledTableEnum theTable, Map<Long, SearchParamStatistics> theStatistics) {
+		Object[] bounds = myTransactionService.withSystemRequest().readOnly().execute(() -> (Object[]) myEntityManager
+				.createNativeQuery("SELECT MIN(" + theTable.myIdColumn + "), MAX(" + theTable.myIdColumn + ") FROM "
+						+ theTable.myTableName)
+				.getSingleResult());
+		if (bounds == null || bounds[0] == null) {
+			return;
+		}
+
+		long minId = ((Number) bounds[0]).longValue();
+		long maxId = ((Number) bounds[1]).longValue();
+		long idRange = maxId - minId + 1;
+
+		Map<Long, Accumulator> accumulators = new HashMap<>();
+		long sampledRows = 0;
+		long sampledIdRange = 0;
+		if (idRange <= mySampleSize) {
+			sampledRows = sampleRange(theTable, minId, maxId + 1, mySampleSize, accumulators).myRowCount;
+			sampledIdRange = idRange;
+		} else {
+			long stride = idRange / SAMPLE_WINDOWS;
+			int windowSize = Math.max(1, mySampleSize / SAMPLE_WINDOWS);
+			for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+				long windowFrom = minId + i * stride;
+				long windowTo = i == SAMPLE_WINDOWS - 1 ? maxId + 1 : windowFrom + stride;
+				// Randomize the start of each window within the first half of its stride, so that
+				// successive refreshes don't always look at the same rows
+				windowFrom += ThreadLocalRandom.current().nextLong(Math.max(1, stride / 2));
+
+				SampledRange range = sampleRange(theTable, windowFrom, windowTo, windowSize, accumulators);
+				sampledRows += range.myRowCount;
+				if (range.myRowCount < windowSize) {
+					// We consumed the whole window
+					sampledIdRange += windowTo - windowFrom;
+				} else {
+					sampledIdRange += range.myLastId - windowFrom + 1;
+				}
+			}
+		}
+
+		if (sampledRows == 0) {
+			return;
+		}
+
+		double scaleFactor = Math.max(1.0, (double) idRange / Math.max(1, sampledIdRange));
+		for (Map.Entry<Long, Accumulator> next : accumulators.entrySet()) {
+			Accumulator accumulator = next.getValue();
+			theStatistics.put(
+					next.getKey(),
+					new SearchParamStatistics(
+							accumulator.myRowCount,
+							scaleFactor,
+							accumulator.myDistinctValues,
+							accumulator.myValueFrequencies));
+		}
+
+		ourLog.debug(
+				"Sampled {} of approximately {} rows in {} covering {} parameters",
+				sampledRows,
+				Math.round(sampledRows * scaleFactor),
+				theTable.myTableName,
+				accumulators.size());
+	}
+
+	private SampledRange sampleRange(
+			SampledTableEnum theTable,
+			long theFromId,
+			long theToIdExclusive,
+			int theMaxRows,
+			Map<Long, Accumulator> theAccumulators) {
+		String sql = "SELECT " + theTable.myIdColumn + ", " + theTable.mySelectColumns + " FROM "
+				+ theTable.myTableName + " WHERE " + theTable.myIdColumn + " >= ?1 AND " + theTable.myIdColumn
+				+ " < ?2 ORDER BY " + theTable.myIdColumn;
+
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = myTransactionService
+				.withSystemRequest()
+				.readOnly()
+				.execute(() -> myEntityManager
+						.createNativeQuery(sql)
+						.setParameter(1, theFromId)
+						.setParameter(2, theToIdExclusive)
+						.setMaxResults(theMaxRows)
+						.getResultList());
+
+		SampledRange retVal = new SampledRange();
+		for (Object[] next : rows) {
+			retVal.myRowCount++;
+			retVal.myLastId = ((Number) next[0]).longValue();
+
+			Long identity = theTable.extractIdentity(next);
+			if (identity == null) {
+				continue;
+			}
+			Accumulator accumulator = theAccumulators.computeIfAbsent(identity, t -> new Accumulator());
+			accumulator.add(theTable.extractValue(next));
+		}
+		return retVal;
+	}
+
+	@Override
+	public void scheduleJobs(ISchedulerService theSchedulerService) {
+		ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
+		jobDetail.setId(getClass().getName());
+		jobDetail.setJobClass(Job.class);
+		theSchedulerService.scheduleLocalJob(10 * DateUtils.MILLIS_PER_MINUTE, jobDetail);
+	}
+
+	@VisibleForTesting
+	void setSampleSizeForUnitTest(int theSampleSize) {
+		mySampleSize = theSampleSize;
+	}
+
+	/**
+	 * Resource links have no hash identity, so they are identified by their source
+	 * resource type and path instead
+	 */
+	static long calculateReferenceIdentity(String theSourceResourceType, String theSourcePath) {
+		return SearchParamHash.hashSearchParam(theSourceResourceType, theSourcePath);
+	}
+
+	private static long toLong(Object theValue) {
+		if (theValue instanceof Double || theValue instanceof Float || theValue instanceof BigDecimal) {
+			return Double.doubleToLongBits(((Number) theValue).doubleValue());
+		}
+		return ((Number) theValue).longValue();
+	}
+
+	private enum SampledTableEnum {
+		TOKEN("HFJ_SPIDX_TOKEN", "SP_ID", "HASH_IDENTITY, HASH_VALUE"),
+		STRING("HFJ_SPIDX_STRING", "SP_ID", "HASH_IDENTITY, HASH_EXACT"),
+		DATE("HFJ_SPIDX_DATE", "SP_ID", "HASH_IDENTITY, SP_VALUE_LOW_DATE_ORDINAL"),
+		QUANTITY("HFJ_SPIDX_QUANTITY", "SP_ID", "HASH_IDENTITY, SP_VALUE"),
+		LINK("HFJ_RES_LINK", "PID", "SOURCE_RESOURCE_TYPE, SRC_PATH, TARGET_RESOURCE_ID") {
+			@Override
+			Long extractIdentity(Object[] theRow) {
+				return calculateReferenceIdentity((String) theRow[1], (String) theRow[2]);
+			}
+
+			@Override
+			Long extractValue(Object[] theRow) {
+				return theRow[3] != null ? toLong(theRow[3]) : null;
+			}
+		};
+
+		private final String myTableName;
+		private final String myIdColumn;
+		private final String mySelectColumns;
+
+		SampledTableEnum(String theTableName, String theIdColumn, String theSelectColumns) {
+			myTableName = theTableName;
+			myIdColumn = theIdColumn;
+			mySelectColumns = theSelectColumns;
+		}
+
+		@Nullable
+		Long extractIdentity(Object[] theRow) {
+			return theRow[1] != null ? toLong(theRow[1]) : null;
+		}
+
+		@Nullable
+		Long extractValue(Object[] theRow) {
+			return theRow[2] != null ? toLong(theRow[2]) : null;
+		}
+	}
+
+	private static class SampledRange {
+		private int myRowCount;
+		private long myLastId;
+	}
+
+	private static class Accumulator {
+		private final HyperLogLog myDistinctValues = new HyperLogLog();
+		private final CountMinSketch myValueFrequencies = new CountMinSketch();
+		private long myRowCount;
+
+		void add(@Nullable Long theValue) {
+			myRowCount++;
+			if (theValue != null) {
+				myDistinctValues.add(theValue);
+				myValueFrequencies.add(theValue);
+			}
+		}
+	}
+
+	public static class Job implements HapiJob {
+		@Autowired
+		private ISearchParamStatisticsSvc myTarget;
+
+		@Override
+		public void execute(JobExecutionContext theContext) {
+			myTarget.refreshStatistics();
+		}
+	}
+}
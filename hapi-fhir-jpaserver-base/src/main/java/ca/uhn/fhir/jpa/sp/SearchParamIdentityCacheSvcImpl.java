@@ -23,6 +23,7 @@ import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.cache.ISearchParamIdentityCacheSvc;
 import ca.uhn.fhir.jpa.dao.data.IResourceIndexedSearchParamIdentityDao;
 import ca.uhn.fhir.jpa.model.entity.IndexedSearchParamIdentity;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.util.ThreadPoolUtil;
 import jakarta.annotation.PostConstruct;
@@ -60,14 +61,14 @@ public class SearchParamIdentityCacheSvcImpl implements ISearchParamIdentityCach
 	private final IResourceIndexedSearchParamIdentityDao mySearchParamIdentityDao;
 	private final TransactionTemplate myTxTemplate;
 	private final ThreadPoolTaskExecutor myThreadPoolTaskExecutor;
-	private final MemoryCacheService myMemoryCacheService;
+	private final IMemoryCacheService myMemoryCacheService;
 	private final UniqueTaskExecutor myUniqueTaskExecutor;
 
 	public SearchParamIdentityCacheSvcImpl(
 			JpaStorageSettings theStorageSettings,
 			IResourceIndexedSearchParamIdentityDao theResourceIndexedSearchParamIdentityDao,
 			PlatformTransactionManager theTxManager,
-			MemoryCacheService theMemoryCacheService) {
+			IMemoryCacheService theMemoryCacheService) {
 		myStorageSettings = theStorageSettings;
 		mySearchParamIdentityDao = theResourceIndexedSearchParamIdentityDao;
 		myTxTemplate = new TransactionTemplate(theTxManager);
@@ -196,7 +197,7 @@ public class SearchParamIdentityCacheSvcImpl implements ISearchParamIdentityCach
 		private final String myResourceType;
 		private final String myParamName;
 		private final TransactionTemplate myTxTemplate;
-		private final MemoryCacheService myMemoryCacheService;
+		private final IMemoryCacheService myMemoryCacheService;
 		private final IResourceIndexedSearchParamIdentityDao myResourceIndexedSearchParamIdentityDao;
 
 		private PersistSearchParameterIdentityTask(Builder theBuilder) {
@@ -225,7 +226,7 @@ public class SearchParamIdentityCacheSvcImpl implements ISearchParamIdentityCach
 			private String myResourceType;
 			private String myParamName;
 			private TransactionTemplate myTxTemplate;
-			private MemoryCacheService myMemoryCacheService;
+			private IMemoryCacheService myMemoryCacheService;
 			private IResourceIndexedSearchParamIdentityDao mySearchParamIdentityDao;
 
 			public Builder hashIdentity(Long theHashIdentity) {
@@ -248,7 +249,7 @@ public class SearchParamIdentityCacheSvcImpl implements ISearchParamIdentityCach
 				return this;
 			}
 
-			public Builder memoryCacheService(MemoryCacheService theMemoryCacheService) {
+			public Builder memoryCacheService(IMemoryCacheService theMemoryCacheService) {
 				this.myMemoryCacheService = theMemoryCacheService;
 				return this;
 			}
@@ -336,13 +337,13 @@ public class SearchParamIdentityCacheSvcImpl implements ISearchParamIdentityCach
 		private CacheUtils() {}
 
 		public static Integer getSearchParamIdentityFromCache(
-				MemoryCacheService memoryCacheService, Long hashIdentity) {
+				IMemoryCacheService memoryCacheService, Long hashIdentity) {
 			return memoryCacheService.getIfPresent(
 					MemoryCacheService.CacheEnum.HASH_IDENTITY_TO_SEARCH_PARAM_IDENTITY, hashIdentity);
 		}
 
 		public static void putSearchParamIdentityToCache(
-				MemoryCacheService memoryCacheService, Long theHashIdentity, Integer theSpIdentityId) {
+				IMemoryCacheService memoryCacheService, Long theHashIdentity, Integer theSpIdentityId) {
 			memoryCacheService.put(
 					MemoryCacheService.CacheEnum.HASH_IDENTITY_TO_SEARCH_PARAM_IDENTITY,
 					theHashIdentity,
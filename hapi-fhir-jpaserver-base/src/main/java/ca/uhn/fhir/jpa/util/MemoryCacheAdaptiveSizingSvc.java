@@ -0,0 +1,216 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.sched.HapiJob;
+import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
+import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
+import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+import org.apache.commons.lang3.time.DateUtils;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Periodically adjusts the maximum size of each {@link MemoryCacheService} cache so that the
+ * estimated combined footprint of all caches stays within the budget configured using
+ * {@link JpaStorageSettings#setMemoryCacheAdaptiveSizingHeapBudgetBytes(long)}.
+ * <p>
+ * On each pass, every cache is first guaranteed a floor (a fraction of its configured size).
+ * Caches which are full and still missing ask to grow, as long as the previous growth step
+ * actually improved their hit rate (i.e. they have not reached the flat part of their hit
+ * rate curve), and caches which are mostly empty ask to shrink. The remaining budget is then
+ * handed out in order of misses per byte, so that the caches whose misses are cheapest to
+ * avoid get the memory first.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class MemoryCacheAdaptiveSizingSvc implements IHasScheduledJobs {
+	static final double GROWTH_FACTOR = 1.5;
+	static final double FULL_OCCUPANCY = 0.9;
+	static final double LOW_OCCUPANCY = 0.5;
+	static final double MINIMUM_HIT_RATE_GAIN = 0.01;
+	static final long MINIMUM_REQUESTS = 100;
+	static final long MINIMUM_SIZE = 100;
+	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheAdaptiveSizingSvc.class);
+
+	private final MemoryCacheService myMemoryCacheService;
+	private final JpaStorageSettings myStorageSettings;
+	private final EnumMap<CacheEnum, CacheState> myCacheStates = new EnumMap<>(CacheEnum.class);
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheAdaptiveSizingSvc(
+			MemoryCacheService theMemoryCacheService, JpaStorageSettings theStorageSettings) {
+		myMemoryCacheService = theMemoryCacheService;
+		myStorageSettings = theStorageSettings;
+	}
+
+	@Override
+	public void scheduleJobs(ISchedulerService theSchedulerService) {
+		ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
+		jobDetail.setId(getClass().getName());
+		jobDetail.setJobClass(Job.class);
+		theSchedulerService.scheduleLocalJob(DateUtils.MILLIS_PER_MINUTE, jobDetail);
+	}
+
+	/**
+	 * Performs a single sizing pass. This is invoked by the scheduler, and is a no-op unless
+	 * adaptive sizing is enabled.
+	 */
+	public synchronized void adjustCacheSizes() {
+		long budget = myStorageSettings.getMemoryCacheAdaptiveSizingHeapBudgetBytes();
+		if (budget <= 0) {
+			return;
+		}
+
+		List<Candidate> candidates = new ArrayList<>();
+		long remainingBudget = budget;
+		for (CacheEnum next : CacheEnum.values()) {
+			Candidate candidate = evaluate(next);
+			if (candidate != null) {
+				candidates.add(candidate);
+				remainingBudget -= candidate.myFloor * candidate.myEntrySizeBytes;
+			}
+		}
+
+		if (remainingBudget < 0) {
+			ourLog.warn(
+					"Memory cache heap budget of {} bytes is too small to hold the minimum size of every cache",
+					budget);
+			remainingBudget = 0;
+		}
+
+		candidates.sort(Comparator.comparingDouble(Candidate::getMissesPerByte).reversed());
+		for (Candidate next : candidates) {
+			long extra = Math.min(next.myDesired - next.myFloor, remainingBudget / next.myEntrySizeBytes);
+			long newMaximumSize = next.myFloor + extra;
+			remainingBudget -= extra * next.myEntrySizeBytes;
+
+			CacheState state = myCacheStates.get(next.myCache);
+			state.myGrewLastPass = newMaximumSize > next.myCurrent;
+			if (newMaximumSize != next.myCurrent) {
+				ourLog.info(
+						"Resizing memory cache {} from {} to {} entries (hit rate {})",
+						next.myCache,
+						next.myCurrent,
+						newMaximumSize,
+						String.format("%.3f", state.myLastHitRate));
+				myMemoryCacheService.setMaximumSize(next.myCache, newMaximumSize);
+			}
+		}
+	}
+
+	private Candidate evaluate(CacheEnum theCache) {
+		MemoryCacheStatistics statistics = myMemoryCacheService.getStatistics(theCache);
+		long current = statistics.maximumSize();
+		if (current < 0) {
+			// The cache implementation doesn't support resizing
+			return null;
+		}
+
+		CacheState state = myCacheStates.computeIfAbsent(theCache, t -> new CacheState());
+		long hitCount = statistics.hitCount() + statistics.sharedTierHitCount();
+		long hits = hitCount - state.myLastHitCount;
+		long misses = statistics.missCount() - state.myLastMissCount;
+		state.myLastHitCount = hitCount;
+		state.myLastMissCount = statistics.missCount();
+
+		long configured = myMemoryCacheService.getConfiguredMaximumSize(theCache);
+		long floor = Math.min(configured, Math.max(MINIMUM_SIZE, configured / 4));
+		floor = Math.max(1, floor);
+		int entrySizeBytes = Math.max(1, myMemoryCacheService.getEstimatedEntrySizeBytes(theCache));
+
+		long desired = Math.max(current, floor);
+		long requests = hits + misses;
+		if (requests >= MINIMUM_REQUESTS) {
+			double hitRate = (double) hits / requests;
+			long size = statistics.estimatedSize();
+			if (size >= current * FULL_OCCUPANCY && misses > 0) {
+				boolean reachedPlateau = state.myGrewLastPass && hitRate - state.myLastHitRate < MINIMUM_HIT_RATE_GAIN;
+				if (!reachedPlateau) {
+					desired = (long) Math.ceil(current * GROWTH_FACTOR);
+				}
+			} else if (size < current * LOW_OCCUPANCY) {
+				desired = Math.max(floor, (long) Math.ceil(size * GROWTH_FACTOR));
+			}
+			state.myLastHitRate = hitRate;
+		} else {
+			state.myGrewLastPass = false;
+		}
+
+		return new Candidate(theCache, current, floor, desired, entrySizeBytes, misses);
+	}
+
+	private static class CacheState {
+		private long myLastHitCount;
+		private long myLastMissCount;
+		private double myLastHitRate;
+		private boolean myGrewLastPass;
+	}
+
+	private static class Candidate {
+		private final CacheEnum myCache;
+		private final long myCurrent;
+		private final long myFloor;
+		private final long myDesired;
+		private final int myEntrySizeBytes;
+		private final double myMissesPerByte;
+
+		private Candidate(
+				CacheEnum theCache,
+				long theCurrent,
+				long theFloor,
+				long theDesired,
+				int theEntrySizeBytes,
+				long theMisses) {
+			myCache = theCache;
+			myCurrent = theCurrent;
+			myFloor = theFloor;
+			myDesired = theDesired;
+			myEntrySizeBytes = theEntrySizeBytes;
+			myMissesPerByte = (double) theMisses / theEntrySizeBytes;
+		}
+
+		private double getMissesPerByte() {
+			return myMissesPerByte;
+		}
+	}
+
+	public static class Job implements HapiJob {
+		@Autowired
+		private MemoryCacheAdaptiveSizingSvc myTarget;
+
+		@Override
+		public void execute(JobExecutionContext theContext) {
+			myTarget.adjustCacheSizes();
+		}
+	}
+}
@@ -1,35 +1,51 @@
 package ca.uhn.fhir.jpa.dao;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.dao.compression.IResourceCompressionDictionarySvc;
+import ca.uhn.fhir.jpa.dao.compression.ResourceCompressionDictionary;
 import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import com.github.luben.zstd.ZstdDictTrainer;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import org.hl7.fhir.dstu3.hapi.ctx.FhirDstu3;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.hapi.ctx.FhirR4;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.util.StopWatch;
+import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class ResourceHistoryCalculatorTest {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ResourceHistoryCalculatorTest.class);
@@ -133,7 +149,7 @@ class ResourceHistoryCalculatorTest {
 		resourceHistoryTable.setResourceTextVc(RESOURCE_TEXT_VC);
 
 		final boolean isChanged =
-			getCalculator(theIsOracle).conditionallyAlterHistoryEntity(resourceTable, resourceHistoryTable, theResourceText);
+			getCalculator(theIsOracle).conditionallyAlterHistoryEntity(resourceTable, resourceHistoryTable, theResourceText, ResourceEncodingEnum.JSON);
 
 		if (theIsOracle) {
 			assertFalse(isChanged);
@@ -148,6 +164,234 @@ class ResourceHistoryCalculatorTest {
 		}
 	}
 
+	private static Stream<Arguments> compressedOnAllDialectsArguments() {
+		return Stream.of(
+			Arguments.of(true, ResourceEncodingEnum.ZSTD),
+			Arguments.of(false, ResourceEncodingEnum.ZSTD),
+			Arguments.of(true, ResourceEncodingEnum.LZ4),
+			Arguments.of(false, ResourceEncodingEnum.LZ4)
+		);
+	}
+
+	@ParameterizedTest
+	@MethodSource("compressedOnAllDialectsArguments")
+	void calculateResourceHistoryState_compressedOnAllDialects(boolean theIsOracle, ResourceEncodingEnum theResourceEncoding) {
+		final IBaseResource patient = getPatientR4();
+		final ResourceHistoryCalculator calculator = getCalculator(theIsOracle);
+
+		final ResourceHistoryState result = calculator.calculateResourceHistoryState(patient, theResourceEncoding, EXCLUDED_ELEMENTS_1);
+
+		final String expectedText = calculator.encodeResource(patient, theResourceEncoding, EXCLUDED_ELEMENTS_1);
+		assertEquals(theResourceEncoding, result.getEncoding());
+		if (theIsOracle) {
+			assertNull(result.getResourceText());
+			assertEquals(expectedText, BaseHapiFhirDao.decodeResource(result.getResourceBinary(), theResourceEncoding));
+		} else {
+			assertNull(result.getResourceBinary()); // Non-Oracle: The compressed bytes are stored as Base64 text
+			assertNotEquals(expectedText, result.getResourceText());
+			assertEquals(expectedText, ResourceHistoryCalculator.decodeResourceTextVc(result.getResourceText(), theResourceEncoding));
+			assertEquals(SHA_256.hashUnencodedChars(expectedText), result.getHashCode());
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("compressedOnAllDialectsArguments")
+	void conditionallyAlterHistoryEntity_recompressesExistingVersion(boolean theIsOracle, ResourceEncodingEnum theResourceEncoding) {
+		final ResourceTable resourceTable = new ResourceTable();
+		resourceTable.setIdForUnitTest(123L);
+
+		final ResourceHistoryTable resourceHistoryTable = new ResourceHistoryTable();
+		resourceHistoryTable.setVersion(1);
+		if (theIsOracle) {
+			resourceHistoryTable.setResource(GZipUtil.compress(ENCODED_RESOURCE_1));
+			resourceHistoryTable.setEncoding(ResourceEncodingEnum.JSONC);
+		} else {
+			resourceHistoryTable.setResourceTextVc(ENCODED_RESOURCE_1);
+			resourceHistoryTable.setEncoding(ResourceEncodingEnum.JSON);
+		}
+
+		final ResourceHistoryCalculator calculator = getCalculator(theIsOracle);
+		assertTrue(calculator.conditionallyAlterHistoryEntity(resourceTable, resourceHistoryTable, ENCODED_RESOURCE_1, theResourceEncoding));
+
+		assertEquals(theResourceEncoding, resourceHistoryTable.getEncoding());
+		if (theIsOracle) {
+			assertNull(resourceHistoryTable.getResourceTextVc());
+			assertEquals(ENCODED_RESOURCE_1, BaseHapiFhirDao.decodeResource(resourceHistoryTable.getResource(), theResourceEncoding));
+		} else {
+			assertNull(resourceHistoryTable.getResource());
+			assertEquals(ENCODED_RESOURCE_1, ResourceHistoryCalculator.decodeResourceTextVc(resourceHistoryTable.getResourceTextVc(), theResourceEncoding));
+		}
+
+		// Already in the target encoding, so a second pass is a no-op
+		assertFalse(calculator.conditionallyAlterHistoryEntity(resourceTable, resourceHistoryTable, ENCODED_RESOURCE_1, theResourceEncoding));
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = ResourceEncodingEnum.class, names = {"ZSTD", "LZ4"})
+	void decodeResource_invalidContent(ResourceEncodingEnum theResourceEncoding) {
+		final byte[] invalid = "this is not compressed".getBytes(StandardCharsets.UTF_8);
+
+		final DataFormatException e = assertThrows(DataFormatException.class, () -> BaseHapiFhirDao.decodeResource(invalid, theResourceEncoding));
+		assertThat(e.getMessage()).contains("Failed to decompress contents");
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void calculateResourceHistoryState_dictionaryCompressed(boolean theIsOracle) {
+		final ResourceCompressionDictionary dictionary = trainObservationDictionary(1L);
+		final IResourceCompressionDictionarySvc dictionarySvc = mock(IResourceCompressionDictionarySvc.class);
+		when(dictionarySvc.getCurrentDictionary("Observation")).thenReturn(dictionary);
+		when(dictionarySvc.getDictionary(1L)).thenReturn(dictionary);
+		final ResourceHistoryCalculator calculator = new ResourceHistoryCalculator(CONTEXT, theIsOracle);
+		calculator.setCompressionDictionarySvc(dictionarySvc);
+
+		final Observation observation = getBenchmarkObservation(1);
+		final ResourceHistoryState result = calculator.calculateResourceHistoryState(observation, ResourceEncodingEnum.ZSTDD, List.of());
+
+		assertEquals(ResourceEncodingEnum.ZSTDD, result.getEncoding());
+		assertEquals(1L, result.getCompressionDictionaryId());
+		final ResourceHistoryTable history = new ResourceHistoryTable();
+		history.setEncoding(result.getEncoding());
+		history.setResource(result.getResourceBinary());
+		history.setResourceTextVc(result.getResourceText());
+		history.setCompressionDictionaryId(result.getCompressionDictionaryId());
+		assertEquals(CONTEXT.newJsonParser().encodeResourceToString(observation), calculator.decodeResource(history));
+
+		// The same content compressed against a newer dictionary is stored differently, but is not a change
+		final ResourceCompressionDictionary newDictionary = trainObservationDictionary(2L);
+		when(dictionarySvc.getCurrentDictionary("Observation")).thenReturn(newDictionary);
+		when(dictionarySvc.getDictionary(2L)).thenReturn(newDictionary);
+		final ResourceHistoryState unchanged = calculator.calculateResourceHistoryState(observation, ResourceEncodingEnum.ZSTDD, List.of());
+		assertEquals(2L, unchanged.getCompressionDictionaryId());
+		assertFalse(calculator.isResourceHistoryChanged(history, unchanged.getEncoding(), unchanged.getResourceBinary(), unchanged.getResourceText(), unchanged.getCompressionDictionaryId()));
+
+		observation.setStatus(Observation.ObservationStatus.AMENDED);
+		final ResourceHistoryState changed = calculator.calculateResourceHistoryState(observation, ResourceEncodingEnum.ZSTDD, List.of());
+		assertTrue(calculator.isResourceHistoryChanged(history, changed.getEncoding(), changed.getResourceBinary(), changed.getResourceText(), changed.getCompressionDictionaryId()));
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void calculateResourceHistoryState_dictionaryCompressed_noDictionaryFallsBackToZstd(boolean theIsOracle) {
+		final IResourceCompressionDictionarySvc dictionarySvc = mock(IResourceCompressionDictionarySvc.class);
+		final ResourceHistoryCalculator calculator = new ResourceHistoryCalculator(CONTEXT, theIsOracle);
+		calculator.setCompressionDictionarySvc(dictionarySvc);
+
+		final ResourceHistoryState result = calculator.calculateResourceHistoryState(getPatientR4(), ResourceEncodingEnum.ZSTDD, List.of());
+
+		assertEquals(ResourceEncodingEnum.ZSTD, result.getEncoding());
+		assertNull(result.getCompressionDictionaryId());
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void conditionallyAlterHistoryEntity_recompressesWithCurrentDictionary(boolean theIsOracle) {
+		final ResourceCompressionDictionary dictionary = trainObservationDictionary(1L);
+		final IResourceCompressionDictionarySvc dictionarySvc = mock(IResourceCompressionDictionarySvc.class);
+		when(dictionarySvc.getCurrentDictionary("Observation")).thenReturn(dictionary);
+		when(dictionarySvc.getDictionary(1L)).thenReturn(dictionary);
+		final ResourceHistoryCalculator calculator = new ResourceHistoryCalculator(CONTEXT, theIsOracle);
+		calculator.setCompressionDictionarySvc(dictionarySvc);
+
+		final ResourceTable resourceTable = new ResourceTable();
+		resourceTable.setIdForUnitTest(123L);
+		resourceTable.setResourceType("Observation");
+		final ResourceHistoryTable resourceHistoryTable = new ResourceHistoryTable();
+		resourceHistoryTable.setVersion(1);
+		resourceHistoryTable.setResourceTextVc(ENCODED_RESOURCE_1);
+		resourceHistoryTable.setEncoding(ResourceEncodingEnum.JSON);
+
+		assertTrue(calculator.conditionallyAlterHistoryEntity(resourceTable, resourceHistoryTable, ENCODED_RESOURCE_1, ResourceEncodingEnum.ZSTDD));
+
+		assertEquals(ResourceEncodingEnum.ZSTDD, resourceHistoryTable.getEncoding());
+		assertEquals(1L, resourceHistoryTable.getCompressionDictionaryId());
+		assertEquals(ENCODED_RESOURCE_1, calculator.decodeResource(resourceHistoryTable));
+		assertFalse(calculator.conditionallyAlterHistoryEntity(resourceTable, resourceHistoryTable, ENCODED_RESOURCE_1, ResourceEncodingEnum.ZSTDD));
+	}
+
+	private static ResourceCompressionDictionary trainObservationDictionary(long theId) {
+		final List<byte[]> samples = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			samples.add(CONTEXT.newJsonParser().encodeResourceToString(getBenchmarkObservation(i)).getBytes(StandardCharsets.UTF_8));
+		}
+		final ZstdDictTrainer trainer = new ZstdDictTrainer(samples.stream().mapToInt(t -> t.length).sum(), 4 * 1024);
+		samples.forEach(trainer::addSample);
+		return new ResourceCompressionDictionary(theId, "Observation", (int) theId, trainer.trainSamples());
+	}
+
+	/**
+	 * Compares write latency, read latency and stored size of the available resource encodings.
+	 * This is a benchmark rather than a test, so it is disabled by default.
+	 */
+	@Test
+	@Disabled
+	void benchmarkResourceEncodings() {
+		final List<String> resources = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			resources.add(CONTEXT.newJsonParser().encodeResourceToString(getBenchmarkObservation(i)));
+		}
+
+		for (int pass = 0; pass < 3; pass++) {
+			for (ResourceEncodingEnum encoding : List.of(ResourceEncodingEnum.JSON, ResourceEncodingEnum.JSONC, ResourceEncodingEnum.ZSTD, ResourceEncodingEnum.LZ4)) {
+				long uncompressedBytes = 0;
+				long storedBytes = 0;
+				final List<byte[]> encoded = new ArrayList<>(resources.size());
+
+				StopWatch sw = new StopWatch();
+				for (String next : resources) {
+					byte[] binary = ResourceHistoryCalculator.getResourceBinary(encoding, next);
+					encoded.add(binary);
+					uncompressedBytes += next.getBytes(StandardCharsets.UTF_8).length;
+					storedBytes += binary.length;
+				}
+				final long writeMillis = sw.getMillisAndRestart();
+				for (byte[] next : encoded) {
+					BaseHapiFhirDao.decodeResource(next, encoding);
+				}
+				final long readMillis = sw.getMillis();
+
+				ourLog.info("{}: {} resources - write {}ms - read {}ms - stored {} bytes ({}% of {} bytes)",
+					encoding, resources.size(), writeMillis, readMillis, storedBytes, storedBytes * 100 / uncompressedBytes, uncompressedBytes);
+			}
+
+			final ResourceCompressionDictionary dictionary = trainObservationDictionary(1L);
+			long uncompressedBytes = 0;
+			long storedBytes = 0;
+			final List<byte[]> encoded = new ArrayList<>(resources.size());
+			StopWatch sw = new StopWatch();
+			for (String next : resources) {
+				byte[] binary = dictionary.compress(next);
+				encoded.add(binary);
+				uncompressedBytes += next.getBytes(StandardCharsets.UTF_8).length;
+				storedBytes += binary.length;
+			}
+			final long writeMillis = sw.getMillisAndRestart();
+			for (byte[] next : encoded) {
+				dictionary.decompress(next);
+			}
+			final long readMillis = sw.getMillis();
+			ourLog.info("ZSTDD ({} byte dictionary): {} resources - write {}ms - read {}ms - stored {} bytes ({}% of {} bytes)",
+				dictionary.getSizeBytes(), resources.size(), writeMillis, readMillis, storedBytes, storedBytes * 100 / uncompressedBytes, uncompressedBytes);
+		}
+	}
+
+	private static Observation getBenchmarkObservation(int theIndex) {
+		final Observation observation = new Observation();
+		observation.setId("Observation/" + theIndex);
+		observation.setStatus(Observation.ObservationStatus.FINAL);
+		observation.getCode().addCoding().setSystem("http://loinc.org").setCode("85354-9").setDisplay("Blood pressure panel with all children optional");
+		observation.getSubject().setReference("Patient/" + (theIndex % 100));
+		observation.getEffectiveDateTimeType().setValueAsString("2024-01-" + (10 + theIndex % 20) + "T10:15:00Z");
+		for (String code : List.of("8480-6", "8462-4")) {
+			Observation.ObservationComponentComponent component = observation.addComponent();
+			component.getCode().addCoding().setSystem("http://loinc.org").setCode(code);
+			component.getValueQuantity().setValue(60 + theIndex % 80).setUnit("mmHg").setSystem("http://unitsofmeasure.org").setCode("mm[Hg]");
+		}
+		observation.getText().setStatus(org.hl7.fhir.r4.model.Narrative.NarrativeStatus.GENERATED);
+		observation.getText().setDivAsString("<div xmlns=\"http://www.w3.org/1999/xhtml\">Blood pressure reading " + theIndex + "</div>");
+		return observation;
+	}
+
 	private static Stream<Arguments> encodeResourceArguments() {
 		return Stream.of(
 			Arguments.of(FhirContext.forDstu3Cached(), ResourceEncodingEnum.JSONC, EXCLUDED_ELEMENTS_1),
@@ -190,7 +434,11 @@ class ResourceHistoryCalculatorTest {
 			Arguments.of(ResourceEncodingEnum.ESR, ENCODED_RESOURCE_1),
 			Arguments.of(ResourceEncodingEnum.ESR, ENCODED_RESOURCE_2),
 			Arguments.of(ResourceEncodingEnum.JSON, ENCODED_RESOURCE_1),
-			Arguments.of(ResourceEncodingEnum.JSON, ENCODED_RESOURCE_2)
+			Arguments.of(ResourceEncodingEnum.JSON, ENCODED_RESOURCE_2),
+			Arguments.of(ResourceEncodingEnum.ZSTD, ENCODED_RESOURCE_1),
+			Arguments.of(ResourceEncodingEnum.ZSTD, ENCODED_RESOURCE_2),
+			Arguments.of(ResourceEncodingEnum.LZ4, ENCODED_RESOURCE_1),
+			Arguments.of(ResourceEncodingEnum.LZ4, ENCODED_RESOURCE_2)
 		);
 	}
 
@@ -206,6 +454,10 @@ class ResourceHistoryCalculatorTest {
 			case JSONC:
 				assertArrayEquals(GZipUtil.compress(theEncodedResource), resourceBinary);
 				break;
+			case ZSTD:
+			case LZ4:
+				assertEquals(theEncodedResource, BaseHapiFhirDao.decodeResource(resourceBinary, theResourceEncoding));
+				break;
 			case DEL :
 			case ESR :
 			default:
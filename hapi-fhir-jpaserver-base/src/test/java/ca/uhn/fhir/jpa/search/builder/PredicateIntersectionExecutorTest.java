@@ -0,0 +1,90 @@
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PredicateIntersectionExecutorTest {
+
+	private final PredicateIntersectionExecutor mySvc = new PredicateIntersectionExecutor(newStorageSettings());
+
+	@AfterEach
+	public void after() {
+		mySvc.stop();
+	}
+
+	@Test
+	public void testSortDistinct() {
+		long[] input = new long[] {5, 3, 9, 3, 1, 5, 100, 100};
+
+		assertThat(PredicateIntersectionExecutor.sortDistinct(input, input.length)).containsExactly(1, 3, 5, 9, 100);
+		assertThat(PredicateIntersectionExecutor.sortDistinct(input, 3)).containsExactly(3, 5, 9);
+		assertThat(PredicateIntersectionExecutor.sortDistinct(input, 0)).isEmpty();
+	}
+
+	@Test
+	public void testIntersectSorted() {
+		List<long[]> input = List.of(
+				new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10},
+				new long[] {2, 4, 6, 8, 10, 12},
+				new long[] {4, 8, 12, 16});
+
+		assertThat(PredicateIntersectionExecutor.intersectSorted(input)).containsExactly(4, 8);
+	}
+
+	@Test
+	public void testIntersectSorted_NoOverlap() {
+		List<long[]> input = List.of(new long[] {1, 3, 5}, new long[] {2, 4, 6});
+
+		assertThat(PredicateIntersectionExecutor.intersectSorted(input)).isEmpty();
+		assertThat(PredicateIntersectionExecutor.intersectSorted(List.of())).isEmpty();
+		assertThat(PredicateIntersectionExecutor.intersectSorted(List.of(new long[] {7, 8})))
+				.containsExactly(7, 8);
+	}
+
+	@Test
+	public void testInvokeAll_ResultsInOrder() {
+		List<Callable<String>> tasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			String value = Integer.toString(i);
+			tasks.add(() -> {
+				Thread.sleep(10);
+				return value;
+			});
+		}
+
+		assertThat(mySvc.invokeAll(tasks)).containsExactly("0", "1", "2", "3", "4", "5", "6", "7", "8", "9");
+	}
+
+	@Test
+	public void testInvokeAll_Failure() {
+		List<Callable<String>> tasks = List.of(() -> "0", () -> {
+			throw new IllegalStateException("FAILED");
+		});
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> mySvc.invokeAll(tasks));
+		assertEquals("FAILED", e.getMessage());
+
+		List<Callable<String>> checkedTasks = List.of(() -> "0", () -> {
+			throw new Exception("FAILED");
+		});
+
+		InternalErrorException e2 = assertThrows(InternalErrorException.class, () -> mySvc.invokeAll(checkedTasks));
+		assertThat(e2.getMessage()).startsWith("HAPI-2849: Failed to execute search predicate");
+	}
+
+	private static JpaStorageSettings newStorageSettings() {
+		JpaStorageSettings retVal = new JpaStorageSettings();
+		retVal.setSearchPredicateIntersectionThreadCount(2);
+		return retVal;
+	}
+}
@@ -0,0 +1,88 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SearchResultBlockCodecTest {
+
+	@Test
+	public void testEmpty() {
+		assertThat(SearchResultBlockCodec.decode(SearchResultBlockCodec.encode(List.of()))).isEmpty();
+	}
+
+	@Test
+	public void testNoPartitions() {
+		List<JpaPid> pids = new ArrayList<>();
+		for (long i = 0; i < 1000; i++) {
+			pids.add(JpaPid.fromId(1000L + i));
+		}
+
+		byte[] encoded = SearchResultBlockCodec.encode(pids);
+
+		assertRoundTrip(pids, encoded);
+		// Consecutive PIDs are stored as single byte deltas
+		assertThat(encoded.length).isLessThan(1010);
+	}
+
+	@Test
+	public void testSamePartition() {
+		List<JpaPid> pids = List.of(JpaPid.fromId(5L, 3), JpaPid.fromId(7L, 3), JpaPid.fromId(2L, 3));
+		assertRoundTrip(pids, SearchResultBlockCodec.encode(pids));
+	}
+
+	@Test
+	public void testMixedPartitions() {
+		List<JpaPid> pids = List.of(
+				JpaPid.fromId(5L, 3),
+				JpaPid.fromId(7L, (Integer) null),
+				JpaPid.fromId(2L, -1),
+				JpaPid.fromId(9L, 0),
+				JpaPid.fromId(Long.MAX_VALUE, Integer.MAX_VALUE),
+				JpaPid.fromId(Long.MIN_VALUE, Integer.MIN_VALUE));
+		assertRoundTrip(pids, SearchResultBlockCodec.encode(pids));
+	}
+
+	@Test
+	public void testRandomOrder() {
+		Random random = new Random(12345L);
+		List<JpaPid> pids = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			pids.add(JpaPid.fromId(random.nextLong(), random.nextInt(4) == 0 ? null : random.nextInt(10)));
+		}
+		assertRoundTrip(pids, SearchResultBlockCodec.encode(pids));
+	}
+
+	@Test
+	public void testMalformed() {
+		byte[] encoded = SearchResultBlockCodec.encode(List.of(JpaPid.fromId(1000L), JpaPid.fromId(900L)));
+
+		byte[] badVersion = encoded.clone();
+		badVersion[0] = 99;
+		InternalErrorException e =
+				assertThrows(InternalErrorException.class, () -> SearchResultBlockCodec.decode(badVersion));
+		assertEquals("HAPI-2841: Unknown search result block format: 99", e.getMessage());
+
+		byte[] truncated = new byte[encoded.length - 1];
+		System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+		e = assertThrows(InternalErrorException.class, () -> SearchResultBlockCodec.decode(truncated));
+		assertEquals("HAPI-2843: Malformed search result block", e.getMessage());
+	}
+
+	private static void assertRoundTrip(List<JpaPid> theExpected, byte[] theEncoded) {
+		List<JpaPid> actual = SearchResultBlockCodec.decode(theEncoded);
+		assertThat(actual).hasSize(theExpected.size());
+		for (int i = 0; i < theExpected.size(); i++) {
+			assertEquals(theExpected.get(i).getId(), actual.get(i).getId());
+			assertEquals(theExpected.get(i).getPartitionId(), actual.get(i).getPartitionId());
+		}
+	}
+}
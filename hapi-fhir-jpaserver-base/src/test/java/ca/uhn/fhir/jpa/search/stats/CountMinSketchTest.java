@@ -0,0 +1,30 @@
+package ca.uhn.fhir.jpa.search.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CountMinSketchTest {
+
+	@Test
+	public void testEstimate() {
+		CountMinSketch sketch = new CountMinSketch();
+		for (int i = 0; i < 1000; i++) {
+			sketch.add(42L);
+		}
+		for (long i = 0; i < 5000; i++) {
+			sketch.add(1000 + i);
+		}
+
+		// Estimates never undercount, and overcount by a small fraction of the total
+		assertThat(sketch.estimate(42L)).isBetween(1000, 1000 + 6000 / 20);
+		assertThat(sketch.estimate(1000L)).isBetween(1, 1 + 6000 / 20);
+		assertThat(sketch.estimate(-1L)).isLessThan(6000 / 20);
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, new CountMinSketch().estimate(1L));
+	}
+}
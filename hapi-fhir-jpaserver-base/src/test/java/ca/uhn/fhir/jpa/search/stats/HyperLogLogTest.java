@@ -0,0 +1,24 @@
+package ca.uhn.fhir.jpa.search.stats;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 10, 100, 1_000, 10_000, 100_000})
+	public void testEstimate(int theDistinctCount) {
+		HyperLogLog hll = new HyperLogLog();
+		for (int pass = 0; pass < 3; pass++) {
+			for (long i = 0; i < theDistinctCount; i++) {
+				hll.add(i);
+			}
+		}
+
+		// The standard error with 1024 registers is about 3%
+		assertThat((double) hll.estimate()).isCloseTo(theDistinctCount, within(Math.max(1, theDistinctCount * 0.1)));
+	}
+}
@@ -0,0 +1,100 @@
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MemoryCacheAdaptiveSizingSvcTest {
+
+	private JpaStorageSettings myStorageSettings;
+
+	@BeforeEach
+	void before() {
+		myStorageSettings = new JpaStorageSettings();
+		myStorageSettings.setMemoryCacheSettings(CacheEnum.MATCH_URL, new MemoryCacheSettings().setMaximumSize(1000));
+		myStorageSettings.setMemoryCacheSettings(CacheEnum.FHIRPATH_EXPRESSION, new MemoryCacheSettings().setMaximumSize(1000));
+	}
+
+	@Test
+	void testDisabledByDefault() {
+		MemoryCacheService memoryCacheService = new MemoryCacheService(myStorageSettings);
+		MemoryCacheAdaptiveSizingSvc svc = new MemoryCacheAdaptiveSizingSvc(memoryCacheService, myStorageSettings);
+
+		generateMisses(memoryCacheService, CacheEnum.MATCH_URL, 5000);
+		svc.adjustCacheSizes();
+
+		assertEquals(1000, memoryCacheService.getMaximumSize(CacheEnum.MATCH_URL));
+	}
+
+	@Test
+	void testThrashingCacheGrowsAndIdleCacheShrinks() {
+		myStorageSettings.setMemoryCacheAdaptiveSizingHeapBudgetBytes(100L * 1024 * 1024);
+		MemoryCacheService memoryCacheService = new MemoryCacheService(myStorageSettings);
+		MemoryCacheAdaptiveSizingSvc svc = new MemoryCacheAdaptiveSizingSvc(memoryCacheService, myStorageSettings);
+
+		generateMisses(memoryCacheService, CacheEnum.MATCH_URL, 5000);
+		generateHits(memoryCacheService, CacheEnum.FHIRPATH_EXPRESSION, 10, 500);
+		svc.adjustCacheSizes();
+
+		assertEquals(1500, memoryCacheService.getMaximumSize(CacheEnum.MATCH_URL));
+		assertEquals(250, memoryCacheService.getMaximumSize(CacheEnum.FHIRPATH_EXPRESSION));
+	}
+
+	@Test
+	void testGrowthStopsWhenHitRateStopsImproving() {
+		myStorageSettings.setMemoryCacheAdaptiveSizingHeapBudgetBytes(100L * 1024 * 1024);
+		MemoryCacheService memoryCacheService = new MemoryCacheService(myStorageSettings);
+		MemoryCacheAdaptiveSizingSvc svc = new MemoryCacheAdaptiveSizingSvc(memoryCacheService, myStorageSettings);
+
+		// A scan over unique keys never benefits from a larger cache
+		generateMisses(memoryCacheService, CacheEnum.MATCH_URL, 5000);
+		svc.adjustCacheSizes();
+		assertEquals(1500, memoryCacheService.getMaximumSize(CacheEnum.MATCH_URL));
+
+		generateMisses(memoryCacheService, CacheEnum.MATCH_URL, 5000);
+		svc.adjustCacheSizes();
+		assertEquals(1500, memoryCacheService.getMaximumSize(CacheEnum.MATCH_URL));
+	}
+
+	@Test
+	void testBudgetIsRespected() {
+		int entrySize = CacheEnum.MATCH_URL.getEstimatedEntrySizeBytes();
+		MemoryCacheService probe = new MemoryCacheService(myStorageSettings);
+		long floors = 0;
+		for (CacheEnum next : CacheEnum.values()) {
+			long configured = probe.getConfiguredMaximumSize(next);
+			floors += Math.min(configured, Math.max(MemoryCacheAdaptiveSizingSvc.MINIMUM_SIZE, configured / 4)) * probe.getEstimatedEntrySizeBytes(next);
+		}
+
+		// Enough budget for the floors plus 100 more MATCH_URL entries
+		myStorageSettings.setMemoryCacheAdaptiveSizingHeapBudgetBytes(floors + 100L * entrySize);
+		MemoryCacheService memoryCacheService = new MemoryCacheService(myStorageSettings);
+		MemoryCacheAdaptiveSizingSvc svc = new MemoryCacheAdaptiveSizingSvc(memoryCacheService, myStorageSettings);
+
+		generateMisses(memoryCacheService, CacheEnum.MATCH_URL, 5000);
+		svc.adjustCacheSizes();
+
+		assertEquals(250 + 100, memoryCacheService.getMaximumSize(CacheEnum.MATCH_URL));
+		long total = 0;
+		for (CacheEnum next : CacheEnum.values()) {
+			total += memoryCacheService.getMaximumSize(next) * memoryCacheService.getEstimatedEntrySizeBytes(next);
+		}
+		assertThat(total).isLessThanOrEqualTo(myStorageSettings.getMemoryCacheAdaptiveSizingHeapBudgetBytes());
+	}
+
+	private static void generateMisses(MemoryCacheService theMemoryCacheService, CacheEnum theCache, int theCount) {
+		for (int i = 0; i < theCount; i++) {
+			theMemoryCacheService.get(theCache, "key-" + System.nanoTime() + "-" + i, k -> "value");
+		}
+	}
+
+	private static void generateHits(MemoryCacheService theMemoryCacheService, CacheEnum theCache, int theDistinctKeys, int theCount) {
+		for (int i = 0; i < theCount; i++) {
+			theMemoryCacheService.get(theCache, "key-" + (i % theDistinctKeys), k -> "value");
+		}
+	}
+}
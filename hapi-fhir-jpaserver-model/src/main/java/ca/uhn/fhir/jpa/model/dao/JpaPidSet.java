@@ -0,0 +1,380 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Model
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.model.dao;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of {@link JpaPid} which stores the resource ID and partition ID of each element in
+ * primitive arrays using open addressing, instead of holding a {@link JpaPid} object and a
+ * hash map node per element as a {@link java.util.HashSet} does. This uses a fraction of the
+ * heap of a <code>HashSet&lt;JpaPid&gt;</code> when holding large numbers of PIDs, such as
+ * the results of a search or the targets of an _include.
+ * <p>
+ * As with {@link JpaPid#equals(Object)}, elements are compared using the resource ID only.
+ * Only the resource ID and partition ID are retained, so the iterator returns new
+ * {@link JpaPid} instances which do not carry a version or resource type. This class
+ * should therefore only be used where those aren't needed.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class JpaPidSet extends AbstractSet<JpaPid> {
+
+	private static final long EMPTY_SLOT = 0L;
+	private static final int NULL_PARTITION_ID = Integer.MIN_VALUE;
+	private static final int MINIMUM_CAPACITY = 16;
+
+	private long[] myIds;
+	private int[] myPartitionIds;
+	private int myResizeThreshold;
+	private int mySlotCount;
+	private boolean myHasZeroId;
+	private int myZeroIdPartitionId;
+	private int myModCount;
+
+	/**
+	 * Constructor
+	 */
+	public JpaPidSet() {
+		this(MINIMUM_CAPACITY);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theExpectedSize The number of elements the set should be able to hold without resizing
+	 */
+	public JpaPidSet(int theExpectedSize) {
+		Validate.isTrue(theExpectedSize >= 0, "Expected size must not be negative");
+		allocate(capacityFor(theExpectedSize));
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param thePids The initial contents of the set
+	 */
+	public JpaPidSet(@Nonnull Collection<JpaPid> thePids) {
+		this(thePids.size());
+		addAll(thePids);
+	}
+
+	@Override
+	public boolean add(@Nonnull JpaPid thePid) {
+		Validate.notNull(thePid.getId(), "JpaPid must have an ID");
+		return add(thePid.getId(), thePid.getPartitionId());
+	}
+
+	/**
+	 * Adds a PID to the set without requiring a {@link JpaPid} instance. If the set already
+	 * contains the given resource ID, it is left unchanged.
+	 *
+	 * @return Returns <code>true</code> if the set did not already contain the resource ID
+	 */
+	public boolean add(long theId, @Nullable Integer thePartitionId) {
+		int partitionId = thePartitionId != null ? thePartitionId : NULL_PARTITION_ID;
+		if (theId == EMPTY_SLOT) {
+			if (myHasZeroId) {
+				return false;
+			}
+			myHasZeroId = true;
+			myZeroIdPartitionId = partitionId;
+			myModCount++;
+			return true;
+		}
+
+		int mask = myIds.length - 1;
+		for (int index = slotFor(theId, mask); ; index = (index + 1) & mask) {
+			long existing = myIds[index];
+			if (existing == theId) {
+				return false;
+			}
+			if (existing == EMPTY_SLOT) {
+				myIds[index] = theId;
+				myPartitionIds[index] = partitionId;
+				myModCount++;
+				if (++mySlotCount > myResizeThreshold) {
+					rehash(myIds.length * 2);
+				}
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(Object theObject) {
+		if (theObject instanceof JpaPid) {
+			Long id = ((JpaPid) theObject).getId();
+			return id != null && contains(id.longValue());
+		}
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if the set contains a PID with the given resource ID
+	 */
+	public boolean contains(long theId) {
+		if (theId == EMPTY_SLOT) {
+			return myHasZeroId;
+		}
+		return indexOf(theId) >= 0;
+	}
+
+	@Override
+	public boolean remove(Object theObject) {
+		if (theObject instanceof JpaPid) {
+			Long id = ((JpaPid) theObject).getId();
+			return id != null && remove(id.longValue());
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the PID with the given resource ID from the set
+	 *
+	 * @return Returns <code>true</code> if the set contained the resource ID
+	 */
+	public boolean remove(long theId) {
+		if (theId == EMPTY_SLOT) {
+			boolean retVal = myHasZeroId;
+			myHasZeroId = false;
+			myModCount++;
+			return retVal;
+		}
+
+		int index = indexOf(theId);
+		if (index < 0) {
+			return false;
+		}
+		removeAt(index, null);
+		return true;
+	}
+
+	/**
+	 * Removes the entry in the given slot, shifting any following entries in the same probe
+	 * sequence back into the gap.
+	 *
+	 * @param theIterator If the removal is made through an iterator, the iterator is notified
+	 *                    of each entry that is moved so that it can keep track of them
+	 */
+	private void removeAt(int theIndex, @Nullable PidIterator theIterator) {
+		int gap = theIndex;
+		int mask = myIds.length - 1;
+		for (int next = (gap + 1) & mask; myIds[next] != EMPTY_SLOT; next = (next + 1) & mask) {
+			int ideal = slotFor(myIds[next], mask);
+			if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+				if (theIterator != null) {
+					theIterator.entryMoved(next, gap);
+				}
+				myIds[gap] = myIds[next];
+				myPartitionIds[gap] = myPartitionIds[next];
+				gap = next;
+			}
+		}
+		myIds[gap] = EMPTY_SLOT;
+		mySlotCount--;
+		myModCount++;
+	}
+
+	@Override
+	public int size() {
+		return mySlotCount + (myHasZeroId ? 1 : 0);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(myIds, EMPTY_SLOT);
+		mySlotCount = 0;
+		myHasZeroId = false;
+		myModCount++;
+	}
+
+	@Nonnull
+	@Override
+	public Iterator<JpaPid> iterator() {
+		return new PidIterator();
+	}
+
+	private int indexOf(long theId) {
+		int mask = myIds.length - 1;
+		for (int index = slotFor(theId, mask); ; index = (index + 1) & mask) {
+			long existing = myIds[index];
+			if (existing == theId) {
+				return index;
+			}
+			if (existing == EMPTY_SLOT) {
+				return -1;
+			}
+		}
+	}
+
+	private void allocate(int theCapacity) {
+		myIds = new long[theCapacity];
+		myPartitionIds = new int[theCapacity];
+		myResizeThreshold = theCapacity / 4 * 3;
+	}
+
+	private void rehash(int theNewCapacity) {
+		long[] oldIds = myIds;
+		int[] oldPartitionIds = myPartitionIds;
+		allocate(theNewCapacity);
+
+		int mask = theNewCapacity - 1;
+		for (int i = 0; i < oldIds.length; i++) {
+			long id = oldIds[i];
+			if (id != EMPTY_SLOT) {
+				int index = slotFor(id, mask);
+				while (myIds[index] != EMPTY_SLOT) {
+					index = (index + 1) & mask;
+				}
+				myIds[index] = id;
+				myPartitionIds[index] = oldPartitionIds[i];
+			}
+		}
+	}
+
+	private static int capacityFor(int theExpectedSize) {
+		long capacity = MINIMUM_CAPACITY;
+		while (capacity / 4 * 3 < theExpectedSize) {
+			capacity <<= 1;
+		}
+		Validate.isTrue(capacity <= (1 << 30), "Expected size %s is too large", theExpectedSize);
+		return (int) capacity;
+	}
+
+	private static int slotFor(long theId, int theMask) {
+		// Resource IDs are usually sequential, so spread them across the table
+		long hash = theId * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & theMask;
+	}
+
+	private static JpaPid toPid(long theId, int thePartitionId) {
+		return JpaPid.fromId(theId, thePartitionId != NULL_PARTITION_ID ? thePartitionId : null);
+	}
+
+	/**
+	 * Iterates over the table from the last slot to the first. Removing an entry shifts the
+	 * entries which follow it in the same probe sequence back by one or more slots, which
+	 * (since probe sequences wrap around the end of the table) can move an entry which has not
+	 * been returned yet from the start of the table into the part which has already been
+	 * visited. Those entries are remembered and returned once the table has been visited.
+	 */
+	private class PidIterator implements Iterator<JpaPid> {
+
+		private static final int LAST_RETURNED_NONE = -1;
+		private static final int LAST_RETURNED_ZERO_ID = -2;
+		private static final int LAST_RETURNED_MOVED = -3;
+
+		private int myExpectedModCount = myModCount;
+		private boolean myZeroIdPending = myHasZeroId;
+		/**
+		 * Slots at or after this index have been visited
+		 */
+		private int myVisitedIndex = myIds.length;
+
+		private int myNextIndex = findNextIndex();
+		private List<JpaPid> myMovedPids;
+		private JpaPid myLastMovedPid;
+		private int myLastReturned = LAST_RETURNED_NONE;
+
+		private int findNextIndex() {
+			int index = myVisitedIndex - 1;
+			while (index >= 0 && myIds[index] == EMPTY_SLOT) {
+				index--;
+			}
+			return index;
+		}
+
+		private void entryMoved(int theFromIndex, int theToIndex) {
+			if (theFromIndex < myVisitedIndex && theToIndex >= myVisitedIndex) {
+				if (myMovedPids == null) {
+					myMovedPids = new ArrayList<>();
+				}
+				myMovedPids.add(toPid(myIds[theFromIndex], myPartitionIds[theFromIndex]));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return myZeroIdPending || myNextIndex >= 0 || (myMovedPids != null && !myMovedPids.isEmpty());
+		}
+
+		@Override
+		public JpaPid next() {
+			checkForComodification();
+			if (myZeroIdPending) {
+				myZeroIdPending = false;
+				myLastReturned = LAST_RETURNED_ZERO_ID;
+				return toPid(EMPTY_SLOT, myZeroIdPartitionId);
+			}
+			if (myNextIndex >= 0) {
+				myVisitedIndex = myNextIndex;
+				myNextIndex = findNextIndex();
+				myLastReturned = myVisitedIndex;
+				return toPid(myIds[myVisitedIndex], myPartitionIds[myVisitedIndex]);
+			}
+			if (myMovedPids != null && !myMovedPids.isEmpty()) {
+				myLastMovedPid = myMovedPids.remove(myMovedPids.size() - 1);
+				myLastReturned = LAST_RETURNED_MOVED;
+				return myLastMovedPid;
+			}
+			throw new NoSuchElementException();
+		}
+
+		@Override
+		public void remove() {
+			if (myLastReturned == LAST_RETURNED_NONE) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+
+			if (myLastReturned == LAST_RETURNED_ZERO_ID) {
+				myHasZeroId = false;
+				myModCount++;
+			} else if (myLastReturned == LAST_RETURNED_MOVED) {
+				removeAt(indexOf(myLastMovedPid.getId()), this);
+			} else {
+				removeAt(myLastReturned, this);
+			}
+
+			myLastReturned = LAST_RETURNED_NONE;
+			myExpectedModCount = myModCount;
+			myNextIndex = findNextIndex();
+		}
+
+		private void checkForComodification() {
+			if (myModCount != myExpectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+}
@@ -49,9 +49,47 @@ public enum ResourceEncodingEnum {
 	 * Externally stored resource - Resource text is a reference to an external storage location,
 	 * which will be stored in {@link ResourceHistoryTable#getResourceTextVc()}
 	 */
-	ESR;
+	ESR,
+
+	/**
+	 * Json compressed using Zstandard. Unlike {@link #JSONC}, this encoding is applied on
+	 * every database dialect. On databases where the binary column is not used, the compressed
+	 * bytes are stored Base64 encoded in {@link ResourceHistoryTable#getResourceTextVc()}.
+	 *
+	 * @since 8.8.0
+	 */
+	ZSTD,
+
+	/**
+	 * Json compressed using LZ4. This encoding trades a lower compression ratio than
+	 * {@link #ZSTD} for faster compression and decompression, and is stored in the same
+	 * way as {@link #ZSTD}.
+	 *
+	 * @since 8.8.0
+	 */
+	LZ4,
+
+	/**
+	 * Json compressed using Zstandard with a dictionary trained from previously stored
+	 * resources of the same type. The ID of the dictionary is stored in
+	 * {@link ResourceHistoryTable#getCompressionDictionaryId()}. Resources of types with no
+	 * trained dictionary yet are stored using {@link #ZSTD}.
+	 *
+	 * @since 8.8.0
+	 */
+	ZSTDD;
 
 	public IParser newParser(FhirContext theContext) {
 		return theContext.newJsonParser();
 	}
+
+	/**
+	 * Returns <code>true</code> if resource bodies using this encoding are stored compressed
+	 * regardless of the database dialect (i.e. {@link #ZSTD}, {@link #ZSTDD} and {@link #LZ4}).
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isCompressedOnAllDialects() {
+		return this == ZSTD || this == ZSTDD || this == LZ4;
+	}
 }
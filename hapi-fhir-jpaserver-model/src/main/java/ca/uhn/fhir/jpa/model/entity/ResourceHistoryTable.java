@@ -147,6 +147,16 @@ public class ResourceHistoryTable extends BaseHasResource<ResourceHistoryTablePk
 	@OptimisticLock(excluded = true)
 	private ResourceEncodingEnum myEncoding;
 
+	/**
+	 * The compression dictionary used to encode this version, only populated
+	 * if the encoding is {@link ResourceEncodingEnum#ZSTDD}
+	 *
+	 * @since 8.8.0
+	 */
+	@Column(name = "COMPRESS_DICT_ID", nullable = true)
+	@OptimisticLock(excluded = true)
+	private Long myCompressionDictionaryId;
+
 	// TODO: This was added in 6.8.0 - In the future we should drop ResourceHistoryProvenanceEntity
 	@Column(name = "SOURCE_URI", length = SOURCE_URI_LENGTH, nullable = true)
 	private String mySourceUri;
@@ -248,6 +258,24 @@ public class ResourceHistoryTable extends BaseHasResource<ResourceHistoryTablePk
 		myEncoding = theEncoding;
 	}
 
+	/**
+	 * Returns the ID of the compression dictionary used to encode this version, or
+	 * <code>null</code> if the encoding does not use a dictionary
+	 *
+	 * @since 8.8.0
+	 */
+	@Nullable
+	public Long getCompressionDictionaryId() {
+		return myCompressionDictionaryId;
+	}
+
+	/**
+	 * @since 8.8.0
+	 */
+	public void setCompressionDictionaryId(@Nullable Long theCompressionDictionaryId) {
+		myCompressionDictionaryId = theCompressionDictionaryId;
+	}
+
 	@Nonnull
 	@Override
 	public ResourceHistoryTablePk getId() {
@@ -54,6 +54,13 @@ public class StorageSettings {
 	public static final int DEFAULT_BUNDLE_BATCH_POOL_SIZE = 20; // 1 for single thread
 
 	public static final int DEFAULT_BUNDLE_BATCH_MAX_POOL_SIZE = 100; // 1 for single thread
+
+	/**
+	 * Default value for {@link #setBundleBatchMaxGroupSize(int)}
+	 *
+	 * @since 8.8.0
+	 */
+	public static final int DEFAULT_BUNDLE_BATCH_MAX_GROUP_SIZE = 1;
 	/**
 	 * Default {@link #getTreatReferencesAsLogical() logical URL bases}. Includes the following
 	 * values:
@@ -102,6 +109,7 @@ public class StorageSettings {
 	private boolean myAutoCreatePlaceholderReferenceTargets;
 	private Integer myBundleBatchPoolSize = DEFAULT_BUNDLE_BATCH_POOL_SIZE;
 	private Integer myBundleBatchMaxPoolSize = DEFAULT_BUNDLE_BATCH_MAX_POOL_SIZE;
+	private int myBundleBatchMaxGroupSize = DEFAULT_BUNDLE_BATCH_MAX_GROUP_SIZE;
 	private boolean myMassIngestionMode;
 	private Integer myMaximumTransactionBundleSize = DEFAULT_MAXIMUM_TRANSACTION_BUNDLE_SIZE;
 	private TagStorageModeEnum myTagStorageMode = DEFAULT_TAG_STORAGE_MODE;
@@ -255,6 +263,45 @@ public class StorageSettings {
 		this.myBundleBatchMaxPoolSize = theBundleBatchMaxPoolSize;
 	}
 
+	/**
+	 * When processing a FHIR batch Bundle, this is the maximum number of compatible entries
+	 * which are grouped together and processed in a single database transaction. Entries
+	 * are compatible if they create resources of the same type (conditionally or not) using
+	 * distinct conditional URLs, and do not reference any placeholder IDs. If a group fails,
+	 * its entries are processed again one at a time so that each entry gets its own outcome.
+	 * The response contains one entry per request entry, in the same order, regardless of
+	 * grouping.
+	 * <p>
+	 * Default is {@link #DEFAULT_BUNDLE_BATCH_MAX_GROUP_SIZE}, meaning that each entry is processed
+	 * in its own database transaction.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public int getBundleBatchMaxGroupSize() {
+		return myBundleBatchMaxGroupSize;
+	}
+
+	/**
+	 * When processing a FHIR batch Bundle, this is the maximum number of compatible entries
+	 * which are grouped together and processed in a single database transaction. Entries
+	 * are compatible if they create resources of the same type (conditionally or not) using
+	 * distinct conditional URLs, and do not reference any placeholder IDs. If a group fails,
+	 * its entries are processed again one at a time so that each entry gets its own outcome.
+	 * The response contains one entry per request entry, in the same order, regardless of
+	 * grouping.
+	 * <p>
+	 * Default is {@link #DEFAULT_BUNDLE_BATCH_MAX_GROUP_SIZE}, meaning that each entry is processed
+	 * in its own database transaction.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setBundleBatchMaxGroupSize(int theBundleBatchMaxGroupSize) {
+		Validate.isTrue(theBundleBatchMaxGroupSize > 0, "theBundleBatchMaxGroupSize must be greater than 0");
+		myBundleBatchMaxGroupSize = theBundleBatchMaxGroupSize;
+	}
+
 	/**
 	 * If set to {@link IndexEnabledEnum#DISABLED} (default is {@link IndexEnabledEnum#DISABLED})
 	 * the server will not create search indexes for search parameters with no values in resources.
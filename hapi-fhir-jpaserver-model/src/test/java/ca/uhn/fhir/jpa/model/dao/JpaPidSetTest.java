@@ -0,0 +1,204 @@
+package ca.uhn.fhir.jpa.model.dao;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static ca.uhn.fhir.jpa.model.dao.JpaPid.fromId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JpaPidSetTest {
+	private static final Logger ourLog = LoggerFactory.getLogger(JpaPidSetTest.class);
+
+	@Test
+	void testAddAndContains() {
+		JpaPidSet set = new JpaPidSet();
+		assertTrue(set.add(fromId(1L, 3)));
+		assertTrue(set.add(fromId(2L)));
+		assertFalse(set.add(fromId(1L, 4)));
+
+		assertEquals(2, set.size());
+		assertTrue(set.contains(fromId(1L)));
+		assertTrue(set.contains(2L));
+		assertFalse(set.contains(fromId(3L)));
+		assertFalse(set.contains("1"));
+
+		// The partition ID of the first added element is retained
+		assertThat(set).containsExactlyInAnyOrder(fromId(1L), fromId(2L));
+		assertThat(set.stream().filter(t -> t.getId() == 1L).findFirst().orElseThrow().getPartitionId()).isEqualTo(3);
+		assertThat(set.stream().filter(t -> t.getId() == 2L).findFirst().orElseThrow().getPartitionId()).isNull();
+	}
+
+	@Test
+	void testZeroAndNegativeIds() {
+		JpaPidSet set = new JpaPidSet();
+		assertTrue(set.add(fromId(0L, 1)));
+		assertTrue(set.add(fromId(-5L)));
+		assertFalse(set.add(fromId(0L)));
+
+		assertEquals(2, set.size());
+		assertThat(set).containsExactlyInAnyOrder(fromId(0L), fromId(-5L));
+		assertArrayEquals(new long[]{-5L, 0L}, sortedIds(set));
+
+		assertTrue(set.remove(fromId(0L)));
+		assertFalse(set.contains(0L));
+		assertEquals(1, set.size());
+	}
+
+	@Test
+	void testMatchesHashSet() {
+		Random random = new Random(12345);
+		JpaPidSet set = new JpaPidSet();
+		Set<Long> expected = new HashSet<>();
+		for (int i = 0; i < 200000; i++) {
+			// A small range so that there are plenty of collisions and removals
+			long id = random.nextInt(20000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(id), set.remove(id));
+			} else {
+				assertEquals(expected.add(id), set.add(id, null));
+			}
+		}
+
+		assertEquals(expected.size(), set.size());
+		for (long id = 0; id < 20000; id++) {
+			assertEquals(expected.contains(id), set.contains(id), "ID " + id);
+		}
+		assertArrayEquals(expected.stream().mapToLong(t -> t).sorted().toArray(), sortedIds(set));
+		assertEquals(new HashSet<>(JpaPid.fromLongList(expected)), set);
+	}
+
+	@Test
+	void testRemoveThroughIteratorMatchesHashSet() {
+		Random random = new Random(12345);
+		for (int pass = 0; pass < 1000; pass++) {
+			// A small set with a dense range of IDs, so that probe sequences wrap around the table
+			JpaPidSet set = new JpaPidSet();
+			Set<Long> expected = new HashSet<>();
+			for (int i = 0; i < 40; i++) {
+				long id = random.nextInt(60);
+				set.add(id, (int) id);
+				expected.add(id);
+			}
+
+			int modulus = 2 + random.nextInt(3);
+			Set<Long> returned = new HashSet<>();
+			for (Iterator<JpaPid> iterator = set.iterator(); iterator.hasNext(); ) {
+				JpaPid next = iterator.next();
+				assertTrue(returned.add(next.getId()), "ID returned twice: " + next.getId());
+				assertEquals(next.getId().intValue(), next.getPartitionId());
+				if (next.getId() % modulus == 0) {
+					iterator.remove();
+					assertThrows(IllegalStateException.class, iterator::remove);
+				}
+			}
+			assertEquals(expected, returned);
+
+			expected.removeIf(t -> t % modulus == 0);
+			assertArrayEquals(expected.stream().mapToLong(t -> t).sorted().toArray(), sortedIds(set));
+			for (long id = 0; id < 60; id++) {
+				assertEquals(expected.contains(id), set.contains(id), "ID " + id);
+			}
+		}
+	}
+
+	@Test
+	void testBulkRemovalMethods() {
+		JpaPidSet set = new JpaPidSet(JpaPid.fromLongList(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L)));
+
+		assertTrue(set.removeIf(t -> t.getId() == 0L || t.getId() == 6L));
+		assertThat(set).containsExactlyInAnyOrder(fromId(1L), fromId(2L), fromId(3L), fromId(4L), fromId(5L));
+
+		assertTrue(set.retainAll(List.of(fromId(1L), fromId(2L), fromId(3L), fromId(4L))));
+		assertThat(set).containsExactlyInAnyOrder(fromId(1L), fromId(2L), fromId(3L), fromId(4L));
+
+		// A larger argument than the set makes AbstractSet remove through the iterator
+		assertTrue(set.removeAll(JpaPid.fromLongList(List.of(1L, 2L, 7L, 8L, 9L, 10L))));
+		assertThat(set).containsExactlyInAnyOrder(fromId(3L), fromId(4L));
+	}
+
+	@Test
+	void testCopyConstructorAndClear() {
+		JpaPidSet set = new JpaPidSet(List.of(fromId(1L), fromId(2L), fromId(1L)));
+		assertEquals(2, set.size());
+
+		set.clear();
+		assertTrue(set.isEmpty());
+		assertFalse(set.iterator().hasNext());
+		assertTrue(set.add(fromId(1L)));
+	}
+
+	@Test
+	void testModificationDuringIteration() {
+		JpaPidSet set = new JpaPidSet(List.of(fromId(1L), fromId(2L)));
+		Iterator<JpaPid> iterator = set.iterator();
+		iterator.next();
+		set.add(fromId(3L));
+		assertThrows(ConcurrentModificationException.class, iterator::next);
+		assertThrows(IllegalStateException.class, () -> set.iterator().remove());
+	}
+
+	/**
+	 * Compares the heap allocated while building a large set of PIDs using a
+	 * {@link HashSet} and a {@link JpaPidSet}. This is a benchmark rather than
+	 * a test, so it is disabled by default.
+	 */
+	@Test
+	@Disabled
+	void testBenchmarkAllocation() {
+		int count = 1000000;
+		List<Long> ids = new ArrayList<>(count);
+		for (long i = 0; i < count; i++) {
+			ids.add(1000000L + i * 7);
+		}
+
+		for (int pass = 0; pass < 3; pass++) {
+			logAllocation("HashSet", ids, HashSet::new);
+			logAllocation("JpaPidSet", ids, JpaPidSet::new);
+		}
+	}
+
+	private static void logAllocation(String theName, List<Long> theIds, Supplier<Set<JpaPid>> theSetSupplier) {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		System.gc();
+		long usedBefore = usedMemory();
+		long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+
+		// Use a new JpaPid for each element, as the search and include paths do
+		Set<JpaPid> set = theSetSupplier.get();
+		for (Long next : theIds) {
+			set.add(fromId(next, 1));
+		}
+
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		System.gc();
+		long retained = usedMemory() - usedBefore;
+		ourLog.info("{}: {} PIDs, {} MB allocated, approximately {} MB retained", theName, set.size(), allocated / (1024 * 1024), retained / (1024 * 1024));
+	}
+
+	private static long[] sortedIds(Set<JpaPid> theSet) {
+		return theSet.stream().mapToLong(JpaPid::getId).sorted().toArray();
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -235,6 +235,28 @@ public final class ResourceIndexedSearchParams {
 		return myPopulatedResourceLinkParameters;
 	}
 
+	/**
+	 * Adds all of the indexes in the given instance to this instance
+	 *
+	 * @since 8.8.0
+	 */
+	public void addAll(ResourceIndexedSearchParams theParams) {
+		myStringParams.addAll(theParams.myStringParams);
+		myTokenParams.addAll(theParams.myTokenParams);
+		myNumberParams.addAll(theParams.myNumberParams);
+		myQuantityParams.addAll(theParams.myQuantityParams);
+		myQuantityNormalizedParams.addAll(theParams.myQuantityNormalizedParams);
+		myDateParams.addAll(theParams.myDateParams);
+		myUriParams.addAll(theParams.myUriParams);
+		myCoordsParams.addAll(theParams.myCoordsParams);
+		myComboStringUniques.addAll(theParams.myComboStringUniques);
+		myComboTokenNonUnique.addAll(theParams.myComboTokenNonUnique);
+		myLinks.addAll(theParams.myLinks);
+		mySearchParamPresentEntities.addAll(theParams.mySearchParamPresentEntities);
+		myCompositeParams.addAll(theParams.myCompositeParams);
+		myPopulatedResourceLinkParameters.addAll(theParams.myPopulatedResourceLinkParameters);
+	}
+
 	public boolean matchParam(
 			StorageSettings theStorageSettings,
 			String theResourceName,
@@ -70,6 +70,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -83,6 +84,8 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class SearchParamExtractorService {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(SearchParamExtractorService.class);
+	private static final String PRE_EXTRACTED_SEARCH_PARAMS_KEY =
+			SearchParamExtractorService.class.getName() + "_PRE_EXTRACTED_SEARCH_PARAMS";
 
 	@Autowired
 	private ISearchParamExtractor mySearchParamExtractor;
@@ -144,9 +147,15 @@ public class SearchParamExtractorService {
 		myContext.newTerser().containResources(theResource, null, true);
 
 		// All search parameter types except Reference
-		ResourceIndexedSearchParams normalParams = ResourceIndexedSearchParams.withSets();
-		getExtractionUtil()
-				.extractSearchIndexParameters(theRequestDetails, normalParams, theResource, theSearchParamFilter);
+		ResourceIndexedSearchParams normalParams = null;
+		if (theSearchParamFilter == ISearchParamExtractor.ALL_PARAMS) {
+			normalParams = removePreExtractedSearchParams(theTransactionDetails, theResource);
+		}
+		if (normalParams == null) {
+			normalParams = ResourceIndexedSearchParams.withSets();
+			getExtractionUtil()
+					.extractSearchIndexParameters(theRequestDetails, normalParams, theResource, theSearchParamFilter);
+		}
 		mergeParams(normalParams, theNewParams);
 
 		// Reference search parameters
@@ -231,6 +240,58 @@ public class SearchParamExtractorService {
 		theNewParams.setUpdatedTime(theTransactionDetails.getTransactionDate());
 	}
 
+	/**
+	 * Extracts the indexes for all search parameters except reference search parameters from
+	 * the given resource. These are the indexes which depend only on the contents of the resource,
+	 * so this method may be called on any thread as long as no other thread is modifying the
+	 * resource. Contained resources are cleaned up the same way as in
+	 * {@link #extractFromResource(RequestPartitionId, RequestDetails, ResourceIndexedSearchParams, ResourceIndexedSearchParams, ResourceTable, IBaseResource, TransactionDetails, boolean, ISearchParamExtractor.ISearchParamFilter)},
+	 * so the resource may be modified.
+	 *
+	 * @see #addPreExtractedSearchParams(TransactionDetails, IBaseResource, ResourceIndexedSearchParams)
+	 * @since 8.8.0
+	 */
+	public ResourceIndexedSearchParams extractSearchParamsExceptReferences(
+			RequestDetails theRequestDetails, IBaseResource theResource) {
+		myContext.newTerser().containResources(theResource, null, true);
+
+		ResourceIndexedSearchParams retVal = ResourceIndexedSearchParams.withSets();
+		getExtractionUtil()
+				.extractSearchIndexParameters(theRequestDetails, retVal, theResource, ISearchParamExtractor.ALL_PARAMS);
+		return retVal;
+	}
+
+	/**
+	 * Stores indexes produced by {@link #extractSearchParamsExceptReferences(RequestDetails, IBaseResource)}
+	 * in the transaction details, so that they are used instead of being extracted again the next time
+	 * all search parameters are extracted from the given resource (compared by identity) within the
+	 * same transaction. The resource must not be modified in the meantime.
+	 *
+	 * @since 8.8.0
+	 */
+	public static void addPreExtractedSearchParams(
+			TransactionDetails theTransactionDetails,
+			IBaseResource theResource,
+			ResourceIndexedSearchParams theSearchParams) {
+		IdentityHashMap<IBaseResource, ResourceIndexedSearchParams> preExtracted =
+				theTransactionDetails.getOrCreateUserData(PRE_EXTRACTED_SEARCH_PARAMS_KEY, IdentityHashMap::new);
+		preExtracted.put(theResource, theSearchParams);
+	}
+
+	@Nullable
+	private static ResourceIndexedSearchParams removePreExtractedSearchParams(
+			@Nullable TransactionDetails theTransactionDetails, IBaseResource theResource) {
+		if (theTransactionDetails == null) {
+			return null;
+		}
+		IdentityHashMap<IBaseResource, ResourceIndexedSearchParams> preExtracted =
+				theTransactionDetails.getUserData(PRE_EXTRACTED_SEARCH_PARAMS_KEY);
+		if (preExtracted == null) {
+			return null;
+		}
+		return preExtracted.remove(theResource);
+	}
+
 	private SearchParamExtractionUtil getExtractionUtil() {
 		if (mySearchParamExtractionUtil == null) {
 			mySearchParamExtractionUtil = new SearchParamExtractionUtil(
@@ -172,13 +172,10 @@ public class InMemoryResourceMatcher {
 		} else {
 			resourceDefinition = myFhirContext.getResourceDefinition(theResource);
 		}
-		SearchParameterMap searchParameterMap;
-		try {
-			searchParameterMap = myMatchUrlService.translateMatchUrl(theCriteria, resourceDefinition);
-		} catch (UnsupportedOperationException e) {
+		SearchParameterMap searchParameterMap = translateCriteria(theCriteria, resourceDefinition);
+		if (searchParameterMap == null) {
 			return InMemoryMatchResult.unsupportedFromReason(InMemoryMatchResult.PARSE_FAIL);
 		}
-		searchParameterMap.clean();
 
 		ResourceIndexedSearchParams relevantSearchParams = null;
 		if (theIndexedSearchParams != null) {
@@ -195,6 +192,40 @@ public class InMemoryResourceMatcher {
 		return match(searchParameterMap, theResource, resourceDefinition, relevantSearchParams);
 	}
 
+	/**
+	 * Tries to perform the match in-memory against the resource held by {@literal theSharedParams}, returning
+	 * UNSUPPORTED if it's not possible. Any search parameters needed by the criteria which have not already
+	 * been extracted for the resource are extracted and added to {@literal theSharedParams}, so that matching
+	 * several criteria against the same resource only extracts each search parameter once.
+	 *
+	 * @since 8.8.0
+	 */
+	public InMemoryMatchResult match(
+			String theCriteria, @Nonnull SharedIndexedSearchParams theSharedParams, RequestDetails theRequestDetails) {
+		IBaseResource resource = theSharedParams.getResource();
+		RuntimeResourceDefinition resourceDefinition = myFhirContext.getResourceDefinition(resource);
+		SearchParameterMap searchParameterMap = translateCriteria(theCriteria, resourceDefinition);
+		if (searchParameterMap == null) {
+			return InMemoryMatchResult.unsupportedFromReason(InMemoryMatchResult.PARSE_FAIL);
+		}
+
+		ResourceIndexedSearchParams searchParams = myIndexedSearchParamExtractor.extractIndexedSearchParams(
+				theSharedParams, searchParameterMap.keySet(), theRequestDetails);
+		return match(searchParameterMap, resource, resourceDefinition, searchParams);
+	}
+
+	@Nullable
+	private SearchParameterMap translateCriteria(String theCriteria, RuntimeResourceDefinition theResourceDefinition) {
+		SearchParameterMap retVal;
+		try {
+			retVal = myMatchUrlService.translateMatchUrl(theCriteria, theResourceDefinition);
+		} catch (UnsupportedOperationException e) {
+			return null;
+		}
+		retVal.clean();
+		return retVal;
+	}
+
 	/**
 	 * @param theCriteria
 	 * @return result.supported() will be true if theCriteria can be evaluated in-memory
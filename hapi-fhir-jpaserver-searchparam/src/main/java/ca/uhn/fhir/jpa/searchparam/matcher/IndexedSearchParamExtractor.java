@@ -30,6 +30,10 @@ import jakarta.annotation.Nonnull;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 public class IndexedSearchParamExtractor {
 	@Autowired
 	private FhirContext myContext;
@@ -63,4 +67,27 @@ public class IndexedSearchParamExtractor {
 				filter);
 		return resourceIndexedSearchParams;
 	}
+
+	/**
+	 * Returns the indexes for the given search parameters on the resource held by {@literal theSharedParams},
+	 * extracting only the search parameters which have not already been extracted into it. The returned
+	 * indexes may also include search parameters other than the requested ones.
+	 *
+	 * @since 8.8.0
+	 */
+	@Nonnull
+	public ResourceIndexedSearchParams extractIndexedSearchParams(
+			SharedIndexedSearchParams theSharedParams, Set<String> theParamNames, RequestDetails theRequest) {
+		Set<String> missingParamNames = new HashSet<>(theParamNames);
+		missingParamNames.removeAll(theSharedParams.getExtractedParamNames());
+		if (!missingParamNames.isEmpty()) {
+			ISearchParamExtractor.ISearchParamFilter filter = theSearchParams -> theSearchParams.stream()
+					.filter(t -> missingParamNames.contains(t.getName()))
+					.collect(Collectors.toList());
+			ResourceIndexedSearchParams extracted =
+					extractIndexedSearchParams(theSharedParams.getResource(), theRequest, filter);
+			theSharedParams.addExtracted(missingParamNames, extracted);
+		}
+		return theSharedParams.getIndexedSearchParams();
+	}
 }
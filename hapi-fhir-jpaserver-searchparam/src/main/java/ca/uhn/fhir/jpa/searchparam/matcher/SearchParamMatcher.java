@@ -46,6 +46,17 @@ public class SearchParamMatcher {
 		return myInMemoryResourceMatcher.match(theCriteria, theResource, null, theRequest);
 	}
 
+	/**
+	 * Matches the resource held by {@literal theSharedParams}, reusing any search parameter indexes which
+	 * have already been extracted for it.
+	 *
+	 * @since 8.8.0
+	 */
+	public InMemoryMatchResult match(
+			String theCriteria, SharedIndexedSearchParams theSharedParams, RequestDetails theRequest) {
+		return myInMemoryResourceMatcher.match(theCriteria, theSharedParams, theRequest);
+	}
+
 	public InMemoryMatchResult match(SearchParameterMap theSearchParameterMap, IBaseResource theResource) {
 		if (theSearchParameterMap.isEmpty()) {
 			return InMemoryMatchResult.successfulMatch();
@@ -0,0 +1,78 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA - Search Parameters
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.searchparam.matcher;
+
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Search parameter indexes for a single resource which are extracted on demand and shared by
+ * everything that matches criteria against that resource (e.g. every subscription and subscription
+ * topic checked for a single resource change), so that each search parameter is only extracted once
+ * no matter how many criteria use it.
+ * <p>
+ * Instances are tied to a single resource instance, are held in memory only, and are not thread safe.
+ * </p>
+ *
+ * @see IndexedSearchParamExtractor#extractIndexedSearchParams(SharedIndexedSearchParams, Set, ca.uhn.fhir.rest.api.server.RequestDetails)
+ * @since 8.8.0
+ */
+public class SharedIndexedSearchParams {
+	private final IBaseResource myResource;
+	private final ResourceIndexedSearchParams myIndexedSearchParams = ResourceIndexedSearchParams.withSets();
+	private final Set<String> myExtractedParamNames = new HashSet<>();
+
+	/**
+	 * Constructor
+	 */
+	public SharedIndexedSearchParams(@Nonnull IBaseResource theResource) {
+		Validate.notNull(theResource, "theResource must not be null");
+		myResource = theResource;
+	}
+
+	@Nonnull
+	public IBaseResource getResource() {
+		return myResource;
+	}
+
+	/**
+	 * Returns the names of the search parameters which have been extracted so far
+	 */
+	@Nonnull
+	public Set<String> getExtractedParamNames() {
+		return Collections.unmodifiableSet(myExtractedParamNames);
+	}
+
+	@Nonnull
+	ResourceIndexedSearchParams getIndexedSearchParams() {
+		return myIndexedSearchParams;
+	}
+
+	void addExtracted(Set<String> theParamNames, ResourceIndexedSearchParams theIndexedSearchParams) {
+		myIndexedSearchParams.addAll(theIndexedSearchParams);
+		myExtractedParamNames.addAll(theParamNames);
+	}
+}
@@ -44,6 +44,7 @@ import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionMatchDe
 import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionMatchingListener;
 import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionRegisteringListener;
 import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionCanonicalizer;
+import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionCriteriaIndexer;
 import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionLoader;
 import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionRegistry;
 import ca.uhn.fhir.jpa.subscription.model.config.SubscriptionModelConfig;
@@ -90,6 +91,11 @@ public class SubscriptionProcessorConfig {
 		return new SubscriptionRegistry();
 	}
 
+	@Bean
+	public SubscriptionCriteriaIndexer subscriptionCriteriaIndexer() {
+		return new SubscriptionCriteriaIndexer();
+	}
+
 	@Bean
 	public SubscriptionDeliveryChannelNamer subscriptionDeliveryChannelNamer() {
 		return new SubscriptionDeliveryChannelNamer();
@@ -72,6 +72,8 @@ public class SubscriptionDeliveringRestHookListener extends BaseSubscriptionDeli
 	@Autowired
 	private DaoRegistry myDaoRegistry;
 
+	private volatile CachedClient myCachedClient;
+
 	/**
 	 * Constructor
 	 */
@@ -272,18 +274,9 @@ public class SubscriptionDeliveringRestHookListener extends BaseSubscriptionDeli
 		}
 
 		// Create the client request
-		myFhirContext.getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
 		IGenericClient client = null;
 		if (isNotBlank(endpointUrl)) {
-			client = myFhirContext.newRestfulGenericClient(endpointUrl);
-
-			// Additional headers specified in the subscription
-			List<String> headers = subscription.getHeaders();
-			for (String next : headers) {
-				if (isNotBlank(next)) {
-					client.registerInterceptor(new SimpleRequestHeaderInterceptor(next));
-				}
-			}
+			client = getOrCreateClient(endpointUrl, subscription.getHeaders());
 		}
 
 		deliverPayload(theMessage, subscription, payloadType, client);
@@ -298,6 +291,31 @@ public class SubscriptionDeliveringRestHookListener extends BaseSubscriptionDeli
 		}
 	}
 
+	/**
+	 * Deliveries for a subscription usually all go to the same endpoint, so rather than building a
+	 * new client for every delivery, the client is reused for as long as the endpoint and headers of
+	 * the subscription are unchanged.
+	 */
+	private IGenericClient getOrCreateClient(String theEndpointUrl, List<String> theHeaders) {
+		CachedClient cachedClient = myCachedClient;
+		if (cachedClient != null && cachedClient.matches(theEndpointUrl, theHeaders)) {
+			return cachedClient.client();
+		}
+
+		myFhirContext.getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+		IGenericClient client = myFhirContext.newRestfulGenericClient(theEndpointUrl);
+
+		// Additional headers specified in the subscription
+		for (String next : theHeaders) {
+			if (isNotBlank(next)) {
+				client.registerInterceptor(new SimpleRequestHeaderInterceptor(next));
+			}
+		}
+
+		myCachedClient = new CachedClient(theEndpointUrl, new ArrayList<>(theHeaders), client);
+		return client;
+	}
+
 	/**
 	 * Sends a POST notification without a payload
 	 */
@@ -347,4 +365,11 @@ public class SubscriptionDeliveringRestHookListener extends BaseSubscriptionDeli
 		}
 		return headers;
 	}
+
+	private record CachedClient(String endpointUrl, List<String> headers, IGenericClient client) {
+
+		private boolean matches(String theEndpointUrl, List<String> theHeaders) {
+			return endpointUrl.equals(theEndpointUrl) && headers.equals(theHeaders);
+		}
+	}
 }
@@ -26,6 +26,7 @@ import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,8 +43,13 @@ public class InMemorySubscriptionMatcher implements ISubscriptionMatcher {
 	@Override
 	public InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg) {
 		try {
+			IBaseResource resource = theMsg.getNewResource(myContext);
+			if (resource == null) {
+				return mySearchParamMatcher.match(theSubscription.getCriteriaString(), resource, null);
+			}
+			// Share the extracted search parameters with the other matchers processing this message
 			return mySearchParamMatcher.match(
-					theSubscription.getCriteriaString(), theMsg.getNewResource(myContext), null);
+					theSubscription.getCriteriaString(), theMsg.getSharedIndexedSearchParams(resource), null);
 		} catch (Exception e) {
 			ourLog.error("Failure in in-memory matcher", e);
 			throw new InternalErrorException(
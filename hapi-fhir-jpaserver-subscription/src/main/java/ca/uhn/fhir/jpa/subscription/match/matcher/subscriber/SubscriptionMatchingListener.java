@@ -19,15 +19,18 @@
  */
 package ca.uhn.fhir.jpa.subscription.match.matcher.subscriber;
 
-import ca.uhn.fhir.broker.api.IMessageListener;
+import ca.uhn.fhir.broker.api.BatchMessageHandlingException;
+import ca.uhn.fhir.broker.api.IBatchMessageListener;
 import ca.uhn.fhir.broker.api.ISendResult;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
+import ca.uhn.fhir.jpa.searchparam.matcher.SharedIndexedSearchParams;
 import ca.uhn.fhir.jpa.subscription.match.matcher.matching.ISubscriptionMatcher;
 import ca.uhn.fhir.jpa.subscription.match.registry.ActiveSubscription;
+import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionCriteriaIndex;
 import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionRegistry;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
@@ -35,18 +38,20 @@ import ca.uhn.fhir.rest.server.messaging.IMessage;
 import ca.uhn.fhir.subscription.api.IResourceModifiedMessagePersistenceSvc;
 import ca.uhn.fhir.util.Logs;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import static ca.uhn.fhir.rest.server.messaging.BaseResourceMessage.OperationTypeEnum.DELETE;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
-public class SubscriptionMatchingListener implements IMessageListener<ResourceModifiedMessage> {
+public class SubscriptionMatchingListener implements IBatchMessageListener<ResourceModifiedMessage> {
 	private static final Logger ourLog = Logs.getSubscriptionTroubleshootingLog();
 
 	public static final String SUBSCRIPTION_MATCHING_CHANNEL_NAME = "subscription-matching";
@@ -88,7 +93,31 @@ public class SubscriptionMatchingListener implements IMessageListener<ResourceMo
 		matchActiveSubscriptionsAndDeliver(msg);
 	}
 
+	/**
+	 * Matches a batch of messages against a single snapshot of the active subscriptions, instead of
+	 * taking a new snapshot for every message
+	 */
+	@Override
+	public void handleMessages(@Nonnull List<IMessage<ResourceModifiedMessage>> theMessages) {
+		ourLog.trace("Handling {} resource modified messages", theMessages.size());
+
+		SubscriptionCriteriaIndex criteriaIndex = mySubscriptionRegistry.getCriteriaIndex();
+		for (int i = 0; i < theMessages.size(); i++) {
+			try {
+				matchActiveSubscriptionsAndDeliver(theMessages.get(i).getPayload(), criteriaIndex);
+			} catch (RuntimeException e) {
+				// Only this message and the ones after it will be redelivered
+				throw new BatchMessageHandlingException(i, e);
+			}
+		}
+	}
+
 	public void matchActiveSubscriptionsAndDeliver(ResourceModifiedMessage theMsg) {
+		matchActiveSubscriptionsAndDeliver(theMsg, null);
+	}
+
+	private void matchActiveSubscriptionsAndDeliver(
+			ResourceModifiedMessage theMsg, @Nullable SubscriptionCriteriaIndex theCriteriaIndex) {
 		switch (theMsg.getOperationType()) {
 			case CREATE:
 			case UPDATE:
@@ -118,22 +147,45 @@ public class SubscriptionMatchingListener implements IMessageListener<ResourceMo
 		}
 
 		try {
-			doMatchActiveSubscriptionsAndDeliver(theMsg);
+			SubscriptionCriteriaIndex criteriaIndex = theCriteriaIndex;
+			if (criteriaIndex == null) {
+				criteriaIndex = mySubscriptionRegistry.getCriteriaIndex();
+			}
+			doMatchActiveSubscriptionsAndDeliver(theMsg, getCandidateSubscriptions(theMsg, criteriaIndex));
 		} finally {
 			// Interceptor call: SUBSCRIPTION_AFTER_PERSISTED_RESOURCE_CHECKED
 			myInterceptorBroadcaster.callHooks(Pointcut.SUBSCRIPTION_AFTER_PERSISTED_RESOURCE_CHECKED, params);
 		}
 	}
 
-	private void doMatchActiveSubscriptionsAndDeliver(ResourceModifiedMessage theMsg) {
+	/**
+	 * Returns the subscriptions which may match the message, so that the others don't need to be evaluated
+	 */
+	private Collection<ActiveSubscription> getCandidateSubscriptions(
+			ResourceModifiedMessage theMsg, SubscriptionCriteriaIndex theCriteriaIndex) {
+		if (isNotBlank(theMsg.getSubscriptionId())) {
+			ActiveSubscription subscription = theCriteriaIndex.get(theMsg.getSubscriptionId());
+			return subscription != null ? List.of(subscription) : List.of();
+		}
+
 		IIdType resourceId = theMsg.getPayloadId(myFhirContext);
+		String resourceType = resourceId != null ? resourceId.getResourceType() : null;
+		// Deletes are not pruned, since the criteria are not evaluated against a current version
+		IBaseResource resource = theMsg.getOperationType() == DELETE ? null : theMsg.getNewResource(myFhirContext);
+		// The extracted search parameters are shared with the matchers which evaluate the candidates
+		SharedIndexedSearchParams sharedParams =
+				resource != null ? theMsg.getSharedIndexedSearchParams(resource) : null;
+		return theCriteriaIndex.getCandidates(resourceType, sharedParams);
+	}
 
-		Collection<ActiveSubscription> subscriptions = mySubscriptionRegistry.getAllNonTopicSubscriptions();
+	private void doMatchActiveSubscriptionsAndDeliver(
+			ResourceModifiedMessage theMsg, Collection<ActiveSubscription> theSubscriptions) {
+		IIdType resourceId = theMsg.getPayloadId(myFhirContext);
 
-		ourLog.trace("Testing {} subscriptions for applicability", subscriptions.size());
+		ourLog.trace("Testing {} subscriptions for applicability", theSubscriptions.size());
 		boolean anySubscriptionsMatchedResource = false;
 
-		for (ActiveSubscription nextActiveSubscription : subscriptions) {
+		for (ActiveSubscription nextActiveSubscription : theSubscriptions) {
 			anySubscriptionsMatchedResource |= processSubscription(theMsg, resourceId, nextActiveSubscription)
 					.isSuccessful();
 		}
@@ -165,7 +217,6 @@ public class SubscriptionMatchingListener implements IMessageListener<ResourceMo
 
 		if (isNotBlank(theMsg.getSubscriptionId())) {
 			if (!theMsg.getSubscriptionId().equals(nextSubscriptionId)) {
-				// TODO KHS we should use a hash to look it up instead of this full table scan
 				ourLog.debug(
 						"Ignoring subscription {} because it is not {}",
 						nextSubscriptionId,
@@ -25,6 +25,8 @@ import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscriptionChannelType;
 import ca.uhn.fhir.jpa.subscription.model.ChannelRetryConfiguration;
 import ca.uhn.fhir.model.primitive.IdDt;
 
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class ActiveSubscription {
@@ -38,6 +40,7 @@ public class ActiveSubscription {
 
 	private ChannelRetryConfiguration myRetryConfigurationParameters;
 	private final AtomicLong myDeliveriesCount = new AtomicLong();
+	private volatile List<Set<String>> myCriteriaIndexKeys;
 
 	public ActiveSubscription(CanonicalSubscription theSubscription, String theChannelName) {
 		myChannelName = theChannelName;
@@ -56,6 +59,22 @@ public class ActiveSubscription {
 	public final void setSubscription(CanonicalSubscription theSubscription) {
 		mySubscription = theSubscription;
 		myCriteria = SubscriptionCriteriaParser.parse(theSubscription.getCriteriaString());
+		myCriteriaIndexKeys = null;
+	}
+
+	/**
+	 * Returns the keys this subscription is filed under in the {@link SubscriptionCriteriaIndex}, as
+	 * one set of alternative keys per indexed AND clause of the criteria, or {@literal null} if the
+	 * criteria can not be indexed.
+	 *
+	 * @see SubscriptionCriteriaIndexer#extractCriteriaKeys(ActiveSubscription)
+	 */
+	List<Set<String>> getCriteriaIndexKeys() {
+		return myCriteriaIndexKeys;
+	}
+
+	void setCriteriaIndexKeys(List<Set<String>> theCriteriaIndexKeys) {
+		myCriteriaIndexKeys = theCriteriaIndexKeys;
 	}
 
 	public String getChannelName() {
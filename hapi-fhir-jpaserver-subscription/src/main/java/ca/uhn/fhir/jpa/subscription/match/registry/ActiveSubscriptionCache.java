@@ -19,6 +19,7 @@
  */
 package ca.uhn.fhir.jpa.subscription.match.registry;
 
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +41,7 @@ class ActiveSubscriptionCache {
 	private static final Logger ourLog = LoggerFactory.getLogger(ActiveSubscriptionCache.class);
 
 	private final Map<String, ActiveSubscription> myCache = new HashMap<>();
+	private SubscriptionCriteriaIndex myCriteriaIndex;
 
 	public synchronized ActiveSubscription get(String theIdPart) {
 		return myCache.get(theIdPart);
@@ -55,6 +57,7 @@ class ActiveSubscriptionCache {
 
 	public synchronized void put(String theSubscriptionId, ActiveSubscription theActiveSubscription) {
 		myCache.put(theSubscriptionId, theActiveSubscription);
+		myCriteriaIndex = null;
 	}
 
 	public synchronized ActiveSubscription remove(String theSubscriptionId) {
@@ -66,9 +69,29 @@ class ActiveSubscriptionCache {
 		}
 
 		myCache.remove(theSubscriptionId);
+		myCriteriaIndex = null;
 		return activeSubscription;
 	}
 
+	/**
+	 * Must be called when a cached subscription is modified in place
+	 */
+	public synchronized void invalidateCriteriaIndex() {
+		myCriteriaIndex = null;
+	}
+
+	/**
+	 * Returns a snapshot of the non-topic subscriptions with their criteria index. The snapshot is
+	 * rebuilt on the first call after the cache has changed, so a burst of registrations only pays
+	 * for a single rebuild.
+	 */
+	public synchronized SubscriptionCriteriaIndex getCriteriaIndex(@Nullable SubscriptionCriteriaIndexer theIndexer) {
+		if (myCriteriaIndex == null) {
+			myCriteriaIndex = new SubscriptionCriteriaIndex(getAllNonTopicSubscriptions(), theIndexer);
+		}
+		return myCriteriaIndex;
+	}
+
 	synchronized List<String> markAllSubscriptionsNotInCollectionForDeletionAndReturnIdsToDelete(
 			Collection<String> theAllIds) {
 		List<String> retval = new ArrayList<>();
@@ -0,0 +1,198 @@
+/*-
+ * #%L
+ * HAPI FHIR Subscription Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+import ca.uhn.fhir.jpa.searchparam.matcher.SharedIndexedSearchParams;
+import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionCriteriaParser;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the active non-topic subscriptions, with an inverted index over their
+ * criteria. Rather than evaluating every subscription against a changed resource, the keys of the
+ * resource are looked up in the index, and only the subscriptions with a key hit on every one of their
+ * indexed AND clauses are returned as candidates, along with any subscriptions which are not indexed.
+ * <p>
+ * Thread-safety: This class is thread-safe.
+ *
+ * @see SubscriptionCriteriaIndexer
+ * @since 8.8.0
+ */
+public class SubscriptionCriteriaIndex {
+	private static final int MAX_INDEXED_CLAUSES = Long.SIZE;
+
+	private final List<ActiveSubscription> myAll;
+	private final Map<String, ActiveSubscription> myById = new HashMap<>();
+	private final List<ActiveSubscription> myAllResourceTypes = new ArrayList<>();
+	private final Map<String, List<ActiveSubscription>> myUnindexedByResourceType = new HashMap<>();
+	private final Map<String, List<ActiveSubscription>> myIndexedByResourceType = new HashMap<>();
+	private final Map<String, Map<String, List<Posting>>> myPostingsByResourceType = new HashMap<>();
+	private final Map<String, Set<String>> myIndexedParamNamesByResourceType = new HashMap<>();
+	private final SubscriptionCriteriaIndexer myIndexer;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theSubscriptions The active non-topic subscriptions
+	 * @param theIndexer       The indexer used to key changed resources, or {@literal null} if no
+	 *                         subscriptions are indexed
+	 */
+	public SubscriptionCriteriaIndex(
+			Collection<ActiveSubscription> theSubscriptions, @Nullable SubscriptionCriteriaIndexer theIndexer) {
+		myAll = List.copyOf(theSubscriptions);
+		myIndexer = theIndexer;
+
+		for (ActiveSubscription next : myAll) {
+			myById.put(next.getId(), next);
+
+			SubscriptionCriteriaParser.SubscriptionCriteria criteria = next.getCriteria();
+			if (criteria == null) {
+				// Never matches anything
+				continue;
+			}
+			if (criteria.getType() == SubscriptionCriteriaParser.TypeEnum.STARTYPE_EXPRESSION) {
+				myAllResourceTypes.add(next);
+				continue;
+			}
+
+			List<Set<String>> keys = theIndexer != null ? next.getCriteriaIndexKeys() : null;
+			for (String nextResourceType : criteria.getApplicableResourceTypes()) {
+				if (keys == null) {
+					myUnindexedByResourceType
+							.computeIfAbsent(nextResourceType, t -> new ArrayList<>())
+							.add(next);
+				} else {
+					addPostings(nextResourceType, next, keys);
+				}
+			}
+		}
+	}
+
+	private void addPostings(String theResourceType, ActiveSubscription theSubscription, List<Set<String>> theKeys) {
+		myIndexedByResourceType
+				.computeIfAbsent(theResourceType, t -> new ArrayList<>())
+				.add(theSubscription);
+
+		Map<String, List<Posting>> postings =
+				myPostingsByResourceType.computeIfAbsent(theResourceType, t -> new HashMap<>());
+		Set<String> paramNames =
+				myIndexedParamNamesByResourceType.computeIfAbsent(theResourceType, t -> new HashSet<>());
+		int clauseCount = Math.min(theKeys.size(), MAX_INDEXED_CLAUSES);
+		long allClauses = clauseCount == Long.SIZE ? -1L : (1L << clauseCount) - 1;
+		for (int i = 0; i < clauseCount; i++) {
+			Posting posting = new Posting(theSubscription, 1L << i, allClauses);
+			for (String nextKey : theKeys.get(i)) {
+				postings.computeIfAbsent(nextKey, t -> new ArrayList<>()).add(posting);
+				paramNames.add(SubscriptionCriteriaIndexer.getParamName(nextKey));
+			}
+		}
+	}
+
+	/**
+	 * Returns all subscriptions in this snapshot
+	 */
+	public Collection<ActiveSubscription> getAll() {
+		return myAll;
+	}
+
+	/**
+	 * Returns the subscription with the given ID, or {@literal null} if it is not in this snapshot
+	 */
+	@Nullable
+	public ActiveSubscription get(String theIdPart) {
+		return myById.get(theIdPart);
+	}
+
+	/**
+	 * Returns the subscriptions which may match a changed resource. Subscriptions for other resource
+	 * types, and indexed subscriptions which can not match the resource, are omitted.
+	 *
+	 * @param theResourceType The type of the changed resource
+	 * @param theSharedParams The search parameter indexes shared by the matchers for the changed resource,
+	 *                        or {@literal null} if the index should not be used to prune the candidates
+	 */
+	@Nonnull
+	public Collection<ActiveSubscription> getCandidates(
+			@Nullable String theResourceType, @Nullable SharedIndexedSearchParams theSharedParams) {
+		if (theResourceType == null) {
+			return myAll;
+		}
+
+		List<ActiveSubscription> unindexed = myUnindexedByResourceType.getOrDefault(theResourceType, List.of());
+		Map<String, List<Posting>> postings = myPostingsByResourceType.get(theResourceType);
+		if (postings == null) {
+			return concat(unindexed, Collections.emptyList());
+		}
+
+		Set<String> resourceKeys = null;
+		if (theSharedParams != null) {
+			resourceKeys = myIndexer.extractResourceKeys(
+					theSharedParams, myIndexedParamNamesByResourceType.get(theResourceType));
+		}
+		if (resourceKeys == null) {
+			return concat(unindexed, myIndexedByResourceType.get(theResourceType));
+		}
+
+		List<ActiveSubscription> matched = new ArrayList<>();
+		Map<ActiveSubscription, Long> matchedClauses = new IdentityHashMap<>();
+		for (String nextKey : resourceKeys) {
+			for (Posting nextPosting : postings.getOrDefault(nextKey, List.of())) {
+				long previous = matchedClauses.getOrDefault(nextPosting.subscription(), 0L);
+				long current = previous | nextPosting.clause();
+				if (current != previous) {
+					matchedClauses.put(nextPosting.subscription(), current);
+					if (current == nextPosting.allClauses()) {
+						matched.add(nextPosting.subscription());
+					}
+				}
+			}
+		}
+		return concat(unindexed, matched);
+	}
+
+	private List<ActiveSubscription> concat(
+			List<ActiveSubscription> theUnindexed, List<ActiveSubscription> theIndexed) {
+		List<ActiveSubscription> retVal =
+				new ArrayList<>(theUnindexed.size() + theIndexed.size() + myAllResourceTypes.size());
+		retVal.addAll(theUnindexed);
+		retVal.addAll(theIndexed);
+		retVal.addAll(myAllResourceTypes);
+		return retVal;
+	}
+
+	/**
+	 * One AND clause of an indexed subscription
+	 *
+	 * @param subscription The subscription
+	 * @param clause       The bit for this clause
+	 * @param allClauses   The bits for all of the indexed clauses of the subscription
+	 */
+	private record Posting(ActiveSubscription subscription, long clause, long allClauses) {}
+}
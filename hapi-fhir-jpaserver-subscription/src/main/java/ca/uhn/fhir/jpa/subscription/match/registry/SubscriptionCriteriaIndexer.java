@@ -0,0 +1,288 @@
+/*-
+ * #%L
+ * HAPI FHIR Subscription Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
+import ca.uhn.fhir.jpa.model.entity.ResourceLink;
+import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
+import ca.uhn.fhir.jpa.searchparam.matcher.IndexedSearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.matcher.SharedIndexedSearchParams;
+import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionCriteriaParser;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Computes the keys used by the {@link SubscriptionCriteriaIndex}. A subscription criteria is indexed
+ * on its plain token and reference parameters, and a changed resource is looked up using the same
+ * keys derived from its extracted search parameters.
+ * <p>
+ * Keys are a superset filter: a subscription whose keys are all found for a resource may still not
+ * match it, but a subscription with an indexed clause that has no key for the resource can never
+ * match it in memory. Any criteria (or resource) that can not be keyed with that guarantee is left
+ * unindexed, and is always evaluated by the matcher.
+ *
+ * @since 8.8.0
+ */
+public class SubscriptionCriteriaIndexer {
+	private static final Logger ourLog = LoggerFactory.getLogger(SubscriptionCriteriaIndexer.class);
+
+	@Autowired
+	private FhirContext myFhirContext;
+
+	@Autowired
+	private MatchUrlService myMatchUrlService;
+
+	@Autowired
+	private ISearchParamRegistry mySearchParamRegistry;
+
+	@Autowired
+	private InMemoryResourceMatcher myInMemoryResourceMatcher;
+
+	@Autowired
+	private IndexedSearchParamExtractor myIndexedSearchParamExtractor;
+
+	@Autowired
+	private SubscriptionSettings mySubscriptionSettings;
+
+	/**
+	 * Returns the index keys for the criteria of the given subscription, as one set of alternative
+	 * keys for each indexed AND clause, or {@literal null} if the criteria can not be indexed.
+	 * Only search expressions which can be evaluated in memory are indexed.
+	 */
+	@Nullable
+	public List<Set<String>> extractCriteriaKeys(ActiveSubscription theActiveSubscription) {
+		SubscriptionCriteriaParser.SubscriptionCriteria criteria = theActiveSubscription.getCriteria();
+		if (criteria == null || criteria.getType() != SubscriptionCriteriaParser.TypeEnum.SEARCH_EXPRESSION) {
+			return null;
+		}
+
+		String criteriaString = criteria.getCriteria();
+		String resourceType = criteria.getApplicableResourceTypes().iterator().next();
+		try {
+			if (!myInMemoryResourceMatcher
+					.canBeEvaluatedInMemory(criteriaString)
+					.supported()) {
+				return null;
+			}
+
+			RuntimeResourceDefinition resourceDefinition = myFhirContext.getResourceDefinition(resourceType);
+			SearchParameterMap searchParameterMap =
+					myMatchUrlService.translateMatchUrl(criteriaString, resourceDefinition);
+			searchParameterMap.clean();
+
+			List<Set<String>> retVal = new ArrayList<>();
+			for (Map.Entry<String, List<List<IQueryParameterType>>> nextEntry : searchParameterMap.entrySet()) {
+				String paramName = nextEntry.getKey();
+				RuntimeSearchParam paramDef = getIndexableSearchParam(resourceType, paramName);
+				if (paramDef == null) {
+					continue;
+				}
+				for (List<IQueryParameterType> nextOrList : nextEntry.getValue()) {
+					Set<String> keys = toCriteriaKeys(paramName, nextOrList);
+					if (keys != null) {
+						retVal.add(keys);
+					}
+				}
+			}
+			return retVal.isEmpty() ? null : retVal;
+		} catch (RuntimeException e) {
+			ourLog.debug(
+					"Unable to index criteria {} of subscription {}: {}",
+					criteriaString,
+					theActiveSubscription.getId(),
+					e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the index keys for the given resource, considering only the given search parameters,
+	 * or {@literal null} if the keys can not be determined and every subscription must be evaluated.
+	 *
+	 * @param theSharedParams The search parameter indexes shared by the matchers for the resource
+	 * @param theParamNames   The names of the search parameters indexed for the resource type
+	 */
+	@Nullable
+	public Set<String> extractResourceKeys(
+			@Nonnull SharedIndexedSearchParams theSharedParams, @Nonnull Set<String> theParamNames) {
+		if (!mySubscriptionSettings.isEnableInMemorySubscriptionMatching()) {
+			return null;
+		}
+
+		// The search parameters may have changed since the criteria were indexed
+		String resourceType = myFhirContext.getResourceType(theSharedParams.getResource());
+		Map<String, List<String>> referencePaths = new HashMap<>();
+		for (String nextParamName : theParamNames) {
+			RuntimeSearchParam paramDef = getIndexableSearchParam(resourceType, nextParamName);
+			if (paramDef == null) {
+				return null;
+			}
+			if (paramDef.getParamType() == RestSearchParameterTypeEnum.REFERENCE) {
+				referencePaths.put(nextParamName, paramDef.getPathsSplitForResourceType(resourceType));
+			}
+		}
+
+		// The shared indexes may also hold other search parameters extracted by earlier matchers
+		ResourceIndexedSearchParams params =
+				myIndexedSearchParamExtractor.extractIndexedSearchParams(theSharedParams, theParamNames, null);
+
+		Set<String> retVal = new HashSet<>();
+		for (ResourceIndexedSearchParamToken next : params.myTokenParams) {
+			if (next.getParamName() == null) {
+				return null;
+			}
+			if (!theParamNames.contains(next.getParamName())) {
+				continue;
+			}
+			retVal.add(valueKey(next.getParamName(), defaultString(next.getValue())));
+			if (next.getSystem() != null) {
+				retVal.add(systemKey(next.getParamName(), next.getSystem()));
+				retVal.add(systemAndValueKey(next.getParamName(), next.getSystem(), defaultString(next.getValue())));
+			}
+		}
+		for (ResourceLink next : params.myLinks) {
+			String targetType = next.getTargetResourceType();
+			String targetId = next.getTargetResourceId();
+			if (isBlank(targetType) || isBlank(targetId)) {
+				continue;
+			}
+			for (Map.Entry<String, List<String>> nextReferenceParam : referencePaths.entrySet()) {
+				if (nextReferenceParam.getValue().stream().anyMatch(t -> t.equalsIgnoreCase(next.getSourcePath()))) {
+					retVal.add(valueKey(nextReferenceParam.getKey(), targetId));
+					retVal.add(valueKey(nextReferenceParam.getKey(), targetType + "/" + targetId));
+				}
+			}
+		}
+		return retVal;
+	}
+
+	@Nullable
+	private RuntimeSearchParam getIndexableSearchParam(String theResourceType, String theParamName) {
+		// _id, _tag, _profile etc. are not matched using the extracted search parameters
+		if (theParamName.startsWith("_")) {
+			return null;
+		}
+		RuntimeSearchParam paramDef = mySearchParamRegistry.getActiveSearchParam(
+				theResourceType, theParamName, ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH);
+		if (paramDef == null) {
+			return null;
+		}
+		switch (paramDef.getParamType()) {
+			case TOKEN:
+			case REFERENCE:
+				return paramDef;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Mirrors the comparison in {@link ResourceIndexedSearchParamToken#matches(IQueryParameterType)} and
+	 * {@link ResourceIndexedSearchParams#matchResourceLinks}. Returns {@literal null} if any of the OR
+	 * values can not be keyed.
+	 */
+	@Nullable
+	private static Set<String> toCriteriaKeys(String theParamName, List<IQueryParameterType> theOrList) {
+		Set<String> retVal = new HashSet<>();
+		for (IQueryParameterType next : theOrList) {
+			if (next.getMissing() != null) {
+				return null;
+			}
+			if (next instanceof TokenParam token) {
+				if (token.getModifier() != null || token.isMdmExpand()) {
+					return null;
+				}
+				String system = token.getSystem();
+				String value = token.getValue();
+				if (isEmpty(system)) {
+					if (isEmpty(value)) {
+						return null;
+					}
+					retVal.add(valueKey(theParamName, value));
+				} else if (isEmpty(value)) {
+					retVal.add(systemKey(theParamName, system));
+				} else {
+					retVal.add(systemAndValueKey(theParamName, system, value));
+				}
+			} else if (next instanceof ReferenceParam reference) {
+				if (isNotBlank(reference.getChain())
+						|| isNotBlank(reference.getBaseUrl())
+						|| reference.isMdmExpand()
+						|| isBlank(reference.getIdPart())) {
+					return null;
+				}
+				if (reference.hasResourceType()) {
+					retVal.add(valueKey(theParamName, reference.getResourceType() + "/" + reference.getIdPart()));
+				} else {
+					retVal.add(valueKey(theParamName, reference.getIdPart()));
+				}
+			} else {
+				return null;
+			}
+		}
+		return retVal;
+	}
+
+	private static String valueKey(String theParamName, String theValue) {
+		return theParamName + "=" + theValue;
+	}
+
+	private static String systemKey(String theParamName, String theSystem) {
+		return theParamName + "=" + theSystem + "|";
+	}
+
+	private static String systemAndValueKey(String theParamName, String theSystem, String theValue) {
+		return theParamName + "=" + theSystem + "|" + theValue;
+	}
+
+	/**
+	 * Returns the search parameter name of an index key
+	 */
+	static String getParamName(String theKey) {
+		return theKey.substring(0, theKey.indexOf('='));
+	}
+}
@@ -62,6 +62,9 @@ public class SubscriptionRegistry {
 	@Autowired
 	private IInterceptorBroadcaster myInterceptorBroadcaster;
 
+	@Autowired(required = false)
+	private SubscriptionCriteriaIndexer mySubscriptionCriteriaIndexer;
+
 	/**
 	 * Constructor
 	 */
@@ -127,6 +130,7 @@ public class SubscriptionRegistry {
 
 		ActiveSubscription activeSubscription = new ActiveSubscription(theCanonicalSubscription, channelName);
 		activeSubscription.setRetryConfiguration(configuration);
+		indexCriteria(activeSubscription);
 
 		// add to our registries
 		mySubscriptionChannelRegistry.add(activeSubscription);
@@ -213,12 +217,21 @@ public class SubscriptionRegistry {
 		Validate.notNull(activeSubscription, "Subscription with ID %s not found in cache", theId.getIdPart());
 		CanonicalSubscription canonicalized = mySubscriptionCanonicalizer.canonicalize(theSubscription);
 		activeSubscription.setSubscription(canonicalized);
+		indexCriteria(activeSubscription);
+		myActiveSubscriptionCache.invalidateCriteriaIndex();
 
 		// Interceptor call: SUBSCRIPTION_AFTER_ACTIVE_SUBSCRIPTION_REGISTERED
 		HookParams params = new HookParams().add(CanonicalSubscription.class, canonicalized);
 		myInterceptorBroadcaster.callHooks(Pointcut.SUBSCRIPTION_AFTER_ACTIVE_SUBSCRIPTION_REGISTERED, params);
 	}
 
+	private void indexCriteria(ActiveSubscription theActiveSubscription) {
+		if (mySubscriptionCriteriaIndexer != null) {
+			theActiveSubscription.setCriteriaIndexKeys(
+					mySubscriptionCriteriaIndexer.extractCriteriaKeys(theActiveSubscription));
+		}
+	}
+
 	private boolean channelTypeSame(
 			CanonicalSubscription theExistingSubscription, CanonicalSubscription theNewSubscription) {
 		return theExistingSubscription.getChannelType().equals(theNewSubscription.getChannelType());
@@ -231,4 +244,15 @@ public class SubscriptionRegistry {
 	public List<ActiveSubscription> getAllNonTopicSubscriptions() {
 		return myActiveSubscriptionCache.getAllNonTopicSubscriptions();
 	}
+
+	/**
+	 * Returns a snapshot of the active non-topic subscriptions, indexed by their criteria so that
+	 * the subscriptions which may match a changed resource can be looked up without evaluating
+	 * every subscription.
+	 *
+	 * @since 8.8.0
+	 */
+	public SubscriptionCriteriaIndex getCriteriaIndex() {
+		return myActiveSubscriptionCache.getCriteriaIndex(mySubscriptionCriteriaIndexer);
+	}
 }
@@ -21,7 +21,7 @@ package ca.uhn.fhir.jpa.topic;
 
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
-import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r5.model.SubscriptionTopic;
 
@@ -30,12 +30,12 @@ import java.util.List;
 public class SubscriptionTopicMatcher {
 	private final SubscriptionTopicSupport mySubscriptionTopicSupport;
 	private final SubscriptionTopic myTopic;
-	private final MemoryCacheService myMemoryCacheService;
+	private final IMemoryCacheService myMemoryCacheService;
 
 	public SubscriptionTopicMatcher(
 			SubscriptionTopicSupport theSubscriptionTopicSupport,
 			SubscriptionTopic theTopic,
-			MemoryCacheService memoryCacheService) {
+			IMemoryCacheService memoryCacheService) {
 		mySubscriptionTopicSupport = theSubscriptionTopicSupport;
 		myTopic = theTopic;
 		myMemoryCacheService = memoryCacheService;
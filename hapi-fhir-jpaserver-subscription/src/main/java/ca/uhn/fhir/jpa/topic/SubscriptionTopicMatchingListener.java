@@ -27,7 +27,7 @@ import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
 import ca.uhn.fhir.jpa.topic.filter.InMemoryTopicFilterMatcher;
-import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.server.messaging.IMessage;
 import ca.uhn.fhir.subscription.api.IResourceModifiedMessagePersistenceSvc;
@@ -66,9 +66,9 @@ public class SubscriptionTopicMatchingListener implements IMessageListener<Resou
 	@Autowired
 	private IResourceModifiedMessagePersistenceSvc myResourceModifiedMessagePersistenceSvc;
 
-	private MemoryCacheService myMemoryCacheService;
+	private IMemoryCacheService myMemoryCacheService;
 
-	public SubscriptionTopicMatchingListener(FhirContext theFhirContext, MemoryCacheService memoryCacheService) {
+	public SubscriptionTopicMatchingListener(FhirContext theFhirContext, IMemoryCacheService memoryCacheService) {
 		myFhirContext = theFhirContext;
 		this.myMemoryCacheService = memoryCacheService;
 	}
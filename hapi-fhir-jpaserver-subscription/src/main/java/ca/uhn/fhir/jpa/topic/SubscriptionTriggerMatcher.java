@@ -24,7 +24,10 @@ import ca.uhn.fhir.fhirpath.IFhirPathEvaluationContext;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
+import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
+import ca.uhn.fhir.jpa.searchparam.matcher.SharedIndexedSearchParams;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
+import ca.uhn.fhir.jpa.util.IMemoryCacheService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.rest.server.messaging.BaseResourceMessage;
@@ -51,20 +54,22 @@ public class SubscriptionTriggerMatcher {
 	private final SubscriptionTopic.SubscriptionTopicResourceTriggerComponent myTrigger;
 	private final String myResourceName;
 	private final IBaseResource myResource;
+	private final SharedIndexedSearchParams mySharedIndexedSearchParams;
 	private final IFhirResourceDao myDao;
 	private final PreviousVersionReader myPreviousVersionReader;
 	private final SystemRequestDetails mySrd;
-	private final MemoryCacheService myMemoryCacheService;
+	private final IMemoryCacheService myMemoryCacheService;
 
 	public SubscriptionTriggerMatcher(
 			SubscriptionTopicSupport theSubscriptionTopicSupport,
 			ResourceModifiedMessage theMsg,
 			SubscriptionTopic.SubscriptionTopicResourceTriggerComponent theTrigger,
-			MemoryCacheService theMemoryCacheService) {
+			IMemoryCacheService theMemoryCacheService) {
 		mySubscriptionTopicSupport = theSubscriptionTopicSupport;
 		myOperation = theMsg.getOperationType();
 		myResource = theMsg.getResource(theSubscriptionTopicSupport.getFhirContext());
 		myResourceName = myResource.fhirType();
+		mySharedIndexedSearchParams = theMsg.getSharedIndexedSearchParams(myResource);
 		myDao = mySubscriptionTopicSupport.getDaoRegistry().getResourceDao(myResourceName);
 		myTrigger = theTrigger;
 		myPreviousVersionReader = new PreviousVersionReader(myDao);
@@ -205,8 +210,14 @@ public class SubscriptionTriggerMatcher {
 	}
 
 	private InMemoryMatchResult matchResource(IBaseResource theResource, String theCriteria) {
-		InMemoryMatchResult result =
-				mySubscriptionTopicSupport.getSearchParamMatcher().match(theCriteria, theResource, mySrd);
+		SearchParamMatcher searchParamMatcher = mySubscriptionTopicSupport.getSearchParamMatcher();
+		InMemoryMatchResult result;
+		if (theResource == myResource) {
+			// Share the extracted search parameters with the other matchers processing this message
+			result = searchParamMatcher.match(theCriteria, mySharedIndexedSearchParams, mySrd);
+		} else {
+			result = searchParamMatcher.match(theCriteria, theResource, mySrd);
+		}
 		if (!result.supported()) {
 			ourLog.warn(
 					"Subscription topic {} has a query criteria that is not supported in-memory: {}",
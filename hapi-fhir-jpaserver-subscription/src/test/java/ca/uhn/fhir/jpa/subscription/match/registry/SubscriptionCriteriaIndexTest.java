@@ -0,0 +1,293 @@
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
+import ca.uhn.fhir.jpa.searchparam.matcher.SharedIndexedSearchParams;
+import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
+import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
+import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
+import ca.uhn.fhir.jpa.subscription.module.BaseSubscriptionDstu3Test;
+import ca.uhn.fhir.rest.server.messaging.BaseResourceMessage;
+import ca.uhn.fhir.util.StopWatch;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.dstu3.model.Subscription;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SubscriptionCriteriaIndexTest extends BaseSubscriptionDstu3Test {
+	private static final Logger ourLog = LoggerFactory.getLogger(SubscriptionCriteriaIndexTest.class);
+	private static final String LOINC = "http://loinc.org";
+
+	@Autowired
+	private FhirContext myFhirContext;
+	@Autowired
+	private SubscriptionCriteriaIndexer mySubscriptionCriteriaIndexer;
+	@Autowired
+	private SearchParamMatcher mySearchParamMatcher;
+	@Autowired
+	private SubscriptionSettings mySubscriptionSettings;
+
+	private int myNextId;
+
+	@AfterEach
+	public void after() {
+		mySubscriptionSettings.setEnableInMemorySubscriptionMatching(new SubscriptionSettings().isEnableInMemorySubscriptionMatching());
+	}
+
+	@Test
+	public void testCriteriaKeys() {
+		assertThat(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("Observation?code=" + LOINC + "|1234-5&subject=Patient/123")))
+			.containsExactlyInAnyOrder(Set.of("code=" + LOINC + "|1234-5"), Set.of("subject=Patient/123"));
+		assertThat(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("Observation?code=1234-5,5678-9")))
+			.containsExactly(Set.of("code=1234-5", "code=5678-9"));
+		assertThat(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("Observation?code=" + LOINC + "|&status=final&code:not=1234-5")))
+			.containsExactlyInAnyOrder(Set.of("code=" + LOINC + "|"), Set.of("status=final"));
+
+		// Not indexable
+		assertNull(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("Observation?code:not=1234-5")));
+		assertNull(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("Observation?value-string=foo")));
+		assertNull(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("Observation?_id=123")));
+		assertNull(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("Observation?subject.name=Simpson")));
+		assertNull(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("Observation?")));
+		assertNull(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("[Observation,Patient]")));
+		assertNull(mySubscriptionCriteriaIndexer.extractCriteriaKeys(createSubscription("[*]")));
+	}
+
+	@Test
+	public void testCandidatesAreSupersetOfMatches() {
+		List<ActiveSubscription> subscriptions = new ArrayList<>();
+		for (String next : List.of(
+			"Observation?code=1234-5",
+			"Observation?code=" + LOINC + "|1234-5",
+			"Observation?code=http://other|1234-5",
+			"Observation?code=" + LOINC + "|",
+			"Observation?code=5678-9",
+			"Observation?code=5678-9,1234-5",
+			"Observation?code=1234-5&subject=Patient/123",
+			"Observation?code=1234-5&subject=Patient/456",
+			"Observation?code=1234-5&subject=123",
+			"Observation?code=1234-5&subject=Group/123",
+			"Observation?subject:Patient=123",
+			"Observation?code:not=5678-9",
+			"Observation?code=1234-5&code=5678-9",
+			"Observation?status=final",
+			"Observation?status=final&code=1234-5",
+			"Observation?value-string=foo",
+			"Observation?",
+			"[Observation]",
+			"[*]",
+			"Patient?identifier=1234-5")) {
+			subscriptions.add(createSubscription(next));
+		}
+		SubscriptionCriteriaIndex index = new SubscriptionCriteriaIndex(subscriptions, mySubscriptionCriteriaIndexer);
+
+		Observation observation = new Observation();
+		observation.setId("Observation/O1");
+		observation.setStatus(Observation.ObservationStatus.FINAL);
+		observation.getCode().addCoding().setSystem(LOINC).setCode("1234-5");
+		observation.getSubject().setReference("Patient/123");
+
+		List<String> candidates = toCriteria(index.getCandidates("Observation", new SharedIndexedSearchParams(observation)));
+		assertThat(candidates).containsExactlyInAnyOrder(
+			"Observation?code=1234-5",
+			"Observation?code=" + LOINC + "|1234-5",
+			"Observation?code=" + LOINC + "|",
+			"Observation?code=5678-9,1234-5",
+			"Observation?code=1234-5&subject=Patient/123",
+			"Observation?code=1234-5&subject=123",
+			"Observation?subject:Patient=123",
+			"Observation?code:not=5678-9",
+			"Observation?status=final",
+			"Observation?status=final&code=1234-5",
+			"Observation?value-string=foo",
+			"Observation?",
+			"[Observation]",
+			"[*]");
+
+		// Every subscription which matches in memory must be a candidate
+		for (ActiveSubscription next : subscriptions) {
+			String criteria = next.getSubscription().getCriteriaString();
+			if (criteria.startsWith("Observation?") && mySearchParamMatcher.match(criteria, observation, null).matched()) {
+				assertThat(candidates).contains(criteria);
+			}
+		}
+
+		// Without a resource, nothing for the resource type is pruned
+		assertEquals(19, index.getCandidates("Observation", null).size());
+		assertThat(toCriteria(index.getCandidates("Patient", null))).containsExactlyInAnyOrder("Patient?identifier=1234-5", "[*]");
+		assertEquals(20, index.getCandidates(null, null).size());
+	}
+
+	@Test
+	public void testInMemoryMatchingDisabled_NothingPruned() {
+		List<ActiveSubscription> subscriptions = List.of(
+			createSubscription("Observation?code=1234-5"),
+			createSubscription("Observation?code=5678-9"));
+		SubscriptionCriteriaIndex index = new SubscriptionCriteriaIndex(subscriptions, mySubscriptionCriteriaIndexer);
+		Observation observation = new Observation();
+		observation.getCode().addCoding().setCode("1234-5");
+
+		assertThat(index.getCandidates("Observation", new SharedIndexedSearchParams(observation))).hasSize(1);
+
+		mySubscriptionSettings.setEnableInMemorySubscriptionMatching(false);
+		assertThat(index.getCandidates("Observation", new SharedIndexedSearchParams(observation))).hasSize(2);
+	}
+
+	@Test
+	public void testRegistryIndexesSubscriptions() {
+		mySubscriptionRegistry.unregisterAllSubscriptions();
+		Subscription subscription = new Subscription();
+		subscription.setId("Subscription/criteria-index");
+		subscription.setStatus(Subscription.SubscriptionStatus.ACTIVE);
+		subscription.setCriteria("Observation?code=1234-5");
+		subscription.getChannel().setType(Subscription.SubscriptionChannelType.RESTHOOK).setEndpoint("http://localhost").setPayload("application/fhir+json");
+		mySubscriptionRegistry.registerSubscriptionUnlessAlreadyRegistered(subscription);
+		try {
+			ActiveSubscription activeSubscription = mySubscriptionRegistry.get("criteria-index");
+			assertNotNull(activeSubscription.getCriteriaIndexKeys());
+
+			Observation observation = new Observation();
+			observation.getCode().addCoding().setCode("1234-5");
+			assertThat(mySubscriptionRegistry.getCriteriaIndex().getCandidates("Observation", new SharedIndexedSearchParams(observation))).containsExactly(activeSubscription);
+
+			// Updating the criteria in place rebuilds the index
+			subscription.setCriteria("Observation?code=5678-9");
+			mySubscriptionRegistry.registerSubscriptionUnlessAlreadyRegistered(subscription);
+			assertThat(mySubscriptionRegistry.getCriteriaIndex().getCandidates("Observation", new SharedIndexedSearchParams(observation))).isEmpty();
+		} finally {
+			mySubscriptionRegistry.unregisterAllSubscriptions();
+		}
+	}
+
+	@Test
+	public void testSharedIndexedSearchParams() {
+		Observation observation = createObservation(123);
+		observation.setStatus(Observation.ObservationStatus.FINAL);
+		ResourceModifiedMessage msg = new ResourceModifiedMessage(myFhirContext, observation, BaseResourceMessage.OperationTypeEnum.CREATE, RequestPartitionId.defaultPartition());
+		IBaseResource resource = msg.getNewResource(myFhirContext);
+		SharedIndexedSearchParams sharedParams = msg.getSharedIndexedSearchParams(resource);
+		assertSame(sharedParams, msg.getSharedIndexedSearchParams(resource));
+		assertThat(sharedParams.getExtractedParamNames()).isEmpty();
+
+		// The index lookup and every matcher add to the same extracted search parameters
+		SubscriptionCriteriaIndex index = new SubscriptionCriteriaIndex(List.of(createSubscription("Observation?code=" + LOINC + "|1234-5")), mySubscriptionCriteriaIndexer);
+		assertThat(index.getCandidates("Observation", sharedParams)).hasSize(1);
+		assertThat(sharedParams.getExtractedParamNames()).containsExactly("code");
+
+		for (String next : List.of(
+			"Observation?code=" + LOINC + "|1234-5",
+			"Observation?code=5678-9",
+			"Observation?subject=Patient/P123&status=final",
+			"Observation?subject=Patient/P456",
+			"Observation?status=final&code=1234-5",
+			"Observation?value-string=foo")) {
+			assertEquals(
+				mySearchParamMatcher.match(next, resource, null).matched(),
+				mySearchParamMatcher.match(next, sharedParams, null).matched(),
+				next);
+		}
+		assertThat(sharedParams.getExtractedParamNames()).containsExactlyInAnyOrder("code", "subject", "status", "value-string");
+
+		// A different resource instance gets its own search parameters
+		assertNotSame(sharedParams, msg.getSharedIndexedSearchParams(observation));
+	}
+
+	@Test
+	public void testTenThousandSubscriptions() {
+		List<ActiveSubscription> subscriptions = createPatientSubscriptions(10000);
+		SubscriptionCriteriaIndex index = new SubscriptionCriteriaIndex(subscriptions, mySubscriptionCriteriaIndexer);
+
+		Collection<ActiveSubscription> candidates = index.getCandidates("Observation", new SharedIndexedSearchParams(createObservation(1234)));
+
+		assertThat(toCriteria(candidates)).containsExactly("Observation?code=" + LOINC + "|1234-5&subject=Patient/P1234");
+	}
+
+	/**
+	 * Compares matching a resource against 10k subscriptions by evaluating every subscription
+	 * and by evaluating only the candidates found in the index. This is a benchmark rather than
+	 * a test, so it is disabled by default.
+	 */
+	@Test
+	@Disabled
+	public void testBenchmarkTenThousandSubscriptions() {
+		List<ActiveSubscription> subscriptions = createPatientSubscriptions(10000);
+		SubscriptionCriteriaIndex index = new SubscriptionCriteriaIndex(subscriptions, mySubscriptionCriteriaIndexer);
+		int count = 20;
+
+		for (int pass = 0; pass < 3; pass++) {
+			StopWatch sw = new StopWatch();
+			int matched = 0;
+			for (int i = 0; i < count; i++) {
+				Observation observation = createObservation(i * 7);
+				for (ActiveSubscription next : subscriptions) {
+					if (mySearchParamMatcher.match(next.getSubscription().getCriteriaString(), observation, null).matched()) {
+						matched++;
+					}
+				}
+			}
+			ourLog.info("Evaluating every subscription: matched {} in {} - {}/sec", matched, sw, sw.formatThroughput(count, TimeUnit.SECONDS));
+
+			sw.restart();
+			matched = 0;
+			for (int i = 0; i < count * 100; i++) {
+				Observation observation = createObservation(i * 7 % 10000);
+				for (ActiveSubscription next : index.getCandidates("Observation", new SharedIndexedSearchParams(observation))) {
+					if (mySearchParamMatcher.match(next.getSubscription().getCriteriaString(), observation, null).matched()) {
+						matched++;
+					}
+				}
+			}
+			ourLog.info("Evaluating indexed candidates: matched {} in {} - {}/sec", matched, sw, sw.formatThroughput(count * 100, TimeUnit.SECONDS));
+		}
+	}
+
+	private List<ActiveSubscription> createPatientSubscriptions(int theCount) {
+		List<ActiveSubscription> retVal = new ArrayList<>();
+		for (int i = 0; i < theCount; i++) {
+			retVal.add(createSubscription("Observation?code=" + LOINC + "|1234-5&subject=Patient/P" + i));
+		}
+		return retVal;
+	}
+
+	private static Observation createObservation(int thePatient) {
+		Observation retVal = new Observation();
+		retVal.setId("Observation/O" + thePatient);
+		retVal.getCode().addCoding().setSystem(LOINC).setCode("1234-5");
+		retVal.setSubject(new Reference(new IdType("Patient", "P" + thePatient)));
+		return retVal;
+	}
+
+	private ActiveSubscription createSubscription(String theCriteria) {
+		CanonicalSubscription subscription = new CanonicalSubscription();
+		subscription.setIdElement(new IdType("Subscription", "S" + myNextId++));
+		subscription.setCriteriaString(theCriteria);
+		ActiveSubscription retVal = new ActiveSubscription(subscription, "channel");
+		retVal.setCriteriaIndexKeys(mySubscriptionCriteriaIndexer.extractCriteriaKeys(retVal));
+		return retVal;
+	}
+
+	private static List<String> toCriteria(Collection<ActiveSubscription> theSubscriptions) {
+		return theSubscriptions.stream().map(t -> t.getSubscription().getCriteriaString()).toList();
+	}
+}
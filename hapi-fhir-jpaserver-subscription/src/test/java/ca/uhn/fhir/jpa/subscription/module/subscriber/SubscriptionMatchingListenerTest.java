@@ -12,6 +12,7 @@ import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionCriteri
 import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionMatchDeliverer;
 import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionMatchingListener;
 import ca.uhn.fhir.jpa.subscription.match.registry.ActiveSubscription;
+import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionCriteriaIndex;
 import ca.uhn.fhir.jpa.subscription.match.registry.SubscriptionRegistry;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
@@ -397,7 +398,7 @@ public class SubscriptionMatchingListenerTest extends BaseBlockingQueueSubscriba
 			when(message.getOperationType()).thenReturn(BaseResourceModifiedMessage.OperationTypeEnum.DELETE);
 			when(myInterceptorBroadcaster.callHooks(
 				eq(Pointcut.SUBSCRIPTION_BEFORE_PERSISTED_RESOURCE_CHECKED), any(HookParams.class))).thenReturn(true);
-			when(mySubscriptionRegistry.getAll()).thenReturn(Collections.emptyList());
+			when(mySubscriptionRegistry.getCriteriaIndex()).thenReturn(new SubscriptionCriteriaIndex(Collections.emptyList(), null));
 			when(myResourceModifiedMessagePersistenceSvc.inflatePersistedResourceModifiedMessageOrNull(any())).thenReturn(Optional.ofNullable(message));
 
 			subscriber.matchActiveSubscriptionsAndDeliver(message);
@@ -414,13 +415,15 @@ public class SubscriptionMatchingListenerTest extends BaseBlockingQueueSubscriba
 			when(myInterceptorBroadcaster.callHooks(
 				eq(Pointcut.SUBSCRIPTION_BEFORE_PERSISTED_RESOURCE_CHECKED), any(HookParams.class))).thenReturn(true);
 			when(message.getPayloadId(null)).thenReturn(new IdDt("Patient", 123L));
-			when(mySubscriptionRegistry.getAllNonTopicSubscriptions()).thenReturn(Collections.singletonList(myActiveSubscription));
 			when(myActiveSubscription.getSubscription()).thenReturn(myCanonicalSubscription);
 			when(myActiveSubscription.getCriteria()).thenReturn(mySubscriptionCriteria);
 			when(myActiveSubscription.getId()).thenReturn("Patient/123");
 			when(mySubscriptionCriteria.getType()).thenReturn(STARTYPE_EXPRESSION);
 			when(myResourceModifiedMessagePersistenceSvc.inflatePersistedResourceModifiedMessageOrNull(any())).thenReturn(Optional.ofNullable(message));
 
+			SubscriptionCriteriaIndex criteriaIndex = new SubscriptionCriteriaIndex(Collections.singletonList(myActiveSubscription), null);
+			when(mySubscriptionRegistry.getCriteriaIndex()).thenReturn(criteriaIndex);
+
 			subscriber.matchActiveSubscriptionsAndDeliver(message);
 
 			verify(myCanonicalSubscription).getSendDeleteMessages();
@@ -433,7 +436,6 @@ public class SubscriptionMatchingListenerTest extends BaseBlockingQueueSubscriba
 				eq(Pointcut.SUBSCRIPTION_BEFORE_PERSISTED_RESOURCE_CHECKED), any(HookParams.class))).thenReturn(true);
 			when(message.getPayloadId(null)).thenReturn(new IdDt("Patient", 123L));
 			when(myNonDeleteCanonicalSubscription.getSendDeleteMessages()).thenReturn(false);
-			when(mySubscriptionRegistry.getAllNonTopicSubscriptions()).thenReturn(List.of(myNonDeleteSubscription, myActiveSubscription));
 			when(myActiveSubscription.getSubscription()).thenReturn(myCanonicalSubscription);
 			when(myActiveSubscription.getCriteria()).thenReturn(mySubscriptionCriteria);
 			when(myActiveSubscription.getId()).thenReturn("Patient/123");
@@ -443,6 +445,9 @@ public class SubscriptionMatchingListenerTest extends BaseBlockingQueueSubscriba
 			when(mySubscriptionCriteria.getType()).thenReturn(STARTYPE_EXPRESSION);
 			when(myResourceModifiedMessagePersistenceSvc.inflatePersistedResourceModifiedMessageOrNull(any())).thenReturn(Optional.ofNullable(message));
 
+			SubscriptionCriteriaIndex criteriaIndex = new SubscriptionCriteriaIndex(List.of(myNonDeleteSubscription, myActiveSubscription), null);
+			when(mySubscriptionRegistry.getCriteriaIndex()).thenReturn(criteriaIndex);
+
 			subscriber.matchActiveSubscriptionsAndDeliver(message);
 
 			verify(myNonDeleteCanonicalSubscription, times(1)).getSendDeleteMessages();
@@ -455,7 +460,6 @@ public class SubscriptionMatchingListenerTest extends BaseBlockingQueueSubscriba
 			when(myInterceptorBroadcaster.callHooks(
 				eq(Pointcut.SUBSCRIPTION_BEFORE_PERSISTED_RESOURCE_CHECKED), any(HookParams.class))).thenReturn(true);
 			when(message.getPayloadId(null)).thenReturn(new IdDt("Patient", 123L));
-			when(mySubscriptionRegistry.getAllNonTopicSubscriptions()).thenReturn(Collections.singletonList(myActiveSubscription));
 			when(myActiveSubscription.getSubscription()).thenReturn(myCanonicalSubscription);
 			when(myActiveSubscription.getCriteria()).thenReturn(mySubscriptionCriteria);
 			when(myActiveSubscription.getId()).thenReturn("Patient/123");
@@ -464,6 +468,9 @@ public class SubscriptionMatchingListenerTest extends BaseBlockingQueueSubscriba
 			when(myResourceModifiedMessagePersistenceSvc.inflatePersistedResourceModifiedMessageOrNull(any())).thenReturn(Optional.ofNullable(message));
 			when(mySubscriptionMatchDeliverer.deliverPayload(any(), any(), any(), any())).thenReturn(ISendResult.FAILURE);
 
+			SubscriptionCriteriaIndex criteriaIndex = new SubscriptionCriteriaIndex(Collections.singletonList(myActiveSubscription), null);
+			when(mySubscriptionRegistry.getCriteriaIndex()).thenReturn(criteriaIndex);
+
 			subscriber.matchActiveSubscriptionsAndDeliver(message);
 
 			verify(message, atLeastOnce()).getPayloadId(null);
@@ -9,6 +9,7 @@ import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
+import ca.uhn.fhir.jpa.searchparam.matcher.IndexedSearchParamExtractor;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
 import ca.uhn.fhir.jpa.subscription.channel.config.SubscriptionChannelConfig;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelFactory;
@@ -65,6 +66,8 @@ public class WebsocketConnectionValidatorTest {
 	@MockBean
 	InMemoryResourceMatcher myInMemoryResourceMatcher;
 	@MockBean
+	IndexedSearchParamExtractor myIndexedSearchParamExtractor;
+	@MockBean
 	SubscriptionRegistry mySubscriptionRegistry;
 	@MockBean
 	IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
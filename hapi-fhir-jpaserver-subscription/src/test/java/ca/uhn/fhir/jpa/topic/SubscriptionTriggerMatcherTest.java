@@ -6,8 +6,10 @@ import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
+import ca.uhn.fhir.jpa.searchparam.matcher.SharedIndexedSearchParams;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r5.model.Encounter;
 import org.hl7.fhir.r5.model.Enumerations;
 import org.hl7.fhir.r5.model.IdType;
@@ -130,7 +132,7 @@ class SubscriptionTriggerMatcherTest {
 		when(myDaoRegistry.getResourceDao("Encounter")).thenReturn(mockEncounterDao);
 		Encounter encounterPreviousVersion = new Encounter();
 		when(mockEncounterDao.read(any(), any(), eq(false))).thenReturn(encounterPreviousVersion);
-		when(mySearchParamMatcher.match(any(), any(), any())).thenReturn(InMemoryMatchResult.successfulMatch());
+		when(mySearchParamMatcher.match(any(), any(IBaseResource.class), any())).thenReturn(InMemoryMatchResult.successfulMatch());
 
 		// run
 		SubscriptionTriggerMatcher svc = new SubscriptionTriggerMatcher(mySubscriptionTopicSupport, msg, trigger, myMemoryCacheService);
@@ -292,7 +294,7 @@ class SubscriptionTriggerMatcherTest {
 		when(myDaoRegistry.getResourceDao("Encounter")).thenReturn(mockEncounterDao);
 		Encounter encounterPreviousVersion = new Encounter();
 		when(mockEncounterDao.read(any(), any(), eq(false))).thenReturn(encounterPreviousVersion);
-		when(mySearchParamMatcher.match(any(), any(), any())).thenReturn(InMemoryMatchResult.successfulMatch());
+		when(mySearchParamMatcher.match(any(), any(IBaseResource.class), any())).thenReturn(InMemoryMatchResult.successfulMatch());
 
 		// run
 		SubscriptionTriggerMatcher svc = new SubscriptionTriggerMatcher(mySubscriptionTopicSupport, msg, trigger, myMemoryCacheService);
@@ -320,7 +322,7 @@ class SubscriptionTriggerMatcherTest {
 		when(myDaoRegistry.getResourceDao("Encounter")).thenReturn(mockEncounterDao);
 		Encounter encounterPreviousVersion = new Encounter();
 		when(mockEncounterDao.read(any(), any(), eq(false))).thenReturn(encounterPreviousVersion);
-		when(mySearchParamMatcher.match(any(), any(), any())).thenReturn(InMemoryMatchResult.successfulMatch());
+		when(mySearchParamMatcher.match(any(), any(IBaseResource.class), any())).thenReturn(InMemoryMatchResult.successfulMatch());
 
 		// run
 		SubscriptionTriggerMatcher svc = new SubscriptionTriggerMatcher(mySubscriptionTopicSupport, msg, trigger, myMemoryCacheService);
@@ -402,7 +404,7 @@ class SubscriptionTriggerMatcherTest {
 		query.setCurrent("status=in-progress");
 		trigger.setQueryCriteria(query);
 
-		when(mySearchParamMatcher.match(any(), any(), any())).thenReturn(InMemoryMatchResult.successfulMatch());
+		when(mySearchParamMatcher.match(any(), any(SharedIndexedSearchParams.class), any())).thenReturn(InMemoryMatchResult.successfulMatch());
 
 		// run
 		SubscriptionTriggerMatcher svc = new SubscriptionTriggerMatcher(mySubscriptionTopicSupport, msg, trigger, myMemoryCacheService);
@@ -208,6 +208,36 @@ public class ConsumeFilesStepV2R4Test extends BasePartitioningR4Test {
 
 	}
 
+	@Test
+	public void testNotAlreadyExisting_LargeFile() {
+		// Setup
+
+		List<IBaseResource> resources = new ArrayList<>();
+		for (int i = 0; i < 600; i++) {
+			Patient patient = new Patient();
+			patient.setId("P" + i);
+			patient.setActive(true);
+			resources.add(patient);
+		}
+
+		// Execute
+
+		myCaptureQueriesListener.clear();
+		mySvc.storeResources(resources, null);
+
+		// Validate
+
+		// The IDs are resolved using the bulk resolution, which uses a single IN clause per chunk
+		String sql = myCaptureQueriesListener.getSelectQueries().get(0).getSql(true, false);
+		assertThat(sql).contains("rt1_0.FHIR_ID in (");
+		assertEquals(0, myCaptureQueriesListener.countUpdateQueriesForCurrentThread());
+		assertEquals(1, myCaptureQueriesListener.countCommits());
+		assertEquals(0, myCaptureQueriesListener.countRollbacks());
+
+		assertTrue(myPatientDao.read(new IdType("Patient/P0"), mySrd).getActive());
+		assertTrue(myPatientDao.read(new IdType("Patient/P599"), mySrd).getActive());
+	}
+
 	@Test
 	public void testNotAlreadyExisting_InvalidIdForStorage() {
 		// Setup
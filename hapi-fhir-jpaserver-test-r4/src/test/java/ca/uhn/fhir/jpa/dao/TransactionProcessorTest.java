@@ -24,6 +24,7 @@ import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.search.ResourceSearchUrlSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
@@ -159,6 +160,8 @@ public class TransactionProcessorTest {
 	private ResourceSearchUrlSvc myResourceSearchUrlSvc;
 	@MockBean
 	private MemoryCacheService myMemoryCacheService;
+	@MockBean
+	private SearchParamExtractorService mySearchParamExtractorService;
 	@Captor
 	private ArgumentCaptor<Long> myLongCaptor;
 	@Captor
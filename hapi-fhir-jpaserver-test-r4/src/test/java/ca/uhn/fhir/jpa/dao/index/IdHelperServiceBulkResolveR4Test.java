@@ -0,0 +1,139 @@
+package ca.uhn.fhir.jpa.dao.index;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.svc.ResolveIdentityMode;
+import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.util.StopWatch;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IdHelperServiceBulkResolveR4Test extends BaseJpaR4Test {
+	private static final Logger ourLog = LoggerFactory.getLogger(IdHelperServiceBulkResolveR4Test.class);
+
+	@Test
+	public void testResolveMatchesNonBulkResolution() {
+		List<IIdType> ids = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Patient patient = new Patient();
+			patient.setId("P" + i);
+			ids.add(myPatientDao.update(patient, mySrd).getId().toUnqualifiedVersionless());
+			ids.add(myObservationDao.create(new Observation(), mySrd).getId().toUnqualifiedVersionless());
+		}
+		ids.add(new IdType("Patient/DOES-NOT-EXIST"));
+		ids.add(new IdType("Observation/P1"));
+
+		ResolveIdentityMode mode = ResolveIdentityMode.excludeDeleted().noCacheUnlessDeletesDisabled();
+		Map<IIdType, IResourceLookup<JpaPid>> expected = runInTransaction(() -> myIdHelperService.resolveResourceIdentities(RequestPartitionId.allPartitions(), ids, mode));
+		// Duplicates are allowed in the input
+		Map<IIdType, IResourceLookup<JpaPid>> actual = myIdHelperService.resolveResourceIdentitiesInBulk(RequestPartitionId.allPartitions(), Stream.concat(ids.stream(), ids.stream()), mode);
+
+		assertThat(actual).hasSize(40);
+		assertEquals(expected.keySet(), actual.keySet());
+		for (IIdType next : expected.keySet()) {
+			assertEquals(expected.get(next).getPersistentId(), actual.get(next).getPersistentId());
+			assertEquals(next.getResourceType(), actual.get(next).getResourceType());
+		}
+	}
+
+	@Test
+	public void testResolveUntypedIds() {
+		Patient patient = new Patient();
+		patient.setId("A");
+		JpaPid pid = (JpaPid) myPatientDao.update(patient, mySrd).getPersistentId();
+
+		Map<IIdType, IResourceLookup<JpaPid>> actual = myIdHelperService.resolveResourceIdentitiesInBulk(RequestPartitionId.allPartitions(), Stream.of(new IdType("A"), new IdType("B")), ResolveIdentityMode.excludeDeleted().noCacheUnlessDeletesDisabled());
+
+		assertThat(actual).containsOnlyKeys(new IdType("Patient/A"));
+		assertEquals(pid, actual.get(new IdType("Patient/A")).getPersistentId());
+	}
+
+	@Test
+	public void testResolveDeleted() {
+		IIdType id = myPatientDao.create(new Patient(), mySrd).getId().toUnqualifiedVersionless();
+		myPatientDao.delete(id, mySrd);
+
+		assertThat(myIdHelperService.resolveResourceIdentitiesInBulk(RequestPartitionId.allPartitions(), Stream.of(id), ResolveIdentityMode.excludeDeleted().noCacheUnlessDeletesDisabled())).isEmpty();
+		Map<IIdType, IResourceLookup<JpaPid>> actual = myIdHelperService.resolveResourceIdentitiesInBulk(RequestPartitionId.allPartitions(), Stream.of(id), ResolveIdentityMode.includeDeleted().noCacheUnlessDeletesDisabled());
+		assertThat(actual.get(id).getDeleted()).isNotNull();
+	}
+
+	@Test
+	public void testResolveManyIds_OneQueryPerChunkThenCached() {
+		List<IIdType> ids = new ArrayList<>();
+		for (int i = 0; i < 1500; i++) {
+			ids.add(new IdType("Patient/P" + i));
+		}
+		runInTransaction(() -> {
+			for (int i = 0; i < 1500; i += 10) {
+				Patient patient = new Patient();
+				patient.setId("P" + i);
+				myPatientDao.update(patient, mySrd);
+			}
+		});
+		myMemoryCacheService.invalidateAllCaches();
+		ResolveIdentityMode mode = ResolveIdentityMode.excludeDeleted().cacheOk();
+
+		myCaptureQueriesListener.clear();
+		Map<IIdType, IResourceLookup<JpaPid>> actual = myIdHelperService.resolveResourceIdentitiesInBulk(RequestPartitionId.allPartitions(), ids.stream(), mode);
+		assertThat(actual).hasSize(150);
+		assertEquals(2, myCaptureQueriesListener.countSelectQueries());
+
+		myCaptureQueriesListener.clear();
+		Stream<IIdType> existingIds = IntStream.range(0, 150).mapToObj(t -> new IdType("Patient/P" + (t * 10)));
+		actual = myIdHelperService.resolveResourceIdentitiesInBulk(RequestPartitionId.allPartitions(), existingIds, mode);
+		assertThat(actual).hasSize(150);
+		assertEquals(0, myCaptureQueriesListener.countSelectQueries());
+	}
+
+	/**
+	 * Compares the rate at which a large number of IDs can be resolved with and without
+	 * the bulk resolution API. This is a benchmark rather than a test, so it is disabled
+	 * by default.
+	 */
+	@Test
+	@Disabled
+	public void testBenchmarkResolveIds() {
+		int resourceCount = 5000;
+		int idCount = 1000000;
+		runInTransaction(() -> {
+			for (int i = 0; i < resourceCount; i++) {
+				Patient patient = new Patient();
+				patient.setId("P" + i);
+				myPatientDao.update(patient, mySrd);
+			}
+		});
+		List<IIdType> ids = new ArrayList<>(idCount);
+		for (int i = 0; i < idCount; i++) {
+			ids.add(new IdType("Patient/P" + (i % (resourceCount * 2))));
+		}
+		ResolveIdentityMode mode = ResolveIdentityMode.excludeDeleted().noCacheUnlessDeletesDisabled();
+
+		for (int pass = 0; pass < 3; pass++) {
+			StopWatch sw = new StopWatch();
+			int resolved = runInTransaction(() -> myIdHelperService.resolveResourceIdentities(RequestPartitionId.allPartitions(), ids, mode).size());
+			ourLog.info("Resolved {} of {} IDs in {} - {}/sec", resolved, idCount, sw, sw.formatThroughput(idCount, TimeUnit.SECONDS));
+
+			sw.restart();
+			resolved = myIdHelperService.resolveResourceIdentitiesInBulk(RequestPartitionId.allPartitions(), ids.stream(), mode).size();
+			ourLog.info("Bulk resolved {} of {} IDs in {} - {}/sec", resolved, idCount, sw, sw.formatThroughput(idCount, TimeUnit.SECONDS));
+		}
+	}
+}
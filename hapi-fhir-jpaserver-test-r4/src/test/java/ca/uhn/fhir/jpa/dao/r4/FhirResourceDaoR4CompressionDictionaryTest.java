@@ -0,0 +1,105 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.dao.compression.IResourceCompressionDictionarySvc;
+import ca.uhn.fhir.jpa.dao.compression.ResourceCompressionDictionary;
+import ca.uhn.fhir.jpa.model.dao.JpaPidFk;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class FhirResourceDaoR4CompressionDictionaryTest extends BaseJpaR4Test {
+
+	@Autowired
+	private IResourceCompressionDictionarySvc myCompressionDictionarySvc;
+
+	@AfterEach
+	public void after() {
+		myStorageSettings.setResourceEncoding(new JpaStorageSettings().getResourceEncoding());
+	}
+
+	@Test
+	public void testCreateAndRead_NoDictionaryYet() {
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.ZSTDD);
+
+		IIdType id = myObservationDao.create(createObservation(0), mySrd).getId().toUnqualifiedVersionless();
+
+		ResourceHistoryTable history = getHistory(id, 1);
+		assertEquals(ResourceEncodingEnum.ZSTD, history.getEncoding());
+		assertNull(history.getCompressionDictionaryId());
+		assertEquals("value-0", myObservationDao.read(id, mySrd).getValueStringType().getValue());
+	}
+
+	@Test
+	public void testTrainDictionary_NotEnoughSamples() {
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.ZSTDD);
+		myObservationDao.create(createObservation(0), mySrd);
+
+		assertNull(myCompressionDictionarySvc.trainDictionary("Observation"));
+		assertNull(myCompressionDictionarySvc.getCurrentDictionary("Observation"));
+	}
+
+	@Test
+	public void testCreateUpdateAndRead_WithDictionary() {
+		// Setup
+		for (int i = 0; i < 200; i++) {
+			myObservationDao.create(createObservation(i), mySrd);
+		}
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.ZSTDD);
+		ResourceCompressionDictionary dictionary = myCompressionDictionarySvc.trainDictionary("Observation");
+		assertNotNull(dictionary);
+		assertEquals(1, dictionary.getVersion());
+
+		// Create
+		IIdType id = myObservationDao.create(createObservation(1000), mySrd).getId().toUnqualifiedVersionless();
+		ResourceHistoryTable history = getHistory(id, 1);
+		assertEquals(ResourceEncodingEnum.ZSTDD, history.getEncoding());
+		assertEquals(dictionary.getId(), history.getCompressionDictionaryId());
+
+		// Read and search
+		assertEquals("value-1000", myObservationDao.read(id, mySrd).getValueStringType().getValue());
+		SearchParameterMap map = SearchParameterMap.newSynchronous("_id", new TokenParam(id.getIdPart()));
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd))).containsExactly(id.getValue());
+
+		// Retrain - A no-op update is still a no-op even though it would now be stored differently
+		ResourceCompressionDictionary newDictionary = myCompressionDictionarySvc.trainDictionary("Observation");
+		assertNotNull(newDictionary);
+		assertEquals(2, newDictionary.getVersion());
+		Observation observation = myObservationDao.read(id, mySrd);
+		assertEquals("1", myObservationDao.update(observation, mySrd).getId().getVersionIdPart());
+
+		// Update - The new version uses the new dictionary, and the old one can still be read
+		observation.setValue(new StringType("value-updated"));
+		assertEquals("2", myObservationDao.update(observation, mySrd).getId().getVersionIdPart());
+		assertEquals(newDictionary.getId(), getHistory(id, 2).getCompressionDictionaryId());
+		assertEquals("value-updated", myObservationDao.read(id, mySrd).getValueStringType().getValue());
+		assertEquals("value-1000", myObservationDao.read(id.withVersion("1"), mySrd).getValueStringType().getValue());
+	}
+
+	private ResourceHistoryTable getHistory(IIdType theId, long theVersion) {
+		return runInTransaction(() -> myResourceHistoryTableDao.findForIdAndVersion(JpaPidFk.fromId(theId.getIdPartAsLong()), theVersion));
+	}
+
+	private static Observation createObservation(int theIndex) {
+		Observation observation = new Observation();
+		observation.setStatus(Observation.ObservationStatus.FINAL);
+		observation.getCode().addCoding().setSystem("http://loinc.org").setCode("code-" + (theIndex % 20)).setDisplay("Display for code " + (theIndex % 20));
+		observation.getSubject().setDisplay("Patient " + (theIndex % 50));
+		observation.getEffectiveDateTimeType().setValueAsString("2024-01-" + (10 + theIndex % 20) + "T10:15:00Z");
+		observation.setValue(new StringType("value-" + theIndex));
+		return observation;
+	}
+}
@@ -0,0 +1,137 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.model.api.Include;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.hl7.fhir.r4.model.Provenance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FhirResourceDaoR4SearchIncludeConcurrentTest extends BaseJpaR4Test {
+
+	@Override
+	@BeforeEach
+	public void before() throws Exception {
+		super.before();
+
+		Organization org = new Organization();
+		org.setId("ORG");
+		org.setName("Org");
+		myOrganizationDao.update(org, mySrd);
+
+		Practitioner practitioner = new Practitioner();
+		practitioner.setId("PRAC");
+		myPractitionerDao.update(practitioner, mySrd);
+
+		Patient patient = new Patient();
+		patient.setId("PAT");
+		patient.getManagingOrganization().setReference("Organization/ORG");
+		myPatientDao.update(patient, mySrd);
+
+		for (int i = 0; i < 5; i++) {
+			Observation obs = new Observation();
+			obs.setId("OBS" + i);
+			obs.setStatus(Observation.ObservationStatus.FINAL);
+			obs.getSubject().setReference("Patient/PAT");
+			obs.addPerformer().setReference("Practitioner/PRAC");
+			myObservationDao.update(obs, mySrd);
+		}
+
+		Provenance provenance = new Provenance();
+		provenance.setId("PROV");
+		provenance.addTarget().setReference("Observation/OBS0");
+		myProvenanceDao.update(provenance, mySrd);
+	}
+
+	@AfterEach
+	public void afterResetSettings() {
+		myStorageSettings.setConcurrentIncludeLoadingEnabled(
+				new JpaStorageSettings().isConcurrentIncludeLoadingEnabled());
+	}
+
+	@Test
+	public void testIncludesMatchSequentialLoading() {
+		List<String> expected = List.of(
+				"Observation/OBS0",
+				"Observation/OBS1",
+				"Observation/OBS2",
+				"Observation/OBS3",
+				"Observation/OBS4",
+				"Organization/ORG",
+				"Patient/PAT",
+				"Practitioner/PRAC",
+				"Provenance/PROV");
+
+		myCaptureQueriesListener.clear();
+		List<String> sequential = toUnqualifiedVersionlessIdValues(myObservationDao.search(newSearch(), mySrd));
+		long sequentialLinkQueries = countResourceLinkQueries();
+		assertThat(sequential).containsExactlyInAnyOrderElementsOf(expected);
+
+		myStorageSettings.setConcurrentIncludeLoadingEnabled(true);
+		myCaptureQueriesListener.clear();
+		List<String> concurrent = toUnqualifiedVersionlessIdValues(myObservationDao.search(newSearch(), mySrd));
+		long concurrentLinkQueries = countResourceLinkQueries();
+		assertThat(concurrent).containsExactlyInAnyOrderElementsOf(expected);
+
+		// The subject, performer and organization includes share a single query in the first round
+		assertThat(concurrentLinkQueries).isLessThan(sequentialLinkQueries);
+		assertThat(myCaptureQueriesListener.getSelectQueries())
+				.map(t -> t.getSql(true, false))
+				.anyMatch(t -> t.contains("Observation.subject")
+						&& t.contains("Observation.performer")
+						&& t.contains(" OR "));
+	}
+
+	@Test
+	public void testWildcardAndSpecificIncludesConcurrently() {
+		myStorageSettings.setConcurrentIncludeLoadingEnabled(true);
+
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.addInclude(new Include("Observation:subject"));
+		map.addInclude(new Include("*"));
+
+		List<String> ids = toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd));
+		assertThat(ids).contains("Patient/PAT", "Practitioner/PRAC");
+	}
+
+	@Test
+	public void testIncludesWithNoMatches() {
+		myStorageSettings.setConcurrentIncludeLoadingEnabled(true);
+
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.add(Observation.SP_STATUS, new TokenParam("amended"));
+		map.addInclude(new Include("Observation:subject"));
+		map.addInclude(new Include("Observation:performer"));
+
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd)))
+				.isEmpty();
+	}
+
+	private long countResourceLinkQueries() {
+		return myCaptureQueriesListener.getSelectQueries().stream()
+				.map(t -> t.getSql(false, false))
+				.map(String::toLowerCase)
+				.filter(t -> t.contains("from hfj_res_link"))
+				.count();
+	}
+
+	private static SearchParameterMap newSearch() {
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.addInclude(new Include("Observation:subject"));
+		map.addInclude(new Include("Observation:performer"));
+		map.addInclude(new Include("Patient:organization").setRecurse(true));
+		map.addRevInclude(new Include("Provenance:target"));
+		return map;
+	}
+}
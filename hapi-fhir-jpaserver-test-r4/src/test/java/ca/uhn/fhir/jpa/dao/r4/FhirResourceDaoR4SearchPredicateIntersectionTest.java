@@ -0,0 +1,180 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenOrListParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FhirResourceDaoR4SearchPredicateIntersectionTest extends BaseJpaR4Test {
+
+	@Override
+	@BeforeEach
+	public void before() throws Exception {
+		super.before();
+		myStorageSettings.setHibernateSearchIndexSearchParams(false);
+		myStorageSettings.setReuseCachedSearchResultsForMillis(null);
+
+		for (int i = 0; i < 5; i++) {
+			createPatient(withId("P" + i), withActiveTrue());
+		}
+		for (int i = 0; i < 60; i++) {
+			Observation obs = new Observation();
+			obs.setStatus(i % 2 == 0 ? Observation.ObservationStatus.FINAL : Observation.ObservationStatus.AMENDED);
+			obs.getCode().addCoding().setSystem("http://loinc").setCode("code" + (i % 3));
+			obs.getSubject().setReference("Patient/P" + (i % 5));
+			obs.setEffective(new DateTimeType("2024-01-" + String.format("%02d", (i % 28) + 1)));
+			obs.getCategoryFirstRep().addCoding().setSystem("http://cat").setCode("cat" + (i % 4));
+			obs.setId("O" + i);
+			myObservationDao.update(obs, mySrd);
+		}
+	}
+
+	@AfterEach
+	public void afterResetSettings() {
+		JpaStorageSettings defaults = new JpaStorageSettings();
+		myStorageSettings.setSearchPredicateExecutionStrategy(defaults.getSearchPredicateExecutionStrategy());
+		myStorageSettings.setSearchPredicateIntersectionMaxCandidates(
+				defaults.getSearchPredicateIntersectionMaxCandidates());
+		myStorageSettings.setReuseCachedSearchResultsForMillis(defaults.getReuseCachedSearchResultsForMillis());
+		myStorageSettings.setHibernateSearchIndexSearchParams(defaults.isHibernateSearchIndexSearchParams());
+		myPartitionSettings.setDatabasePartitionMode(new PartitionSettings().isDatabasePartitionMode());
+	}
+
+	@Test
+	public void testSearchMatchesSingleQuery() {
+		Supplier<SearchParameterMap> map = () -> SearchParameterMap.newSynchronous()
+				.add(Observation.SP_CODE, new TokenParam("http://loinc", "code1"))
+				.add(Observation.SP_STATUS, new TokenParam("final"))
+				.add(Observation.SP_SUBJECT, new ReferenceParam("Patient/P2"));
+
+		List<String> expected = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.SINGLE_QUERY, map.get());
+		assertThat(expected).isNotEmpty();
+
+		myCaptureQueriesListener.clear();
+		List<String> actual = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.PARALLEL_INTERSECTION, map.get());
+		assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+
+		// The per-parameter queries are tagged so that they can be identified in the SQL logs
+		long tagged = myCaptureQueriesListener.getSelectQueries().stream()
+				.filter(t -> t.getSql(false, false).contains("predicate-intersection"))
+				.count();
+		assertEquals(3, tagged);
+	}
+
+	@Test
+	public void testSearchWithRemainingParameterSortAndPaging() {
+		Supplier<SearchParameterMap> map = () -> {
+			SearchParameterMap retVal = new SearchParameterMap()
+					.add(Observation.SP_CODE, new TokenOrListParam().add("http://loinc", "code0").add("http://loinc", "code2"))
+					.add(Observation.SP_SUBJECT, new ReferenceParam("Patient/P1"))
+					.add(Observation.SP_DATE, new DateParam(ParamPrefixEnum.GREATERTHAN_OR_EQUALS, "2024-01-05"))
+					.add(Observation.SP_CATEGORY, new TokenParam("http://cat", "cat1"));
+			retVal.setSort(new SortSpec(Observation.SP_DATE, SortOrderEnum.DESC).setChain(new SortSpec("_id")));
+			return retVal;
+		};
+
+		List<String> expected = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.SINGLE_QUERY, map.get());
+		List<String> actual = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.PARALLEL_INTERSECTION, map.get());
+		assertThat(expected).isNotEmpty();
+		assertEquals(expected, actual);
+
+		// Paging through a subset
+		SearchParameterMap paged = map.get();
+		paged.setOffset(1);
+		paged.setCount(2);
+		List<String> expectedPage = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.SINGLE_QUERY, paged);
+		paged = map.get();
+		paged.setOffset(1);
+		paged.setCount(2);
+		List<String> actualPage = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.PARALLEL_INTERSECTION, paged);
+		assertEquals(expectedPage, actualPage);
+	}
+
+	@Test
+	public void testCount() {
+		Supplier<SearchParameterMap> map = () -> {
+			SearchParameterMap retVal = SearchParameterMap.newSynchronous()
+					.add(Observation.SP_CODE, new TokenParam("http://loinc", "code0"))
+					.add(Observation.SP_STATUS, new TokenParam("final"));
+			retVal.setSummaryMode(SummaryEnum.COUNT);
+			return retVal;
+		};
+
+		myStorageSettings.setSearchPredicateExecutionStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.PARALLEL_INTERSECTION);
+		assertEquals(10, myObservationDao.search(map.get(), mySrd).size());
+	}
+
+	@Test
+	public void testEmptyIntersection() {
+		SearchParameterMap map = SearchParameterMap.newSynchronous()
+				.add(Observation.SP_CODE, new TokenParam("http://loinc", "code0"))
+				.add(Observation.SP_SUBJECT, new ReferenceParam("Patient/P0"))
+				.add(Observation.SP_DATE, new DateParam("2024-01-02"));
+
+		myCaptureQueriesListener.clear();
+		List<String> actual = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.PARALLEL_INTERSECTION, map);
+		assertThat(actual).isEmpty();
+
+		// Only the per-parameter queries should have been executed
+		myCaptureQueriesListener.logSelectQueries();
+		assertThat(myCaptureQueriesListener.getSelectQueries())
+				.allMatch(t -> t.getSql(false, false).contains("predicate-intersection"));
+	}
+
+	@Test
+	public void testParametersExceedingMaxCandidatesStayInFinalQuery() {
+		myStorageSettings.setSearchPredicateIntersectionMaxCandidates(15);
+		Supplier<SearchParameterMap> map = () -> SearchParameterMap.newSynchronous()
+				.add(Observation.SP_CODE, new TokenParam("http://loinc", "code1"))
+				.add(Observation.SP_STATUS, new TokenParam("final"))
+				.add(Observation.SP_SUBJECT, new ReferenceParam("Patient/P3"));
+
+		List<String> expected = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.SINGLE_QUERY, map.get());
+		List<String> actual = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.PARALLEL_INTERSECTION, map.get());
+		assertThat(expected).isNotEmpty();
+		assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+	}
+
+	@Test
+	public void testNotUsedInDatabasePartitionMode() {
+		Supplier<SearchParameterMap> map = () -> SearchParameterMap.newSynchronous()
+				.add(Observation.SP_CODE, new TokenParam("http://loinc", "code1"))
+				.add(Observation.SP_STATUS, new TokenParam("final"))
+				.add(Observation.SP_SUBJECT, new ReferenceParam("Patient/P2"));
+		myPartitionSettings.setDatabasePartitionMode(true);
+
+		List<String> expected = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.SINGLE_QUERY, map.get());
+		assertThat(expected).isNotEmpty();
+
+		// The intersection only holds resource IDs, so it can't be used when the partition ID is part of the key
+		myCaptureQueriesListener.clear();
+		List<String> actual = searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum.PARALLEL_INTERSECTION, map.get());
+		assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+		assertThat(myCaptureQueriesListener.getSelectQueries())
+				.noneMatch(t -> t.getSql(false, false).contains("predicate-intersection"));
+	}
+
+	private List<String> searchWithStrategy(JpaStorageSettings.SearchPredicateExecutionStrategyEnum theStrategy, SearchParameterMap theMap) {
+		myStorageSettings.setSearchPredicateExecutionStrategy(theStrategy);
+		return toUnqualifiedVersionlessIdValues(myObservationDao.search(theMap, mySrd));
+	}
+}
@@ -0,0 +1,174 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.jpa.util.SqlQuery;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.util.StopWatch;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FhirResourceDaoR4SearchResourceLoadingPipelineTest extends BaseJpaR4Test {
+	private static final Logger ourLog = LoggerFactory.getLogger(FhirResourceDaoR4SearchResourceLoadingPipelineTest.class);
+
+	@AfterEach
+	public void afterResetSettings() {
+		JpaStorageSettings defaults = new JpaStorageSettings();
+		myStorageSettings.setResourceLoadingPipelineEnabled(defaults.isResourceLoadingPipelineEnabled());
+		myStorageSettings.setResourceLoadingPipelineBatchSize(defaults.getResourceLoadingPipelineBatchSize());
+		myStorageSettings.setAccessMetaSourceInformationFromProvenanceTable(
+				defaults.isAccessMetaSourceInformationFromProvenanceTable());
+	}
+
+	@Test
+	public void testPipelinedLoadingMatchesSequentialLoading() {
+		createPatients(95);
+
+		List<IBaseResource> sequential = searchAllPatients();
+
+		myStorageSettings.setResourceLoadingPipelineEnabled(true);
+		myStorageSettings.setResourceLoadingPipelineBatchSize(10);
+		myCaptureQueriesListener.clear();
+		List<IBaseResource> pipelined = searchAllPatients();
+
+		// The resource bodies are loaded in batches of 10
+		long bodyQueries = myCaptureQueriesListener.getSelectQueries().stream()
+				.map(t -> t.getSql(false, false).toLowerCase())
+				.filter(t -> t.contains("from hfj_res_ver"))
+				.count();
+		assertEquals(10, bodyQueries);
+		assertThat(pipelined).hasSize(95);
+		assertEquals(encode(sequential), encode(pipelined));
+		Patient patient = (Patient) pipelined.get(3);
+		assertEquals("Family003", patient.getNameFirstRep().getFamily());
+		assertThat(patient.getMeta().getTag()).hasSize(1);
+		assertEquals("tag003", patient.getMeta().getTag().get(0).getCode());
+	}
+
+	@Test
+	public void testPipelinedLoadingWithFewerResourcesThanBatchSize() {
+		createPatients(5);
+
+		myStorageSettings.setResourceLoadingPipelineEnabled(true);
+		myStorageSettings.setResourceLoadingPipelineBatchSize(10);
+		List<IBaseResource> pipelined = searchAllPatients();
+
+		assertThat(toUnqualifiedVersionlessIdValues(pipelined))
+				.containsExactly("Patient/P000", "Patient/P001", "Patient/P002", "Patient/P003", "Patient/P004");
+	}
+
+	@Test
+	public void testPipelinedLoadingSkipsDeletedResources() {
+		createPatients(30);
+		myPatientDao.delete(new IdType("Patient/P010"), mySrd);
+
+		myStorageSettings.setResourceLoadingPipelineEnabled(true);
+		myStorageSettings.setResourceLoadingPipelineBatchSize(7);
+		List<IBaseResource> pipelined = searchAllPatients();
+
+		assertThat(toUnqualifiedVersionlessIdValues(pipelined))
+				.hasSize(29)
+				.doesNotContain("Patient/P010");
+	}
+
+	@Test
+	public void testPipelinedLoadingWithProvenanceTableLookup_DatabaseOnlyAccessedFromRequestThread() {
+		createPatients(30);
+		myStorageSettings.setAccessMetaSourceInformationFromProvenanceTable(true);
+
+		myStorageSettings.setResourceLoadingPipelineEnabled(true);
+		myStorageSettings.setResourceLoadingPipelineBatchSize(10);
+		myCaptureQueriesListener.clear();
+		List<IBaseResource> pipelined = searchAllPatients();
+
+		assertThat(pipelined).hasSize(30);
+		List<SqlQuery> selectQueries = myCaptureQueriesListener.getSelectQueries();
+		assertThat(selectQueries.stream().map(t -> t.getSql(false, false).toLowerCase()))
+				.anyMatch(t -> t.contains("from hfj_res_ver_prov"));
+		assertThat(selectQueries.stream().map(SqlQuery::getThreadName))
+				.containsOnly(Thread.currentThread().getName());
+	}
+
+	@Test
+	public void testPipelinedLoading_DatabaseOnlyAccessedFromRequestThread() {
+		createPatients(30);
+
+		myStorageSettings.setResourceLoadingPipelineEnabled(true);
+		myStorageSettings.setResourceLoadingPipelineBatchSize(10);
+		myCaptureQueriesListener.clear();
+		List<IBaseResource> pipelined = searchAllPatients();
+
+		assertThat(pipelined).hasSize(30);
+		assertThat(myCaptureQueriesListener.getSelectQueries().stream().map(SqlQuery::getThreadName))
+				.containsOnly(Thread.currentThread().getName());
+	}
+
+	/**
+	 * Compares the latency of loading pages of various sizes with and without the resource
+	 * loading pipeline. This is a benchmark rather than a test, so it is disabled by default.
+	 */
+	@Test
+	@Disabled
+	public void testBenchmarkPageSizeVersusLatency() {
+		createPatients(1000);
+		myStorageSettings.setResourceLoadingPipelineBatchSize(100);
+
+		for (int pass = 0; pass < 3; pass++) {
+			for (int pageSize : new int[] {50, 200, 500, 1000}) {
+				for (boolean pipelined : new boolean[] {false, true}) {
+					myStorageSettings.setResourceLoadingPipelineEnabled(pipelined);
+					int count = 20;
+					StopWatch sw = new StopWatch();
+					for (int i = 0; i < count; i++) {
+						SearchParameterMap map = SearchParameterMap.newSynchronous();
+						map.setCount(pageSize);
+						assertThat(myPatientDao.search(map, mySrd).getResources(0, pageSize)).hasSize(pageSize);
+					}
+					ourLog.info(
+							"Page size {} pipelined={}: {}ms per page",
+							pageSize,
+							pipelined,
+							sw.getMillis() / count);
+				}
+			}
+		}
+	}
+
+	private void createPatients(int theCount) {
+		for (int i = 0; i < theCount; i++) {
+			String suffix = String.format("%03d", i);
+			Patient patient = new Patient();
+			patient.setId("P" + suffix);
+			patient.addName().setFamily("Family" + suffix).addGiven("Given" + suffix);
+			patient.getMeta().addTag("http://tags", "tag" + suffix, null);
+			patient.addIdentifier().setSystem("http://ids").setValue("ID" + suffix);
+			myPatientDao.update(patient, mySrd);
+		}
+	}
+
+	private List<IBaseResource> searchAllPatients() {
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.setSort(new SortSpec("_id"));
+		IBundleProvider outcome = myPatientDao.search(map, mySrd);
+		return outcome.getResources(0, Integer.MAX_VALUE);
+	}
+
+	private List<String> encode(List<IBaseResource> theResources) {
+		return theResources.stream()
+				.map(t -> myFhirContext.newJsonParser().encodeResourceToString(t))
+				.toList();
+	}
+}
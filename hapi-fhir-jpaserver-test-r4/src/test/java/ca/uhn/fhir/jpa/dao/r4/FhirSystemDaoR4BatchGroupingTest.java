@@ -0,0 +1,222 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.util.StopWatch;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FhirSystemDaoR4BatchGroupingTest extends BaseJpaR4Test {
+	private static final Logger ourLog = LoggerFactory.getLogger(FhirSystemDaoR4BatchGroupingTest.class);
+
+	@BeforeEach
+	public void beforeEnableGrouping() {
+		myStorageSettings.setBundleBatchMaxGroupSize(10);
+	}
+
+	@AfterEach
+	public void afterResetStorageSettings() {
+		myStorageSettings.setBundleBatchMaxGroupSize(StorageSettings.DEFAULT_BUNDLE_BATCH_MAX_GROUP_SIZE);
+	}
+
+	@Test
+	public void testCreates_ResponseOrderPreserved() {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.BATCH);
+		for (int i = 0; i < 25; i++) {
+			if (i % 3 == 0) {
+				Organization org = new Organization();
+				org.setName("Org" + i);
+				bundle.addEntry().setResource(org).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Organization");
+			} else {
+				Patient patient = new Patient();
+				patient.addIdentifier().setSystem("http://foo").setValue("P" + i);
+				bundle.addEntry().setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+			}
+		}
+
+		myCaptureQueriesListener.clear();
+		Bundle response = mySystemDao.transaction(mySrd, bundle);
+
+		// One group of 9 Organizations, and groups of 10 and 6 Patients
+		assertEquals(3, myCaptureQueriesListener.countCommits());
+		assertThat(response.getEntry()).hasSize(25);
+		for (int i = 0; i < 25; i++) {
+			Bundle.BundleEntryComponent entry = response.getEntry().get(i);
+			assertEquals("201 Created", entry.getResponse().getStatus());
+			assertThat(entry.getResponse().getLocation()).startsWith(i % 3 == 0 ? "Organization/" : "Patient/");
+		}
+		assertThat(searchPatients("P7")).hasSize(1);
+		assertEquals(9, runInTransaction(() -> myResourceTableDao.findAll().stream().filter(t -> t.getResourceType().equals("Organization")).count()));
+	}
+
+	@Test
+	public void testConditionalCreates() {
+		Patient existing = new Patient();
+		existing.addIdentifier().setSystem("http://foo").setValue("A");
+		String existingId = myPatientDao.create(existing, mySrd).getId().toUnqualifiedVersionless().getValue();
+
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.BATCH);
+		for (String value : List.of("A", "B", "C", "B")) {
+			Patient patient = new Patient();
+			patient.addIdentifier().setSystem("http://foo").setValue(value);
+			bundle.addEntry().setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient").setIfNoneExist("Patient?identifier=http://foo|" + value);
+		}
+
+		Bundle response = mySystemDao.transaction(mySrd, bundle);
+
+		assertEquals("200 OK", response.getEntry().get(0).getResponse().getStatus());
+		assertThat(response.getEntry().get(0).getResponse().getLocation()).startsWith(existingId + "/");
+		assertEquals("201 Created", response.getEntry().get(1).getResponse().getStatus());
+		assertEquals("201 Created", response.getEntry().get(2).getResponse().getStatus());
+		assertEquals("200 OK", response.getEntry().get(3).getResponse().getStatus());
+		assertEquals(response.getEntry().get(1).getResponse().getLocation(), response.getEntry().get(3).getResponse().getLocation());
+		assertThat(searchPatients("B")).hasSize(1);
+	}
+
+	@Test
+	public void testConditionalCreates_OverlappingMatchUrls() {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.BATCH);
+		for (String value : List.of("A", "B")) {
+			Patient patient = new Patient();
+			patient.addIdentifier().setSystem("http://foo").setValue("A");
+			patient.addIdentifier().setSystem("http://foo").setValue("B");
+			bundle.addEntry().setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient").setIfNoneExist("identifier=http://foo|" + value);
+		}
+
+		myCaptureQueriesListener.clear();
+		Bundle response = mySystemDao.transaction(mySrd, bundle);
+
+		// The second entry matches the resource created by the first one, exactly as it
+		// would if the entries were processed one after another, and the entries are never
+		// attempted together in a group which would have to be rolled back
+		assertEquals(0, myCaptureQueriesListener.countRollbacks());
+		assertEquals("201 Created", response.getEntry().get(0).getResponse().getStatus());
+		assertEquals("200 OK", response.getEntry().get(1).getResponse().getStatus());
+		assertEquals(response.getEntry().get(0).getResponse().getLocation(), response.getEntry().get(1).getResponse().getLocation());
+		assertThat(searchPatients("A")).hasSize(1);
+	}
+
+	@Test
+	public void testUngroupedEntry_NotOvertakenByLaterEntries() {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.BATCH);
+		for (String value : List.of("A", "B")) {
+			Patient patient = new Patient();
+			patient.addIdentifier().setSystem("http://foo").setValue(value);
+			bundle.addEntry().setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+			if (value.equals("A")) {
+				bundle.addEntry().getRequest().setMethod(Bundle.HTTPVerb.DELETE).setUrl("Patient?identifier=http://foo|B");
+			}
+		}
+
+		Bundle response = mySystemDao.transaction(mySrd, bundle);
+
+		// The conditional delete runs before the Patient it would match is created
+		assertEquals("201 Created", response.getEntry().get(0).getResponse().getStatus());
+		assertEquals("201 Created", response.getEntry().get(2).getResponse().getStatus());
+		assertThat(searchPatients("A")).hasSize(1);
+		assertThat(searchPatients("B")).hasSize(1);
+	}
+
+	@Test
+	public void testFailingEntryInGroup_OtherEntriesSucceed() {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.BATCH);
+		for (int i = 0; i < 5; i++) {
+			Observation observation = new Observation();
+			observation.setStatus(Observation.ObservationStatus.FINAL);
+			observation.getCode().setText("Obs" + i);
+			if (i == 2) {
+				observation.setSubject(new Reference("Patient/DOES-NOT-EXIST"));
+			}
+			bundle.addEntry().setResource(observation).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Observation");
+		}
+
+		Bundle response = mySystemDao.transaction(mySrd, bundle);
+
+		assertThat(response.getEntry()).hasSize(5);
+		for (int i = 0; i < 5; i++) {
+			Bundle.BundleEntryComponent entry = response.getEntry().get(i);
+			if (i == 2) {
+				assertEquals("400 Bad Request", entry.getResponse().getStatus());
+				assertThat(((OperationOutcome) entry.getResponse().getOutcome()).getIssueFirstRep().getDiagnostics()).contains("Patient/DOES-NOT-EXIST");
+			} else {
+				assertEquals("201 Created", entry.getResponse().getStatus());
+			}
+		}
+		assertEquals(4, runInTransaction(() -> myResourceTableDao.count()));
+	}
+
+	@Test
+	public void testPlaceholderReference_NotGrouped() {
+		String patientFullUrl = "urn:uuid:" + UUID.randomUUID();
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.BATCH);
+		bundle.addEntry().setResource(new Patient().setActive(true)).setFullUrl(patientFullUrl).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+		Observation observation = new Observation();
+		observation.setStatus(Observation.ObservationStatus.FINAL);
+		observation.setSubject(new Reference(patientFullUrl));
+		bundle.addEntry().setResource(observation).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Observation");
+		bundle.addEntry().setResource(new Observation().setStatus(Observation.ObservationStatus.FINAL)).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Observation");
+
+		Bundle response = mySystemDao.transaction(mySrd, bundle);
+
+		// Placeholder references can't be resolved across entries in a batch, whether or not grouping is enabled
+		assertEquals("201 Created", response.getEntry().get(0).getResponse().getStatus());
+		assertEquals("400 Bad Request", response.getEntry().get(1).getResponse().getStatus());
+		assertEquals("201 Created", response.getEntry().get(2).getResponse().getStatus());
+	}
+
+	/**
+	 * Compares the rate at which batch bundles containing many creates are processed
+	 * with and without entry grouping. This is a benchmark rather than a test, so it
+	 * is disabled by default.
+	 */
+	@Test
+	@Disabled
+	public void testBenchmarkBatchCreates() {
+		int count = 1000;
+		for (int pass = 0; pass < 3; pass++) {
+			for (int groupSize : List.of(1, 50)) {
+				myStorageSettings.setBundleBatchMaxGroupSize(groupSize);
+				Bundle bundle = new Bundle();
+				bundle.setType(Bundle.BundleType.BATCH);
+				for (int i = 0; i < count; i++) {
+					Patient patient = new Patient();
+					patient.addIdentifier().setSystem("http://foo").setValue(pass + "-" + groupSize + "-" + i);
+					patient.addName().setFamily("Family" + i);
+					bundle.addEntry().setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+				}
+				StopWatch sw = new StopWatch();
+				mySystemDao.transaction(mySrd, bundle);
+				ourLog.info("Batch group size {}: {} creates in {} - {}/sec", groupSize, count, sw, sw.formatThroughput(count, TimeUnit.SECONDS));
+			}
+		}
+	}
+
+	private List<String> searchPatients(String theIdentifierValue) {
+		return toUnqualifiedVersionlessIdValues(myPatientDao.search(SearchParameterMap.newSynchronous("identifier", new TokenParam("http://foo", theIdentifierValue)), mySrd));
+	}
+}
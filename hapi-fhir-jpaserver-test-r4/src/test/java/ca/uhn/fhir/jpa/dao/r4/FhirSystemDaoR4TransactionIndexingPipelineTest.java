@@ -0,0 +1,187 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.util.StopWatch;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FhirSystemDaoR4TransactionIndexingPipelineTest extends BaseJpaR4Test {
+	private static final Logger ourLog = LoggerFactory.getLogger(FhirSystemDaoR4TransactionIndexingPipelineTest.class);
+
+	@BeforeEach
+	public void beforeEnablePipeline() {
+		myStorageSettings.setTransactionIndexingPipelineEnabled(true);
+	}
+
+	@AfterEach
+	public void afterResetStorageSettings() {
+		myStorageSettings.setTransactionIndexingPipelineEnabled(new JpaStorageSettings().isTransactionIndexingPipelineEnabled());
+	}
+
+	@Test
+	public void testTransactionWithPlaceholderReferences() {
+		Bundle response = mySystemDao.transaction(mySrd, createBundle("A", 50));
+		assertThat(response.getEntry()).hasSize(100);
+
+		assertThat(searchIds("Patient", "identifier", new TokenParam("http://foo", "A-7"))).hasSize(1);
+		assertThat(searchIds("Patient", "family", new StringParam("Family-A-7"))).hasSize(1);
+		String patientId = searchIds("Patient", "identifier", new TokenParam("http://foo", "A-7")).get(0);
+		assertThat(searchIds("Observation", "subject", new ReferenceParam(patientId))).hasSize(1);
+		assertThat(searchIds("Observation", "code", new TokenParam("http://loinc.org", "A-code"))).hasSize(50);
+		assertThat(searchIds("Observation", "date", new DateParam("2024-01-01"))).hasSize(50);
+	}
+
+	@Test
+	public void testTransactionIndexesMatchSequentialIndexing() {
+		myStorageSettings.setTransactionIndexingPipelineEnabled(false);
+		mySystemDao.transaction(mySrd, createBundle("A", 20));
+		long sequentialTokens = runInTransaction(() -> myResourceIndexedSearchParamTokenDao.count());
+		long sequentialStrings = runInTransaction(() -> myResourceIndexedSearchParamStringDao.count());
+		long sequentialLinks = runInTransaction(() -> myResourceLinkDao.count());
+
+		myStorageSettings.setTransactionIndexingPipelineEnabled(true);
+		mySystemDao.transaction(mySrd, createBundle("B", 20));
+
+		assertEquals(sequentialTokens * 2, runInTransaction(() -> myResourceIndexedSearchParamTokenDao.count()));
+		assertEquals(sequentialStrings * 2, runInTransaction(() -> myResourceIndexedSearchParamStringDao.count()));
+		assertEquals(sequentialLinks * 2, runInTransaction(() -> myResourceLinkDao.count()));
+	}
+
+	@Test
+	public void testTransactionWithReferenceToResourceObject() {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.TRANSACTION);
+
+		Patient patient = new Patient();
+		patient.setId(UUID.randomUUID().toString());
+		patient.addIdentifier().setSystem("http://foo").setValue("A");
+		bundle.addEntry().setResource(patient).setFullUrl(patient.getIdElement().getValue()).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+
+		for (int i = 0; i < 3; i++) {
+			Observation observation = new Observation();
+			observation.getCode().addCoding().setSystem("http://loinc.org").setCode("code" + i);
+			observation.getSubject().setResource(patient);
+			bundle.addEntry().setResource(observation).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Observation");
+		}
+
+		mySystemDao.transaction(mySrd, bundle);
+
+		String patientId = searchIds("Patient", "identifier", new TokenParam("http://foo", "A")).get(0);
+		assertThat(searchIds("Observation", "subject", new ReferenceParam(patientId))).hasSize(3);
+		assertThat(searchIds("Observation", "code", new TokenParam("http://loinc.org", "code1"))).hasSize(1);
+	}
+
+	@Test
+	public void testTransactionWithUpdates() {
+		mySystemDao.transaction(mySrd, createBundle("A", 10));
+
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.TRANSACTION);
+		for (int i = 0; i < 10; i++) {
+			Patient patient = new Patient();
+			patient.addIdentifier().setSystem("http://foo").setValue("A-" + i);
+			patient.addName().setFamily("Updated-" + i);
+			bundle.addEntry().setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.PUT).setUrl("Patient?identifier=http://foo|A-" + i);
+		}
+		mySystemDao.transaction(mySrd, bundle);
+
+		assertThat(searchIds("Patient", "family", new StringParam("Updated-3"))).hasSize(1);
+		assertThat(searchIds("Patient", "family", new StringParam("Family-A-3"))).isEmpty();
+	}
+
+	@Test
+	public void testTransactionFailsPartwayThrough() {
+		Bundle bundle = createBundle("A", 20);
+		Observation badObservation = (Observation) bundle.getEntry().get(21).getResource();
+		String originalReference = badObservation.getSubject().getReference();
+		badObservation.setSubject(new Reference("Patient/DOES-NOT-EXIST"));
+
+		assertThrows(InvalidRequestException.class, () -> mySystemDao.transaction(mySrd, bundle));
+
+		// The rollback restored the placeholder references, so the bundle can be resubmitted
+		assertThat(searchIds("Patient", "identifier", new TokenParam("http://foo", "A-7"))).isEmpty();
+		for (Bundle.BundleEntryComponent next : bundle.getEntry()) {
+			if (next.getResource() instanceof Observation observation && observation != badObservation) {
+				assertThat(observation.getSubject().getReference()).startsWith("urn:uuid:");
+			}
+		}
+
+		badObservation.setSubject(new Reference(originalReference));
+		mySystemDao.transaction(mySrd, bundle);
+		String patientId = searchIds("Patient", "identifier", new TokenParam("http://foo", "A-7")).get(0);
+		assertThat(searchIds("Observation", "subject", new ReferenceParam(patientId))).hasSize(1);
+		assertThat(searchIds("Observation", "code", new TokenParam("http://loinc.org", "A-code"))).hasSize(20);
+	}
+
+	/**
+	 * Compares the rate at which large transactions are processed with and without the
+	 * transaction indexing pipeline. This is a benchmark rather than a test, so it is
+	 * disabled by default.
+	 */
+	@Test
+	@Disabled
+	public void testBenchmarkLargeTransactions() {
+		int count = 2500;
+		for (int pass = 0; pass < 3; pass++) {
+			for (boolean pipeline : List.of(false, true)) {
+				myStorageSettings.setTransactionIndexingPipelineEnabled(pipeline);
+				Bundle bundle = createBundle(pass + "-" + pipeline, count);
+				StopWatch sw = new StopWatch();
+				mySystemDao.transaction(mySrd, bundle);
+				ourLog.info("Transaction indexing pipeline {}: {} resources in {} - {}/sec", pipeline, count * 2, sw, sw.formatThroughput(count * 2, TimeUnit.SECONDS));
+			}
+		}
+	}
+
+	private static Bundle createBundle(String thePrefix, int thePatientCount) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.TRANSACTION);
+		for (int i = 0; i < thePatientCount; i++) {
+			String patientFullUrl = "urn:uuid:" + UUID.randomUUID();
+			Patient patient = new Patient();
+			patient.addIdentifier().setSystem("http://foo").setValue(thePrefix + "-" + i);
+			patient.addName().setFamily("Family-" + thePrefix + "-" + i).addGiven("Given");
+			patient.addTelecom().setValue("555-" + i);
+			bundle.addEntry().setResource(patient).setFullUrl(patientFullUrl).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+
+			Observation observation = new Observation();
+			observation.setStatus(Observation.ObservationStatus.FINAL);
+			observation.getCode().addCoding().setSystem("http://loinc.org").setCode(thePrefix + "-code").setDisplay("Code display");
+			observation.setSubject(new Reference(patientFullUrl));
+			observation.setEffective(new DateTimeType("2024-01-01"));
+			observation.setValue(new Quantity().setValue(i).setSystem("http://unitsofmeasure.org").setCode("mg"));
+			bundle.addEntry().setResource(observation).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Observation");
+		}
+		return bundle;
+	}
+
+	private List<String> searchIds(String theResourceType, String theParamName, IQueryParameterType theParam) {
+		return toUnqualifiedVersionlessIdValues(myDaoRegistry.getResourceDao(theResourceType).search(SearchParameterMap.newSynchronous(theParamName, theParam), mySrd));
+	}
+}
@@ -5,6 +5,7 @@ import ca.uhn.fhir.batch2.api.IJobPersistence;
 import ca.uhn.fhir.batch2.jobs.bulkmodify.framework.common.BulkModifyResourcesResultsJson;
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrl;
 import ca.uhn.fhir.batch2.jobs.reindex.ReindexJobParameters;
+import ca.uhn.fhir.batch2.model.AdaptiveChunkSizing;
 import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
 import ca.uhn.fhir.batch2.model.StatusEnum;
@@ -16,6 +17,7 @@ import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.dao.JpaPidFk;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryProvenanceEntity;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedComboStringUnique;
@@ -54,6 +56,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static ca.uhn.fhir.batch2.jobs.reindex.ReindexUtils.JOB_REINDEX;
@@ -92,6 +95,7 @@ public class ReindexTaskTest extends BaseJpaR4Test {
 		myStorageSettings.setStoreMetaSourceInformation(defaults.getStoreMetaSourceInformation());
 		myStorageSettings.setPreserveRequestIdInResourceBody(defaults.isPreserveRequestIdInResourceBody());
 		myStorageSettings.setAccessMetaSourceInformationFromProvenanceTable(defaults.isAccessMetaSourceInformationFromProvenanceTable());
+		myStorageSettings.setResourceEncoding(defaults.getResourceEncoding());
 	}
 
 	@Test
@@ -203,6 +207,59 @@ public class ReindexTaskTest extends BaseJpaR4Test {
 
 	}
 
+	@ParameterizedTest
+	@EnumSource(value = ResourceEncodingEnum.class, names = {"ZSTD", "LZ4"})
+	public void testOptimizeStorage_AllVersions_RecompressWithNewEncoding(ResourceEncodingEnum theEncoding) {
+		// Setup
+		IIdType patientId = createPatient(withActiveTrue());
+		for (int i = 0; i < 5; i++) {
+			Patient p = new Patient();
+			p.setId(patientId.toUnqualifiedVersionless());
+			p.setActive(true);
+			p.addIdentifier().setValue(String.valueOf(i));
+			myPatientDao.update(p, mySrd);
+		}
+
+		runInTransaction(()->{
+			assertEquals(6, myResourceHistoryTableDao.count());
+			for (ResourceHistoryTable history : myResourceHistoryTableDao.findAll()) {
+				assertEquals(ResourceEncodingEnum.JSON, history.getEncoding());
+			}
+		});
+
+		// execute
+		myStorageSettings.setResourceEncoding(theEncoding);
+		JobInstanceStartRequest startRequest = new JobInstanceStartRequest();
+		startRequest.setJobDefinitionId(JOB_REINDEX);
+		startRequest.setParameters(
+			new ReindexJobParameters()
+				.setOptimizeStorage(ALL_VERSIONS)
+				.setReindexSearchParameters(ReindexParameters.ReindexSearchParametersEnum.NONE)
+		);
+		Batch2JobStartResponse startResponse = myJobCoordinator.startInstance(mySrd, startRequest);
+		myBatch2JobHelper.awaitJobCompletion(startResponse);
+
+		// validate
+		runInTransaction(()->{
+			assertEquals(6, myResourceHistoryTableDao.count());
+			for (ResourceHistoryTable history : myResourceHistoryTableDao.findAll()) {
+				assertEquals(theEncoding, history.getEncoding());
+				assertNotNull(history.getResourceTextVc());
+				assertNull(history.getResource());
+			}
+		});
+		Patient patient = myPatientDao.read(patientId, mySrd);
+		assertTrue(patient.getActive());
+		assertEquals("4", patient.getIdentifierFirstRep().getValue());
+		Patient firstVersion = myPatientDao.read(patientId.withVersion("1"), mySrd);
+		assertTrue(firstVersion.getActive());
+		assertThat(firstVersion.getIdentifier()).isEmpty();
+
+		// An update with no changes should still be detected as a no-op
+		myPatientDao.update(patient, mySrd);
+		assertEquals("6", myPatientDao.read(patientId.toVersionless(), mySrd).getIdElement().getVersionIdPart());
+	}
+
 	@Test
 	public void testOptimizeStorage_AllVersions_SingleResourceWithMultipleVersion() {
 
@@ -396,6 +453,12 @@ public class ReindexTaskTest extends BaseJpaR4Test {
 			"Total Resources Changed   : 1 "
 		);
 
+		// the chunk sizes chosen for the adaptively sized step are visible in the instance
+		assertThat((Map<String, Object>) finalInstance.getUserData().get(AdaptiveChunkSizing.USER_DATA_KEY))
+			.containsEntry("stepId", "modify-resources")
+			.containsEntry("completedChunks", 1)
+			.containsEntry("averageChunkSize", 1);
+
 		// validate results
 		assertEquals(2, myObservationDao.search(SearchParameterMap.newSynchronous(), mySrd).size());
 
@@ -0,0 +1,203 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.util.StopWatch;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DatabaseBlockSearchResultCacheSvcImplTest extends BaseJpaR4Test {
+	private static final Logger ourLog = LoggerFactory.getLogger(DatabaseBlockSearchResultCacheSvcImplTest.class);
+
+	@Autowired
+	private ISearchResultBlockDao mySearchResultBlockDao;
+
+	private DatabaseBlockSearchResultCacheSvcImpl myBlockSvc;
+	private DatabaseSearchResultCacheSvcImpl myRowSvc;
+
+	@BeforeEach
+	public void beforeCreateSvcs() {
+		myBlockSvc = new DatabaseBlockSearchResultCacheSvcImpl();
+		myApplicationContext.getAutowireCapableBeanFactory().autowireBean(myBlockSvc);
+		myBlockSvc.setBlockSizeForUnitTest(10);
+		myRowSvc = new DatabaseSearchResultCacheSvcImpl();
+		myApplicationContext.getAutowireCapableBeanFactory().autowireBean(myRowSvc);
+	}
+
+	@AfterEach
+	public void afterResetCutoff() {
+		DatabaseSearchCacheSvcImpl searchCacheSvc = AopTestUtils.getTargetObject(mySearchCacheSvc);
+		searchCacheSvc.setCutoffSlackForUnitTest(DatabaseSearchCacheSvcImpl.SEARCH_CLEANUP_JOB_INTERVAL_MILLIS);
+	}
+
+	@Test
+	public void testStoreInSeveralPassesAndFetchPages() {
+		Search search = createSearch(new Date());
+		List<JpaPid> allPids = createPids(87);
+
+		// Pass sizes deliberately do not line up with the block size
+		List<JpaPid> stored = new ArrayList<>();
+		for (int passSize : new int[] {3, 7, 15, 1, 20, 41}) {
+			List<JpaPid> newPids = allPids.subList(stored.size(), stored.size() + passSize);
+			myBlockSvc.storeResults(search, stored, newPids, mySrd, RequestPartitionId.allPartitions());
+			stored = new ArrayList<>(allPids.subList(0, stored.size() + passSize));
+		}
+
+		runInTransaction(() -> assertEquals(9, mySearchResultBlockDao.findAllBlocks(search.getId()).size()));
+		assertPidsEqual(allPids, myBlockSvc.fetchAllResultPids(search, mySrd, RequestPartitionId.allPartitions()));
+		for (int from = 0; from < 95; from += 4) {
+			for (int size : new int[] {1, 5, 10, 23}) {
+				int to = from + size;
+				List<JpaPid> expected = allPids.subList(Math.min(from, allPids.size()), Math.min(to, allPids.size()));
+				List<JpaPid> actual =
+						myBlockSvc.fetchResultPids(search, from, to, mySrd, RequestPartitionId.allPartitions());
+				assertPidsEqual(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void testFetchFallsBackToRows() {
+		Search search = createSearch(new Date());
+		List<JpaPid> pids = createPids(25);
+		myRowSvc.storeResults(search, List.of(), pids, mySrd, RequestPartitionId.allPartitions());
+
+		assertPidsEqual(
+				pids.subList(5, 15),
+				myBlockSvc.fetchResultPids(search, 5, 15, mySrd, RequestPartitionId.allPartitions()));
+		assertPidsEqual(pids, myBlockSvc.fetchAllResultPids(search, mySrd, RequestPartitionId.allPartitions()));
+	}
+
+	@Test
+	public void testFetchMergesRowsAndBlocks() {
+		Search search = createSearch(new Date());
+		List<JpaPid> allPids = createPids(37);
+
+		// The storage mode is switched from ROWS to BLOCKS after the first pass
+		List<JpaPid> rowPids = allPids.subList(0, 13);
+		myRowSvc.storeResults(search, List.of(), rowPids, mySrd, RequestPartitionId.allPartitions());
+		myBlockSvc.storeResults(
+				search, rowPids, allPids.subList(13, 37), mySrd, RequestPartitionId.allPartitions());
+		search.setNumFound(allPids.size());
+
+		runInTransaction(() -> assertEquals(3, mySearchResultBlockDao.findAllBlocks(search.getId()).size()));
+		assertThat(myBlockSvc.fetchAllResultPids(search, mySrd, RequestPartitionId.allPartitions()))
+				.containsExactlyInAnyOrderElementsOf(allPids);
+		for (int from = 0; from < 40; from += 3) {
+			for (int size : new int[] {1, 5, 10, 23}) {
+				int to = from + size;
+				List<JpaPid> expected = allPids.subList(Math.min(from, allPids.size()), Math.min(to, allPids.size()));
+				List<JpaPid> actual =
+						myBlockSvc.fetchResultPids(search, from, to, mySrd, RequestPartitionId.allPartitions());
+				assertPidsEqual(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void testStaleSearchDeletesBlocks() {
+		DatabaseSearchCacheSvcImpl searchCacheSvc = AopTestUtils.getTargetObject(mySearchCacheSvc);
+		searchCacheSvc.setCutoffSlackForUnitTest(0);
+		Search search = createSearch(DateUtils.addDays(new Date(), -10000));
+		myBlockSvc.storeResults(search, List.of(), createPids(35), mySrd, RequestPartitionId.allPartitions());
+		runInTransaction(() -> assertEquals(4, mySearchResultBlockDao.count()));
+
+		myStaleSearchDeletingSvc.pollForStaleSearchesAndDeleteThem();
+
+		runInTransaction(() -> {
+			assertEquals(0, mySearchResultBlockDao.count());
+			assertEquals(0, mySearchEntityDao.count());
+		});
+	}
+
+	/**
+	 * Compares the latency of loading page N for the row and block based storage.
+	 * This is a benchmark rather than a test, so it is disabled by default.
+	 */
+	@Test
+	@Disabled
+	public void testBenchmarkPageLatency() {
+		int pageSize = 20;
+		int pageCount = 10000;
+		myBlockSvc.setBlockSizeForUnitTest(DatabaseBlockSearchResultCacheSvcImpl.DEFAULT_BLOCK_SIZE);
+		List<JpaPid> pids = createPids(pageSize * pageCount);
+
+		Search rowSearch = createSearch(new Date());
+		Search blockSearch = createSearch(new Date());
+		StopWatch sw = new StopWatch();
+		myRowSvc.storeResults(rowSearch, List.of(), pids, mySrd, RequestPartitionId.allPartitions());
+		ourLog.info("Stored {} results as rows in {}", pids.size(), sw);
+		sw.restart();
+		myBlockSvc.storeResults(blockSearch, List.of(), pids, mySrd, RequestPartitionId.allPartitions());
+		ourLog.info("Stored {} results as blocks in {}", pids.size(), sw);
+
+		for (int pass = 0; pass < 3; pass++) {
+			for (int page : new int[] {1, 10, 100, 1000, 5000, 9999}) {
+				benchmarkPage("rows", myRowSvc, rowSearch, page, pageSize);
+				benchmarkPage("blocks", myBlockSvc, blockSearch, page, pageSize);
+			}
+		}
+	}
+
+	private void benchmarkPage(String theName, ISearchResultCacheSvc theSvc, Search theSearch, int thePage, int thePageSize) {
+		int count = 50;
+		int from = thePage * thePageSize;
+		StopWatch sw = new StopWatch();
+		for (int i = 0; i < count; i++) {
+			List<JpaPid> page =
+					theSvc.fetchResultPids(theSearch, from, from + thePageSize, mySrd, RequestPartitionId.allPartitions());
+			assertThat(page).hasSize(thePageSize);
+		}
+		ourLog.info("{}: page {} loaded in {}ms avg", theName, thePage, sw.getMillis() / (double) count);
+	}
+
+	private Search createSearch(Date theCreated) {
+		return runInTransaction(() -> {
+			Search search = new Search();
+			search.setStatus(SearchStatusEnum.FINISHED);
+			search.setUuid(UUID.randomUUID().toString());
+			search.setCreated(theCreated);
+			search.setSearchType(SearchTypeEnum.SEARCH);
+			search.setResourceType("Patient");
+			return mySearchEntityDao.save(search);
+		});
+	}
+
+	private static List<JpaPid> createPids(int theCount) {
+		List<JpaPid> retVal = new ArrayList<>();
+		for (int i = 0; i < theCount; i++) {
+			// Mix ascending and descending runs and a few partitions
+			long pid = i % 7 == 0 ? 1_000_000L - i : 1000L + i * 3L;
+			retVal.add(JpaPid.fromId(pid, i % 5 == 0 ? null : i % 3));
+		}
+		return retVal;
+	}
+
+	private static void assertPidsEqual(List<JpaPid> theExpected, List<JpaPid> theActual) {
+		assertThat(theActual).hasSize(theExpected.size());
+		for (int i = 0; i < theExpected.size(); i++) {
+			assertEquals(theExpected.get(i).getId(), theActual.get(i).getId());
+			assertEquals(theExpected.get(i).getPartitionId(), theActual.get(i).getPartitionId());
+		}
+	}
+}
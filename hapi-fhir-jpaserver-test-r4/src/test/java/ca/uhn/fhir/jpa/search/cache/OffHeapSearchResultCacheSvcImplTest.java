@@ -0,0 +1,147 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapSearchResultCacheSvcImplTest extends BaseJpaR4Test {
+
+	private static final int PIDS_PER_SEARCH = 256;
+	private static final long MINIMUM_BYTES = 256L * OffHeapSearchResultCacheSvcImpl.BYTES_PER_PID;
+
+	@Autowired
+	private ISearchResultBlockDao mySearchResultBlockDao;
+
+	private OffHeapSearchResultCacheSvcImpl mySvc;
+
+	@BeforeEach
+	public void beforeCreateSvc() {
+		// Room for two searches
+		mySvc = new OffHeapSearchResultCacheSvcImpl(2L * PIDS_PER_SEARCH * OffHeapSearchResultCacheSvcImpl.BYTES_PER_PID);
+		myApplicationContext.getAutowireCapableBeanFactory().autowireBean(mySvc);
+	}
+
+	@Test
+	public void testStoreAndFetch_InMemory() {
+		Search search = createSearch(new Date());
+		List<JpaPid> pids = createPids(PIDS_PER_SEARCH);
+
+		mySvc.storeResults(search, List.of(), pids.subList(0, 100), mySrd, RequestPartitionId.allPartitions());
+		mySvc.storeResults(search, pids.subList(0, 100), pids.subList(100, PIDS_PER_SEARCH), mySrd, RequestPartitionId.allPartitions());
+
+		assertTrue(mySvc.isHeldInMemory(search.getId()));
+		assertEquals(PIDS_PER_SEARCH * OffHeapSearchResultCacheSvcImpl.BYTES_PER_PID, mySvc.getUsedBytes());
+		assertPidsEqual(pids.subList(50, 70), mySvc.fetchResultPids(search, 50, 70, mySrd, RequestPartitionId.allPartitions()));
+		assertPidsEqual(pids.subList(250, PIDS_PER_SEARCH), mySvc.fetchResultPids(search, 250, 270, mySrd, RequestPartitionId.allPartitions()));
+		assertPidsEqual(pids, mySvc.fetchAllResultPids(search, mySrd, RequestPartitionId.allPartitions()));
+		runInTransaction(() -> {
+			assertEquals(0, mySearchResultDao.count());
+			assertEquals(0, mySearchResultBlockDao.count());
+		});
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed_SpillsToDatabase() {
+		Search search0 = createSearch(new Date());
+		Search search1 = createSearch(new Date());
+		Search search2 = createSearch(new Date());
+		List<JpaPid> pids0 = createPids(700);
+		List<JpaPid> pids1 = createPids(PIDS_PER_SEARCH);
+		List<JpaPid> pids2 = createPids(PIDS_PER_SEARCH);
+
+		mySvc.storeResults(search0, List.of(), pids0.subList(0, 200), mySrd, RequestPartitionId.allPartitions());
+		mySvc.storeResults(search1, List.of(), pids1, mySrd, RequestPartitionId.allPartitions());
+		// Touch search 0 so that search 1 is the least recently used
+		mySvc.fetchResultPids(search0, 0, 10, mySrd, RequestPartitionId.allPartitions());
+		mySvc.storeResults(search2, List.of(), pids2, mySrd, RequestPartitionId.allPartitions());
+
+		assertTrue(mySvc.isHeldInMemory(search0.getId()));
+		assertFalse(mySvc.isHeldInMemory(search1.getId()));
+		assertTrue(mySvc.isHeldInMemory(search2.getId()));
+		runInTransaction(() -> assertThat(mySearchResultBlockDao.findAllBlocks(search1.getId())).isNotEmpty());
+		assertPidsEqual(pids1.subList(10, 30), mySvc.fetchResultPids(search1, 10, 30, mySrd, RequestPartitionId.allPartitions()));
+		assertPidsEqual(pids1, mySvc.fetchAllResultPids(search1, mySrd, RequestPartitionId.allPartitions()));
+
+		// Growing search 0 makes it the most recently used, so search 2 is evicted
+		mySvc.storeResults(search0, pids0.subList(0, 200), pids0.subList(200, 300), mySrd, RequestPartitionId.allPartitions());
+		assertTrue(mySvc.isHeldInMemory(search0.getId()));
+		assertFalse(mySvc.isHeldInMemory(search2.getId()));
+		assertPidsEqual(pids2, mySvc.fetchAllResultPids(search2, mySrd, RequestPartitionId.allPartitions()));
+
+		// Search 0 no longer fits at all, and later results for it go straight to the database
+		mySvc.storeResults(search0, pids0.subList(0, 300), pids0.subList(300, 600), mySrd, RequestPartitionId.allPartitions());
+		assertFalse(mySvc.isHeldInMemory(search0.getId()));
+		assertEquals(0, mySvc.getUsedBytes());
+		mySvc.storeResults(search0, pids0.subList(0, 600), pids0.subList(600, 700), mySrd, RequestPartitionId.allPartitions());
+		assertFalse(mySvc.isHeldInMemory(search0.getId()));
+		assertPidsEqual(pids0, mySvc.fetchAllResultPids(search0, mySrd, RequestPartitionId.allPartitions()));
+		assertPidsEqual(pids0.subList(590, 640), mySvc.fetchResultPids(search0, 590, 640, mySrd, RequestPartitionId.allPartitions()));
+	}
+
+	@Test
+	public void testReleaseResultsForDeletedSearches() {
+		Search oldSearch = createSearch(DateUtils.addDays(new Date(), -1));
+		Search newSearch = createSearch(new Date());
+		mySvc.storeResults(oldSearch, List.of(), createPids(10), mySrd, RequestPartitionId.allPartitions());
+		mySvc.storeResults(newSearch, List.of(), createPids(10), mySrd, RequestPartitionId.allPartitions());
+
+		mySvc.releaseResultsForDeletedSearches();
+		assertTrue(mySvc.isHeldInMemory(oldSearch.getId()));
+
+		runInTransaction(() -> mySearchEntityDao.updateDeleted(Set.of(oldSearch.getId()), true));
+		mySvc.releaseResultsForDeletedSearches();
+
+		assertFalse(mySvc.isHeldInMemory(oldSearch.getId()));
+		assertTrue(mySvc.isHeldInMemory(newSearch.getId()));
+		assertEquals(MINIMUM_BYTES, mySvc.getUsedBytes());
+	}
+
+	private Search createSearch(Date theCreated) {
+		return runInTransaction(() -> {
+			Search search = new Search();
+			search.setStatus(SearchStatusEnum.FINISHED);
+			search.setUuid(UUID.randomUUID().toString());
+			search.setCreated(theCreated);
+			search.setSearchType(SearchTypeEnum.SEARCH);
+			search.setResourceType("Patient");
+			search.setDeleted(false);
+			return mySearchEntityDao.save(search);
+		});
+	}
+
+	private static List<JpaPid> createPids(int theCount) {
+		List<JpaPid> retVal = new ArrayList<>();
+		long base = (long) (Math.random() * 1_000_000);
+		for (int i = 0; i < theCount; i++) {
+			retVal.add(JpaPid.fromId(base + i, i % 4 == 0 ? null : i % 3));
+		}
+		return retVal;
+	}
+
+	private static void assertPidsEqual(List<JpaPid> theExpected, List<JpaPid> theActual) {
+		assertThat(theActual).hasSize(theExpected.size());
+		for (int i = 0; i < theExpected.size(); i++) {
+			assertEquals(theExpected.get(i).getId(), theActual.get(i).getId());
+			assertEquals(theExpected.get(i).getPartitionId(), theActual.get(i).getPartitionId());
+		}
+	}
+}
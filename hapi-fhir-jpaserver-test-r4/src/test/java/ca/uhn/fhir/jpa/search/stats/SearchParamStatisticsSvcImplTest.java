@@ -0,0 +1,128 @@
+package ca.uhn.fhir.jpa.search.stats;
+
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.param.TokenParamModifier;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SearchParamStatisticsSvcImplTest extends BaseJpaR4Test {
+
+	@Autowired
+	private ISearchParamStatisticsSvc mySearchParamStatisticsSvc;
+
+	@Override
+	@BeforeEach
+	public void before() throws Exception {
+		super.before();
+		myStorageSettings.setSearchParamStatisticsEnabled(true);
+
+		createPatient(withId("P0"), withActiveTrue());
+		createPatient(withId("P1"), withActiveTrue());
+		for (int i = 0; i < 200; i++) {
+			Observation obs = new Observation();
+			obs.setStatus(Observation.ObservationStatus.FINAL);
+			// code0 is common, the others are rare
+			String code = i < 150 ? "code0" : "code" + i;
+			obs.getCode().addCoding().setSystem("http://loinc").setCode(code);
+			obs.getSubject().setReference(i < 190 ? "Patient/P0" : "Patient/P1");
+			myObservationDao.create(obs, mySrd);
+		}
+	}
+
+	@AfterEach
+	public void afterResetSettings() {
+		myStorageSettings.setSearchParamStatisticsEnabled(new JpaStorageSettings().isSearchParamStatisticsEnabled());
+		SearchParamStatisticsSvcImpl svc = AopTestUtils.getTargetObject(mySearchParamStatisticsSvc);
+		svc.setSampleSizeForUnitTest(SearchParamStatisticsSvcImpl.DEFAULT_SAMPLE_SIZE);
+		svc.refreshStatistics();
+	}
+
+	@Test
+	public void testFullScan() {
+		mySearchParamStatisticsSvc.refreshStatistics();
+
+		SearchParamStatistics codeStatistics = getStatistics("Observation", "code");
+		assertNotNull(codeStatistics);
+		assertThat(codeStatistics.getEstimatedRowCount()).isEqualTo(200);
+		assertThat(codeStatistics.getEstimatedDistinctValueCount()).isBetween(45L, 56L);
+
+		assertThat(estimate("code", new TokenParam("http://loinc", "code0"))).isBetween(150L, 160L);
+		assertThat(estimate("code", new TokenParam("http://loinc", "code199"))).isBetween(1L, 10L);
+		assertThat(estimate("status", new TokenParam("final"))).isEqualTo(200L);
+		assertThat(estimate("subject", new ReferenceParam("Patient/P0"))).isGreaterThan(0L);
+
+		// Modifiers can't be estimated
+		assertNull(estimate("code", new TokenParam("http://loinc", "code0").setModifier(TokenParamModifier.NOT)));
+	}
+
+	@Test
+	public void testSampledWindows() {
+		SearchParamStatisticsSvcImpl svc = AopTestUtils.getTargetObject(mySearchParamStatisticsSvc);
+		svc.setSampleSizeForUnitTest(100);
+		svc.refreshStatistics();
+
+		// Each window sees roughly a tenth of its range, and the result is extrapolated
+		SearchParamStatistics codeStatistics = getStatistics("Observation", "code");
+		assertNotNull(codeStatistics);
+		assertThat(codeStatistics.getSampledRowCount()).isLessThan(200);
+		assertThat((double) codeStatistics.getEstimatedRowCount()).isCloseTo(200, within(100.0));
+	}
+
+	@Test
+	public void testDisabled() {
+		mySearchParamStatisticsSvc.refreshStatistics();
+		assertNotNull(getStatistics("Observation", "code"));
+
+		myStorageSettings.setSearchParamStatisticsEnabled(false);
+		mySearchParamStatisticsSvc.refreshStatistics();
+		assertNull(getStatistics("Observation", "code"));
+	}
+
+	@Test
+	public void testSearchWithStatisticsUsesSelectiveParameterFirst() {
+		mySearchParamStatisticsSvc.refreshStatistics();
+
+		SearchParameterMap map = SearchParameterMap.newSynchronous()
+				.add(Observation.SP_STATUS, new TokenParam("final"))
+				.add(Observation.SP_CODE, new TokenParam("http://loinc", "code199"));
+		myCaptureQueriesListener.clear();
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd))).hasSize(1);
+
+		// The code predicate is much more selective than the status one, so it is joined first
+		String sql = myCaptureQueriesListener.getSelectQueries().get(0).getSql(false, false);
+		assertThat(sql.indexOf("HASH_SYS_AND_VALUE")).isLessThan(sql.indexOf("HASH_VALUE"));
+	}
+
+	private SearchParamStatistics getStatistics(String theResourceType, String theParamName) {
+		long hashIdentity = BaseResourceIndexedSearchParam.calculateHashIdentity(
+				myPartitionSettings, RequestPartitionId.defaultPartition(), theResourceType, theParamName);
+		return mySearchParamStatisticsSvc.getStatistics(hashIdentity);
+	}
+
+	private Long estimate(String theParamName, IQueryParameterType theParam) {
+		RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(
+				"Observation", theParamName, ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH);
+		return mySearchParamStatisticsSvc.estimateMatchCount(
+				RequestPartitionId.defaultPartition(), "Observation", searchParam, List.of(List.of(theParam)));
+	}
+}
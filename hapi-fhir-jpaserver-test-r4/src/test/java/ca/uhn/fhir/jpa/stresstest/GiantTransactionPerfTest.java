@@ -445,6 +445,11 @@ public class GiantTransactionPerfTest {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public Slice<ResourceHistoryTable> findMostRecentForResourceType(Pageable thePage, String theResourceType) {
+			throw new UnsupportedOperationException();
+		}
+
 		@Nonnull
 		@Override
 		public List<ResourceHistoryTable> findAll() {
@@ -0,0 +1,76 @@
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.broker.api.IBrokerClient;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MemoryCacheInvalidationBroadcasterR4Test extends BaseJpaR4Test {
+
+	@Autowired
+	private MemoryCacheInvalidationBroadcaster myMemoryCacheInvalidationBroadcaster;
+
+	@Autowired
+	private IBrokerClient myBrokerClient;
+
+	private MemoryCacheInvalidationBroadcaster myOtherNodeBroadcaster;
+
+	@AfterEach
+	public void afterStopBroadcasters() {
+		myMemoryCacheInvalidationBroadcaster.stop();
+		if (myOtherNodeBroadcaster != null) {
+			myOtherNodeBroadcaster.stop();
+		}
+		myStorageSettings.setMemoryCacheInvalidationBroadcastEnabled(
+				new JpaStorageSettings().isMemoryCacheInvalidationBroadcastEnabled());
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		MemoryCacheService otherNode = startOtherNode();
+		myMemoryCacheInvalidationBroadcaster.start();
+		myMemoryCacheService.put(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A", "1");
+		otherNode.put(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A", "1");
+
+		myMemoryCacheService.invalidateCaches(MemoryCacheService.CacheEnum.NAME_TO_PARTITION);
+
+		assertNull(myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A"));
+		assertEquals("1", otherNode.getIfPresent(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A"));
+	}
+
+	@Test
+	public void testInvalidationEvictsEntryOnOtherNode() {
+		myStorageSettings.setMemoryCacheInvalidationBroadcastEnabled(true);
+		myMemoryCacheInvalidationBroadcaster.start();
+		MemoryCacheService otherNode = startOtherNode();
+
+		myMemoryCacheService.put(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A", "1");
+		otherNode.put(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A", "1");
+		otherNode.put(MemoryCacheService.CacheEnum.MATCH_URL, "A", "1");
+
+		// Invalidation on this node reaches the other node
+		myMemoryCacheService.invalidateCaches(MemoryCacheService.CacheEnum.NAME_TO_PARTITION);
+		await().until(() -> otherNode.getIfPresent(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A") == null);
+		assertEquals("1", otherNode.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "A"));
+
+		// Invalidation on the other node reaches this node
+		myMemoryCacheService.put(MemoryCacheService.CacheEnum.MATCH_URL, "A", "1");
+		otherNode.invalidateCaches(MemoryCacheService.CacheEnum.MATCH_URL);
+		await().until(() -> myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "A") == null);
+	}
+
+	private MemoryCacheService startOtherNode() {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheInvalidationBroadcastEnabled(true);
+		MemoryCacheService retVal = new MemoryCacheService(storageSettings);
+		myOtherNodeBroadcaster = new MemoryCacheInvalidationBroadcaster(myBrokerClient, retVal, storageSettings);
+		myOtherNodeBroadcaster.start();
+		return retVal;
+	}
+}
@@ -0,0 +1,56 @@
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MemoryCacheJmxExporterR4Test extends BaseJpaR4Test {
+
+	private final MBeanServer myMBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+	@Autowired
+	private MemoryCacheJmxExporter myMemoryCacheJmxExporter;
+
+	@AfterEach
+	public void afterStopExporter() {
+		myMemoryCacheJmxExporter.stop();
+		myStorageSettings.setMemoryCacheJmxExportEnabled(new JpaStorageSettings().isMemoryCacheJmxExportEnabled());
+	}
+
+	@Test
+	public void testDisabledByDefault() throws Exception {
+		myMemoryCacheJmxExporter.start();
+
+		assertThat(myMBeanServer.queryNames(new ObjectName(MemoryCacheJmxExporter.OBJECT_NAME_PREFIX + "*"), null))
+				.isEmpty();
+	}
+
+	@Test
+	public void testReadExportedAttributes() throws Exception {
+		myStorageSettings.setMemoryCacheJmxExportEnabled(true);
+		myMemoryCacheJmxExporter.start();
+		myMemoryCacheService.invalidateCaches(MemoryCacheService.CacheEnum.NAME_TO_PARTITION);
+		myMemoryCacheService.put(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A", "1");
+		myMemoryCacheService.put(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "B", "2");
+
+		ObjectName name = new ObjectName(MemoryCacheJmxExporter.OBJECT_NAME_PREFIX + "NAME_TO_PARTITION");
+		assertEquals(2L, myMBeanServer.getAttribute(name, "EstimatedSize"));
+		long maximumSize = myMemoryCacheService.getMaximumSize(MemoryCacheService.CacheEnum.NAME_TO_PARTITION);
+		assertEquals(maximumSize, myMBeanServer.getAttribute(name, "MaximumSize"));
+		assertThat((Long) myMBeanServer.getAttribute(name, "EstimatedFootprintBytes")).isPositive();
+		assertThat(myMBeanServer.queryNames(new ObjectName(MemoryCacheJmxExporter.OBJECT_NAME_PREFIX + "*"), null))
+				.hasSize(MemoryCacheService.CacheEnum.values().length);
+
+		myMemoryCacheJmxExporter.stop();
+		assertThat(myMBeanServer.isRegistered(name)).isFalse();
+	}
+}
@@ -1,9 +1,13 @@
 package ca.uhn.fhir.jpa.util;
 
+import ca.uhn.fhir.broker.api.IChannelNamer;
+import ca.uhn.fhir.broker.impl.LinkedBlockingBrokerClient;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.entity.TagDefinition;
 import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
+import ca.uhn.fhir.jpa.subscription.channel.impl.LinkedBlockingChannelFactory;
+import ca.uhn.fhir.jpa.subscription.channel.impl.RetryPolicyProvider;
 import ca.uhn.fhir.sl.cache.Cache;
 import ca.uhn.fhir.sl.cache.CacheFactory;
 import org.junit.jupiter.api.AfterEach;
@@ -14,8 +18,12 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -23,9 +31,12 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -244,5 +255,176 @@ class MemoryCacheServiceTest {
 		assertEquals("MemoryCacheService.ForcedIdCacheKey[resType=Patient,resId=12,partId=[123]]", actual);
 	}
 
+	@Test
+	public void testSharedTier_ValuesVisibleToOtherNodes() {
+		InMemoryCacheSharedTier sharedTier = new InMemoryCacheSharedTier();
+		MemoryCacheService node1 = newNode(new JpaStorageSettings(), sharedTier);
+		MemoryCacheService node2 = newNode(new JpaStorageSettings(), sharedTier);
+		AtomicInteger loadCount = new AtomicInteger();
+
+		node1.put(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|1", "A");
+		assertEquals("A", node2.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|1"));
+
+		assertEquals("B", node1.get(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|2", k -> {
+			loadCount.incrementAndGet();
+			return "B";
+		}));
+		assertEquals("B", node2.get(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|2", k -> {
+			loadCount.incrementAndGet();
+			return "X";
+		}));
+		assertEquals(1, loadCount.get());
+
+		Map<String, String> allPresent = node2.getAllPresent(MemoryCacheService.CacheEnum.MATCH_URL, List.of("Patient?identifier=foo|1", "Patient?identifier=foo|3"));
+		assertThat(allPresent).containsOnly(entry("Patient?identifier=foo|1", "A"));
+	}
+
+	@Test
+	public void testSharedTier_NotUsedForCachesWhichAreNotEnabled() {
+		InMemoryCacheSharedTier sharedTier = new InMemoryCacheSharedTier();
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheSettings(MemoryCacheService.CacheEnum.MATCH_URL, new MemoryCacheSettings().setSharedTierEnabled(false));
+		MemoryCacheService node1 = newNode(storageSettings, sharedTier);
+		MemoryCacheService node2 = newNode(storageSettings, sharedTier);
+
+		node1.put(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|1", "A");
+		node1.put(MemoryCacheService.CacheEnum.FHIRPATH_EXPRESSION, "Patient.name", "B");
+
+		assertNull(node2.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|1"));
+		assertNull(node2.getIfPresent(MemoryCacheService.CacheEnum.FHIRPATH_EXPRESSION, "Patient.name"));
+		assertEquals(0, sharedTier.getEstimatedSize(MemoryCacheService.CacheEnum.MATCH_URL));
+	}
+
+	@Test
+	public void testSharedTier_InvalidatedWithLocalCache() {
+		InMemoryCacheSharedTier sharedTier = new InMemoryCacheSharedTier();
+		MemoryCacheService node1 = newNode(new JpaStorageSettings(), sharedTier);
+
+		node1.put(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|1", "A");
+		node1.invalidateCaches(MemoryCacheService.CacheEnum.MATCH_URL);
+
+		assertNull(node1.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|1"));
+		assertNull(sharedTier.get(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo|1"));
+	}
+
+	@Test
+	public void testStatistics() {
+		InMemoryCacheSharedTier sharedTier = new InMemoryCacheSharedTier();
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheSettings(MemoryCacheService.CacheEnum.MATCH_URL, new MemoryCacheSettings().setStatisticsEnabled(true));
+		MemoryCacheService node1 = newNode(storageSettings, sharedTier);
+		MemoryCacheService node2 = newNode(storageSettings, sharedTier);
+
+		node1.get(MemoryCacheService.CacheEnum.MATCH_URL, "A", k -> "1");
+		node1.get(MemoryCacheService.CacheEnum.MATCH_URL, "A", k -> "1");
+		node1.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "B");
+		node2.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "A");
+
+		MemoryCacheStatistics node1Stats = node1.getStatistics(MemoryCacheService.CacheEnum.MATCH_URL);
+		assertEquals(1, node1Stats.hitCount());
+		assertEquals(0, node1Stats.sharedTierHitCount());
+		assertEquals(2, node1Stats.missCount());
+		assertEquals(1, node1Stats.loadCount());
+		assertEquals(1, node1Stats.estimatedSize());
+		assertEquals(384, node1Stats.estimatedFootprintBytes());
+		MemoryCacheStatistics node2Stats = node2.getStatistics(MemoryCacheService.CacheEnum.MATCH_URL);
+		assertEquals(0, node2Stats.hitCount());
+		assertEquals(1, node2Stats.sharedTierHitCount());
+		assertEquals(0, node2Stats.missCount());
+		assertEquals(0, node2Stats.loadCount());
+		assertEquals(0, node1.getStatistics(MemoryCacheService.CacheEnum.FHIRPATH_EXPRESSION).requestCount());
+	}
+
+	@Test
+	public void testMaximumSizeFromSettings() {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheSettings(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID, new MemoryCacheSettings().setMaximumSize(0));
+		MemoryCacheService svc = new MemoryCacheService(storageSettings);
+
+		svc.put(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID, "Patient", 1);
+
+		await().until(() -> svc.getIfPresent(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID, "Patient") == null);
+	}
+
+	@Test
+	public void testInvalidationBroadcastToOtherNodes() {
+		IChannelNamer channelNamer = (theNameComponent, theChannelSettings) -> theNameComponent;
+		LinkedBlockingBrokerClient brokerClient = new LinkedBlockingBrokerClient(channelNamer);
+		brokerClient.setLinkedBlockingChannelFactory(new LinkedBlockingChannelFactory(channelNamer, new RetryPolicyProvider()));
+
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheInvalidationBroadcastEnabled(true);
+		MemoryCacheService node1 = new MemoryCacheService(storageSettings);
+		MemoryCacheService node2 = new MemoryCacheService(storageSettings);
+		MemoryCacheInvalidationBroadcaster broadcaster1 = new MemoryCacheInvalidationBroadcaster(brokerClient, node1, storageSettings);
+		MemoryCacheInvalidationBroadcaster broadcaster2 = new MemoryCacheInvalidationBroadcaster(brokerClient, node2, storageSettings);
+		broadcaster1.start();
+		broadcaster2.start();
+		try {
+			node1.put(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A", "1");
+			node2.put(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A", "1");
+			node2.put(MemoryCacheService.CacheEnum.MATCH_URL, "A", "1");
+
+			node1.invalidateCaches(MemoryCacheService.CacheEnum.NAME_TO_PARTITION);
+
+			assertNull(node1.getIfPresent(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A"));
+			await().until(() -> node2.getIfPresent(MemoryCacheService.CacheEnum.NAME_TO_PARTITION, "A") == null);
+			assertEquals("1", node2.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "A"));
+		} finally {
+			broadcaster1.stop();
+			broadcaster2.stop();
+		}
+	}
+
+	@Test
+	public void testStatistics_EvictionsAndResize() {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheStatisticsEnabled(true);
+		MemoryCacheService svc = new MemoryCacheService(storageSettings);
+		assertEquals(500, svc.getMaximumSize(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID));
+
+		assertTrue(svc.setMaximumSize(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID, 10));
+		for (int i = 0; i < 100; i++) {
+			svc.get(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID, "Type" + i, k -> 1);
+		}
+
+		await().until(() -> svc.getStatistics(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID).evictionCount() >= 90);
+		MemoryCacheStatistics stats = svc.getStatistics(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID);
+		assertEquals(10, stats.maximumSize());
+		assertEquals(500, svc.getConfiguredMaximumSize(MemoryCacheService.CacheEnum.RES_TYPE_TO_RES_TYPE_ID));
+		assertEquals(100, stats.missCount());
+		assertEquals(100, stats.loadCount());
+		assertThat(stats.averageLoadPenaltyNanos()).isPositive();
+	}
+
+	@Test
+	public void testJmxExporter() throws Exception {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setMemoryCacheStatisticsEnabled(true);
+		storageSettings.setMemoryCacheJmxExportEnabled(true);
+		MemoryCacheService svc = new MemoryCacheService(storageSettings);
+		svc.get(MemoryCacheService.CacheEnum.MATCH_URL, "A", k -> "1");
+		svc.get(MemoryCacheService.CacheEnum.MATCH_URL, "A", k -> "1");
+
+		MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		MemoryCacheJmxExporter exporter = new MemoryCacheJmxExporter(svc, storageSettings, mBeanServer);
+		exporter.start();
+		try {
+			ObjectName name = new ObjectName(MemoryCacheJmxExporter.OBJECT_NAME_PREFIX + "MATCH_URL");
+			assertEquals(1L, mBeanServer.getAttribute(name, "HitCount"));
+			assertEquals(1L, mBeanServer.getAttribute(name, "MissCount"));
+			assertEquals(0.5, mBeanServer.getAttribute(name, "HitRate"));
+			assertEquals(10000L, mBeanServer.getAttribute(name, "MaximumSize"));
+		} finally {
+			exporter.stop();
+		}
+		assertThat(mBeanServer.queryNames(new ObjectName(MemoryCacheJmxExporter.OBJECT_NAME_PREFIX + "*"), null)).isEmpty();
+	}
+
+	private static MemoryCacheService newNode(JpaStorageSettings theStorageSettings, IMemoryCacheSharedTier theSharedTier) {
+		MemoryCacheService retVal = new MemoryCacheService(theStorageSettings);
+		retVal.setSharedTier(theSharedTier);
+		return retVal;
+	}
 
 }
@@ -99,6 +99,19 @@ public interface IRestfulServerDefaults {
 	 */
 	boolean isDefaultPrettyPrint();
 
+	/**
+	 * Should search and history bundles be streamed to the client entry by entry instead of
+	 * being assembled into a complete Bundle before they are encoded?
+	 * <p>
+	 * The default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	default boolean isStreamingBundleResponsesEnabled() {
+		return false;
+	}
+
 	/**
 	 * Returns the interceptor service for this server
 	 */
@@ -167,6 +167,7 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 	private String myServerVersion = createPoweredByHeaderProductVersion();
 
 	private boolean myStarted;
+	private boolean myStreamingBundleResponsesEnabled = false;
 	private boolean myUncompressIncomingContents = true;
 	private ITenantIdentificationStrategy myTenantIdentificationStrategy;
 	private PreferReturnEnum myDefaultPreferReturn = DEFAULT_PREFER_RETURN;
@@ -1570,6 +1571,43 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		myDefaultPrettyPrint = theDefaultPrettyPrint;
 	}
 
+	/**
+	 * Should search and history bundles be streamed to the client entry by entry instead of
+	 * being assembled into a complete Bundle before they are encoded?
+	 * <p>
+	 * The default is <code>false</code>
+	 * </p>
+	 *
+	 * @see #setStreamingBundleResponsesEnabled(boolean)
+	 * @since 8.8.0
+	 */
+	@Override
+	public boolean isStreamingBundleResponsesEnabled() {
+		return myStreamingBundleResponsesEnabled;
+	}
+
+	/**
+	 * If set to <code>true</code> (the default is <code>false</code>), search, history and paging
+	 * responses which are returned as JSON or NDJSON are streamed to the client. The Bundle envelope
+	 * (including the links and total) is written first, and the page is then loaded from the bundle
+	 * provider, encoded and flushed in small batches, so neither the complete page nor the Bundle
+	 * for it is ever held in memory.
+	 * <p>
+	 * Responses fall back to the regular (non-streaming) behaviour if any interceptor is registered
+	 * against {@link ca.uhn.fhir.interceptor.api.Pointcut#SERVER_OUTGOING_RESPONSE}, since those
+	 * hooks expect to receive the complete response Bundle, or if the request uses the
+	 * <code>_summary</code> or <code>_elements</code> parameters. Pages which contain included
+	 * resources, which use offset paging, or whose bundle provider does not know the total number
+	 * of results are also returned as a regular Bundle, since their paging links can't be determined
+	 * before the page has been loaded.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setStreamingBundleResponsesEnabled(boolean theStreamingBundleResponsesEnabled) {
+		myStreamingBundleResponsesEnabled = theStreamingBundleResponsesEnabled;
+	}
+
 	/**
 	 * If set to <code>true</code> (the default is <code>true</code>) this server will not
 	 * use the parsed request parameters (URL parameters and HTTP POST form contents) but
@@ -1056,24 +1056,7 @@ public class RestfulServerUtils {
 		} else {
 			contentType = responseEncoding.getResourceContentType();
 		}
-		String charset = Constants.CHARSET_NAME_UTF8;
-
-		Writer writer = response.getResponseWriter(theStatusCode, contentType, charset, respondGzip);
-
-		// Interceptor call: SERVER_OUTGOING_WRITER_CREATED
-		if (theServer.getInterceptorService() != null
-				&& theServer.getInterceptorService().hasHooks(Pointcut.SERVER_OUTGOING_WRITER_CREATED)) {
-			HookParams params = new HookParams()
-					.add(Writer.class, writer)
-					.add(RequestDetails.class, theRequestDetails)
-					.addIfMatchesType(ServletRequestDetails.class, theRequestDetails);
-			Object newWriter = theServer
-					.getInterceptorService()
-					.callHooksAndReturnObject(Pointcut.SERVER_OUTGOING_WRITER_CREATED, params);
-			if (newWriter != null) {
-				writer = (Writer) newWriter;
-			}
-		}
+		Writer writer = createResponseWriter(theServer, theRequestDetails, theStatusCode, contentType, respondGzip);
 
 		if (theResource == null) {
 			// No response is being returned
@@ -1096,6 +1079,41 @@ public class RestfulServerUtils {
 		return response.commitResponse(writer);
 	}
 
+	/**
+	 * Opens the UTF-8 response writer for the given request, allowing any
+	 * {@link Pointcut#SERVER_OUTGOING_WRITER_CREATED} hooks to replace it.
+	 */
+	public static Writer createResponseWriter(
+			IRestfulServerDefaults theServer,
+			RequestDetails theRequestDetails,
+			int theStatusCode,
+			String theContentType,
+			boolean theRespondGzip)
+			throws IOException {
+		String charset = Constants.CHARSET_NAME_UTF8;
+
+		Writer writer = theRequestDetails
+				.getResponse()
+				.getResponseWriter(theStatusCode, theContentType, charset, theRespondGzip);
+
+		// Interceptor call: SERVER_OUTGOING_WRITER_CREATED
+		if (theServer.getInterceptorService() != null
+				&& theServer.getInterceptorService().hasHooks(Pointcut.SERVER_OUTGOING_WRITER_CREATED)) {
+			HookParams params = new HookParams()
+					.add(Writer.class, writer)
+					.add(RequestDetails.class, theRequestDetails)
+					.addIfMatchesType(ServletRequestDetails.class, theRequestDetails);
+			Object newWriter = theServer
+					.getInterceptorService()
+					.callHooksAndReturnObject(Pointcut.SERVER_OUTGOING_WRITER_CREATED, params);
+			if (newWriter != null) {
+				writer = (Writer) newWriter;
+			}
+		}
+
+		return writer;
+	}
+
 	private static String getBinaryContentTypeOrDefault(IBaseBinary theBinary) {
 		String contentType;
 		if (isNotBlank(theBinary.getContentType())) {
@@ -37,6 +37,7 @@ import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.IRestfulServer;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.ResponseDetails;
+import ca.uhn.fhir.rest.server.IRestfulServerDefaults;
 import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
@@ -197,7 +198,7 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 							count,
 							responseBundleType,
 							linkSelf);
-					responseObject = myResponseBundleBuilder.buildResponseBundle(responseBundleRequest);
+					responseObject = buildResponseBundle(responseBundleRequest);
 				}
 				break;
 			}
@@ -220,6 +221,20 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 		return responseObject;
 	}
 
+	/**
+	 * Builds the response Bundle for a search/history/paging request. If the server has
+	 * {@link IRestfulServerDefaults#isStreamingBundleResponsesEnabled() streaming bundle responses}
+	 * enabled and the request is eligible, this returns an envelope with no entries which
+	 * {@link #invokeServer(IRestfulServer, RequestDetails)} streams to the client.
+	 */
+	protected IBaseBundle buildResponseBundle(ResponseBundleRequest theResponseBundleRequest) {
+		if (StreamingBundleResponse.isStreamingPossible(theResponseBundleRequest)
+				&& myResponseBundleBuilder.isIncrementalPageLoadingPossible(theResponseBundleRequest)) {
+			return myResponseBundleBuilder.buildStreamingResponseBundle(theResponseBundleRequest);
+		}
+		return myResponseBundleBuilder.buildResponseBundle(theResponseBundleRequest);
+	}
+
 	private ResponseBundleRequest buildResponseBundleRequest(
 			IRestfulServer<?> theServer,
 			RequestDetails theRequest,
@@ -298,6 +313,13 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 				return null;
 			}
 
+			StreamingBundleResponse streamingResponse =
+					StreamingBundleResponse.fromBundle(responseDetails.getResponseResource());
+			if (streamingResponse != null) {
+				return streamingResponse.stream(
+						theServer, theRequest, responseDetails.getResponseCode(), theRequest.isRespondGzip());
+			}
+
 			return RestfulServerUtils.streamResponseAsResource(
 					theServer,
 					responseDetails.getResponseResource(),
@@ -20,8 +20,10 @@
 package ca.uhn.fhir.rest.server.method;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.api.BundleInclusionRule;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.rest.api.BundleLinks;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.IVersionSpecificBundleFactory;
 import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
@@ -40,6 +42,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -55,14 +58,95 @@ public class ResponseBundleBuilder {
 	}
 
 	IBaseBundle buildResponseBundle(ResponseBundleRequest theResponseBundleRequest) {
+		final ResponsePage responsePage = buildValidatedResponsePage(theResponseBundleRequest);
+
+		BundleLinks links = buildLinks(theResponseBundleRequest, responsePage);
+
+		return buildBundle(theResponseBundleRequest, responsePage, links);
+	}
+
+	/**
+	 * Returns <code>true</code> if the page for the given request can be pulled from the
+	 * bundle provider in batches as it is written, via
+	 * {@link #buildStreamingResponseBundle(ResponseBundleRequest)}. This requires that the
+	 * paging links can be determined before any resources are loaded, which is the case for
+	 * saved-search paging over a provider with a known total, and that every resource in
+	 * the page is returned by the provider itself, which rules out includes.
+	 */
+	boolean isIncrementalPageLoadingPossible(ResponseBundleRequest theResponseBundleRequest) {
+		final IRestfulServer<?> server = theResponseBundleRequest.server;
+		final IBundleProvider bundleProvider = theResponseBundleRequest.bundleProvider;
+		final RequestDetails requestDetails = theResponseBundleRequest.requestDetails;
+
+		if (myIsOffsetModeHistory
+				|| theResponseBundleRequest.requestedPage.offset != null
+				|| !server.canStoreSearchResults()
+				|| isEverythingOperation(requestDetails)) {
+			return false;
+		}
+		if (bundleProvider.getCurrentPageId() != null || bundleProvider.getCurrentPageOffset() != null) {
+			return false;
+		}
+		if (getBundleSize(bundleProvider) == null) {
+			return false;
+		}
+
+		// Resources added through includes or references could otherwise appear in more than one batch
+		if ((theResponseBundleRequest.includes != null && !theResponseBundleRequest.includes.isEmpty())
+				|| server.getBundleInclusionRule() != BundleInclusionRule.BASED_ON_INCLUDES) {
+			return false;
+		}
+		Map<String, String[]> parameters = requestDetails.getParameters();
+		if (parameters != null) {
+			for (String next : parameters.keySet()) {
+				if (next.startsWith(Constants.PARAM_INCLUDE) || next.startsWith(Constants.PARAM_REVINCLUDE)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Builds the paging links for the page without loading it, and returns a Bundle envelope
+	 * with no entries. The page range is attached to the envelope as a {@link StreamingBundleResponse},
+	 * which pulls the resources from the bundle provider in batches as the response is written.
+	 * Must only be called if {@link #isIncrementalPageLoadingPossible(ResponseBundleRequest)}
+	 * returns <code>true</code>.
+	 */
+	IBaseBundle buildStreamingResponseBundle(ResponseBundleRequest theResponseBundleRequest) {
+		final IRestfulServer<?> server = theResponseBundleRequest.server;
+		final IBundleProvider bundleProvider = theResponseBundleRequest.bundleProvider;
+
+		int pageSize = pagingCalculatePageSize(theResponseBundleRequest.requestedPage, server.getPagingProvider());
+		int numToReturn = Math.min(pageSize, getBundleSize(bundleProvider) - theResponseBundleRequest.offset);
+		String searchId = pagingBuildSearchId(theResponseBundleRequest, numToReturn, bundleProvider.size());
+
+		ResponsePage responsePage = new ResponsePage.ResponsePageBuilder()
+				.setSearchId(searchId)
+				.setPageSize(pageSize)
+				.setNumToReturn(numToReturn)
+				.setBundleProvider(bundleProvider)
+				.setResources(Collections.emptyList())
+				.build();
+
+		BundleLinks links = buildLinks(theResponseBundleRequest, responsePage);
+
+		return StreamingBundleResponse.createEnvelope(
+				theResponseBundleRequest,
+				theResponseBundleRequest.offset,
+				theResponseBundleRequest.offset + Math.max(numToReturn, 0),
+				links);
+	}
+
+	private ResponsePage buildValidatedResponsePage(ResponseBundleRequest theResponseBundleRequest) {
 		final ResponsePage responsePage = buildResponsePage(theResponseBundleRequest);
 
 		removeNulls(responsePage.getResourceList());
 		validateIds(responsePage.getResourceList());
 
-		BundleLinks links = buildLinks(theResponseBundleRequest, responsePage);
-
-		return buildBundle(theResponseBundleRequest, responsePage, links);
+		return responsePage;
 	}
 
 	private static IBaseBundle buildBundle(
@@ -98,9 +182,7 @@ public class ResponseBundleBuilder {
 		int numToReturn;
 		String searchId = null;
 
-		Integer bundleSize = bundleProvider.containsAllResources()
-				? (Integer) bundleProvider.getResourceListComplete().size()
-				: bundleProvider.size();
+		Integer bundleSize = getBundleSize(bundleProvider);
 
 		if (requestedPage.offset != null || !server.canStoreSearchResults()) {
 			pageSize = offsetCalculatePageSize(server, requestedPage, bundleSize);
@@ -140,6 +222,12 @@ public class ResponseBundleBuilder {
 		return responsePageBuilder.build();
 	}
 
+	private static Integer getBundleSize(IBundleProvider theBundleProvider) {
+		return theBundleProvider.containsAllResources()
+				? (Integer) theBundleProvider.getResourceListComplete().size()
+				: theBundleProvider.size();
+	}
+
 	private static String pagingBuildSearchId(
 			ResponseBundleRequest theResponseBundleRequest, int theNumToReturn, Integer theNumTotalResults) {
 		final IPagingProvider pagingProvider = theResponseBundleRequest.server.getPagingProvider();
@@ -221,7 +309,7 @@ public class ResponseBundleBuilder {
 		return retval;
 	}
 
-	private static void validateIds(List<IBaseResource> theResourceList) {
+	static void validateIds(List<IBaseResource> theResourceList) {
 		/*
 		 * Make sure all returned resources have an ID (if not, this is a bug
 		 * in the user server code)
@@ -237,7 +325,7 @@ public class ResponseBundleBuilder {
 		}
 	}
 
-	private static void removeNulls(List<IBaseResource> resourceList) {
+	static void removeNulls(List<IBaseResource> resourceList) {
 		/*
 		 * Remove any null entries in the list - This generally shouldn't happen but can if
 		 * data has been manually purged from the JPA database
@@ -0,0 +1,303 @@
+/*-
+ * #%L
+ * HAPI FHIR - Server Framework
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.rest.server.method;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.api.BundleLinks;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.IVersionSpecificBundleFactory;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.IRestfulResponse;
+import ca.uhn.fhir.rest.api.server.IRestfulServer;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.RestfulServerUtils;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.DateUtils;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Writes a search, history or paging response to the client without first assembling
+ * the complete response Bundle.
+ * <p>
+ * The Bundle envelope (id, meta, type, total and links) is encoded first. The page is then
+ * pulled from the {@link IBundleProvider} in sub-ranges of {@link #ENTRY_BATCH_SIZE} resources,
+ * and each batch is encoded, flushed to the client and released before the next one is loaded.
+ * This means that only one batch of the page is ever held in memory, and the client starts
+ * receiving data before the page has been loaded.
+ * </p>
+ * <p>
+ * This is only used for pages whose links can be determined without loading the page and
+ * which contain no included resources (see
+ * {@link ResponseBundleBuilder#isIncrementalPageLoadingPossible(ResponseBundleRequest)}).
+ * Other responses are built as a complete Bundle.
+ * </p>
+ * <p>
+ * JSON responses are written as a regular searchset/history Bundle. NDJSON responses contain
+ * one resource per line, with the Bundle links supplied in <code>Link</code> response headers.
+ * </p>
+ *
+ * @see ca.uhn.fhir.rest.server.RestfulServer#setStreamingBundleResponsesEnabled(boolean)
+ * @since 8.8.0
+ */
+final class StreamingBundleResponse {
+
+	/**
+	 * The number of page resources which are loaded from the bundle provider and written
+	 * between each flush of the response
+	 */
+	static final int ENTRY_BATCH_SIZE = 20;
+
+	private static final String USER_DATA_KEY = StreamingBundleResponse.class.getName();
+
+	private final ResponseBundleRequest myRequest;
+	private final int myFromIndex;
+	private final int myToIndex;
+	private final BundleLinks myLinks;
+	private final IBaseBundle myEnvelope;
+
+	private StreamingBundleResponse(
+			ResponseBundleRequest theRequest,
+			int theFromIndex,
+			int theToIndex,
+			BundleLinks theLinks,
+			IBaseBundle theEnvelope) {
+		myRequest = theRequest;
+		myFromIndex = theFromIndex;
+		myToIndex = theToIndex;
+		myLinks = theLinks;
+		myEnvelope = theEnvelope;
+	}
+
+	/**
+	 * Returns <code>true</code> if the server has streaming enabled and nothing about
+	 * the request requires the complete Bundle to be assembled before it is written
+	 */
+	static boolean isStreamingPossible(ResponseBundleRequest theRequest) {
+		if (!theRequest.server.isStreamingBundleResponsesEnabled()) {
+			return false;
+		}
+
+		RequestDetails requestDetails = theRequest.requestDetails;
+		if (requestDetails.getResponse() == null) {
+			return false;
+		}
+
+		EncodingEnum encoding = RestfulServerUtils.determineResponseEncodingWithDefault(requestDetails)
+				.getEncoding();
+		if (encoding != EncodingEnum.JSON && encoding != EncodingEnum.NDJSON) {
+			return false;
+		}
+
+		// _summary and _elements are applied relative to the Bundle, so they need the whole thing
+		Set<SummaryEnum> summaryMode = RestfulServerUtils.determineSummaryMode(requestDetails);
+		if (!summaryMode.equals(Collections.singleton(SummaryEnum.FALSE))) {
+			return false;
+		}
+		if (ElementsParameter.getElementsValueOrNull(requestDetails, false) != null
+				|| ElementsParameter.getElementsValueOrNull(requestDetails, true) != null) {
+			return false;
+		}
+
+		// Interceptors on SERVER_OUTGOING_RESPONSE are entitled to see (and replace) the whole Bundle
+		IInterceptorBroadcaster interceptorBroadcaster = requestDetails.getInterceptorBroadcaster();
+		return interceptorBroadcaster == null || !interceptorBroadcaster.hasHooks(Pointcut.SERVER_OUTGOING_RESPONSE);
+	}
+
+	/**
+	 * Creates the Bundle envelope for a page, with the page range attached so that
+	 * {@link #fromBundle(IBaseResource)} can retrieve it when the response is written
+	 *
+	 * @param theFromIndex The index of the first page resource in the bundle provider (inclusive)
+	 * @param theToIndex   The index of the last page resource in the bundle provider (exclusive)
+	 */
+	static IBaseBundle createEnvelope(
+			ResponseBundleRequest theRequest, int theFromIndex, int theToIndex, BundleLinks theLinks) {
+		IBundleProvider bundleProvider = theRequest.bundleProvider;
+		IVersionSpecificBundleFactory bundleFactory =
+				theRequest.server.getFhirContext().newBundleFactory();
+		bundleFactory.addRootPropertiesToBundle(
+				bundleProvider.getUuid(), theLinks, bundleProvider.size(), bundleProvider.getPublished());
+		IBaseBundle envelope = (IBaseBundle) bundleFactory.getResourceBundle();
+		envelope.setUserData(
+				USER_DATA_KEY, new StreamingBundleResponse(theRequest, theFromIndex, theToIndex, theLinks, envelope));
+		return envelope;
+	}
+
+	/**
+	 * Returns the streaming response attached to the given Bundle envelope, or <code>null</code>
+	 * if the response is a regular resource
+	 */
+	@Nullable
+	static StreamingBundleResponse fromBundle(@Nullable IBaseResource theResource) {
+		if (theResource instanceof IBaseBundle) {
+			Object userData = theResource.getUserData(USER_DATA_KEY);
+			if (userData instanceof StreamingBundleResponse) {
+				StreamingBundleResponse retVal = (StreamingBundleResponse) userData;
+				if (retVal.myEnvelope == theResource) {
+					return retVal;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the response to the client
+	 */
+	Object stream(IRestfulServer<?> theServer, RequestDetails theRequest, int theStatusCode, boolean theRespondGzip)
+			throws IOException {
+		IRestfulResponse response = theRequest.getResponse();
+		EncodingEnum encoding = RestfulServerUtils.determineResponseEncodingWithDefault(theRequest)
+				.getEncoding();
+
+		IPrimitiveType<Date> lastUpdated = RestfulServerUtils.extractLastUpdatedFromResource(myEnvelope);
+		if (lastUpdated != null && !lastUpdated.isEmpty()) {
+			response.addHeader(Constants.HEADER_LAST_MODIFIED, DateUtils.formatDate(lastUpdated.getValue()));
+		}
+
+		if (encoding == EncodingEnum.NDJSON) {
+			addLinkHeader(response, myLinks.getSelf(), Constants.LINK_SELF);
+			addLinkHeader(response, myLinks.getNext(), Constants.LINK_NEXT);
+			addLinkHeader(response, myLinks.getPrev(), Constants.LINK_PREVIOUS);
+		}
+
+		Writer writer = RestfulServerUtils.createResponseWriter(
+				theServer, theRequest, theStatusCode, encoding.getResourceContentType(), theRespondGzip);
+
+		// Both supported encodings are written using the JSON parser
+		IParser parser = theServer.getFhirContext().newJsonParser();
+		RestfulServerUtils.configureResponseParser(theRequest, parser);
+		if (encoding == EncodingEnum.NDJSON) {
+			writeNdJson(parser, writer);
+		} else {
+			writeJsonBundle(parser, writer);
+		}
+
+		return response.commitResponse(writer);
+	}
+
+	private void writeJsonBundle(IParser theParser, Writer theWriter) throws IOException {
+		String envelope = StringUtils.stripEnd(theParser.encodeResourceToString(myEnvelope), null);
+		if (!envelope.endsWith("}")) {
+			throw new InternalErrorException(Msg.code(2845) + "Unable to stream Bundle envelope: " + envelope);
+		}
+		theWriter.write(envelope, 0, envelope.length() - 1);
+		theWriter.flush();
+
+		// The entry array is only opened once there is an entry to put in it, since empty arrays aren't valid
+		boolean[] first = {true};
+		forEachEntry(theWriter, (entry, resource) -> {
+			theWriter.write(first[0] ? ",\"entry\":[" : ",");
+			first[0] = false;
+			theParser.encodeToWriter(entry, theWriter);
+		});
+
+		theWriter.write(first[0] ? "}" : "]}");
+	}
+
+	private void writeNdJson(IParser theParser, Writer theWriter) throws IOException {
+		// Each resource is a single line, regardless of the _pretty parameter
+		theParser.setPrettyPrint(false);
+
+		forEachEntry(theWriter, (entry, resource) -> {
+			if (resource != null) {
+				theParser.encodeResourceToWriter(resource, theWriter);
+				theWriter.write('\n');
+			}
+		});
+	}
+
+	/**
+	 * Loads the page from the bundle provider one batch at a time, passing the entries for each
+	 * batch to the given consumer and flushing the writer before the next batch is loaded
+	 */
+	private void forEachEntry(Writer theWriter, IEntryConsumer theEntryConsumer) throws IOException {
+		FhirContext ctx = myRequest.server.getFhirContext();
+		BaseRuntimeChildDefinition entryChild =
+				ctx.getResourceDefinition(myEnvelope).getChildByName("entry");
+		BaseRuntimeElementCompositeDefinition<?> entryDefinition =
+				(BaseRuntimeElementCompositeDefinition<?>) entryChild.getChildByName("entry");
+		BaseRuntimeChildDefinition resourceChild = entryDefinition.getChildByName("resource");
+
+		for (int fromIndex = myFromIndex; fromIndex < myToIndex; fromIndex += ENTRY_BATCH_SIZE) {
+			int toIndex = Math.min(fromIndex + ENTRY_BATCH_SIZE, myToIndex);
+			List<IBaseResource> batch = new ArrayList<>(
+					myRequest.bundleProvider.getResources(fromIndex, toIndex, new ResponsePage.ResponsePageBuilder()));
+			RestfulServerUtils.validateResourceListNotNull(batch);
+			ResponseBundleBuilder.removeNulls(batch);
+			ResponseBundleBuilder.validateIds(batch);
+
+			IVersionSpecificBundleFactory bundleFactory = ctx.newBundleFactory();
+			bundleFactory.addRootPropertiesToBundle(null, myLinks, null, null);
+			bundleFactory.addResourcesToBundle(
+					batch,
+					myRequest.bundleType,
+					myLinks.serverBase,
+					myRequest.server.getBundleInclusionRule(),
+					myRequest.includes);
+			IBaseResource batchBundle = bundleFactory.getResourceBundle();
+
+			for (IBase nextEntry : entryChild.getAccessor().getValues(batchBundle)) {
+				IBaseResource resource = resourceChild
+						.getAccessor()
+						.getFirstValueOrNull(nextEntry)
+						.map(t -> (IBaseResource) t)
+						.orElse(null);
+				theEntryConsumer.accept(nextEntry, resource);
+			}
+
+			theWriter.flush();
+		}
+	}
+
+	private static void addLinkHeader(IRestfulResponse theResponse, String theUrl, String theRelation) {
+		if (isNotBlank(theUrl)) {
+			theResponse.addHeader(Constants.HEADER_LINK, "<" + theUrl + ">; rel=\"" + theRelation + "\"");
+		}
+	}
+
+	@FunctionalInterface
+	private interface IEntryConsumer {
+		void accept(IBase theEntry, @Nullable IBaseResource theResource) throws IOException;
+	}
+}
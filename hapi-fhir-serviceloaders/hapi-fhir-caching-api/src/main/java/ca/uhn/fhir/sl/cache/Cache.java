@@ -50,4 +50,35 @@ public interface Cache<K, V> {
 	long estimatedSize();
 
 	void cleanUp();
+
+	/**
+	 * Returns the number of entries which have been evicted from this cache because of its size
+	 * or expiry policy, or <code>-1</code> if the underlying implementation does not track this.
+	 *
+	 * @since 8.8.0
+	 */
+	default long evictionCount() {
+		return -1;
+	}
+
+	/**
+	 * Returns the maximum number of entries this cache will hold, or <code>-1</code> if the cache
+	 * is not bounded by size or the underlying implementation does not expose this.
+	 *
+	 * @since 8.8.0
+	 */
+	default long getMaximumSize() {
+		return -1;
+	}
+
+	/**
+	 * Adjusts the maximum number of entries this cache will hold. If the new maximum is smaller
+	 * than the current number of entries, entries will be evicted.
+	 *
+	 * @return Returns <code>false</code> if the underlying implementation does not support resizing
+	 * @since 8.8.0
+	 */
+	default boolean setMaximumSize(long theMaximumSize) {
+		return false;
+	}
 }
@@ -20,15 +20,29 @@ package ca.uhn.fhir.sl.cache.caffeine;
  * #L%
  */
 
+import com.github.benmanes.caffeine.cache.Policy;
+
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 public class CacheDelegator<K, V> implements ca.uhn.fhir.sl.cache.Cache<K, V> {
 
 	com.github.benmanes.caffeine.cache.Cache<K, V> cache;
+	private final LongAdder myEvictionCount;
 
 	public CacheDelegator(com.github.benmanes.caffeine.cache.Cache<K, V> impl) {
+		this(impl, null);
+	}
+
+	/**
+	 * @param theEvictionCount If not null, this counter should be incremented by an eviction
+	 *                         listener registered on the cache being wrapped
+	 */
+	public CacheDelegator(com.github.benmanes.caffeine.cache.Cache<K, V> impl, LongAdder theEvictionCount) {
 		this.cache = impl;
+		myEvictionCount = theEvictionCount;
 	}
 
 	@Override
@@ -80,4 +94,25 @@ public class CacheDelegator<K, V> implements ca.uhn.fhir.sl.cache.Cache<K, V> {
 	public void cleanUp() {
 		cache.cleanUp();
 	}
+
+	@Override
+	public long evictionCount() {
+		return myEvictionCount != null ? myEvictionCount.sum() : -1;
+	}
+
+	@Override
+	public long getMaximumSize() {
+		return getEvictionPolicy().map(Policy.Eviction::getMaximum).orElse(-1L);
+	}
+
+	@Override
+	public boolean setMaximumSize(long theMaximumSize) {
+		Optional<Policy.Eviction<K, V>> eviction = getEvictionPolicy();
+		eviction.ifPresent(t -> t.setMaximum(theMaximumSize));
+		return eviction.isPresent();
+	}
+
+	private Optional<Policy.Eviction<K, V>> getEvictionPolicy() {
+		return cache.policy().eviction();
+	}
 }
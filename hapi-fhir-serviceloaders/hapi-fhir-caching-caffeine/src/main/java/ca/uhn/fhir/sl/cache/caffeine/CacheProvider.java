@@ -26,13 +26,18 @@ import ca.uhn.fhir.sl.cache.LoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class CacheProvider<K, V> implements ca.uhn.fhir.sl.cache.CacheProvider<K, V> {
 
 	public Cache<K, V> create(long timeoutMillis) {
-		return new CacheDelegator<K, V>(Caffeine.newBuilder()
-				.expireAfterWrite(timeoutMillis, TimeUnit.MILLISECONDS)
-				.build());
+		LongAdder evictionCount = new LongAdder();
+		return new CacheDelegator<K, V>(
+				Caffeine.newBuilder()
+						.expireAfterWrite(timeoutMillis, TimeUnit.MILLISECONDS)
+						.evictionListener((k, v, c) -> evictionCount.increment())
+						.build(),
+				evictionCount);
 	}
 
 	public LoadingCache<K, V> create(long timeoutMillis, CacheLoader<K, V> loading) {
@@ -42,20 +47,28 @@ public class CacheProvider<K, V> implements ca.uhn.fhir.sl.cache.CacheProvider<K
 	}
 
 	public Cache<K, V> create(long timeoutMillis, long maximumSize) {
-		return new CacheDelegator<K, V>(Caffeine.newBuilder()
-				.expireAfterWrite(timeoutMillis, TimeUnit.MILLISECONDS)
-				// Caffeine locks the whole array when growing the hash table.
-				// Set initial capacity to max to avoid this.  All our caches are <1M entries.
-				.initialCapacity((int) maximumSize)
-				.maximumSize(maximumSize)
-				.build());
+		LongAdder evictionCount = new LongAdder();
+		return new CacheDelegator<K, V>(
+				Caffeine.newBuilder()
+						.expireAfterWrite(timeoutMillis, TimeUnit.MILLISECONDS)
+						// Caffeine locks the whole array when growing the hash table.
+						// Set initial capacity to max to avoid this.  All our caches are <1M entries.
+						.initialCapacity((int) maximumSize)
+						.maximumSize(maximumSize)
+						.evictionListener((k, v, c) -> evictionCount.increment())
+						.build(),
+				evictionCount);
 	}
 
 	public Cache<K, V> createEternal(int minimumSize, long maximumSize) {
-		return new CacheDelegator<>(Caffeine.newBuilder()
-				.initialCapacity(minimumSize)
-				.maximumSize(maximumSize)
-				.build());
+		LongAdder evictionCount = new LongAdder();
+		return new CacheDelegator<>(
+				Caffeine.newBuilder()
+						.initialCapacity(minimumSize)
+						.maximumSize(maximumSize)
+						.evictionListener((k, v, c) -> evictionCount.increment())
+						.build(),
+				evictionCount);
 	}
 
 	public LoadingCache<K, V> create(long timeoutMillis, long maximumSize, CacheLoader<K, V> loading) {
@@ -29,7 +29,9 @@ import ca.uhn.fhir.batch2.jobs.chunk.ResourceIdListWorkChunkJson;
 import ca.uhn.fhir.batch2.jobs.chunk.TypedPidAndVersionListWorkChunkJson;
 import ca.uhn.fhir.batch2.jobs.step.GenerateRangeChunksStep;
 import ca.uhn.fhir.batch2.jobs.step.LoadIdsStep;
+import ca.uhn.fhir.batch2.model.AdaptiveChunkSizing;
 import ca.uhn.fhir.batch2.model.JobDefinition;
+import jakarta.annotation.Nullable;
 
 /**
  * Bulk modify jobs should create a Spring AppCtx class which extends this class, then
@@ -39,6 +41,8 @@ import ca.uhn.fhir.batch2.model.JobDefinition;
  */
 public abstract class BaseBulkModifyJobAppCtx<T extends BaseBulkModifyJobParameters> {
 
+	public static final String MODIFY_RESOURCES_STEP_ID = "modify-resources";
+
 	protected JobDefinition<T> buildJobDefinition() {
 		JobDefinition.Builder<T, BulkModifyResourcesResultsJson> jobBuilder = JobDefinition.newBuilder()
 				.setJobDefinitionId(getJobId())
@@ -56,7 +60,7 @@ public abstract class BaseBulkModifyJobAppCtx<T extends BaseBulkModifyJobParamet
 						TypedPidAndVersionListWorkChunkJson.class,
 						expandIdVersionsStep())
 				.addIntermediateStep(
-						"modify-resources",
+						MODIFY_RESOURCES_STEP_ID,
 						"Modify resources",
 						BulkModifyResourcesChunkOutcomeJson.class,
 						modifyResourcesStep())
@@ -68,6 +72,11 @@ public abstract class BaseBulkModifyJobAppCtx<T extends BaseBulkModifyJobParamet
 
 		jobBuilder.setParametersValidator(getJobParameterValidator());
 
+		AdaptiveChunkSizing adaptiveChunkSizing = getAdaptiveChunkSizing();
+		if (adaptiveChunkSizing != null) {
+			jobBuilder.adaptiveChunkSizing(adaptiveChunkSizing);
+		}
+
 		return jobBuilder.build();
 	}
 
@@ -80,6 +89,19 @@ public abstract class BaseBulkModifyJobAppCtx<T extends BaseBulkModifyJobParamet
 		return new TypedPidToTypedPidAndNullVersionStep<>();
 	}
 
+	/**
+	 * Subclasses may override this method to size the chunks processed by the
+	 * <code>modify-resources</code> step adaptively. If this returns a non-null value,
+	 * {@link #loadIdsStep()} should supply an
+	 * {@link ca.uhn.fhir.batch2.coordinator.AdaptiveChunkSizeController} to the step it creates.
+	 *
+	 * @since 8.8.0
+	 */
+	@Nullable
+	protected AdaptiveChunkSizing getAdaptiveChunkSizing() {
+		return null;
+	}
+
 	protected abstract IJobParametersValidator<T> getJobParameterValidator();
 
 	protected abstract Class<T> getParametersType();
@@ -20,6 +20,7 @@
 package ca.uhn.fhir.batch2.jobs.bulkmodify.reindex;
 
 import ca.uhn.fhir.batch2.api.IJobPartitionProvider;
+import ca.uhn.fhir.batch2.coordinator.AdaptiveChunkSizeController;
 import ca.uhn.fhir.batch2.jobs.bulkmodify.framework.base.BaseBulkModifyJobAppCtx;
 import ca.uhn.fhir.batch2.jobs.bulkmodify.framework.base.BaseBulkModifyOrRewriteGenerateReportStep;
 import ca.uhn.fhir.batch2.jobs.bulkmodify.framework.base.BaseBulkModifyResourcesStep;
@@ -30,6 +31,8 @@ import ca.uhn.fhir.batch2.jobs.reindex.ReindexUtils;
 import ca.uhn.fhir.batch2.jobs.reindex.svcs.ReindexJobService;
 import ca.uhn.fhir.batch2.jobs.step.GenerateRangeChunksStep;
 import ca.uhn.fhir.batch2.jobs.step.LoadIdsStep;
+import ca.uhn.fhir.batch2.jobs.step.ResourceIdListStep;
+import ca.uhn.fhir.batch2.model.AdaptiveChunkSizing;
 import ca.uhn.fhir.batch2.model.JobDefinition;
 import ca.uhn.fhir.jpa.api.IDaoRegistry;
 import ca.uhn.fhir.jpa.api.svc.IBatch2DaoSvc;
@@ -43,10 +46,17 @@ import org.springframework.context.annotation.Import;
 public class ReindexV3JobAppCtx extends BaseBulkModifyJobAppCtx<ReindexJobParameters> {
 
 	public static final int JOB_VERSION = 3;
+
+	/**
+	 * Chunks are sized adaptively between this size and {@link ResourceIdListStep#MAX_BATCH_OF_IDS}
+	 */
+	static final int MIN_CHUNK_SIZE = 10;
+
 	protected final IBatch2DaoSvc myBatch2DaoSvc;
 	private final IDaoRegistry myDaoRegistry;
 	protected final IJobPartitionProvider myJobPartitionProvider;
 	private final ReindexJobService myReindexJobSvc;
+	private final AdaptiveChunkSizeController myAdaptiveChunkSizeController;
 
 	/**
 	 * Constructor
@@ -55,11 +65,13 @@ public class ReindexV3JobAppCtx extends BaseBulkModifyJobAppCtx<ReindexJobParame
 			IBatch2DaoSvc theBatch2DaoSvc,
 			IDaoRegistry theDaoRegistry,
 			IJobPartitionProvider theJobPartitionProvider,
-			ReindexJobService theReindexJobSvc) {
+			ReindexJobService theReindexJobSvc,
+			AdaptiveChunkSizeController theAdaptiveChunkSizeController) {
 		myBatch2DaoSvc = theBatch2DaoSvc;
 		myDaoRegistry = theDaoRegistry;
 		myJobPartitionProvider = theJobPartitionProvider;
 		myReindexJobSvc = theReindexJobSvc;
+		myAdaptiveChunkSizeController = theAdaptiveChunkSizeController;
 	}
 
 	@Bean("reindexV3JobDefinition")
@@ -106,7 +118,12 @@ public class ReindexV3JobAppCtx extends BaseBulkModifyJobAppCtx<ReindexJobParame
 
 	@Override
 	public LoadIdsStep<ReindexJobParameters> loadIdsStep() {
-		return new LoadIdsStep<>(myBatch2DaoSvc);
+		return new LoadIdsStep<>(myBatch2DaoSvc, myAdaptiveChunkSizeController);
+	}
+
+	@Override
+	protected AdaptiveChunkSizing getAdaptiveChunkSizing() {
+		return new AdaptiveChunkSizing(MODIFY_RESOURCES_STEP_ID, MIN_CHUNK_SIZE, ResourceIdListStep.MAX_BATCH_OF_IDS);
 	}
 
 	@Override
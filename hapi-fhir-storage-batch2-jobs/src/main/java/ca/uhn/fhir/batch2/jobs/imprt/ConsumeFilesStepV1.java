@@ -145,11 +145,11 @@ public class ConsumeFilesStepV1 implements ILastJobStepWorker<BulkImportJobParam
 			theTransactionDetails.addResolvedResourceId(next, null);
 		}
 
-		List<IIdType> idsList = new ArrayList<>(ids.keySet());
-		Map<IIdType, ? extends IResourceLookup<?>> resolvedIdentities = myIdHelperService.resolveResourceIdentities(
-				theRequestDetails.getRequestPartitionId(),
-				idsList,
-				ResolveIdentityMode.includeDeleted().cacheOk());
+		Map<IIdType, ? extends IResourceLookup<?>> resolvedIdentities =
+				myIdHelperService.resolveResourceIdentitiesInBulk(
+						theRequestDetails.getRequestPartitionId(),
+						ids.keySet().stream(),
+						ResolveIdentityMode.includeDeleted().cacheOk());
 		List<IResourcePersistentId<?>> resolvedIds = new ArrayList<>(resolvedIdentities.size());
 		for (Map.Entry<IIdType, ? extends IResourceLookup<?>> next : resolvedIdentities.entrySet()) {
 			IIdType resId = next.getKey();
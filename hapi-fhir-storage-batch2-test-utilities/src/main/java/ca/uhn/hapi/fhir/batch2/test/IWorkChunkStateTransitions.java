@@ -38,7 +38,9 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -47,6 +49,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -241,6 +244,51 @@ public interface IWorkChunkStateTransitions extends IWorkChunkCommon, WorkChunkT
 		latch.awaitExpected();
 	}
 
+	@Test
+	default void enqueueWorkChunksForProcessing_enqueuesOnlyREADYChunks() {
+		// setup
+		getTestManager().disableWorkChunkMessageHandler();
+
+		StringBuilder sb = new StringBuilder();
+		// first step is always complete
+		sb.append("1|COMPLETED");
+		for (WorkChunkStatusEnum status : WorkChunkStatusEnum.values()) {
+			// second step for all other workchunks, with two READY chunks
+			sb.append("\n2|").append(status.name());
+			if (status == WorkChunkStatusEnum.READY) {
+				sb.append("\n2|").append(status.name());
+			}
+		}
+		JobDefinition<?> jobDef = getTestManager().withJobDefinition(false);
+		String instanceId = getTestManager().createAndStoreJobInstance(jobDef);
+		JobMaintenanceStateInformation stateInformation = new JobMaintenanceStateInformation(
+			instanceId,
+			jobDef,
+			sb.toString()
+		);
+		getTestManager().createChunksInStates(stateInformation);
+		List<String> allChunkIds = stateInformation.getInitialWorkChunks().stream().map(WorkChunk::getId).toList();
+		List<String> readyChunkIds = stateInformation.getInitialWorkChunks().stream()
+			.filter(t -> t.getStatus() == WorkChunkStatusEnum.READY)
+			.map(WorkChunk::getId)
+			.toList();
+
+		// test
+		List<String> queuedChunkIds = new ArrayList<>();
+		getTestManager().getSvc().enqueueWorkChunksForProcessing(allChunkIds, queuedChunkIds::addAll);
+
+		// verify
+		assertThat(queuedChunkIds).containsExactlyInAnyOrderElementsOf(readyChunkIds);
+		for (String next : readyChunkIds) {
+			assertEquals(WorkChunkStatusEnum.QUEUED, getTestManager().freshFetchWorkChunk(next).getStatus());
+		}
+
+		// a second attempt finds nothing left to enqueue
+		queuedChunkIds.clear();
+		getTestManager().getSvc().enqueueWorkChunksForProcessing(allChunkIds, queuedChunkIds::addAll);
+		assertThat(queuedChunkIds).isEmpty();
+	}
+
 	/**
 	 * Nasty test for a nasty bug.
 	 * We use the transactional-outbox pattern to guarantee at-least-once delivery to the kafka queue by sending to
@@ -24,6 +24,7 @@ import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.WorkChunk;
 import ca.uhn.fhir.batch2.model.WorkChunkCompletionEvent;
 import ca.uhn.fhir.batch2.model.WorkChunkErrorEvent;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCounts;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.hapi.fhir.batch2.test.support.JobMaintenanceStateInformation;
 import ca.uhn.test.concurrency.PointcutLatch;
@@ -105,6 +106,34 @@ public interface IWorkChunkStorageTests extends IWorkChunkCommon, WorkChunkTestC
 		getTestManager().verifyWorkChunkMessageHandlerCalled(sendingLatch, expectedCalls);
 	}
 
+	@Test
+	default void testFetchWorkChunkStatusCounts() {
+		// setup
+		getTestManager().disableWorkChunkMessageHandler();
+		JobDefinition<?> jobDefinition = getTestManager().withJobDefinition(false);
+		String instanceId = getTestManager().createAndStoreJobInstance(jobDefinition);
+		String state = """
+			1|COMPLETED
+			2|COMPLETED
+			2|COMPLETED
+			2|IN_PROGRESS
+			3|READY
+			""";
+		JobMaintenanceStateInformation info = new JobMaintenanceStateInformation(instanceId, jobDefinition, state);
+		getTestManager().createChunksInStates(info);
+
+		// test
+		WorkChunkStatusCounts counts = getTestManager().getSvc().fetchWorkChunkStatusCounts(instanceId);
+
+		// verify
+		assertEquals(1, counts.getCount(FIRST_STEP_ID, WorkChunkStatusEnum.COMPLETED));
+		assertEquals(2, counts.getCount(SECOND_STEP_ID, WorkChunkStatusEnum.COMPLETED));
+		assertEquals(1, counts.getCount(SECOND_STEP_ID, WorkChunkStatusEnum.IN_PROGRESS));
+		assertEquals(1, counts.getCount(LAST_STEP_ID, WorkChunkStatusEnum.READY));
+		assertEquals(0, counts.getCount(LAST_STEP_ID, WorkChunkStatusEnum.COMPLETED));
+		assertEquals(counts, getTestManager().getSvc().fetchWorkChunkStatusCounts(instanceId));
+	}
+
 	@Test
 	default void testStoreAndFetchWorkChunk_WithData() {
 		// setup
@@ -0,0 +1,42 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.api;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * May be implemented by the work chunk data of a step with
+ * {@link ca.uhn.fhir.batch2.model.AdaptiveChunkSizing adaptive chunk sizing} in order to
+ * identify the kind of workload in the chunk. The processing cost per record can vary a lot
+ * between workloads (e.g. reindexing Binary resources compared to Patient resources), so
+ * chunk sizes are learned separately for each workload key.
+ *
+ * @see ca.uhn.fhir.batch2.coordinator.AdaptiveChunkSizeController
+ * @since 8.8.0
+ */
+public interface IAdaptiveChunkSizingWorkload {
+
+	/**
+	 * Returns the workload key that the chunk was sized for, or <code>null</code> if
+	 * the chunk does not belong to a specific workload
+	 */
+	@Nullable
+	String getAdaptiveChunkSizingWorkloadKey();
+}
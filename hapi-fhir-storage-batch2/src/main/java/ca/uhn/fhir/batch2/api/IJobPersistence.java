@@ -28,6 +28,7 @@ import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.batch2.model.WorkChunk;
 import ca.uhn.fhir.batch2.model.WorkChunkCreateEvent;
 import ca.uhn.fhir.batch2.model.WorkChunkMetadata;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCounts;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.batch2.models.JobInstanceFetchRequest;
 import com.google.common.annotations.VisibleForTesting;
@@ -40,6 +41,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
@@ -60,6 +62,16 @@ import java.util.stream.Stream;
 public interface IJobPersistence extends IWorkChunkPersistence {
 	Logger ourLog = LoggerFactory.getLogger(IJobPersistence.class);
 
+	/**
+	 * The number of work chunks which the maintenance pass moves from READY to QUEUED in each call to
+	 * {@link #enqueueWorkChunksForProcessing(List, Consumer)}, and the largest number of chunk IDs which
+	 * implementations lock and update in a single statement. This applies only to enqueueing; workers
+	 * still dequeue and complete work chunks one at a time.
+	 *
+	 * @since 8.8.0
+	 */
+	int ENQUEUE_BATCH_SIZE = 100;
+
 	/**
 	 * Store a new job instance. This will be called when a new job instance is being kicked off.
 	 *
@@ -82,6 +94,25 @@ public interface IJobPersistence extends IWorkChunkPersistence {
 	@Nonnull
 	List<BatchWorkChunkStatusDTO> fetchWorkChunkStatusForInstance(String theInstanceId);
 
+	/**
+	 * Returns the number of work chunks of the given instance in each target step and status, along
+	 * with the chunk time and record totals described in {@link WorkChunkStatusCounts}.
+	 * The maintenance pass calls this for every running instance to decide whether its progress
+	 * needs to be recalculated, so implementations should aggregate the chunks without loading them.
+	 * The cost of this call is still proportional to the number of chunks in the instance.
+	 *
+	 * @since 8.8.0
+	 */
+	@Nonnull
+	default WorkChunkStatusCounts fetchWorkChunkStatusCounts(String theInstanceId) {
+		WorkChunkStatusCounts retVal = new WorkChunkStatusCounts();
+		for (BatchWorkChunkStatusDTO next : fetchWorkChunkStatusForInstance(theInstanceId)) {
+			retVal.addCount(next.stepId, next.status, next.totalChunks);
+			retVal.addTotals(next.start, next.stop, 0, 0);
+		}
+		return retVal;
+	}
+
 	@Nonnull
 	BatchInstanceStatusDTO fetchBatchInstanceStatus(String theInstanceId);
 
@@ -101,6 +132,32 @@ public interface IJobPersistence extends IWorkChunkPersistence {
 	@Transactional(propagation = Propagation.REQUIRES_NEW)
 	void enqueueWorkChunkForProcessing(String theChunkId, Consumer<Integer> theCallback);
 
+	/**
+	 * Batched version of {@link #enqueueWorkChunkForProcessing(String, Consumer)}.
+	 * Moves any of the given chunks which are currently {@link WorkChunkStatusEnum#READY} to
+	 * {@link WorkChunkStatusEnum#QUEUED}, and then calls the callback (within the same transaction)
+	 * with the IDs of the chunks which were moved. Implementations may skip chunks which are
+	 * locked by another transaction, in which case they are left READY for a later maintenance pass.
+	 * <p>
+	 * Only enqueueing is batched. Workers still dequeue and complete chunks one at a time through
+	 * {@link #onWorkChunkDequeue(String)} and the other {@link IWorkChunkPersistence} events.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	default void enqueueWorkChunksForProcessing(List<String> theChunkIds, Consumer<List<String>> theCallback) {
+		List<String> queuedChunkIds = new ArrayList<>(theChunkIds.size());
+		for (String next : theChunkIds) {
+			enqueueWorkChunkForProcessing(next, updated -> {
+				if (updated == 1) {
+					queuedChunkIds.add(next);
+				}
+			});
+		}
+		theCallback.accept(queuedChunkIds);
+	}
+
 	/**
 	 * Updates all Work Chunks in POLL_WAITING if their nextPollTime {@code <=} now
 	 * for the given Job Instance.
@@ -30,6 +30,7 @@ public class RunOutcome {
 	public static final RunOutcome SUCCESS = new RunOutcome(0);
 
 	private final int myRecordsProcessed;
+	private final long myPayloadBytes;
 
 	/**
 	 * Constructor
@@ -43,10 +44,31 @@ public class RunOutcome {
 	 *                            reflects the real total.
 	 */
 	public RunOutcome(int theRecordsProcessed) {
+		this(theRecordsProcessed, 0);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theRecordsProcessed The number of records processed by this step. See {@link #RunOutcome(int)}.
+	 * @param thePayloadBytes     The approximate size in bytes of the records processed by this step. This is
+	 *                            used to size subsequent work chunks for jobs with
+	 *                            {@link ca.uhn.fhir.batch2.model.AdaptiveChunkSizing adaptive chunk sizing}.
+	 * @since 8.8.0
+	 */
+	public RunOutcome(int theRecordsProcessed, long thePayloadBytes) {
 		myRecordsProcessed = theRecordsProcessed;
+		myPayloadBytes = thePayloadBytes;
 	}
 
 	public int getRecordsProcessed() {
 		return myRecordsProcessed;
 	}
+
+	/**
+	 * @since 8.8.0
+	 */
+	public long getPayloadBytes() {
+		return myPayloadBytes;
+	}
 }
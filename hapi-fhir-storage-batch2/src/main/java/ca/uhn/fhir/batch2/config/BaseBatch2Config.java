@@ -25,6 +25,7 @@ import ca.uhn.fhir.batch2.api.IJobPartitionProvider;
 import ca.uhn.fhir.batch2.api.IJobPersistence;
 import ca.uhn.fhir.batch2.api.IReductionStepExecutorService;
 import ca.uhn.fhir.batch2.channel.BatchJobSender;
+import ca.uhn.fhir.batch2.coordinator.AdaptiveChunkSizeController;
 import ca.uhn.fhir.batch2.coordinator.DefaultJobPartitionProvider;
 import ca.uhn.fhir.batch2.coordinator.JobCoordinatorImpl;
 import ca.uhn.fhir.batch2.coordinator.JobDefinitionRegistry;
@@ -71,8 +72,16 @@ public abstract class BaseBatch2Config {
 	}
 
 	@Bean
-	public WorkChunkProcessor jobStepExecutorService(BatchJobSender theBatchJobSender) {
-		return new WorkChunkProcessor(myPersistence, theBatchJobSender, myHapiTransactionService);
+	public AdaptiveChunkSizeController batch2AdaptiveChunkSizeController(
+			JobDefinitionRegistry theJobDefinitionRegistry) {
+		return new AdaptiveChunkSizeController(theJobDefinitionRegistry);
+	}
+
+	@Bean
+	public WorkChunkProcessor jobStepExecutorService(
+			BatchJobSender theBatchJobSender, AdaptiveChunkSizeController theAdaptiveChunkSizeController) {
+		return new WorkChunkProcessor(
+				myPersistence, theBatchJobSender, myHapiTransactionService, theAdaptiveChunkSizeController);
 	}
 
 	@Bean
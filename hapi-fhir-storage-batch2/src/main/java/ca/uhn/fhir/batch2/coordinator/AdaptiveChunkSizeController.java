@@ -0,0 +1,212 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.coordinator;
+
+import ca.uhn.fhir.batch2.api.IAdaptiveChunkSizingWorkload;
+import ca.uhn.fhir.batch2.model.AdaptiveChunkSizing;
+import ca.uhn.fhir.batch2.model.JobDefinition;
+import ca.uhn.fhir.batch2.model.WorkChunkCompletionEvent;
+import ca.uhn.fhir.util.Logs;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chooses the size of work chunks for jobs with {@link AdaptiveChunkSizing adaptive chunk sizing}.
+ * <p>
+ * As chunks of the sized step complete, the processing time and payload size per record are
+ * tracked as an exponentially weighted moving average, and the chunk size is moved toward the
+ * number of records that would take the target chunk duration (and fit within the target
+ * payload size, if one is set). Each adjustment is limited to a factor of {@link #MAX_ADJUSTMENT_FACTOR}
+ * so that a single slow chunk doesn't collapse the chunk size.
+ * </p>
+ * <p>
+ * Sizes are tracked in memory per job definition and per workload key. The workload key is
+ * supplied by the step producing the chunks and carried by the chunk data (see
+ * {@link IAdaptiveChunkSizingWorkload}), and typically identifies the resource type and
+ * partition being processed. This means that, for example, a reindex of Binary resources
+ * and a reindex of Patient resources each learn their own chunk size, and that a job learns
+ * from the chunks completed by earlier runs over the same workload on this node.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class AdaptiveChunkSizeController {
+	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
+
+	/**
+	 * Weight given to the most recent chunk in the moving averages
+	 */
+	static final double SMOOTHING_FACTOR = 0.3;
+
+	static final int MAX_ADJUSTMENT_FACTOR = 2;
+
+	private final JobDefinitionRegistry myJobDefinitionRegistry;
+	private final Map<String, ChunkSizeState> myStates = new ConcurrentHashMap<>();
+
+	public AdaptiveChunkSizeController(@Nonnull JobDefinitionRegistry theJobDefinitionRegistry) {
+		myJobDefinitionRegistry = theJobDefinitionRegistry;
+	}
+
+	/**
+	 * Records a completed work chunk. Chunks which are not from the sized step of a job with
+	 * adaptive chunk sizing, or which did not process any records, are ignored.
+	 *
+	 * @param theWorkloadKey The workload key carried by the chunk, or <code>null</code> if none
+	 */
+	public void onWorkChunkCompletion(
+			String theJobDefinitionId,
+			int theJobDefinitionVersion,
+			String theStepId,
+			@Nullable String theWorkloadKey,
+			WorkChunkCompletionEvent theEvent) {
+		if (theEvent.getRecordsProcessed() <= 0 || theEvent.getProcessingTimeMillis() <= 0) {
+			return;
+		}
+		Optional<AdaptiveChunkSizing> sizing = getAdaptiveChunkSizing(theJobDefinitionId, theJobDefinitionVersion);
+		if (sizing.isEmpty() || !sizing.get().getSizedStepId().equals(theStepId)) {
+			return;
+		}
+
+		String key = toKey(theJobDefinitionId, theJobDefinitionVersion, theWorkloadKey);
+		ChunkSizeState state = myStates.computeIfAbsent(key, t -> new ChunkSizeState());
+		int previousChunkSize = state.getChunkSize();
+		int newChunkSize = state.addObservation(
+				sizing.get(),
+				theEvent.getRecordsProcessed(),
+				theEvent.getProcessingTimeMillis(),
+				theEvent.getPayloadBytes());
+		if (newChunkSize != previousChunkSize) {
+			ourLog.info(
+					"Adjusted chunk size for job {} step {} from {} to {} - Observed {}ms/record and {} bytes/record",
+					key,
+					theStepId,
+					previousChunkSize,
+					newChunkSize,
+					String.format("%.2f", state.getMillisPerRecord()),
+					Math.round(state.getBytesPerRecord()));
+		}
+	}
+
+	/**
+	 * Returns the number of records to place in the next chunk for the given job and workload.
+	 *
+	 * @param theWorkloadKey      The workload key which will be carried by the chunk, or <code>null</code> if none
+	 * @param theDefaultChunkSize The chunk size to use if the job does not use adaptive chunk
+	 *                            sizing. This is also the starting size, within the bounds of the
+	 *                            job definition, until chunks have been observed.
+	 */
+	public int getChunkSize(
+			String theJobDefinitionId,
+			int theJobDefinitionVersion,
+			@Nullable String theWorkloadKey,
+			int theDefaultChunkSize) {
+		Optional<AdaptiveChunkSizing> sizing = getAdaptiveChunkSizing(theJobDefinitionId, theJobDefinitionVersion);
+		if (sizing.isEmpty()) {
+			return theDefaultChunkSize;
+		}
+		ChunkSizeState state = myStates.get(toKey(theJobDefinitionId, theJobDefinitionVersion, theWorkloadKey));
+		if (state == null || state.getChunkSize() == 0) {
+			return sizing.get().clamp(theDefaultChunkSize);
+		}
+		return state.getChunkSize();
+	}
+
+	/**
+	 * Returns <code>true</code> if the given job definition uses adaptive chunk sizing
+	 */
+	public boolean isAdaptive(String theJobDefinitionId, int theJobDefinitionVersion) {
+		return getAdaptiveChunkSizing(theJobDefinitionId, theJobDefinitionVersion)
+				.isPresent();
+	}
+
+	@VisibleForTesting
+	void clear() {
+		myStates.clear();
+	}
+
+	private Optional<AdaptiveChunkSizing> getAdaptiveChunkSizing(
+			String theJobDefinitionId, int theJobDefinitionVersion) {
+		return myJobDefinitionRegistry
+				.getJobDefinition(theJobDefinitionId, theJobDefinitionVersion)
+				.map(JobDefinition::getAdaptiveChunkSizing);
+	}
+
+	private static String toKey(
+			String theJobDefinitionId, int theJobDefinitionVersion, @Nullable String theWorkloadKey) {
+		String retVal = theJobDefinitionId + "/" + theJobDefinitionVersion;
+		if (theWorkloadKey != null) {
+			retVal += "/" + theWorkloadKey;
+		}
+		return retVal;
+	}
+
+	private static class ChunkSizeState {
+		private int myChunkSize;
+		private double myMillisPerRecord;
+		private double myBytesPerRecord;
+
+		synchronized int addObservation(
+				AdaptiveChunkSizing theSizing, int theRecords, long theMillis, long thePayloadBytes) {
+			double millisPerRecord = (double) theMillis / theRecords;
+			myMillisPerRecord = smooth(myMillisPerRecord, millisPerRecord);
+			if (thePayloadBytes > 0) {
+				myBytesPerRecord = smooth(myBytesPerRecord, (double) thePayloadBytes / theRecords);
+			}
+
+			double idealChunkSize = theSizing.getTargetChunkDuration().toMillis() / myMillisPerRecord;
+			if (theSizing.getTargetChunkBytes() > 0 && myBytesPerRecord > 0) {
+				idealChunkSize = Math.min(idealChunkSize, theSizing.getTargetChunkBytes() / myBytesPerRecord);
+			}
+
+			// The first observed chunk tells us what size was in use before any adjustment
+			int currentChunkSize = myChunkSize > 0 ? myChunkSize : theRecords;
+			long newChunkSize = Math.round(idealChunkSize);
+			newChunkSize = Math.max(newChunkSize, currentChunkSize / MAX_ADJUSTMENT_FACTOR);
+			newChunkSize = Math.min(newChunkSize, (long) currentChunkSize * MAX_ADJUSTMENT_FACTOR);
+			myChunkSize = theSizing.clamp(newChunkSize);
+			return myChunkSize;
+		}
+
+		synchronized int getChunkSize() {
+			return myChunkSize;
+		}
+
+		synchronized double getMillisPerRecord() {
+			return myMillisPerRecord;
+		}
+
+		synchronized double getBytesPerRecord() {
+			return myBytesPerRecord;
+		}
+
+		private static double smooth(double theAverage, double theValue) {
+			if (theAverage == 0) {
+				return theValue;
+			}
+			return SMOOTHING_FACTOR * theValue + (1 - SMOOTHING_FACTOR) * theAverage;
+		}
+	}
+}
@@ -19,6 +19,7 @@
  */
 package ca.uhn.fhir.batch2.coordinator;
 
+import ca.uhn.fhir.batch2.api.IAdaptiveChunkSizingWorkload;
 import ca.uhn.fhir.batch2.api.IJobPersistence;
 import ca.uhn.fhir.batch2.api.IJobStepWorker;
 import ca.uhn.fhir.batch2.api.JobExecutionFailedException;
@@ -32,6 +33,8 @@ import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.model.api.IModelJson;
 import ca.uhn.fhir.util.Logs;
+import ca.uhn.fhir.util.StopWatch;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 
@@ -43,8 +46,24 @@ public class StepExecutor {
 	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
 	private final IJobPersistence myJobPersistence;
 
+	@Nullable
+	private final AdaptiveChunkSizeController myAdaptiveChunkSizeController;
+
 	public StepExecutor(IJobPersistence theJobPersistence) {
+		this(theJobPersistence, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theAdaptiveChunkSizeController If not null, this controller will be notified of every
+	 *                                       completed work chunk
+	 * @since 8.8.0
+	 */
+	public StepExecutor(
+			IJobPersistence theJobPersistence, @Nullable AdaptiveChunkSizeController theAdaptiveChunkSizeController) {
 		myJobPersistence = theJobPersistence;
+		myAdaptiveChunkSizeController = theAdaptiveChunkSizeController;
 	}
 
 	/**
@@ -59,6 +78,7 @@ public class StepExecutor {
 		String chunkId = theStepExecutionDetails.getChunkId();
 
 		RunOutcome outcome;
+		StopWatch stopWatch = new StopWatch();
 		try {
 			outcome = theStepWorker.run(theStepExecutionDetails, theDataSink);
 			Validate.notNull(outcome, "Step theWorker returned null: %s", theStepWorker.getClass());
@@ -116,9 +136,24 @@ public class StepExecutor {
 			int recordsProcessed = outcome.getRecordsProcessed();
 			int recoveredErrorCount = theDataSink.getRecoveredErrorCount();
 			WorkChunkCompletionEvent event = new WorkChunkCompletionEvent(
-					chunkId, recordsProcessed, recoveredErrorCount, theDataSink.getRecoveredWarning());
+							chunkId, recordsProcessed, recoveredErrorCount, theDataSink.getRecoveredWarning())
+					.setProcessingTimeMillis(stopWatch.getMillis())
+					.setPayloadBytes(outcome.getPayloadBytes());
 
 			myJobPersistence.onWorkChunkCompletion(event);
+
+			if (myAdaptiveChunkSizeController != null) {
+				String workloadKey = null;
+				if (theStepExecutionDetails.getData() instanceof IAdaptiveChunkSizingWorkload workload) {
+					workloadKey = workload.getAdaptiveChunkSizingWorkloadKey();
+				}
+				myAdaptiveChunkSizeController.onWorkChunkCompletion(
+						jobDefinitionId,
+						theStepExecutionDetails.getWorkChunk().getJobDefinitionVersion(),
+						targetStepId,
+						workloadKey,
+						event);
+			}
 		}
 
 		return true;
@@ -62,9 +62,24 @@ public class WorkChunkProcessor {
 			IJobPersistence theJobPersistence,
 			BatchJobSender theSender,
 			IHapiTransactionService theHapiTransactionService) {
+		this(theJobPersistence, theSender, theHapiTransactionService, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theAdaptiveChunkSizeController If not null, this controller will be notified of every
+	 *                                       completed work chunk
+	 * @since 8.8.0
+	 */
+	public WorkChunkProcessor(
+			IJobPersistence theJobPersistence,
+			BatchJobSender theSender,
+			IHapiTransactionService theHapiTransactionService,
+			@Nullable AdaptiveChunkSizeController theAdaptiveChunkSizeController) {
 		myJobPersistence = theJobPersistence;
 		myBatchJobSender = theSender;
-		myStepExecutor = new StepExecutor(theJobPersistence);
+		myStepExecutor = new StepExecutor(theJobPersistence, theAdaptiveChunkSizeController);
 		myHapiTransactionService = theHapiTransactionService;
 	}
 
@@ -19,6 +19,7 @@
  */
 package ca.uhn.fhir.batch2.jobs.chunk;
 
+import ca.uhn.fhir.batch2.api.IAdaptiveChunkSizingWorkload;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
 import ca.uhn.fhir.model.api.IModelJson;
@@ -34,7 +35,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class ResourceIdListWorkChunkJson implements IModelJson {
+public class ResourceIdListWorkChunkJson implements IModelJson, IAdaptiveChunkSizingWorkload {
 
 	@JsonProperty("requestPartitionId")
 	private RequestPartitionId myRequestPartitionId;
@@ -42,6 +43,9 @@ public class ResourceIdListWorkChunkJson implements IModelJson {
 	@JsonProperty("ids")
 	private List<TypedPidJson> myTypedPids;
 
+	@JsonProperty("workloadKey")
+	private String myWorkloadKey;
+
 	/**
 	 * Constructor
 	 */
@@ -93,6 +97,25 @@ public class ResourceIdListWorkChunkJson implements IModelJson {
 				.collect(Collectors.toList());
 	}
 
+	/**
+	 * @since 8.8.0
+	 */
+	@Override
+	public String getAdaptiveChunkSizingWorkloadKey() {
+		return myWorkloadKey;
+	}
+
+	/**
+	 * Sets the key identifying the workload this chunk was sized for
+	 *
+	 * @see IAdaptiveChunkSizingWorkload
+	 * @since 8.8.0
+	 */
+	public ResourceIdListWorkChunkJson setAdaptiveChunkSizingWorkloadKey(String theWorkloadKey) {
+		myWorkloadKey = theWorkloadKey;
+		return this;
+	}
+
 	public int size() {
 		return getTypedPids().size();
 	}
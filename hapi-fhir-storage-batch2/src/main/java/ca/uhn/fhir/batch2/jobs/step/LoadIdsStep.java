@@ -24,19 +24,33 @@ import ca.uhn.fhir.batch2.api.IJobStepWorker;
 import ca.uhn.fhir.batch2.api.JobExecutionFailedException;
 import ca.uhn.fhir.batch2.api.RunOutcome;
 import ca.uhn.fhir.batch2.api.StepExecutionDetails;
+import ca.uhn.fhir.batch2.coordinator.AdaptiveChunkSizeController;
 import ca.uhn.fhir.batch2.jobs.chunk.ChunkRangeJson;
 import ca.uhn.fhir.batch2.jobs.chunk.ResourceIdListWorkChunkJson;
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrlJobParameters;
 import ca.uhn.fhir.jpa.api.svc.IBatch2DaoSvc;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 
 public class LoadIdsStep<PT extends PartitionedUrlJobParameters>
 		implements IJobStepWorker<PT, ChunkRangeJson, ResourceIdListWorkChunkJson> {
 	private final ResourceIdListStep<PT> myResourceIdListStep;
 
 	public LoadIdsStep(IBatch2DaoSvc theBatch2DaoSvc) {
+		this(theBatch2DaoSvc, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theAdaptiveChunkSizeController If not null, chunks are sized by this controller for jobs
+	 *                                       with adaptive chunk sizing
+	 * @since 8.8.0
+	 */
+	public LoadIdsStep(
+			IBatch2DaoSvc theBatch2DaoSvc, @Nullable AdaptiveChunkSizeController theAdaptiveChunkSizeController) {
 		IIdChunkProducer<ChunkRangeJson> idChunkProducer = new ChunkProducer(theBatch2DaoSvc);
-		myResourceIdListStep = new ResourceIdListStep<>(idChunkProducer);
+		myResourceIdListStep = new ResourceIdListStep<>(idChunkProducer, theAdaptiveChunkSizeController);
 	}
 
 	@Nonnull
@@ -24,6 +24,7 @@ import ca.uhn.fhir.batch2.api.IJobStepWorker;
 import ca.uhn.fhir.batch2.api.JobExecutionFailedException;
 import ca.uhn.fhir.batch2.api.RunOutcome;
 import ca.uhn.fhir.batch2.api.StepExecutionDetails;
+import ca.uhn.fhir.batch2.coordinator.AdaptiveChunkSizeController;
 import ca.uhn.fhir.batch2.jobs.chunk.ChunkRangeJson;
 import ca.uhn.fhir.batch2.jobs.chunk.ResourceIdListWorkChunkJson;
 import ca.uhn.fhir.batch2.jobs.chunk.TypedPidJson;
@@ -32,15 +33,22 @@ import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.pid.IResourcePidStream;
 import ca.uhn.fhir.util.Logs;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 import java.util.stream.Stream;
 
-import static ca.uhn.fhir.util.StreamUtil.partition;
 import static org.apache.commons.lang3.ObjectUtils.getIfNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
 
 public class ResourceIdListStep<PT extends PartitionedUrlJobParameters>
 		implements IJobStepWorker<PT, ChunkRangeJson, ResourceIdListWorkChunkJson> {
@@ -50,8 +58,27 @@ public class ResourceIdListStep<PT extends PartitionedUrlJobParameters>
 
 	private final IIdChunkProducer<ChunkRangeJson> myIdChunkProducer;
 
+	@Nullable
+	private final AdaptiveChunkSizeController myAdaptiveChunkSizeController;
+
 	public ResourceIdListStep(IIdChunkProducer<ChunkRangeJson> theIdChunkProducer) {
+		this(theIdChunkProducer, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theAdaptiveChunkSizeController If not null, and the job uses
+	 *                                       {@link ca.uhn.fhir.batch2.model.AdaptiveChunkSizing adaptive chunk sizing},
+	 *                                       chunks will be sized by this controller unless the job parameters
+	 *                                       specify an explicit batch size
+	 * @since 8.8.0
+	 */
+	public ResourceIdListStep(
+			IIdChunkProducer<ChunkRangeJson> theIdChunkProducer,
+			@Nullable AdaptiveChunkSizeController theAdaptiveChunkSizeController) {
 		myIdChunkProducer = theIdChunkProducer;
+		myAdaptiveChunkSizeController = theAdaptiveChunkSizeController;
 	}
 
 	@Nonnull
@@ -74,8 +101,12 @@ public class ResourceIdListStep<PT extends PartitionedUrlJobParameters>
 				data.getUrl(),
 				data.getPartitionId());
 
-		// Guard against invalid values
-		int chunkSize = Math.max(1, Math.min(getIfNull(batchSize, MAX_BATCH_OF_IDS), MAX_BATCH_OF_IDS));
+		String workloadKey = null;
+		if (batchSize == null && isAdaptive(theStepExecutionDetails)) {
+			workloadKey = toWorkloadKey(data);
+		}
+		IntSupplier chunkSizeSupplier = getChunkSizeSupplier(theStepExecutionDetails, batchSize, workloadKey);
+		String chunkWorkloadKey = workloadKey;
 
 		final IResourcePidStream searchResult =
 				myIdChunkProducer.fetchResourceIdStream(theStepExecutionDetails.getData());
@@ -91,12 +122,20 @@ public class ResourceIdListStep<PT extends PartitionedUrlJobParameters>
 				jsonStream = jsonStream.limit(limitResourceCount);
 			}
 
-			// chunk by size maxBatchId and submit the batches
-			partition(jsonStream, chunkSize).forEach(idBatch -> {
-				totalIdsFound.addAndGet(idBatch.size());
-				chunkCount.getAndIncrement();
-				submitWorkChunk(idBatch, searchResult.getRequestPartitionId(), theDataSink);
-			});
+			// chunk by the current chunk size and submit the batches
+			Iterator<TypedPidJson> iterator = jsonStream.iterator();
+			int chunkSize = chunkSizeSupplier.getAsInt();
+			List<TypedPidJson> idBatch = new ArrayList<>(chunkSize);
+			while (iterator.hasNext()) {
+				idBatch.add(iterator.next());
+				if (idBatch.size() >= chunkSize || !iterator.hasNext()) {
+					totalIdsFound.addAndGet(idBatch.size());
+					chunkCount.getAndIncrement();
+					submitWorkChunk(idBatch, searchResult.getRequestPartitionId(), chunkWorkloadKey, theDataSink);
+					chunkSize = chunkSizeSupplier.getAsInt();
+					idBatch = new ArrayList<>(chunkSize);
+				}
+			}
 			ourLog.trace(
 					"Submitted {} chunks with {} resource IDs for url {} and partitionId {}",
 					chunkCount,
@@ -108,15 +147,67 @@ public class ResourceIdListStep<PT extends PartitionedUrlJobParameters>
 		return RunOutcome.SUCCESS;
 	}
 
+	private boolean isAdaptive(StepExecutionDetails<PT, ChunkRangeJson> theStepExecutionDetails) {
+		return myAdaptiveChunkSizeController != null
+				&& theStepExecutionDetails.hasAssociatedWorkChunk()
+				&& myAdaptiveChunkSizeController.isAdaptive(
+						theStepExecutionDetails.getWorkChunk().getJobDefinitionId(),
+						theStepExecutionDetails.getWorkChunk().getJobDefinitionVersion());
+	}
+
+	private IntSupplier getChunkSizeSupplier(
+			StepExecutionDetails<PT, ChunkRangeJson> theStepExecutionDetails,
+			Integer theBatchSize,
+			@Nullable String theWorkloadKey) {
+		if (theWorkloadKey != null) {
+			String jobDefinitionId = theStepExecutionDetails.getWorkChunk().getJobDefinitionId();
+			int jobDefinitionVersion = theStepExecutionDetails.getWorkChunk().getJobDefinitionVersion();
+			// The size may change as chunks of the sized step complete
+			return () -> myAdaptiveChunkSizeController.getChunkSize(
+					jobDefinitionId, jobDefinitionVersion, theWorkloadKey, MAX_BATCH_OF_IDS);
+		}
+
+		// Guard against invalid values
+		int chunkSize = Math.max(1, Math.min(getIfNull(theBatchSize, MAX_BATCH_OF_IDS), MAX_BATCH_OF_IDS));
+		return () -> chunkSize;
+	}
+
+	/**
+	 * Adaptive chunk sizes are learned separately for each resource type and partition, since
+	 * the cost of processing a resource depends heavily on its type
+	 */
+	static String toWorkloadKey(ChunkRangeJson theData) {
+		String resourceType = theData.getResourceType();
+		if (isBlank(resourceType) && isNotBlank(theData.getUrl())) {
+			resourceType = substringBefore(theData.getUrl(), "?");
+		}
+		if (isBlank(resourceType)) {
+			resourceType = "*";
+		}
+
+		RequestPartitionId partitionId = theData.getPartitionId();
+		String partition;
+		if (partitionId == null) {
+			partition = "";
+		} else if (partitionId.isAllPartitions() && !partitionId.hasPartitionIds()) {
+			partition = "all";
+		} else {
+			partition = partitionId.getPartitionIds().toString();
+		}
+		return resourceType + "/" + partition;
+	}
+
 	private void submitWorkChunk(
 			Collection<TypedPidJson> theTypedPids,
 			RequestPartitionId theRequestPartitionId,
+			@Nullable String theWorkloadKey,
 			IJobDataSink<ResourceIdListWorkChunkJson> theDataSink) {
 		if (theTypedPids.isEmpty()) {
 			return;
 		}
 		ourLog.trace("Submitting work chunk in partition {} with {} IDs", theRequestPartitionId, theTypedPids.size());
-		ResourceIdListWorkChunkJson data = new ResourceIdListWorkChunkJson(theTypedPids, theRequestPartitionId);
+		ResourceIdListWorkChunkJson data = new ResourceIdListWorkChunkJson(theTypedPids, theRequestPartitionId)
+				.setAdaptiveChunkSizingWorkloadKey(theWorkloadKey);
 		ourLog.trace("IDs are: {}", data);
 		theDataSink.accept(data);
 	}
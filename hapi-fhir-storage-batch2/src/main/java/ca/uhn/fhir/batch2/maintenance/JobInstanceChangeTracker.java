@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.maintenance;
+
+import ca.uhn.fhir.batch2.model.StatusEnum;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCounts;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.time.DateUtils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers, across maintenance passes, the {@link WorkChunkStatusCounts} each job instance had
+ * when its progress was last calculated. Calculating progress loads every work chunk of an instance
+ * and stores the instance, so the maintenance pass only does it for instances whose chunk counts,
+ * chunk times, record totals or status have changed since the previous calculation. Every instance
+ * is still recalculated at least once per reconciliation interval, which catches changes that leave
+ * all of these untouched (e.g. a new error message on a chunk).
+ * <p>
+ * The time-based progress fields (throughput and estimated time remaining) are calculated from the
+ * earliest chunk start time, the latest chunk end time and the number of records processed. Since
+ * these are part of the compared values, those fields are recalculated on every pass in which they
+ * could have changed.
+ * </p>
+ * <p>
+ * Note that this does not make a maintenance pass proportional to the number of changed
+ * instances. The values themselves come from an aggregate query which still visits every work
+ * chunk of every running instance on each pass. What is skipped for unchanged instances is
+ * loading the chunks and updating the instance row.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class JobInstanceChangeTracker {
+
+	public static final long DEFAULT_RECONCILIATION_INTERVAL_MILLIS = 10 * DateUtils.MILLIS_PER_MINUTE;
+
+	private final Map<String, ProgressSnapshot> myInstanceIdToSnapshot = new ConcurrentHashMap<>();
+	private long myReconciliationIntervalMillis = DEFAULT_RECONCILIATION_INTERVAL_MILLIS;
+
+	public void setReconciliationIntervalMillis(long theReconciliationIntervalMillis) {
+		myReconciliationIntervalMillis = theReconciliationIntervalMillis;
+	}
+
+	/**
+	 * @param theCounts The current work chunk counts of the instance, or <code>null</code> if they are not known
+	 * @return Returns <code>true</code> if the progress of the instance needs to be calculated
+	 */
+	public boolean isProgressCalculationNeeded(
+			@Nonnull String theInstanceId, @Nonnull StatusEnum theStatus, @Nullable WorkChunkStatusCounts theCounts) {
+		ProgressSnapshot snapshot = myInstanceIdToSnapshot.get(theInstanceId);
+		if (snapshot == null || theCounts == null) {
+			return true;
+		}
+		if (System.currentTimeMillis() - snapshot.myCalculatedAtMillis >= myReconciliationIntervalMillis) {
+			return true;
+		}
+		return snapshot.myStatus != theStatus || !Objects.equals(snapshot.myCounts, theCounts);
+	}
+
+	/**
+	 * Records that the progress of an instance was calculated while it had the given status and counts.
+	 * The counts must have been fetched before the calculation started, so that changes made during the
+	 * calculation are picked up by the next pass.
+	 */
+	public void onProgressCalculated(
+			@Nonnull String theInstanceId, @Nonnull StatusEnum theStatus, @Nullable WorkChunkStatusCounts theCounts) {
+		if (theCounts == null) {
+			return;
+		}
+		myInstanceIdToSnapshot.put(
+				theInstanceId, new ProgressSnapshot(theStatus, theCounts, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Forgets every instance which is not in the given collection
+	 */
+	public void retainInstances(@Nonnull Collection<String> theInstanceIds) {
+		myInstanceIdToSnapshot.keySet().retainAll(theInstanceIds);
+	}
+
+	private static class ProgressSnapshot {
+		private final StatusEnum myStatus;
+		private final WorkChunkStatusCounts myCounts;
+		private final long myCalculatedAtMillis;
+
+		private ProgressSnapshot(StatusEnum theStatus, WorkChunkStatusCounts theCounts, long theCalculatedAtMillis) {
+			myStatus = theStatus;
+			myCounts = theCounts;
+			myCalculatedAtMillis = theCalculatedAtMillis;
+		}
+	}
+}
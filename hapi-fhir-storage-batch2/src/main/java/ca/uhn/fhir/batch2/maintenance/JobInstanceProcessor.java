@@ -29,6 +29,7 @@ import ca.uhn.fhir.batch2.model.JobWorkCursor;
 import ca.uhn.fhir.batch2.model.JobWorkNotification;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.batch2.model.WorkChunkMetadata;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCounts;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.batch2.progress.JobInstanceProgressCalculator;
 import ca.uhn.fhir.batch2.progress.JobInstanceStatusUpdater;
@@ -41,6 +42,8 @@ import org.slf4j.Logger;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -60,6 +63,7 @@ public class JobInstanceProcessor {
 	private final IReductionStepExecutorService myReductionStepExecutorService;
 	private final String myInstanceId;
 	private final JobDefinitionRegistry myJobDefinitionegistry;
+	private final JobInstanceChangeTracker myChangeTracker;
 
 	private long myPurgeThreshold = PURGE_THRESHOLD;
 
@@ -70,12 +74,37 @@ public class JobInstanceProcessor {
 			JobChunkProgressAccumulator theProgressAccumulator,
 			IReductionStepExecutorService theReductionStepExecutorService,
 			JobDefinitionRegistry theJobDefinitionRegistry) {
+		this(
+				theJobPersistence,
+				theBatchJobSender,
+				theInstanceId,
+				theProgressAccumulator,
+				theReductionStepExecutorService,
+				theJobDefinitionRegistry,
+				new JobInstanceChangeTracker());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theChangeTracker Tracks the work chunk counts the instance had at previous progress calculations, so
+	 *                         that progress is only recalculated when the chunks have changed
+	 */
+	public JobInstanceProcessor(
+			IJobPersistence theJobPersistence,
+			BatchJobSender theBatchJobSender,
+			String theInstanceId,
+			JobChunkProgressAccumulator theProgressAccumulator,
+			IReductionStepExecutorService theReductionStepExecutorService,
+			JobDefinitionRegistry theJobDefinitionRegistry,
+			JobInstanceChangeTracker theChangeTracker) {
 		myJobPersistence = theJobPersistence;
 		myBatchJobSender = theBatchJobSender;
 		myInstanceId = theInstanceId;
 		myProgressAccumulator = theProgressAccumulator;
 		myReductionStepExecutorService = theReductionStepExecutorService;
 		myJobDefinitionegistry = theJobDefinitionRegistry;
+		myChangeTracker = theChangeTracker;
 		myJobInstanceProgressCalculator =
 				new JobInstanceProgressCalculator(theJobPersistence, theProgressAccumulator, theJobDefinitionRegistry);
 		myJobInstanceStatusUpdater = new JobInstanceStatusUpdater(theJobDefinitionRegistry);
@@ -169,7 +198,7 @@ public class JobInstanceProcessor {
 				return;
 			case IN_PROGRESS:
 			case ERRORED:
-				myJobInstanceProgressCalculator.calculateAndStoreInstanceProgress(theInstance.getInstanceId());
+				calculateInstanceProgressIfChanged(theInstance);
 				break;
 			case COMPLETED:
 			case FAILED:
@@ -189,6 +218,23 @@ public class JobInstanceProcessor {
 		}
 	}
 
+	/**
+	 * Calculating progress loads every work chunk of the instance, so we only do it
+	 * if the chunk counts, times or totals have changed since the last time. Fetching
+	 * these still visits every chunk, but without loading them.
+	 */
+	private void calculateInstanceProgressIfChanged(JobInstance theInstance) {
+		String instanceId = theInstance.getInstanceId();
+		WorkChunkStatusCounts counts = myJobPersistence.fetchWorkChunkStatusCounts(instanceId);
+		if (!myChangeTracker.isProgressCalculationNeeded(instanceId, theInstance.getStatus(), counts)) {
+			ourLog.debug("Work chunks of instance {} have not changed, not recalculating progress", instanceId);
+			return;
+		}
+
+		myJobInstanceProgressCalculator.calculateAndStoreInstanceProgress(instanceId);
+		myChangeTracker.onProgressCalculated(instanceId, theInstance.getStatus(), counts);
+	}
+
 	private boolean purgeExpiredInstance(JobInstance theInstance) {
 		if (theInstance.getEndTime() != null) {
 			long cutoff = System.currentTimeMillis() - myPurgeThreshold;
@@ -301,18 +347,25 @@ public class JobInstanceProcessor {
 		Iterator<WorkChunkMetadata> iter = getReadyChunks();
 
 		int counter = 0;
+		List<WorkChunkMetadata> batch = new ArrayList<>(IJobPersistence.ENQUEUE_BATCH_SIZE);
 		while (iter.hasNext()) {
-			WorkChunkMetadata metadata = iter.next();
+			batch.add(iter.next());
+			counter++;
 
 			/*
-			 * For each chunk id
+			 * For each batch of chunk ids
 			 * * Move to QUEUE'd
 			 * * Send to topic
 			 * * flush changes
 			 * * commit
 			 */
-			updateChunkAndSendToQueue(metadata);
-			counter++;
+			if (batch.size() >= IJobPersistence.ENQUEUE_BATCH_SIZE) {
+				updateChunksAndSendToQueue(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			updateChunksAndSendToQueue(batch);
 		}
 		ourLog.debug(
 				"Encountered {} READY work chunks for job {} of type {}",
@@ -322,29 +375,29 @@ public class JobInstanceProcessor {
 	}
 
 	/**
-	 * Updates the Work Chunk and sends it to the queue.
+	 * Updates a batch of Work Chunks and sends them to the queue.
 	 *
 	 * Because ReductionSteps are done inline by the maintenance pass,
 	 * those will not be sent to the queue (but they will still have their
 	 * status updated from READY -> QUEUED).
-	 *
-	 * Returns true after processing.
 	 */
-	private void updateChunkAndSendToQueue(WorkChunkMetadata theChunk) {
-		String chunkId = theChunk.getId();
-		myJobPersistence.enqueueWorkChunkForProcessing(chunkId, updated -> {
-			ourLog.info("Updated {} workchunk with id {}", updated, chunkId);
-			if (updated == 1) {
-				sendNotification(theChunk);
-			} else {
-				// means the work chunk is likely already gone...
-				// we'll log and skip it. If it's still in the DB, the next pass
-				// will pick it up. Otherwise, it's no longer important
-				ourLog.error(
-						"Job Instance {} failed to transition work chunk with id {} from READY to QUEUED; found {}, expected 1; skipping work chunk.",
-						theChunk.getInstanceId(),
-						theChunk.getId(),
-						updated);
+	private void updateChunksAndSendToQueue(List<WorkChunkMetadata> theChunks) {
+		List<String> chunkIds = theChunks.stream().map(WorkChunkMetadata::getId).toList();
+		myJobPersistence.enqueueWorkChunksForProcessing(chunkIds, queuedChunkIds -> {
+			ourLog.info("Updated {} of {} READY workchunks to QUEUED", queuedChunkIds.size(), chunkIds.size());
+			Set<String> queued = new HashSet<>(queuedChunkIds);
+			for (WorkChunkMetadata next : theChunks) {
+				if (queued.contains(next.getId())) {
+					sendNotification(next);
+				} else {
+					// means the work chunk is likely already gone, or locked by
+					// another transaction. We'll log and skip it. If it's still in the
+					// DB, the next pass will pick it up. Otherwise, it's no longer important
+					ourLog.error(
+							"Job Instance {} failed to transition work chunk with id {} from READY to QUEUED; skipping work chunk.",
+							next.getInstanceId(),
+							next.getId());
+				}
 			}
 		});
 	}
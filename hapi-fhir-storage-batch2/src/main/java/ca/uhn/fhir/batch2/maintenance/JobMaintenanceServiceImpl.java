@@ -94,6 +94,7 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 	private final IReductionStepExecutorService myReductionStepExecutorService;
 
 	private final Semaphore myRunMaintenanceSemaphore = new Semaphore(1);
+	private final JobInstanceChangeTracker myChangeTracker = new JobInstanceChangeTracker();
 
 	private long myScheduledJobFrequencyMillis = DateUtils.MILLIS_PER_MINUTE;
 	private Runnable myMaintenanceJobStartedCallback = () -> {};
@@ -259,6 +260,7 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 				break;
 			}
 		}
+		myChangeTracker.retainInstances(processedInstanceIds);
 		myMaintenanceJobFinishedCallback.run();
 	}
 
@@ -270,7 +272,8 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 				theInstanceId,
 				theAccumulator,
 				myReductionStepExecutorService,
-				myJobDefinitionRegistry);
+				myJobDefinitionRegistry,
+				myChangeTracker);
 		if (myFailedJobLifetimeOverride >= 0) {
 			processor.setPurgeThreshold(myFailedJobLifetimeOverride);
 		}
@@ -282,6 +285,16 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 		myFailedJobLifetimeOverride = theFailedJobLifetime;
 	}
 
+	/**
+	 * Sets how often the progress of a running job instance is recalculated even if
+	 * its work chunk counts have not changed
+	 *
+	 * @since 8.8.0
+	 */
+	public void setProgressReconciliationIntervalMillis(long theProgressReconciliationIntervalMillis) {
+		myChangeTracker.setReconciliationIntervalMillis(theProgressReconciliationIntervalMillis);
+	}
+
 	public void setMaintenanceJobStartedCallback(Runnable theMaintenanceJobStartedCallback) {
 		myMaintenanceJobStartedCallback = theMaintenanceJobStartedCallback;
 	}
@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.model;
+
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.time.Duration;
+
+/**
+ * Bounds for adaptive work chunk sizing. A job definition with adaptive chunk sizing
+ * has the step that produces resource ID chunks size each chunk so that processing it
+ * in the sized step takes roughly the target chunk duration, based on the processing
+ * time and payload bytes recorded as earlier chunks of that step completed.
+ *
+ * @see ca.uhn.fhir.batch2.coordinator.AdaptiveChunkSizeController
+ * @since 8.8.0
+ */
+public class AdaptiveChunkSizing {
+
+	public static final Duration DEFAULT_TARGET_CHUNK_DURATION = Duration.ofSeconds(30);
+
+	/**
+	 * Key in the {@link JobInstance#getUserData() job instance user data} holding the
+	 * average size and processing time of the completed chunks of the sized step
+	 */
+	public static final String USER_DATA_KEY = "adaptiveChunkSizing";
+
+	private final String mySizedStepId;
+	private final int myMinChunkSize;
+	private final int myMaxChunkSize;
+	private final Duration myTargetChunkDuration;
+	private final long myTargetChunkBytes;
+
+	/**
+	 * Constructor which uses the {@link #DEFAULT_TARGET_CHUNK_DURATION default target duration} and
+	 * no payload size target
+	 *
+	 * @param theSizedStepId   The ID of the step which processes the adaptively sized chunks
+	 * @param theMinChunkSize  The smallest number of records a chunk will be given
+	 * @param theMaxChunkSize  The largest number of records a chunk will be given
+	 */
+	public AdaptiveChunkSizing(@Nonnull String theSizedStepId, int theMinChunkSize, int theMaxChunkSize) {
+		this(theSizedStepId, theMinChunkSize, theMaxChunkSize, DEFAULT_TARGET_CHUNK_DURATION, 0);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theSizedStepId        The ID of the step which processes the adaptively sized chunks
+	 * @param theMinChunkSize       The smallest number of records a chunk will be given
+	 * @param theMaxChunkSize       The largest number of records a chunk will be given
+	 * @param theTargetChunkDuration The time that processing a single chunk should take
+	 * @param theTargetChunkBytes   The payload size a single chunk should have, or 0 if chunks should
+	 *                              only be sized by duration
+	 */
+	public AdaptiveChunkSizing(
+			@Nonnull String theSizedStepId,
+			int theMinChunkSize,
+			int theMaxChunkSize,
+			@Nonnull Duration theTargetChunkDuration,
+			long theTargetChunkBytes) {
+		Validate.notBlank(theSizedStepId, "No sized step ID supplied");
+		Validate.isTrue(theMinChunkSize >= 1, "Minimum chunk size must be >= 1");
+		Validate.isTrue(theMaxChunkSize >= theMinChunkSize, "Maximum chunk size must be >= the minimum chunk size");
+		Validate.isTrue(
+				!theTargetChunkDuration.isNegative() && !theTargetChunkDuration.isZero(),
+				"Target chunk duration must be positive");
+		Validate.isTrue(theTargetChunkBytes >= 0, "Target chunk bytes must not be negative");
+		mySizedStepId = theSizedStepId;
+		myMinChunkSize = theMinChunkSize;
+		myMaxChunkSize = theMaxChunkSize;
+		myTargetChunkDuration = theTargetChunkDuration;
+		myTargetChunkBytes = theTargetChunkBytes;
+	}
+
+	public String getSizedStepId() {
+		return mySizedStepId;
+	}
+
+	public int getMinChunkSize() {
+		return myMinChunkSize;
+	}
+
+	public int getMaxChunkSize() {
+		return myMaxChunkSize;
+	}
+
+	public Duration getTargetChunkDuration() {
+		return myTargetChunkDuration;
+	}
+
+	public long getTargetChunkBytes() {
+		return myTargetChunkBytes;
+	}
+
+	/**
+	 * Returns the given chunk size, constrained to the min/max bounds
+	 */
+	public int clamp(long theChunkSize) {
+		return (int) Math.max(myMinChunkSize, Math.min(myMaxChunkSize, theChunkSize));
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("sizedStepId", mySizedStepId)
+				.append("minChunkSize", myMinChunkSize)
+				.append("maxChunkSize", myMaxChunkSize)
+				.append("targetChunkDuration", myTargetChunkDuration)
+				.append("targetChunkBytes", myTargetChunkBytes)
+				.toString();
+	}
+}
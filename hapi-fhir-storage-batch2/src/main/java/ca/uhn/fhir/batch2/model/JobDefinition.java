@@ -52,6 +52,7 @@ public class JobDefinition<PT extends IModelJson> {
 	private final List<String> myStepIds;
 	private final IJobCompletionHandler<PT> myCompletionHandler;
 	private final IJobCompletionHandler<PT> myErrorHandler;
+	private final AdaptiveChunkSizing myAdaptiveChunkSizing;
 
 	/**
 	 * Constructor
@@ -65,7 +66,8 @@ public class JobDefinition<PT extends IModelJson> {
 			IJobParametersValidator<PT> theParametersValidator,
 			boolean theGatedExecution,
 			IJobCompletionHandler<PT> theCompletionHandler,
-			IJobCompletionHandler<PT> theErrorHandler) {
+			IJobCompletionHandler<PT> theErrorHandler,
+			AdaptiveChunkSizing theAdaptiveChunkSizing) {
 		Validate.isTrue(theJobDefinitionId.length() <= ID_MAX_LENGTH, "Maximum ID length is %d", ID_MAX_LENGTH);
 		Validate.notBlank(theJobDefinitionId, "No job definition ID supplied");
 		Validate.notBlank(theJobDescription, "No job description supplied");
@@ -81,6 +83,10 @@ public class JobDefinition<PT extends IModelJson> {
 		myGatedExecution = theGatedExecution;
 		myCompletionHandler = theCompletionHandler;
 		myErrorHandler = theErrorHandler;
+		myAdaptiveChunkSizing = theAdaptiveChunkSizing;
+		Validate.isTrue(
+				theAdaptiveChunkSizing == null || myStepIds.contains(theAdaptiveChunkSizing.getSizedStepId()),
+				"Adaptive chunk sizing refers to unknown step");
 	}
 
 	@Nullable
@@ -93,6 +99,17 @@ public class JobDefinition<PT extends IModelJson> {
 		return myErrorHandler;
 	}
 
+	/**
+	 * Returns the adaptive chunk sizing bounds for this job, or <code>null</code> if
+	 * the chunks for this job are not adaptively sized.
+	 *
+	 * @since 8.8.0
+	 */
+	@Nullable
+	public AdaptiveChunkSizing getAdaptiveChunkSizing() {
+		return myAdaptiveChunkSizing;
+	}
+
 	@Nullable
 	public IJobParametersValidator<PT> getParametersValidator() {
 		return myParametersValidator;
@@ -178,6 +195,7 @@ public class JobDefinition<PT extends IModelJson> {
 		private boolean myGatedExecution;
 		private IJobCompletionHandler<PT> myCompletionHandler;
 		private IJobCompletionHandler<PT> myErrorHandler;
+		private AdaptiveChunkSizing myAdaptiveChunkSizing;
 
 		Builder() {
 			mySteps = new ArrayList<>();
@@ -193,7 +211,8 @@ public class JobDefinition<PT extends IModelJson> {
 				@Nullable IJobParametersValidator<PT> theParametersValidator,
 				boolean theGatedExecution,
 				IJobCompletionHandler<PT> theCompletionHandler,
-				IJobCompletionHandler<PT> theErrorHandler) {
+				IJobCompletionHandler<PT> theErrorHandler,
+				AdaptiveChunkSizing theAdaptiveChunkSizing) {
 			mySteps = theSteps;
 			myJobDefinitionId = theJobDefinitionId;
 			myJobDefinitionVersion = theJobDefinitionVersion;
@@ -204,6 +223,7 @@ public class JobDefinition<PT extends IModelJson> {
 			myGatedExecution = theGatedExecution;
 			myCompletionHandler = theCompletionHandler;
 			myErrorHandler = theErrorHandler;
+			myAdaptiveChunkSizing = theAdaptiveChunkSizing;
 		}
 
 		/**
@@ -249,7 +269,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myAdaptiveChunkSizing);
 		}
 
 		/**
@@ -278,7 +299,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myAdaptiveChunkSizing);
 		}
 
 		/**
@@ -304,7 +326,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myAdaptiveChunkSizing);
 		}
 
 		public <OT extends IModelJson> Builder<PT, OT> addFinalReducerStep(
@@ -328,7 +351,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myAdaptiveChunkSizing);
 		}
 
 		public JobDefinition<PT> build() {
@@ -342,7 +366,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myAdaptiveChunkSizing);
 		}
 
 		public Builder<PT, NIT> setJobDescription(String theJobDescription) {
@@ -440,6 +465,32 @@ public class JobDefinition<PT extends IModelJson> {
 			return this;
 		}
 
+		/**
+		 * Enables adaptive sizing of the resource ID chunks processed by the given step. The step
+		 * producing those chunks will size each one toward the
+		 * {@link AdaptiveChunkSizing#DEFAULT_TARGET_CHUNK_DURATION default target duration}, based on the
+		 * processing time of earlier chunks, but never outside of the given bounds.
+		 *
+		 * @param theSizedStepId  The ID of the step which processes the adaptively sized chunks
+		 * @param theMinChunkSize The smallest number of records a chunk will be given
+		 * @param theMaxChunkSize The largest number of records a chunk will be given
+		 * @since 8.8.0
+		 */
+		public Builder<PT, NIT> adaptiveChunkSizing(String theSizedStepId, int theMinChunkSize, int theMaxChunkSize) {
+			return adaptiveChunkSizing(new AdaptiveChunkSizing(theSizedStepId, theMinChunkSize, theMaxChunkSize));
+		}
+
+		/**
+		 * Enables adaptive sizing of the resource ID chunks processed by a step of this job.
+		 *
+		 * @since 8.8.0
+		 */
+		public Builder<PT, NIT> adaptiveChunkSizing(@Nonnull AdaptiveChunkSizing theAdaptiveChunkSizing) {
+			Validate.isTrue(myAdaptiveChunkSizing == null, "Can not supply multiple adaptive chunk sizings");
+			myAdaptiveChunkSizing = theAdaptiveChunkSizing;
+			return this;
+		}
+
 		/**
 		 * Supplies an optional callback that will be invoked if the job fails
 		 */
@@ -29,6 +29,8 @@ public class WorkChunkCompletionEvent extends BaseWorkChunkEvent {
 	int myRecordsProcessed;
 	int myRecoveredErrorCount;
 	String myRecoveredWarningMessage;
+	long myProcessingTimeMillis;
+	long myPayloadBytes;
 
 	public WorkChunkCompletionEvent(String theChunkId, int theRecordsProcessed, int theRecoveredErrorCount) {
 		super(theChunkId);
@@ -54,6 +56,43 @@ public class WorkChunkCompletionEvent extends BaseWorkChunkEvent {
 		return myRecoveredWarningMessage;
 	}
 
+	/**
+	 * @return The time spent running the step worker for this chunk, or 0 if not known
+	 * @since 8.8.0
+	 */
+	public long getProcessingTimeMillis() {
+		return myProcessingTimeMillis;
+	}
+
+	/**
+	 * @since 8.8.0
+	 */
+	public WorkChunkCompletionEvent setProcessingTimeMillis(long theProcessingTimeMillis) {
+		myProcessingTimeMillis = theProcessingTimeMillis;
+		return this;
+	}
+
+	/**
+	 * @return The payload size reported by the step worker for this chunk, or 0 if not known
+	 * @see ca.uhn.fhir.batch2.api.RunOutcome#getPayloadBytes()
+	 * @since 8.8.0
+	 */
+	public long getPayloadBytes() {
+		return myPayloadBytes;
+	}
+
+	/**
+	 * @since 8.8.0
+	 */
+	public WorkChunkCompletionEvent setPayloadBytes(long thePayloadBytes) {
+		myPayloadBytes = thePayloadBytes;
+		return this;
+	}
+
+	/**
+	 * The processing time is a measurement rather than part of the event
+	 * identity, so it is excluded from equality
+	 */
 	@Override
 	public boolean equals(Object theO) {
 		if (this == theO) return true;
@@ -67,6 +106,7 @@ public class WorkChunkCompletionEvent extends BaseWorkChunkEvent {
 				.append(myRecordsProcessed, that.myRecordsProcessed)
 				.append(myRecoveredErrorCount, that.myRecoveredErrorCount)
 				.append(myRecoveredWarningMessage, that.myRecoveredWarningMessage)
+				.append(myPayloadBytes, that.myPayloadBytes)
 				.isEquals();
 	}
 
@@ -77,6 +117,7 @@ public class WorkChunkCompletionEvent extends BaseWorkChunkEvent {
 				.append(myRecordsProcessed)
 				.append(myRecoveredErrorCount)
 				.append(myRecoveredWarningMessage)
+				.append(myPayloadBytes)
 				.toHashCode();
 	}
 }
@@ -0,0 +1,129 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.model;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The number of work chunks of a job instance in each target step and status, along with
+ * the earliest chunk start time, the latest chunk end time and the total number of records
+ * processed and errors encountered by the chunks. These are the inputs that the time-based
+ * progress fields of an instance (throughput and estimated time remaining) are calculated
+ * from. The maintenance pass compares these values between passes to find the instances
+ * whose work chunks have changed.
+ *
+ * @since 8.8.0
+ */
+public class WorkChunkStatusCounts {
+
+	private final Map<String, Map<WorkChunkStatusEnum, Long>> myStepToStatusCounts = new HashMap<>();
+	private Date myEarliestStartTime;
+	private Date myLatestEndTime;
+	private long myRecordsProcessed;
+	private long myErrorCount;
+
+	public WorkChunkStatusCounts addCount(
+			@Nonnull String theStepId, @Nonnull WorkChunkStatusEnum theStatus, long theCount) {
+		myStepToStatusCounts
+				.computeIfAbsent(theStepId, t -> new EnumMap<>(WorkChunkStatusEnum.class))
+				.merge(theStatus, theCount, Long::sum);
+		return this;
+	}
+
+	/**
+	 * Adds the start time, end time, records processed and error count totals for a group of chunks
+	 */
+	public WorkChunkStatusCounts addTotals(
+			@Nullable Date theEarliestStartTime,
+			@Nullable Date theLatestEndTime,
+			long theRecordsProcessed,
+			long theErrorCount) {
+		if (theEarliestStartTime != null
+				&& (myEarliestStartTime == null || theEarliestStartTime.before(myEarliestStartTime))) {
+			myEarliestStartTime = theEarliestStartTime;
+		}
+		if (theLatestEndTime != null && (myLatestEndTime == null || theLatestEndTime.after(myLatestEndTime))) {
+			myLatestEndTime = theLatestEndTime;
+		}
+		myRecordsProcessed += theRecordsProcessed;
+		myErrorCount += theErrorCount;
+		return this;
+	}
+
+	public long getCount(@Nonnull String theStepId, @Nonnull WorkChunkStatusEnum theStatus) {
+		Map<WorkChunkStatusEnum, Long> statusCounts = myStepToStatusCounts.get(theStepId);
+		if (statusCounts == null) {
+			return 0;
+		}
+		return statusCounts.getOrDefault(theStatus, 0L);
+	}
+
+	@Override
+	public boolean equals(Object theO) {
+		if (this == theO) {
+			return true;
+		}
+		if (!(theO instanceof WorkChunkStatusCounts)) {
+			return false;
+		}
+		WorkChunkStatusCounts that = (WorkChunkStatusCounts) theO;
+		return new EqualsBuilder()
+				.append(myStepToStatusCounts, that.myStepToStatusCounts)
+				.append(toMillis(myEarliestStartTime), toMillis(that.myEarliestStartTime))
+				.append(toMillis(myLatestEndTime), toMillis(that.myLatestEndTime))
+				.append(myRecordsProcessed, that.myRecordsProcessed)
+				.append(myErrorCount, that.myErrorCount)
+				.isEquals();
+	}
+
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder(17, 37)
+				.append(myStepToStatusCounts)
+				.append(toMillis(myEarliestStartTime))
+				.append(toMillis(myLatestEndTime))
+				.append(myRecordsProcessed)
+				.append(myErrorCount)
+				.toHashCode();
+	}
+
+	@Override
+	public String toString() {
+		return myStepToStatusCounts + " start=" + myEarliestStartTime + " end=" + myLatestEndTime + " records="
+				+ myRecordsProcessed + " errors=" + myErrorCount;
+	}
+
+	/**
+	 * Dates loaded from the database may be {@link java.sql.Timestamp}s, which don't compare equal to
+	 * {@link Date}s with the same time
+	 */
+	@Nullable
+	private static Long toMillis(@Nullable Date theDate) {
+		return theDate != null ? theDate.getTime() : null;
+	}
+}
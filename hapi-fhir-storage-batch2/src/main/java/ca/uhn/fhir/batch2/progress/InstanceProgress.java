@@ -25,6 +25,7 @@ import ca.uhn.fhir.batch2.model.WorkChunk;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.util.Logs;
 import ca.uhn.fhir.util.StopWatch;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.slf4j.Logger;
@@ -32,6 +33,7 @@ import org.slf4j.Logger;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -54,6 +56,7 @@ public class InstanceProgress {
 	private StatusEnum myNewStatus = null;
 	private final Map<String, Map<WorkChunkStatusEnum, Integer>> myStepToStatusCountMap = new HashMap<>();
 	private final Set<String> myWarningMessages = new HashSet<>();
+	private final Map<String, CompletedChunkStatistics> myStepToCompletedChunkStatistics = new HashMap<>();
 
 	public void addChunk(WorkChunk theChunk) {
 		myErrorCountForAllStatuses += theChunk.getErrorCount();
@@ -82,6 +85,9 @@ public class InstanceProgress {
 				break;
 			case COMPLETED:
 				myCompleteChunkCount++;
+				myStepToCompletedChunkStatistics
+						.computeIfAbsent(theChunk.getTargetStepId(), t -> new CompletedChunkStatistics())
+						.addChunk(theChunk);
 				break;
 			case ERRORED:
 				myErroredChunkCount++;
@@ -117,6 +123,21 @@ public class InstanceProgress {
 		}
 	}
 
+	/**
+	 * Returns statistics about the size and processing time of the completed chunks of the
+	 * given step, or <code>null</code> if no chunks of that step have completed.
+	 *
+	 * @since 8.8.0
+	 */
+	@Nullable
+	public Map<String, Object> getCompletedChunkStatistics(String theStepId) {
+		CompletedChunkStatistics statistics = myStepToCompletedChunkStatistics.get(theStepId);
+		if (statistics == null) {
+			return null;
+		}
+		return statistics.toMap(theStepId);
+	}
+
 	/**
 	 * Signal to the progress calculator to skip the incomplete work chunk count when determining the completed percentage.
 	 * <p/>
@@ -227,4 +248,34 @@ public class InstanceProgress {
 	public boolean hasNewStatus() {
 		return myNewStatus != null;
 	}
+
+	private static class CompletedChunkStatistics {
+		private int myChunkCount;
+		private long myRecordsProcessed;
+		private long myTimedChunkCount;
+		private long myTotalMillis;
+
+		void addChunk(WorkChunk theChunk) {
+			myChunkCount++;
+			if (theChunk.getRecordsProcessed() != null) {
+				myRecordsProcessed += theChunk.getRecordsProcessed();
+			}
+			if (theChunk.getStartTime() != null && theChunk.getEndTime() != null) {
+				myTimedChunkCount++;
+				myTotalMillis += theChunk.getEndTime().getTime()
+						- theChunk.getStartTime().getTime();
+			}
+		}
+
+		Map<String, Object> toMap(String theStepId) {
+			Map<String, Object> retVal = new LinkedHashMap<>();
+			retVal.put("stepId", theStepId);
+			retVal.put("completedChunks", myChunkCount);
+			retVal.put("averageChunkSize", myRecordsProcessed / myChunkCount);
+			if (myTimedChunkCount > 0) {
+				retVal.put("averageChunkMillis", myTotalMillis / myTimedChunkCount);
+			}
+			return retVal;
+		}
+	}
 }
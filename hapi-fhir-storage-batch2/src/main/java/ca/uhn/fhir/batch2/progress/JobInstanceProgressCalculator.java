@@ -22,6 +22,7 @@ package ca.uhn.fhir.batch2.progress;
 import ca.uhn.fhir.batch2.api.IJobPersistence;
 import ca.uhn.fhir.batch2.coordinator.JobDefinitionRegistry;
 import ca.uhn.fhir.batch2.maintenance.JobChunkProgressAccumulator;
+import ca.uhn.fhir.batch2.model.AdaptiveChunkSizing;
 import ca.uhn.fhir.batch2.model.JobDefinition;
 import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.WorkChunk;
@@ -34,6 +35,7 @@ import jakarta.annotation.Nonnull;
 import org.slf4j.Logger;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
 
 public class JobInstanceProgressCalculator {
@@ -86,11 +88,31 @@ public class JobInstanceProgressCalculator {
 				myJobInstanceStatusUpdater.updateInstanceStatus(currentInstance, instanceProgress.getNewStatus());
 			}
 
+			updateAdaptiveChunkSizingStatistics(currentInstance, instanceProgress);
+
 			return true;
 		});
 		ourLog.trace("calculating progress: {} - complete in {}", theInstanceId, stopWatch);
 	}
 
+	/**
+	 * For jobs with adaptive chunk sizing, records the sizes of the chunks that were
+	 * produced so that changes in throughput can be explained
+	 */
+	private void updateAdaptiveChunkSizingStatistics(JobInstance theInstance, InstanceProgress theInstanceProgress) {
+		AdaptiveChunkSizing adaptiveChunkSizing = myJobDefinitionRegistry
+				.getJobDefinition(theInstance.getJobDefinitionId(), theInstance.getJobDefinitionVersion())
+				.map(JobDefinition::getAdaptiveChunkSizing)
+				.orElse(null);
+		if (adaptiveChunkSizing != null) {
+			Map<String, Object> statistics =
+					theInstanceProgress.getCompletedChunkStatistics(adaptiveChunkSizing.getSizedStepId());
+			if (statistics != null) {
+				theInstance.addUserData(AdaptiveChunkSizing.USER_DATA_KEY, statistics);
+			}
+		}
+	}
+
 	@Nonnull
 	public InstanceProgress calculateInstanceProgress(String instanceId) {
 		InstanceProgress instanceProgress = new InstanceProgress();
@@ -0,0 +1,113 @@
+package ca.uhn.fhir.batch2.coordinator;
+
+import ca.uhn.fhir.batch2.model.AdaptiveChunkSizing;
+import ca.uhn.fhir.batch2.model.WorkChunkCompletionEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveChunkSizeControllerTest extends BaseBatch2Test {
+
+	private static final int DEFAULT_CHUNK_SIZE = 500;
+	private JobDefinitionRegistry myJobDefinitionRegistry;
+	private AdaptiveChunkSizeController mySvc;
+
+	@BeforeEach
+	void beforeEach() {
+		myJobDefinitionRegistry = new JobDefinitionRegistry();
+		mySvc = new AdaptiveChunkSizeController(myJobDefinitionRegistry);
+	}
+
+	@Test
+	void testNotAdaptive() {
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition());
+
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, null, completion(100, 60000, 0));
+
+		assertEquals(DEFAULT_CHUNK_SIZE, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+	}
+
+	@Test
+	void testNoObservations_DefaultIsClamped() {
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(t -> t.adaptiveChunkSizing(STEP_3, 10, 200)));
+
+		assertEquals(200, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+	}
+
+	@Test
+	void testSlowChunks_ChunkSizeShrinks() {
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(t -> t.adaptiveChunkSizing(STEP_3, 10, 1000)));
+
+		// 500 records in 60s is 120ms/record, so 250 records fit in the 30s target
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, null, completion(500, 60000, 0));
+		assertEquals(250, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+
+		// Each adjustment is limited to half of the current size
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, null, completion(250, 250 * 3000, 0));
+		assertEquals(125, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+
+		// Never below the minimum
+		for (int i = 0; i < 10; i++) {
+			mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, null, completion(10, 10 * 60000, 0));
+		}
+		assertEquals(10, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+	}
+
+	@Test
+	void testFastChunks_ChunkSizeGrows() {
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(t -> t.adaptiveChunkSizing(STEP_3, 10, 1500)));
+
+		// Each adjustment is limited to double the current size
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, null, completion(500, 100, 0));
+		assertEquals(1000, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+
+		// Never above the maximum
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, null, completion(1000, 200, 0));
+		assertEquals(1500, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+	}
+
+	@Test
+	void testPayloadBytesTarget() {
+		AdaptiveChunkSizing sizing = new AdaptiveChunkSizing(STEP_3, 10, 1000, Duration.ofSeconds(30), 1_000_000);
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(t -> t.adaptiveChunkSizing(sizing)));
+
+		// Fast, but 10KB per record means only 100 records fit in the 1MB target
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, null, completion(200, 100, 2_000_000));
+
+		assertEquals(100, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+	}
+
+	@Test
+	void testOtherStepsAndEmptyChunksIgnored() {
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(t -> t.adaptiveChunkSizing(STEP_3, 10, 1000)));
+
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_2, null, completion(500, 60000, 0));
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, null, completion(0, 60000, 0));
+
+		assertEquals(DEFAULT_CHUNK_SIZE, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+	}
+
+	@Test
+	void testWorkloadsAreSizedSeparately() {
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(t -> t.adaptiveChunkSizing(STEP_3, 10, 1000)));
+
+		// Binary resources are slow to process, Patient resources are fast
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, "Binary/[1]", completion(500, 60000, 0));
+		mySvc.onWorkChunkCompletion(JOB_DEFINITION_ID, 1, STEP_3, "Patient/[1]", completion(500, 100, 0));
+
+		assertEquals(250, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, "Binary/[1]", DEFAULT_CHUNK_SIZE));
+		assertEquals(1000, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, "Patient/[1]", DEFAULT_CHUNK_SIZE));
+		// Nothing has been learned yet for other workloads
+		assertEquals(DEFAULT_CHUNK_SIZE, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, "Patient/[2]", DEFAULT_CHUNK_SIZE));
+		assertEquals(DEFAULT_CHUNK_SIZE, mySvc.getChunkSize(JOB_DEFINITION_ID, 1, null, DEFAULT_CHUNK_SIZE));
+	}
+
+	private static WorkChunkCompletionEvent completion(int theRecords, long theMillis, long theBytes) {
+		return new WorkChunkCompletionEvent(CHUNK_ID, theRecords, 0)
+			.setProcessingTimeMillis(theMillis)
+			.setPayloadBytes(theBytes);
+	}
+}
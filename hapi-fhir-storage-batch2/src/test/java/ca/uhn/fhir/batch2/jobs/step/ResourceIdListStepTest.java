@@ -3,10 +3,12 @@ package ca.uhn.fhir.batch2.jobs.step;
 import ca.uhn.fhir.batch2.api.IJobDataSink;
 import ca.uhn.fhir.batch2.api.RunOutcome;
 import ca.uhn.fhir.batch2.api.StepExecutionDetails;
+import ca.uhn.fhir.batch2.coordinator.AdaptiveChunkSizeController;
 import ca.uhn.fhir.batch2.jobs.chunk.ChunkRangeJson;
 import ca.uhn.fhir.batch2.jobs.chunk.ResourceIdListWorkChunkJson;
 import ca.uhn.fhir.batch2.jobs.chunk.TypedPidJson;
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrlJobParameters;
+import ca.uhn.fhir.batch2.model.WorkChunk;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.pid.HomogeneousResourcePidList;
 import ca.uhn.fhir.jpa.api.pid.IResourcePidStream;
@@ -14,6 +16,7 @@ import ca.uhn.fhir.jpa.api.pid.ListWrappingPidStream;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -24,6 +27,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -46,6 +50,8 @@ class ResourceIdListStepTest {
 	private IJobDataSink<ResourceIdListWorkChunkJson> myDataSink;
 	@Mock
 	private ChunkRangeJson myData;
+	@Mock
+	private AdaptiveChunkSizeController myAdaptiveChunkSizeController;
 
 	@Captor
 	private ArgumentCaptor<ResourceIdListWorkChunkJson> myDataCaptor;
@@ -159,6 +165,46 @@ class ResourceIdListStepTest {
 
 	}
 
+	@Test
+	void testAdaptiveChunkSize() {
+		List<JpaPid> idList = generateIdList(250);
+		RequestPartitionId partitionId = RequestPartitionId.fromPartitionId(1);
+
+		when(myStepExecutionDetails.getData()).thenReturn(myData);
+		when(myData.getUrl()).thenReturn("Patient?active=true");
+		when(myData.getPartitionId()).thenReturn(partitionId);
+		when(myStepExecutionDetails.getParameters()).thenReturn(new PartitionedUrlJobParameters());
+		when(myStepExecutionDetails.hasAssociatedWorkChunk()).thenReturn(true);
+		when(myStepExecutionDetails.getWorkChunk()).thenReturn(new WorkChunk().setJobDefinitionId("JOB").setJobDefinitionVersion(1));
+		when(myIdChunkProducer.fetchResourceIdStream(any())).thenReturn(new ListWrappingPidStream<>(
+			new HomogeneousResourcePidList<>("Patient", idList, null, partitionId)));
+		when(myAdaptiveChunkSizeController.isAdaptive("JOB", 1)).thenReturn(true);
+		// The size changes as chunks complete while IDs are still being submitted
+		when(myAdaptiveChunkSizeController.getChunkSize("JOB", 1, "Patient/[1]", ResourceIdListStep.MAX_BATCH_OF_IDS))
+			.thenReturn(100, 50);
+
+		myResourceIdListStep = new ResourceIdListStep<>(myIdChunkProducer, myAdaptiveChunkSizeController);
+		myResourceIdListStep.run(myStepExecutionDetails, myDataSink);
+
+		verify(myDataSink, times(4)).accept(myDataCaptor.capture());
+		List<Integer> chunkSizes = myDataCaptor.getAllValues().stream().map(ResourceIdListWorkChunkJson::size).toList();
+		assertThat(chunkSizes).containsExactly(100, 50, 50, 50);
+		// Each chunk carries the workload it was sized for, so that its completion updates the same size
+		assertThat(myDataCaptor.getAllValues()).allMatch(t -> "Patient/[1]".equals(t.getAdaptiveChunkSizingWorkloadKey()));
+	}
+
+	@Test
+	void testWorkloadKey() {
+		ChunkRangeJson data = new ChunkRangeJson(new Date(), new Date());
+		assertEquals("*/", ResourceIdListStep.toWorkloadKey(data));
+
+		data.setUrl("Observation?code=foo").setPartitionId(RequestPartitionId.allPartitions());
+		assertEquals("Observation/all", ResourceIdListStep.toWorkloadKey(data));
+
+		data.setResourceType("Binary").setPartitionId(RequestPartitionId.fromPartitionIds(1, 2));
+		assertEquals("Binary/[1, 2]", ResourceIdListStep.toWorkloadKey(data));
+	}
+
 	private List<JpaPid> generateIdList(int theListSize) {
 		List<JpaPid> idList = new ArrayList<>();
 		for (long id = 0; id < theListSize; id++) {
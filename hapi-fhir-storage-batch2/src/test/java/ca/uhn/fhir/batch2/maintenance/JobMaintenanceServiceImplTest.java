@@ -17,6 +17,7 @@ import ca.uhn.fhir.batch2.model.JobWorkNotificationJsonMessage;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.batch2.model.WorkChunk;
 import ca.uhn.fhir.batch2.model.WorkChunkMetadata;
+import ca.uhn.fhir.batch2.model.WorkChunkStatusCounts;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.broker.api.IChannelProducer;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
@@ -70,6 +71,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -198,9 +200,59 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		assertEquals("00:10:00", instance.getEstimatedTimeRemaining());
 
 		verify(myJobPersistence).updatePollWaitingChunksForJobIfReady(eq(instance.getInstanceId()));
+		verify(myJobPersistence).fetchWorkChunkStatusCounts(eq(INSTANCE_ID));
 		verifyNoMoreInteractions(myJobPersistence);
 	}
 
+	@Test
+	public void testInProgress_CalculateProgress_OnlyWhenChunkCountsChange() {
+		List<WorkChunk> chunks = Arrays.asList(
+			createWorkChunkStep1().setStatus(WorkChunkStatusEnum.COMPLETED).setStartTime(parseTime("2022-02-12T14:00:00-04:00")),
+			JobCoordinatorImplTest.createWorkChunkStep2().setStatus(WorkChunkStatusEnum.IN_PROGRESS).setStartTime(parseTime("2022-02-12T14:00:01-04:00"))
+		);
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition());
+		JobInstance instance = createInstance();
+		when(myJobPersistence.fetchInstance(eq(INSTANCE_ID))).thenReturn(Optional.of(instance));
+		when(myJobPersistence.fetchInstances(anyInt(), eq(0))).thenReturn(Lists.newArrayList(instance));
+		when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false)))
+			.thenAnswer(t -> chunks.iterator());
+		when(myJobPersistence.fetchAllWorkChunkMetadataForJobInStates(any(Pageable.class), eq(instance.getInstanceId()), eq(Set.of(WorkChunkStatusEnum.READY))))
+			.thenReturn(Page.empty());
+		when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID))).thenReturn(
+			new WorkChunkStatusCounts().addCount(STEP_1, WorkChunkStatusEnum.COMPLETED, 1).addCount(STEP_2, WorkChunkStatusEnum.IN_PROGRESS, 1));
+		stubUpdateInstanceCallback(instance);
+
+		mySvc.runMaintenancePass();
+		mySvc.runMaintenancePass();
+
+		// Nothing changed, so the chunks are only read by the first pass
+		verify(myJobPersistence, times(1)).fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false));
+		verify(myJobPersistence, times(1)).updateInstance(eq(INSTANCE_ID), any());
+
+		when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID))).thenReturn(
+			new WorkChunkStatusCounts().addCount(STEP_1, WorkChunkStatusEnum.COMPLETED, 1).addCount(STEP_2, WorkChunkStatusEnum.COMPLETED, 1));
+		mySvc.runMaintenancePass();
+
+		verify(myJobPersistence, times(2)).fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false));
+		verify(myJobPersistence, times(2)).updateInstance(eq(INSTANCE_ID), any());
+
+		// The same counts, but a chunk has finished later, so the throughput and ETA need recalculating
+		when(myJobPersistence.fetchWorkChunkStatusCounts(eq(INSTANCE_ID))).thenReturn(
+			new WorkChunkStatusCounts().addCount(STEP_1, WorkChunkStatusEnum.COMPLETED, 1).addCount(STEP_2, WorkChunkStatusEnum.COMPLETED, 1)
+				.addTotals(parseTime("2022-02-12T14:00:00-04:00"), parseTime("2022-02-12T14:10:00-04:00"), 50, 0));
+		mySvc.runMaintenancePass();
+		mySvc.runMaintenancePass();
+
+		verify(myJobPersistence, times(3)).fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false));
+		verify(myJobPersistence, times(3)).updateInstance(eq(INSTANCE_ID), any());
+
+		// Progress is reconciled periodically even if nothing appears to have changed
+		mySvc.setProgressReconciliationIntervalMillis(0);
+		mySvc.runMaintenancePass();
+
+		verify(myJobPersistence, times(4)).fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false));
+	}
+
 	private void stubUpdateInstanceCallback(JobInstance theJobInstance) {
 		when(myJobPersistence.updateInstance(eq(INSTANCE_ID), any())).thenAnswer(call->{
 			IJobPersistence.JobInstanceUpdateCallback callback = call.getArgument(1);
@@ -243,6 +295,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		assertEquals(0.08333333333333333, instance.getCombinedRecordsProcessedPerSecond());
 
 		verify(myJobPersistence).updatePollWaitingChunksForJobIfReady(eq(instance.getInstanceId()));
+		verify(myJobPersistence).fetchWorkChunkStatusCounts(eq(INSTANCE_ID));
 		verifyNoMoreInteractions(myJobPersistence);
 	}
 
@@ -272,10 +325,10 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 				return getPageOfData(new ArrayList<>(chunks));
 			});
 		doAnswer(a -> {
-			Consumer<Integer> callback = a.getArgument(1);
-			callback.accept(1);
+			Consumer<List<String>> callback = a.getArgument(1);
+			callback.accept(a.getArgument(0));
 			return null;
-		}).when(myJobPersistence).enqueueWorkChunkForProcessing(anyString(), any());
+		}).when(myJobPersistence).enqueueWorkChunksForProcessing(anyList(), any());
 		stubUpdateInstanceCallback(instance1);
 
 		// Execute
@@ -286,6 +339,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		verify(myJobPersistence, times(1)).updateInstance(eq(INSTANCE_ID), any());
 		verify(myJobPersistence, times(1)).advanceJobStepAndUpdateChunkStatus(eq(INSTANCE_ID), eq(STEP_2), eq(false));
 		verify(myJobPersistence).updatePollWaitingChunksForJobIfReady(eq(INSTANCE_ID));
+		verify(myJobPersistence).fetchWorkChunkStatusCounts(eq(INSTANCE_ID));
 		verifyNoMoreInteractions(myJobPersistence);
 		JobWorkNotification payload0 = myMessageCaptor.getAllValues().get(0).getPayload();
 		assertEquals(STEP_2, payload0.getTargetStepId());
@@ -350,6 +404,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		verify(myJobPersistence, times(1)).deleteChunksAndMarkInstanceAsChunksPurged(eq(INSTANCE_ID));
 		verify(myCompletionHandler, times(1)).jobComplete(myJobCompletionCaptor.capture());
 		verify(myJobPersistence).updatePollWaitingChunksForJobIfReady(eq(instance.getInstanceId()));
+		verify(myJobPersistence).fetchWorkChunkStatusCounts(eq(INSTANCE_ID));
 		verifyNoMoreInteractions(myJobPersistence);
 
 		assertEquals(INSTANCE_ID, myJobCompletionCaptor.getValue().getInstance().getInstanceId());
@@ -390,6 +445,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		verify(myJobPersistence, times(1)).updateInstance(eq(INSTANCE_ID), any());
 		verify(myJobPersistence, times(1)).deleteChunksAndMarkInstanceAsChunksPurged(eq(INSTANCE_ID));
 		verify(myJobPersistence).updatePollWaitingChunksForJobIfReady(eq(instance.getInstanceId()));
+		verify(myJobPersistence).fetchWorkChunkStatusCounts(eq(INSTANCE_ID));
 		verifyNoMoreInteractions(myJobPersistence);
 	}
 
@@ -435,7 +491,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 
 		// verify never updated (should remain in ready state)
 		verify(myJobPersistence, never()).fetchAllWorkChunkMetadataForJobInStates(any(), anyString(), any());
-		verify(myJobPersistence, never()).enqueueWorkChunkForProcessing(anyString(), any());
+		verify(myJobPersistence, never()).enqueueWorkChunksForProcessing(anyList(), any());
 		verify(myWorkChannelProducer, never()).send(any(JobWorkNotificationJsonMessage.class));
 		verify(myReductionStepExecutorService)
 			.triggerReductionStep(anyString(), any());
@@ -451,10 +507,10 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 
 		// when
 		doAnswer(args -> {
-			Consumer<Integer> consumer = args.getArgument(1);
-			consumer.accept(1);
-			return 1;
-		}).when(myJobPersistence).enqueueWorkChunkForProcessing(anyString(), any());
+			Consumer<List<String>> consumer = args.getArgument(1);
+			consumer.accept(args.getArgument(0));
+			return null;
+		}).when(myJobPersistence).enqueueWorkChunksForProcessing(anyList(), any());
 
 		Page<WorkChunkMetadata> page = getPageOfData(chunks);
 		when(myJobPersistence.fetchAllWorkChunkMetadataForJobInStates(any(Pageable.class), eq(INSTANCE_ID), any())).thenReturn(page);
@@ -463,7 +519,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		runEnqueueReadyChunksTest(chunks, createJobDefinition());
 
 		// verify
-		verify(myJobPersistence, times(2)).enqueueWorkChunkForProcessing(anyString(), any());
+		verify(myJobPersistence, times(1)).enqueueWorkChunksForProcessing(anyList(), any());
 		verify(myWorkChannelProducer, times(2)).send(myMessageCaptor.capture());
 		List<IMessage<JobWorkNotification>> sentMessages = myMessageCaptor.getAllValues();
 		for (IMessage<JobWorkNotification> msg : sentMessages) {
@@ -487,10 +543,10 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 
 		// when
 		doAnswer(args -> {
-			Consumer<Integer> consumer = args.getArgument(1);
-			consumer.accept(0); // nothing processed
-			return 1;
-		}).when(myJobPersistence).enqueueWorkChunkForProcessing(anyString(), any());
+			Consumer<List<String>> consumer = args.getArgument(1);
+			consumer.accept(List.of()); // nothing processed
+			return null;
+		}).when(myJobPersistence).enqueueWorkChunksForProcessing(anyList(), any());
 		doAnswer(args -> {
 			IJobPersistence.JobInstanceUpdateCallback callback = args.getArgument(1);
 
@@ -507,7 +563,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		runEnqueueReadyChunksTest(chunks, createJobDefinitionWithReduction());
 
 		// verify
-		verify(myJobPersistence, times(2)).enqueueWorkChunkForProcessing(anyString(), any());
+		verify(myJobPersistence, times(1)).enqueueWorkChunksForProcessing(anyList(), any());
 		verify(myWorkChannelProducer, never()).send(any(JobWorkNotificationJsonMessage.class));
 
 		List<ILoggingEvent> events = myLogCapture.getLogEvents();
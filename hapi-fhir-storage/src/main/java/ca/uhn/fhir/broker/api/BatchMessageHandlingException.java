@@ -0,0 +1,49 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.broker.api;
+
+/**
+ * Thrown by {@link IBatchMessageListener#handleMessages(java.util.List)} when handling one of the
+ * messages in the batch failed. Every message before the failed one has been handled, and the
+ * failed message and every message after it have not.
+ *
+ * @since 8.8.0
+ */
+public class BatchMessageHandlingException extends RuntimeException {
+	private final int myFailedMessageIndex;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theFailedMessageIndex The index within the batch of the message which failed
+	 * @param theCause              The failure
+	 */
+	public BatchMessageHandlingException(int theFailedMessageIndex, Throwable theCause) {
+		super("Failed to handle message " + theFailedMessageIndex + " of batch: " + theCause, theCause);
+		myFailedMessageIndex = theFailedMessageIndex;
+	}
+
+	/**
+	 * Returns the index within the batch of the message which failed
+	 */
+	public int getFailedMessageIndex() {
+		return myFailedMessageIndex;
+	}
+}
@@ -0,0 +1,53 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.broker.api;
+
+import ca.uhn.fhir.rest.server.messaging.IMessage;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+/**
+ * A message listener which is able to process several messages at once, e.g. in order to share
+ * work which would otherwise be repeated for every message. Broker clients which drain messages
+ * in batches (such as {@link ca.uhn.fhir.broker.impl.MicroBatchingBrokerClient}) call
+ * {@link #handleMessages(List)}, other broker clients call {@link #handleMessage(IMessage)} for
+ * each message.
+ * <p>
+ * Messages must be handled in the order they appear in the batch. If handling one of them fails,
+ * implementations should throw a {@link BatchMessageHandlingException} identifying it, in which
+ * case the broker client redelivers only that message and the ones after it individually. If any
+ * other exception is thrown, the broker client assumes that none of the messages were handled and
+ * redelivers every message in the batch individually.
+ * </p>
+ *
+ * @param <T> the type of payload this message listener is expecting to receive
+ * @since 8.8.0
+ */
+public interface IBatchMessageListener<T> extends IMessageListener<T> {
+
+	/**
+	 * This method is called with a batch of received messages, in the order they were received.
+	 *
+	 * @param theMessages the messages that were received
+	 * @throws BatchMessageHandlingException if handling one of the messages failed
+	 */
+	void handleMessages(@Nonnull List<IMessage<T>> theMessages);
+}
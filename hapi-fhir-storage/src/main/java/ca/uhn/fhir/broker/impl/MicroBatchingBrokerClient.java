@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.broker.impl;
+
+import ca.uhn.fhir.broker.api.ChannelConsumerSettings;
+import ca.uhn.fhir.broker.api.ChannelProducerSettings;
+import ca.uhn.fhir.broker.api.IBatchMessageListener;
+import ca.uhn.fhir.broker.api.IBrokerClient;
+import ca.uhn.fhir.broker.api.IChannelConsumer;
+import ca.uhn.fhir.broker.api.IChannelNamer;
+import ca.uhn.fhir.broker.api.IChannelProducer;
+import ca.uhn.fhir.broker.api.IChannelSettings;
+import ca.uhn.fhir.broker.api.IMessageListener;
+import ca.uhn.fhir.jpa.subscription.channel.impl.MicroBatchingChannel;
+import ca.uhn.fhir.jpa.subscription.channel.impl.RetryPolicyProvider;
+import ca.uhn.fhir.rest.server.messaging.IMessage;
+import ca.uhn.fhir.subscription.SubscriptionConstants;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-process {@link IBrokerClient} which can be used in place of {@link LinkedBlockingBrokerClient}
+ * when a high volume of messages is sent through the in-process channels. Messages are passed to
+ * consumer threads through a lock-free ring buffer and consumed in micro-batches (see
+ * {@link MicroBatchingChannel}), so listeners implementing {@link IBatchMessageListener} can process
+ * several messages at once.
+ * <p>
+ * To use this client, declare it as a <code>@Primary</code> {@link IBrokerClient} bean.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class MicroBatchingBrokerClient implements IBrokerClient {
+	public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+	public static final long DEFAULT_MAX_BATCH_WAIT_MILLIS = 5;
+
+	private final IChannelNamer myChannelNamer;
+	private final RetryPolicyProvider myRetryPolicyProvider;
+	private final Map<String, MicroBatchingChannel> myChannels = new ConcurrentHashMap<>();
+	private int myBufferCapacity = SubscriptionConstants.DELIVERY_EXECUTOR_QUEUE_SIZE;
+	private int myMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private long myMaxBatchWaitMillis = DEFAULT_MAX_BATCH_WAIT_MILLIS;
+
+	public MicroBatchingBrokerClient(IChannelNamer theChannelNamer, RetryPolicyProvider theRetryPolicyProvider) {
+		myChannelNamer = theChannelNamer;
+		myRetryPolicyProvider = theRetryPolicyProvider;
+	}
+
+	@Override
+	public <T> IChannelConsumer<T> getOrCreateConsumer(
+			String theChannelName,
+			Class<? extends IMessage<T>> theMessageType,
+			IMessageListener<T> theMessageListener,
+			ChannelConsumerSettings theChannelConsumerSettings) {
+		MicroBatchingChannel channel = getOrCreateChannel(
+				theChannelName, theChannelConsumerSettings.getConcurrentConsumers(), theChannelConsumerSettings);
+		channel.subscribe(theMessageType, theMessageListener);
+		return new MicroBatchingConsumer<>(theMessageType, channel, theMessageListener);
+	}
+
+	@Override
+	public <T> IChannelProducer<T> getOrCreateProducer(
+			String theChannelName,
+			Class<? extends IMessage<T>> theMessageType,
+			ChannelProducerSettings theChannelProducerSettings) {
+		MicroBatchingChannel channel = getOrCreateChannel(
+				theChannelName, theChannelProducerSettings.getConcurrentConsumers(), theChannelProducerSettings);
+		return new MicroBatchingProducer<>(theMessageType, channel);
+	}
+
+	@Override
+	public IChannelNamer getChannelNamer() {
+		return myChannelNamer;
+	}
+
+	private MicroBatchingChannel getOrCreateChannel(
+			String theChannelName, int theConcurrentConsumers, IChannelSettings theChannelSettings) {
+		String channelName = myChannelNamer.getChannelName(theChannelName, theChannelSettings);
+		return myChannels.computeIfAbsent(
+				channelName,
+				t -> new MicroBatchingChannel(
+						channelName,
+						myBufferCapacity,
+						theConcurrentConsumers,
+						myMaxBatchSize,
+						myMaxBatchWaitMillis,
+						myRetryPolicyProvider));
+	}
+
+	/**
+	 * Sets the number of messages each channel can hold before producers block. Only applies to
+	 * channels created after this is called. Default is {@link SubscriptionConstants#DELIVERY_EXECUTOR_QUEUE_SIZE}.
+	 */
+	public void setBufferCapacity(int theBufferCapacity) {
+		Validate.isTrue(theBufferCapacity > 0, "Buffer capacity must be positive");
+		myBufferCapacity = theBufferCapacity;
+	}
+
+	/**
+	 * Sets the maximum number of messages a consumer thread drains at once. Only applies to
+	 * channels created after this is called. Default is {@link #DEFAULT_MAX_BATCH_SIZE}.
+	 */
+	public void setMaxBatchSize(int theMaxBatchSize) {
+		Validate.isTrue(theMaxBatchSize > 0, "Max batch size must be positive");
+		myMaxBatchSize = theMaxBatchSize;
+	}
+
+	/**
+	 * Sets the maximum time a consumer thread waits for a batch to fill once the first message
+	 * of the batch has arrived. Only applies to channels created after this is called. Default
+	 * is {@link #DEFAULT_MAX_BATCH_WAIT_MILLIS}.
+	 */
+	public void setMaxBatchWaitMillis(long theMaxBatchWaitMillis) {
+		Validate.isTrue(theMaxBatchWaitMillis >= 0, "Max batch wait must not be negative");
+		myMaxBatchWaitMillis = theMaxBatchWaitMillis;
+	}
+
+	@PreDestroy
+	public void stop() {
+		myChannels.values().forEach(MicroBatchingChannel::stop);
+		myChannels.clear();
+	}
+}
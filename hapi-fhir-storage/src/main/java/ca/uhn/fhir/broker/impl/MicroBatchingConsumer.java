@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.broker.impl;
+
+import ca.uhn.fhir.broker.api.IChannelConsumer;
+import ca.uhn.fhir.broker.api.IMessageListener;
+import ca.uhn.fhir.jpa.subscription.channel.impl.MicroBatchingChannel;
+import ca.uhn.fhir.rest.server.messaging.IMessage;
+import ca.uhn.fhir.util.IoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapt a {@link MicroBatchingChannel} to {@link IChannelConsumer}
+ *
+ * @param <T> the type of payload this message consumer is expecting to receive
+ */
+class MicroBatchingConsumer<T> implements IChannelConsumer<T> {
+	private static final Logger ourLog = LoggerFactory.getLogger(MicroBatchingConsumer.class);
+	private final Class<? extends IMessage<T>> myMessageType;
+	private final MicroBatchingChannel myChannel;
+	private final IMessageListener<T> myMessageListener;
+	private boolean myClosed;
+
+	MicroBatchingConsumer(
+			Class<? extends IMessage<T>> theMessageType,
+			MicroBatchingChannel theChannel,
+			IMessageListener<T> theMessageListener) {
+		myMessageType = theMessageType;
+		myChannel = theChannel;
+		myMessageListener = theMessageListener;
+	}
+
+	@Override
+	public String getChannelName() {
+		return myChannel.getChannelName();
+	}
+
+	@Override
+	public void start() {
+		checkState();
+		// Consumer threads are started on demand
+	}
+
+	@Override
+	public void close() {
+		myClosed = true;
+		myChannel.unsubscribe(myMessageListener);
+		if (myMessageListener instanceof AutoCloseable) {
+			IoUtils.closeQuietly((AutoCloseable) myMessageListener, ourLog);
+		}
+	}
+
+	@Override
+	public boolean isClosed() {
+		return myClosed;
+	}
+
+	@Override
+	public Class<? extends IMessage<T>> getMessageType() {
+		return myMessageType;
+	}
+
+	@Override
+	public IMessageListener<T> getMessageListener() {
+		return myMessageListener;
+	}
+}
@@ -0,0 +1,56 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.broker.impl;
+
+import ca.uhn.fhir.broker.api.IChannelProducer;
+import ca.uhn.fhir.broker.api.ISendResult;
+import ca.uhn.fhir.context.ConfigurationException;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.subscription.channel.impl.MicroBatchingChannel;
+import ca.uhn.fhir.rest.server.messaging.IMessage;
+
+/**
+ * Adapt a {@link MicroBatchingChannel} to {@link IChannelProducer}
+ *
+ * @param <T> the type of payload this message producer is expecting to send
+ */
+class MicroBatchingProducer<T> implements IChannelProducer<T> {
+	private final Class<? extends IMessage<T>> myMessageType;
+	private final MicroBatchingChannel myChannel;
+
+	MicroBatchingProducer(Class<? extends IMessage<T>> theMessageType, MicroBatchingChannel theChannel) {
+		myMessageType = theMessageType;
+		myChannel = theChannel;
+	}
+
+	@Override
+	public String getChannelName() {
+		return myChannel.getChannelName();
+	}
+
+	@Override
+	public ISendResult send(IMessage<T> theMessage) {
+		if (!myMessageType.isAssignableFrom(theMessage.getClass())) {
+			throw new ConfigurationException(Msg.code(2846) + "Expecting message of type " + myMessageType
+					+ ". But received message of type: " + theMessage.getClass());
+		}
+		return myChannel.send(theMessage) ? () -> true : ISendResult.FAILURE;
+	}
+}
@@ -24,6 +24,8 @@ import ca.uhn.fhir.jpa.api.model.HistoryCountModeEnum;
 import ca.uhn.fhir.jpa.api.model.WarmCacheEntry;
 import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.jpa.util.MemoryCacheSettings;
 import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
 import ca.uhn.fhir.system.HapiSystemProperties;
 import ca.uhn.fhir.util.HapiExtensions;
@@ -43,7 +45,9 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -55,6 +59,48 @@ public class JpaStorageSettings extends StorageSettings {
 	 * Default value for {@link #getBulkExportFileMaximumSize()}: 100 MB
 	 */
 	public static final long DEFAULT_BULK_EXPORT_MAXIMUM_WORK_CHUNK_SIZE = 100 * FileUtils.ONE_MB;
+	/**
+	 * Default value for {@link #setSearchResultCacheOffHeapMaxBytes(long)}: 256 MB
+	 *
+	 * @since 8.8.0
+	 */
+	public static final long DEFAULT_SEARCH_RESULT_CACHE_OFF_HEAP_MAX_BYTES = 256 * FileUtils.ONE_MB;
+	/**
+	 * Default value for {@link #setSearchPredicateIntersectionMaxCandidates(int)}
+	 *
+	 * @since 8.8.0
+	 */
+	public static final int DEFAULT_SEARCH_PREDICATE_INTERSECTION_MAX_CANDIDATES = 10_000;
+	/**
+	 * Default value for {@link #setSearchPredicateIntersectionThreadCount(int)}
+	 *
+	 * @since 8.8.0
+	 */
+	public static final int DEFAULT_SEARCH_PREDICATE_INTERSECTION_THREAD_COUNT = 4;
+	/**
+	 * Default value for {@link #setIncludeLoadingThreadCount(int)}
+	 *
+	 * @since 8.8.0
+	 */
+	public static final int DEFAULT_INCLUDE_LOADING_THREAD_COUNT = 4;
+	/**
+	 * Default value for {@link #setResourceLoadingPipelineBatchSize(int)}
+	 *
+	 * @since 8.8.0
+	 */
+	public static final int DEFAULT_RESOURCE_LOADING_PIPELINE_BATCH_SIZE = 100;
+	/**
+	 * Default value for {@link #setResourceLoadingPipelineThreadCount(int)}
+	 *
+	 * @since 8.8.0
+	 */
+	public static final int DEFAULT_RESOURCE_LOADING_PIPELINE_THREAD_COUNT = 4;
+	/**
+	 * Default value for {@link #setTransactionIndexingPipelineThreadCount(int)}
+	 *
+	 * @since 8.8.0
+	 */
+	public static final int DEFAULT_TRANSACTION_INDEXING_PIPELINE_THREAD_COUNT = 4;
 	/**
 	 * Default value for {@link #setReuseCachedSearchResultsForMillis(Long)}: 60000ms (one minute)
 	 */
@@ -440,6 +486,98 @@ public class JpaStorageSettings extends StorageSettings {
 	 */
 	private boolean myAllowDatabaseValidationOverride = false;
 
+	/**
+	 * @since 8.8.0
+	 */
+	private final Map<MemoryCacheService.CacheEnum, MemoryCacheSettings> myMemoryCacheSettings =
+			new EnumMap<>(MemoryCacheService.CacheEnum.class);
+
+	/**
+	 * @since 8.8.0
+	 */
+	private boolean myMemoryCacheStatisticsEnabled = false;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private long myMemoryCacheAdaptiveSizingHeapBudgetBytes = 0;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private boolean myMemoryCacheInvalidationBroadcastEnabled = false;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private boolean myMemoryCacheJmxExportEnabled = false;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private SearchResultCacheStorageModeEnum mySearchResultCacheStorageMode = SearchResultCacheStorageModeEnum.ROWS;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private long mySearchResultCacheOffHeapMaxBytes = DEFAULT_SEARCH_RESULT_CACHE_OFF_HEAP_MAX_BYTES;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private SearchPredicateExecutionStrategyEnum mySearchPredicateExecutionStrategy =
+			SearchPredicateExecutionStrategyEnum.SINGLE_QUERY;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private int mySearchPredicateIntersectionMaxCandidates = DEFAULT_SEARCH_PREDICATE_INTERSECTION_MAX_CANDIDATES;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private int mySearchPredicateIntersectionThreadCount = DEFAULT_SEARCH_PREDICATE_INTERSECTION_THREAD_COUNT;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private boolean mySearchParamStatisticsEnabled = false;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private boolean myConcurrentIncludeLoadingEnabled = false;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private int myIncludeLoadingThreadCount = DEFAULT_INCLUDE_LOADING_THREAD_COUNT;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private boolean myResourceLoadingPipelineEnabled = false;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private int myResourceLoadingPipelineBatchSize = DEFAULT_RESOURCE_LOADING_PIPELINE_BATCH_SIZE;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private int myResourceLoadingPipelineThreadCount = DEFAULT_RESOURCE_LOADING_PIPELINE_THREAD_COUNT;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private boolean myTransactionIndexingPipelineEnabled = false;
+
+	/**
+	 * @since 8.8.0
+	 */
+	private int myTransactionIndexingPipelineThreadCount = DEFAULT_TRANSACTION_INDEXING_PIPELINE_THREAD_COUNT;
+
 	/**
 	 * Constructor
 	 */
@@ -1078,6 +1216,20 @@ public class JpaStorageSettings extends StorageSettings {
 		return myResourceEncoding;
 	}
 
+	/**
+	 * Sets the encoding used to store resource bodies in the resource history table. The default
+	 * is {@link ResourceEncodingEnum#JSONC}, which is only applied on Oracle (other databases store
+	 * plain JSON). {@link ResourceEncodingEnum#ZSTD} and {@link ResourceEncodingEnum#LZ4} compress
+	 * resource bodies on all databases. {@link ResourceEncodingEnum#ZSTDD} also compresses on all
+	 * databases, using a Zstandard dictionary trained per resource type from previously stored
+	 * resources. Dictionaries are trained by a scheduled job once enough resources of a type exist,
+	 * and resources are stored using {@link ResourceEncodingEnum#ZSTD} until then.
+	 * <p>
+	 * Changing this setting only affects newly written resource versions. Existing versions can be
+	 * rewritten using the new encoding by running a reindex with the <code>optimizeStorage</code>
+	 * parameter set to <code>ALL_VERSIONS</code>.
+	 * </p>
+	 */
 	public void setResourceEncoding(ResourceEncodingEnum theResourceEncoding) {
 		myResourceEncoding = theResourceEncoding;
 	}
@@ -2776,6 +2928,643 @@ public class JpaStorageSettings extends StorageSettings {
 		return myAllowDatabaseValidationOverride;
 	}
 
+	/**
+	 * Returns the settings which have been registered for an individual cache managed by the
+	 * {@link MemoryCacheService}, or <code>null</code> if the defaults are being used for that cache.
+	 *
+	 * @see #setMemoryCacheSettings(MemoryCacheService.CacheEnum, MemoryCacheSettings)
+	 * @since 8.8.0
+	 */
+	@Nullable
+	public MemoryCacheSettings getMemoryCacheSettings(@Nonnull MemoryCacheService.CacheEnum theCache) {
+		return myMemoryCacheSettings.get(theCache);
+	}
+
+	/**
+	 * Overrides the size, expiry, shared tier usage and statistics collection for an individual
+	 * cache managed by the {@link MemoryCacheService}. Supply <code>null</code> to revert to the
+	 * defaults for that cache.
+	 * <p>
+	 * Note that these settings are read when the {@link MemoryCacheService} is created, so changing
+	 * them afterwards has no effect.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setMemoryCacheSettings(
+			@Nonnull MemoryCacheService.CacheEnum theCache, @Nullable MemoryCacheSettings theMemoryCacheSettings) {
+		Validate.notNull(theCache, "theCache must not be null");
+		if (theMemoryCacheSettings == null) {
+			myMemoryCacheSettings.remove(theCache);
+		} else {
+			myMemoryCacheSettings.put(theCache, theMemoryCacheSettings);
+		}
+	}
+
+	/**
+	 * If enabled, hit, miss, load and eviction statistics are recorded for every cache managed by
+	 * the {@link MemoryCacheService}. Statistics can also be enabled for individual caches using
+	 * {@link #setMemoryCacheSettings(MemoryCacheService.CacheEnum, MemoryCacheSettings)}.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isMemoryCacheStatisticsEnabled() {
+		return myMemoryCacheStatisticsEnabled;
+	}
+
+	/**
+	 * If enabled, hit, miss, load and eviction statistics are recorded for every cache managed by
+	 * the {@link MemoryCacheService}. Statistics can also be enabled for individual caches using
+	 * {@link #setMemoryCacheSettings(MemoryCacheService.CacheEnum, MemoryCacheSettings)}.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setMemoryCacheStatisticsEnabled(boolean theMemoryCacheStatisticsEnabled) {
+		myMemoryCacheStatisticsEnabled = theMemoryCacheStatisticsEnabled;
+	}
+
+	/**
+	 * If set to a value greater than zero, the maximum size of each cache managed by the
+	 * {@link MemoryCacheService} is periodically adjusted based on its observed hit and miss
+	 * rates, such that the estimated combined footprint of all caches stays within this many
+	 * bytes. Enabling this also enables statistics for all caches.
+	 * <p>
+	 * Default is <code>0</code>, meaning that caches keep the size they were configured with.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public long getMemoryCacheAdaptiveSizingHeapBudgetBytes() {
+		return myMemoryCacheAdaptiveSizingHeapBudgetBytes;
+	}
+
+	/**
+	 * If set to a value greater than zero, the maximum size of each cache managed by the
+	 * {@link MemoryCacheService} is periodically adjusted based on its observed hit and miss
+	 * rates, such that the estimated combined footprint of all caches stays within this many
+	 * bytes. Enabling this also enables statistics for all caches.
+	 * <p>
+	 * Default is <code>0</code>, meaning that caches keep the size they were configured with.
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setMemoryCacheAdaptiveSizingHeapBudgetBytes(long theMemoryCacheAdaptiveSizingHeapBudgetBytes) {
+		myMemoryCacheAdaptiveSizingHeapBudgetBytes = theMemoryCacheAdaptiveSizingHeapBudgetBytes;
+	}
+
+	/**
+	 * If enabled, invalidations of the caches managed by the {@link MemoryCacheService} (e.g. because a
+	 * partition was renamed, or an expunge was performed) are sent to the other servers in the cluster
+	 * using the message broker, and invalidations received from other servers are applied locally. See
+	 * {@link ca.uhn.fhir.jpa.util.MemoryCacheInvalidationBroadcaster} for details. This setting is read
+	 * when the server starts.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isMemoryCacheInvalidationBroadcastEnabled() {
+		return myMemoryCacheInvalidationBroadcastEnabled;
+	}
+
+	/**
+	 * If enabled, invalidations of the caches managed by the {@link MemoryCacheService} (e.g. because a
+	 * partition was renamed, or an expunge was performed) are sent to the other servers in the cluster
+	 * using the message broker, and invalidations received from other servers are applied locally. See
+	 * {@link ca.uhn.fhir.jpa.util.MemoryCacheInvalidationBroadcaster} for details. This setting is read
+	 * when the server starts.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setMemoryCacheInvalidationBroadcastEnabled(boolean theMemoryCacheInvalidationBroadcastEnabled) {
+		myMemoryCacheInvalidationBroadcastEnabled = theMemoryCacheInvalidationBroadcastEnabled;
+	}
+
+	/**
+	 * If enabled, the statistics for each cache managed by the {@link MemoryCacheService} are exported
+	 * as JMX MBeans (see {@link ca.uhn.fhir.jpa.util.MemoryCacheJmxExporter}). Note that lookup and load
+	 * counters are only recorded for caches with statistics enabled (see
+	 * {@link #setMemoryCacheStatisticsEnabled(boolean)}). This setting is read when the server starts.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isMemoryCacheJmxExportEnabled() {
+		return myMemoryCacheJmxExportEnabled;
+	}
+
+	/**
+	 * If enabled, the statistics for each cache managed by the {@link MemoryCacheService} are exported
+	 * as JMX MBeans (see {@link ca.uhn.fhir.jpa.util.MemoryCacheJmxExporter}). Note that lookup and load
+	 * counters are only recorded for caches with statistics enabled (see
+	 * {@link #setMemoryCacheStatisticsEnabled(boolean)}). This setting is read when the server starts.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setMemoryCacheJmxExportEnabled(boolean theMemoryCacheJmxExportEnabled) {
+		myMemoryCacheJmxExportEnabled = theMemoryCacheJmxExportEnabled;
+	}
+
+	/**
+	 * Controls how the PIDs matched by a search are stored in the database search result cache.
+	 * See {@link SearchResultCacheStorageModeEnum} for the available options. This setting is
+	 * read when the server starts, so changing it requires a restart.
+	 * <p>
+	 * Default is {@link SearchResultCacheStorageModeEnum#ROWS}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public SearchResultCacheStorageModeEnum getSearchResultCacheStorageMode() {
+		return mySearchResultCacheStorageMode;
+	}
+
+	/**
+	 * Controls how the PIDs matched by a search are stored in the database search result cache.
+	 * See {@link SearchResultCacheStorageModeEnum} for the available options. This setting is
+	 * read when the server starts, so changing it requires a restart.
+	 * <p>
+	 * Default is {@link SearchResultCacheStorageModeEnum#ROWS}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setSearchResultCacheStorageMode(SearchResultCacheStorageModeEnum theSearchResultCacheStorageMode) {
+		Validate.notNull(theSearchResultCacheStorageMode, "theSearchResultCacheStorageMode must not be null");
+		mySearchResultCacheStorageMode = theSearchResultCacheStorageMode;
+	}
+
+	/**
+	 * When the search result cache storage mode is {@link SearchResultCacheStorageModeEnum#OFF_HEAP},
+	 * this is the maximum number of bytes of off-heap memory used to hold search results. When this
+	 * limit is exceeded, the results of the least recently used searches are written to the database.
+	 * This setting is read when the server starts, so changing it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_SEARCH_RESULT_CACHE_OFF_HEAP_MAX_BYTES} (256 MB)
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public long getSearchResultCacheOffHeapMaxBytes() {
+		return mySearchResultCacheOffHeapMaxBytes;
+	}
+
+	/**
+	 * When the search result cache storage mode is {@link SearchResultCacheStorageModeEnum#OFF_HEAP},
+	 * this is the maximum number of bytes of off-heap memory used to hold search results. When this
+	 * limit is exceeded, the results of the least recently used searches are written to the database.
+	 * This setting is read when the server starts, so changing it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_SEARCH_RESULT_CACHE_OFF_HEAP_MAX_BYTES} (256 MB)
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setSearchResultCacheOffHeapMaxBytes(long theSearchResultCacheOffHeapMaxBytes) {
+		Validate.isTrue(
+				theSearchResultCacheOffHeapMaxBytes > 0, "theSearchResultCacheOffHeapMaxBytes must be greater than 0");
+		mySearchResultCacheOffHeapMaxBytes = theSearchResultCacheOffHeapMaxBytes;
+	}
+
+	/**
+	 * Controls how the database query for a search with several search parameters is executed.
+	 * See {@link SearchPredicateExecutionStrategyEnum} for the available options.
+	 * <p>
+	 * Default is {@link SearchPredicateExecutionStrategyEnum#SINGLE_QUERY}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public SearchPredicateExecutionStrategyEnum getSearchPredicateExecutionStrategy() {
+		return mySearchPredicateExecutionStrategy;
+	}
+
+	/**
+	 * Controls how the database query for a search with several search parameters is executed.
+	 * See {@link SearchPredicateExecutionStrategyEnum} for the available options.
+	 * <p>
+	 * Default is {@link SearchPredicateExecutionStrategyEnum#SINGLE_QUERY}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setSearchPredicateExecutionStrategy(
+			SearchPredicateExecutionStrategyEnum theSearchPredicateExecutionStrategy) {
+		Validate.notNull(theSearchPredicateExecutionStrategy, "theSearchPredicateExecutionStrategy must not be null");
+		mySearchPredicateExecutionStrategy = theSearchPredicateExecutionStrategy;
+	}
+
+	/**
+	 * When using the {@link SearchPredicateExecutionStrategyEnum#PARALLEL_INTERSECTION} strategy, this
+	 * is the maximum number of resources a single search parameter may match in order to be used for
+	 * the intersection. Parameters matching more resources than this are evaluated in the final query
+	 * instead.
+	 * <p>
+	 * Default is {@link #DEFAULT_SEARCH_PREDICATE_INTERSECTION_MAX_CANDIDATES}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public int getSearchPredicateIntersectionMaxCandidates() {
+		return mySearchPredicateIntersectionMaxCandidates;
+	}
+
+	/**
+	 * When using the {@link SearchPredicateExecutionStrategyEnum#PARALLEL_INTERSECTION} strategy, this
+	 * is the maximum number of resources a single search parameter may match in order to be used for
+	 * the intersection. Parameters matching more resources than this are evaluated in the final query
+	 * instead.
+	 * <p>
+	 * Default is {@link #DEFAULT_SEARCH_PREDICATE_INTERSECTION_MAX_CANDIDATES}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setSearchPredicateIntersectionMaxCandidates(int theSearchPredicateIntersectionMaxCandidates) {
+		Validate.isTrue(
+				theSearchPredicateIntersectionMaxCandidates > 0,
+				"theSearchPredicateIntersectionMaxCandidates must be greater than 0");
+		mySearchPredicateIntersectionMaxCandidates = theSearchPredicateIntersectionMaxCandidates;
+	}
+
+	/**
+	 * When using the {@link SearchPredicateExecutionStrategyEnum#PARALLEL_INTERSECTION} strategy, this
+	 * is the number of threads used to execute the per-parameter queries, shared by all searches. Each
+	 * thread uses its own database connection. This setting is read when the server starts, so changing
+	 * it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_SEARCH_PREDICATE_INTERSECTION_THREAD_COUNT}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public int getSearchPredicateIntersectionThreadCount() {
+		return mySearchPredicateIntersectionThreadCount;
+	}
+
+	/**
+	 * When using the {@link SearchPredicateExecutionStrategyEnum#PARALLEL_INTERSECTION} strategy, this
+	 * is the number of threads used to execute the per-parameter queries, shared by all searches. Each
+	 * thread uses its own database connection. This setting is read when the server starts, so changing
+	 * it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_SEARCH_PREDICATE_INTERSECTION_THREAD_COUNT}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setSearchPredicateIntersectionThreadCount(int theSearchPredicateIntersectionThreadCount) {
+		Validate.isTrue(
+				theSearchPredicateIntersectionThreadCount > 0,
+				"theSearchPredicateIntersectionThreadCount must be greater than 0");
+		mySearchPredicateIntersectionThreadCount = theSearchPredicateIntersectionThreadCount;
+	}
+
+	/**
+	 * If enabled, the server periodically samples the token, string, date and quantity search
+	 * parameter indexes and the resource link table, and maintains approximate row and distinct
+	 * value counts for each search parameter. These statistics are used when planning searches,
+	 * for example to place the most selective search parameters first. Statistics are held in
+	 * memory and are collected independently by each server.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isSearchParamStatisticsEnabled() {
+		return mySearchParamStatisticsEnabled;
+	}
+
+	/**
+	 * If enabled, the server periodically samples the token, string, date and quantity search
+	 * parameter indexes and the resource link table, and maintains approximate row and distinct
+	 * value counts for each search parameter. These statistics are used when planning searches,
+	 * for example to place the most selective search parameters first. Statistics are held in
+	 * memory and are collected independently by each server.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setSearchParamStatisticsEnabled(boolean theSearchParamStatisticsEnabled) {
+		mySearchParamStatisticsEnabled = theSearchParamStatisticsEnabled;
+	}
+
+	/**
+	 * If enabled, the independent <code>_include</code> and <code>_revinclude</code> queries
+	 * issued for a page of search results are executed concurrently, each using its own
+	 * read-only database connection. In addition, the queries for all of the
+	 * <code>_include</code> (or <code>_revinclude</code>) paths in a single round are combined
+	 * into a single query where possible. Note that when combined, the
+	 * {@link #getMaximumIncludesToLoadPerPage() maximum includes} limit applies to the combined
+	 * query rather than to each include path.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isConcurrentIncludeLoadingEnabled() {
+		return myConcurrentIncludeLoadingEnabled;
+	}
+
+	/**
+	 * If enabled, the independent <code>_include</code> and <code>_revinclude</code> queries
+	 * issued for a page of search results are executed concurrently, each using its own
+	 * read-only database connection. In addition, the queries for all of the
+	 * <code>_include</code> (or <code>_revinclude</code>) paths in a single round are combined
+	 * into a single query where possible. Note that when combined, the
+	 * {@link #getMaximumIncludesToLoadPerPage() maximum includes} limit applies to the combined
+	 * query rather than to each include path.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setConcurrentIncludeLoadingEnabled(boolean theConcurrentIncludeLoadingEnabled) {
+		myConcurrentIncludeLoadingEnabled = theConcurrentIncludeLoadingEnabled;
+	}
+
+	/**
+	 * When {@link #isConcurrentIncludeLoadingEnabled() concurrent include loading} is enabled,
+	 * this is the number of threads used to execute include queries, shared by all searches.
+	 * Each thread uses its own database connection. This setting is read when the server starts,
+	 * so changing it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_INCLUDE_LOADING_THREAD_COUNT}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public int getIncludeLoadingThreadCount() {
+		return myIncludeLoadingThreadCount;
+	}
+
+	/**
+	 * When {@link #isConcurrentIncludeLoadingEnabled() concurrent include loading} is enabled,
+	 * this is the number of threads used to execute include queries, shared by all searches.
+	 * Each thread uses its own database connection. This setting is read when the server starts,
+	 * so changing it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_INCLUDE_LOADING_THREAD_COUNT}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setIncludeLoadingThreadCount(int theIncludeLoadingThreadCount) {
+		Validate.isTrue(theIncludeLoadingThreadCount > 0, "theIncludeLoadingThreadCount must be greater than 0");
+		myIncludeLoadingThreadCount = theIncludeLoadingThreadCount;
+	}
+
+	/**
+	 * If enabled, the resources for a page of search results are loaded from the database in
+	 * batches of {@link #getResourceLoadingPipelineBatchSize()}, and each batch is parsed on a
+	 * worker pool while the next batch is being loaded. The number of batches being parsed at
+	 * any time is limited by {@link #getResourceLoadingPipelineThreadCount()}, which bounds
+	 * the memory used by the pipeline. Results are returned in the same order as when this
+	 * setting is disabled.
+	 * <p>
+	 * Batches containing resources which could need a database lookup while being parsed
+	 * (resources in a non-default partition, resources compressed with a dictionary, or resources
+	 * whose meta.source is read from the provenance table) are parsed on the request thread.
+	 * </p>
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isResourceLoadingPipelineEnabled() {
+		return myResourceLoadingPipelineEnabled;
+	}
+
+	/**
+	 * If enabled, the resources for a page of search results are loaded from the database in
+	 * batches of {@link #getResourceLoadingPipelineBatchSize()}, and each batch is parsed on a
+	 * worker pool while the next batch is being loaded. The number of batches being parsed at
+	 * any time is limited by {@link #getResourceLoadingPipelineThreadCount()}, which bounds
+	 * the memory used by the pipeline. Results are returned in the same order as when this
+	 * setting is disabled.
+	 * <p>
+	 * Batches containing resources which could need a database lookup while being parsed
+	 * (resources in a non-default partition, resources compressed with a dictionary, or resources
+	 * whose meta.source is read from the provenance table) are parsed on the request thread.
+	 * </p>
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setResourceLoadingPipelineEnabled(boolean theResourceLoadingPipelineEnabled) {
+		myResourceLoadingPipelineEnabled = theResourceLoadingPipelineEnabled;
+	}
+
+	/**
+	 * When the {@link #isResourceLoadingPipelineEnabled() resource loading pipeline} is enabled,
+	 * this is the number of resources loaded from the database and parsed in each batch. Pages
+	 * with no more resources than this are loaded without using the pipeline.
+	 * <p>
+	 * Default is {@link #DEFAULT_RESOURCE_LOADING_PIPELINE_BATCH_SIZE}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public int getResourceLoadingPipelineBatchSize() {
+		return myResourceLoadingPipelineBatchSize;
+	}
+
+	/**
+	 * When the {@link #isResourceLoadingPipelineEnabled() resource loading pipeline} is enabled,
+	 * this is the number of resources loaded from the database and parsed in each batch. Pages
+	 * with no more resources than this are loaded without using the pipeline.
+	 * <p>
+	 * Default is {@link #DEFAULT_RESOURCE_LOADING_PIPELINE_BATCH_SIZE}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setResourceLoadingPipelineBatchSize(int theResourceLoadingPipelineBatchSize) {
+		Validate.isTrue(
+				theResourceLoadingPipelineBatchSize > 0, "theResourceLoadingPipelineBatchSize must be greater than 0");
+		myResourceLoadingPipelineBatchSize = theResourceLoadingPipelineBatchSize;
+	}
+
+	/**
+	 * When the {@link #isResourceLoadingPipelineEnabled() resource loading pipeline} is enabled,
+	 * this is the number of threads used to parse resources, shared by all searches. This
+	 * setting is read when the server starts, so changing it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_RESOURCE_LOADING_PIPELINE_THREAD_COUNT}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public int getResourceLoadingPipelineThreadCount() {
+		return myResourceLoadingPipelineThreadCount;
+	}
+
+	/**
+	 * When the {@link #isResourceLoadingPipelineEnabled() resource loading pipeline} is enabled,
+	 * this is the number of threads used to parse resources, shared by all searches. This
+	 * setting is read when the server starts, so changing it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_RESOURCE_LOADING_PIPELINE_THREAD_COUNT}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setResourceLoadingPipelineThreadCount(int theResourceLoadingPipelineThreadCount) {
+		Validate.isTrue(
+				theResourceLoadingPipelineThreadCount > 0,
+				"theResourceLoadingPipelineThreadCount must be greater than 0");
+		myResourceLoadingPipelineThreadCount = theResourceLoadingPipelineThreadCount;
+	}
+
+	/**
+	 * If enabled, the search parameters for the resources created by a FHIR transaction are
+	 * extracted on a worker pool while the preceding resources in the transaction are being
+	 * saved, instead of one at a time on the thread processing the transaction. All database
+	 * work still happens on the transaction thread within a single database transaction, so
+	 * the transaction remains atomic. The number of resources being extracted ahead of the
+	 * transaction thread is limited by {@link #getTransactionIndexingPipelineThreadCount()}.
+	 * Resources updated by the transaction are always indexed on the transaction thread.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public boolean isTransactionIndexingPipelineEnabled() {
+		return myTransactionIndexingPipelineEnabled;
+	}
+
+	/**
+	 * If enabled, the search parameters for the resources created by a FHIR transaction are
+	 * extracted on a worker pool while the preceding resources in the transaction are being
+	 * saved, instead of one at a time on the thread processing the transaction. All database
+	 * work still happens on the transaction thread within a single database transaction, so
+	 * the transaction remains atomic. The number of resources being extracted ahead of the
+	 * transaction thread is limited by {@link #getTransactionIndexingPipelineThreadCount()}.
+	 * Resources updated by the transaction are always indexed on the transaction thread.
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setTransactionIndexingPipelineEnabled(boolean theTransactionIndexingPipelineEnabled) {
+		myTransactionIndexingPipelineEnabled = theTransactionIndexingPipelineEnabled;
+	}
+
+	/**
+	 * When the {@link #isTransactionIndexingPipelineEnabled() transaction indexing pipeline} is
+	 * enabled, this is the number of threads used to extract search parameters, shared by all
+	 * transactions. This setting is read when the server starts, so changing it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_TRANSACTION_INDEXING_PIPELINE_THREAD_COUNT}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public int getTransactionIndexingPipelineThreadCount() {
+		return myTransactionIndexingPipelineThreadCount;
+	}
+
+	/**
+	 * When the {@link #isTransactionIndexingPipelineEnabled() transaction indexing pipeline} is
+	 * enabled, this is the number of threads used to extract search parameters, shared by all
+	 * transactions. This setting is read when the server starts, so changing it requires a restart.
+	 * <p>
+	 * Default is {@link #DEFAULT_TRANSACTION_INDEXING_PIPELINE_THREAD_COUNT}
+	 * </p>
+	 *
+	 * @since 8.8.0
+	 */
+	public void setTransactionIndexingPipelineThreadCount(int theTransactionIndexingPipelineThreadCount) {
+		Validate.isTrue(
+				theTransactionIndexingPipelineThreadCount > 0,
+				"theTransactionIndexingPipelineThreadCount must be greater than 0");
+		myTransactionIndexingPipelineThreadCount = theTransactionIndexingPipelineThreadCount;
+	}
+
+	/**
+	 * This enum provides allowable options for {@link #setSearchPredicateExecutionStrategy(SearchPredicateExecutionStrategyEnum)}
+	 *
+	 * @since 8.8.0
+	 */
+	public enum SearchPredicateExecutionStrategyEnum {
+		/**
+		 * All search parameters are combined into a single SQL statement, with one join
+		 * (or subquery) per parameter. This is the default.
+		 */
+		SINGLE_QUERY,
+
+		/**
+		 * The most selective search parameters are each executed as a separate query, in parallel.
+		 * The matching resource IDs are intersected in memory, and a final query applies the
+		 * remaining parameters, sorting and paging to only the resources in the intersection.
+		 * Searches which can not benefit from this (e.g. because they have fewer than two
+		 * eligible parameters, or the intersection is too large to sort or page in a single
+		 * query) fall back to {@link #SINGLE_QUERY}, as do all searches when database partition
+		 * mode is enabled.
+		 */
+		PARALLEL_INTERSECTION
+	}
+
+	/**
+	 * This enum provides allowable options for {@link #setSearchResultCacheStorageMode(SearchResultCacheStorageModeEnum)}
+	 *
+	 * @since 8.8.0
+	 */
+	public enum SearchResultCacheStorageModeEnum {
+		/**
+		 * Each matched PID is stored as an individual row in the <code>HFJ_SEARCH_RESULT</code>
+		 * table, and pages are loaded using an offset query. This is the default.
+		 */
+		ROWS,
+
+		/**
+		 * Matched PIDs are stored in fixed size blocks of delta encoded PIDs in the
+		 * <code>HFJ_SEARCH_RESULT_BLK</code> table. A page is loaded by reading only the block(s)
+		 * containing it, so the cost of loading a page does not depend on how deep into the
+		 * results it is, and far fewer rows are written and deleted for large searches.
+		 */
+		BLOCKS,
+
+		/**
+		 * Matched PIDs are held in off-heap memory on the server which performed the search, up to
+		 * {@link #setSearchResultCacheOffHeapMaxBytes(long) a size limit}. When the limit is exceeded
+		 * the results of the least recently used searches are written to the database in the
+		 * {@link #BLOCKS} format. Searches themselves are still stored in the database.
+		 * <p>
+		 * This mode is intended for single server deployments, and for clusters where all requests
+		 * for a given search are routed to the same server (e.g. using sticky sessions). Other
+		 * servers can not see results which have not been written to the database.
+		 * </p>
+		 */
+		OFF_HEAP
+	}
+
 	public enum StoreMetaSourceInformationEnum {
 		NONE(false, false),
 		SOURCE_URI(true, false),
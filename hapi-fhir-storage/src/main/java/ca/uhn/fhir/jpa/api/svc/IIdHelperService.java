@@ -41,6 +41,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This interface is used to translate between {@link IResourcePersistentId}
@@ -95,6 +96,23 @@ public interface IIdHelperService<T extends IResourcePersistentId<?>> {
 	Map<IIdType, IResourceLookup<T>> resolveResourceIdentities(
 			@Nonnull RequestPartitionId theRequestPartitionId, Collection<IIdType> theIds, ResolveIdentityMode theMode);
 
+	/**
+	 * Given a potentially very large number of resource IDs (e.g. all of the references found
+	 * in a bulk import), resolve the resource identities. Duplicate IDs are permitted. Unlike
+	 * {@link #resolveResourceIdentities(RequestPartitionId, Collection, ResolveIdentityMode)},
+	 * implementations may sort and group the IDs and resolve them in large chunks, so this
+	 * method should be preferred when resolving thousands of IDs or more.
+	 *
+	 * @since 8.8.0
+	 */
+	@Nonnull
+	default Map<IIdType, IResourceLookup<T>> resolveResourceIdentitiesInBulk(
+			@Nonnull RequestPartitionId theRequestPartitionId,
+			@Nonnull Stream<IIdType> theIds,
+			@Nonnull ResolveIdentityMode theMode) {
+		return resolveResourceIdentities(theRequestPartitionId, theIds.collect(Collectors.toList()), theMode);
+	}
+
 	/**
 	 * Given a collection of resource IDs, resolve the resource persistent IDs.
 	 *
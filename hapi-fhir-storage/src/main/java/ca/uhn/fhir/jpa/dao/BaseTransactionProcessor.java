@@ -54,6 +54,7 @@ import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
+import ca.uhn.fhir.jpa.searchparam.matcher.SharedIndexedSearchParams;
 import ca.uhn.fhir.jpa.util.TransactionSemanticsHeader;
 import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
 import ca.uhn.fhir.model.valueset.BundleEntryTransactionMethodEnum;
@@ -530,8 +531,8 @@ public abstract class BaseTransactionProcessor {
 				nonGetCalls.add(retriableBundleTask);
 			}
 		}
-		// Execute all non-gets on calling thread.
-		nonGetCalls.forEach(RetriableBundleTask::run);
+		// Execute all non-gets on calling thread, grouping compatible entries if enabled
+		groupBatchEntries(requestEntries, nonGetCalls).forEach(Runnable::run);
 		// Execute all gets (potentially in a pool)
 		if (myStorageSettings.getBundleBatchPoolSize() == 1) {
 			getCalls.forEach(RetriableBundleTask::run);
@@ -566,6 +567,116 @@ public abstract class BaseTransactionProcessor {
 		return response;
 	}
 
+	/**
+	 * If {@link StorageSettings#getBundleBatchMaxGroupSize()} is greater than 1, combines
+	 * compatible batch entries into groups which are each processed in a single database
+	 * transaction. Entries which can't be grouped are returned as-is, and the relative
+	 * order of all entries with respect to each group's first entry is preserved.
+	 */
+	private List<Runnable> groupBatchEntries(List<IBase> theRequestEntries, List<RetriableBundleTask> theTasks) {
+		int maxGroupSize = myStorageSettings.getBundleBatchMaxGroupSize();
+		if (maxGroupSize <= 1 || theTasks.size() <= 1) {
+			return new ArrayList<>(theTasks);
+		}
+
+		Set<String> placeholderFullUrls = new HashSet<>();
+		for (IBase nextEntry : theRequestEntries) {
+			String fullUrl = myVersionAdapter.getFullUrl(nextEntry);
+			if (isNotBlank(fullUrl) && isPlaceholder(new IdType(fullUrl))) {
+				placeholderFullUrls.add(fullUrl);
+			}
+		}
+
+		FhirTerser terser = myContext.newTerser();
+		List<Runnable> retVal = new ArrayList<>(theTasks.size());
+		Map<String, GroupedBundleTask> openGroups = new HashMap<>();
+		for (RetriableBundleTask nextTask : theTasks) {
+			String groupKey = getBatchEntryGroupKey(terser, nextTask.myNextReqEntry, placeholderFullUrls);
+			boolean added = false;
+			if (groupKey != null) {
+				GroupedBundleTask group = openGroups.get(groupKey);
+				boolean newGroup = group == null;
+				if (newGroup) {
+					group = new GroupedBundleTask();
+				}
+				added = group.add(nextTask);
+				if (added && newGroup) {
+					openGroups.put(groupKey, group);
+					retVal.add(group);
+				}
+				if (added && group.size() >= maxGroupSize) {
+					openGroups.remove(groupKey);
+				}
+			}
+
+			if (!added) {
+				// Entries which are processed on their own must see the outcome of every
+				// earlier entry and none of the later ones, so no later entry may join a
+				// group which runs before this one
+				openGroups.clear();
+				retVal.add(nextTask);
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the key for the group a batch entry can be processed in, or <code>null</code>
+	 * if the entry must be processed on its own. Only plain and conditional creates are
+	 * grouped, and only if they can't interact with any other entry in the bundle through
+	 * placeholder IDs.
+	 */
+	@Nullable
+	private String getBatchEntryGroupKey(FhirTerser theTerser, IBase theEntry, Set<String> thePlaceholderFullUrls) {
+		if (!"POST".equals(myVersionAdapter.getEntryRequestVerb(myContext, theEntry))) {
+			return null;
+		}
+		IBaseResource resource = myVersionAdapter.getResource(theEntry);
+		if (resource == null) {
+			return null;
+		}
+		String resourceType = myContext.getResourceType(resource);
+		if (!resourceType.equals(myVersionAdapter.getEntryRequestUrl(theEntry))) {
+			return null;
+		}
+		String matchUrl = myVersionAdapter.getEntryRequestIfNoneExist(theEntry);
+		if (matchUrl != null && matchUrl.contains("urn:")) {
+			return null;
+		}
+
+		for (ResourceReferenceInfo nextRef : theTerser.getAllResourceReferences(resource)) {
+			if (isPlaceholder(nextRef.getResourceReference().getReferenceElement())) {
+				return null;
+			}
+		}
+		if (!thePlaceholderFullUrls.isEmpty()) {
+			@SuppressWarnings("unchecked")
+			Class<? extends IPrimitiveType<?>> uriType = (Class<? extends IPrimitiveType<?>>)
+					myContext.getElementDefinition("uri").getImplementingClass();
+			for (IPrimitiveType<?> nextUri : theTerser.getAllPopulatedChildElementsOfType(resource, uriType)) {
+				if (!(nextUri instanceof IIdType) && thePlaceholderFullUrls.contains(nextUri.getValueAsString())) {
+					return null;
+				}
+			}
+		}
+
+		return resourceType;
+	}
+
+	private void callStorageTransactionProcessingHook(RequestDetails theRequestDetails, IBaseBundle theSubRequest) {
+		IInterceptorBroadcaster compositeBroadcaster =
+				CompositeInterceptorBroadcaster.newCompositeBroadcaster(myInterceptorBroadcaster, theRequestDetails);
+
+		// Interceptor call: STORAGE_TRANSACTION_PROCESSING
+		if (compositeBroadcaster.hasHooks(Pointcut.STORAGE_TRANSACTION_PROCESSING)) {
+			HookParams params = new HookParams()
+					.add(RequestDetails.class, theRequestDetails)
+					.addIfMatchesType(ServletRequestDetails.class, theRequestDetails)
+					.add(IBaseBundle.class, theSubRequest);
+			compositeBroadcaster.callHooks(Pointcut.STORAGE_TRANSACTION_PROCESSING, params);
+		}
+	}
+
 	@VisibleForTesting
 	public void setHapiTransactionService(HapiTransactionService theHapiTransactionService) {
 		myHapiTransactionService = theHapiTransactionService;
@@ -1945,6 +2056,8 @@ public abstract class BaseTransactionProcessor {
 		FhirTerser terser = myContext.newTerser();
 		theTransactionStopWatch.startTask("Index " + theIdToPersistedOutcome.size() + " resources");
 		IdentityHashMap<DaoMethodOutcome, Set<IBaseReference>> deferredIndexesForAutoVersioning = null;
+		List<DaoMethodOutcome> outcomesToSave = new ArrayList<>();
+		List<IBaseResource> resourcesToPrepare = new ArrayList<>();
 		int i = 0;
 		for (DaoMethodOutcome nextOutcome : theIdToPersistedOutcome.values()) {
 
@@ -1970,20 +2083,21 @@ public abstract class BaseTransactionProcessor {
 					BaseStorageDao.extractReferencesToAvoidReplacement(myContext, nextResource);
 
 			if (referencesToAutoVersion.isEmpty()) {
-				// no references to autoversion - we can do the resolve and save now
-				resolveReferencesThenSaveAndIndexResource(
-						theRequest,
+				// no references to autoversion - we can do the resolve now, and the save once
+				// all of these resources have been resolved
+				resolveReferences(
 						theTransactionDetails,
 						theIdSubstitutions,
 						theIdToPersistedOutcome,
-						theEntriesToProcess,
-						theNonUpdatedEntities,
-						theUpdatedEntities,
 						terser,
-						nextOutcome,
 						nextResource,
 						referencesToAutoVersion, // this is empty
 						referencesToKeepClientSuppliedVersion);
+				outcomesToSave.add(nextOutcome);
+				if (!theUpdatedEntities.contains(nextOutcome.getEntity())
+						&& !theNonUpdatedEntities.contains(nextOutcome.getId())) {
+					resourcesToPrepare.add(nextResource);
+				}
 			} else {
 				// we have autoversioned things to defer until later
 				if (deferredIndexesForAutoVersioning == null) {
@@ -1993,6 +2107,22 @@ public abstract class BaseTransactionProcessor {
 			}
 		}
 
+		prepareResourcesForIndexing(theRequest, theTransactionDetails, resourcesToPrepare);
+		for (DaoMethodOutcome nextOutcome : outcomesToSave) {
+			IBaseResource nextResource = nextOutcome.getResource();
+			awaitResourcePreparedForIndexing(theTransactionDetails, nextResource);
+			saveAndIndexResource(
+					theRequest,
+					theTransactionDetails,
+					theIdSubstitutions,
+					theEntriesToProcess,
+					theNonUpdatedEntities,
+					theUpdatedEntities,
+					nextOutcome,
+					nextResource,
+					Collections.emptySet());
+		}
+
 		// If we have any resources we'll be auto-versioning, index these next
 		if (deferredIndexesForAutoVersioning != null) {
 			for (Map.Entry<DaoMethodOutcome, Set<IBaseReference>> nextEntry :
@@ -2033,6 +2163,38 @@ public abstract class BaseTransactionProcessor {
 			IBaseResource theResource,
 			Set<IBaseReference> theReferencesToAutoVersion,
 			Set<IBaseReference> theReferencesToKeepClientSuppliedVersion) {
+		resolveReferences(
+				theTransactionDetails,
+				theIdSubstitutions,
+				theIdToPersistedOutcome,
+				theTerser,
+				theResource,
+				theReferencesToAutoVersion,
+				theReferencesToKeepClientSuppliedVersion);
+		saveAndIndexResource(
+				theRequest,
+				theTransactionDetails,
+				theIdSubstitutions,
+				theEntriesToProcess,
+				theNonUpdatedEntities,
+				theUpdatedEntities,
+				theDaoMethodOutcome,
+				theResource,
+				theReferencesToAutoVersion);
+	}
+
+	/**
+	 * Replaces any placeholder references and URIs in the given resource with the
+	 * IDs assigned to their targets
+	 */
+	private void resolveReferences(
+			TransactionDetails theTransactionDetails,
+			IdSubstitutionMap theIdSubstitutions,
+			Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome,
+			FhirTerser theTerser,
+			IBaseResource theResource,
+			Set<IBaseReference> theReferencesToAutoVersion,
+			Set<IBaseReference> theReferencesToKeepClientSuppliedVersion) {
 		// References
 		List<ResourceReferenceInfo> allRefs = theTerser.getAllResourceReferences(theResource);
 		for (ResourceReferenceInfo nextRef : allRefs) {
@@ -2145,7 +2307,18 @@ public abstract class BaseTransactionProcessor {
 				}
 			}
 		}
+	}
 
+	private void saveAndIndexResource(
+			RequestDetails theRequest,
+			TransactionDetails theTransactionDetails,
+			IdSubstitutionMap theIdSubstitutions,
+			EntriesToProcessMap theEntriesToProcess,
+			Set<IIdType> theNonUpdatedEntities,
+			Set<IBasePersistedResource> theUpdatedEntities,
+			DaoMethodOutcome theDaoMethodOutcome,
+			IBaseResource theResource,
+			Set<IBaseReference> theReferencesToAutoVersion) {
 		IPrimitiveType<Date> deletedInstantOrNull = ResourceMetadataKeyEnum.DELETED_AT.get(theResource);
 		Date deletedTimestampOrNull = deletedInstantOrNull != null ? deletedInstantOrNull.getValue() : null;
 
@@ -2278,17 +2451,7 @@ public abstract class BaseTransactionProcessor {
 		for (Map.Entry<String, Class<? extends IBaseResource>> nextEntry : conditionalRequestUrls.entrySet()) {
 			String matchUrl = nextEntry.getKey();
 			if (isNotBlank(matchUrl)) {
-				if (matchUrl.startsWith("?")
-						|| (!matchUrl.contains("?")
-								&& UNQUALIFIED_MATCH_URL_START.matcher(matchUrl).find())) {
-					StringBuilder b = new StringBuilder();
-					b.append(myContext.getResourceType(nextEntry.getValue()));
-					if (!matchUrl.startsWith("?")) {
-						b.append("?");
-					}
-					b.append(matchUrl);
-					matchUrl = b.toString();
-				}
+				matchUrl = toQualifiedMatchUrl(matchUrl, myContext.getResourceType(nextEntry.getValue()));
 
 				if (!myInMemoryResourceMatcher.canBeEvaluatedInMemory(matchUrl).supported()) {
 					continue;
@@ -2322,6 +2485,39 @@ public abstract class BaseTransactionProcessor {
 
 	protected abstract void flushSession(Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome);
 
+	/**
+	 * Subclasses may override this in order to start preparing resources for indexing
+	 * in the background (e.g. extracting their search parameters) while earlier resources
+	 * in the transaction are being saved. This is called once all placeholder references
+	 * within the given resources have been replaced, and the resources are then saved in
+	 * the given order. Each resource is passed to
+	 * {@link #awaitResourcePreparedForIndexing(TransactionDetails, IBaseResource)} before
+	 * it is saved, and must not be touched by any background work after that.
+	 *
+	 * @param theResources The resources being created by the transaction. Resources which are
+	 *                     being updated are not included, since interceptors are invoked again
+	 *                     for them (and may modify them) while they are being saved.
+	 * @since 8.8.0
+	 */
+	protected void prepareResourcesForIndexing(
+			RequestDetails theRequestDetails,
+			TransactionDetails theTransactionDetails,
+			List<IBaseResource> theResources) {
+		// nothing
+	}
+
+	/**
+	 * Called on the transaction thread before each resource is saved and indexed. Subclasses
+	 * overriding {@link #prepareResourcesForIndexing(RequestDetails, TransactionDetails, List)}
+	 * must wait here for any background work involving the given resource to complete.
+	 *
+	 * @since 8.8.0
+	 */
+	protected void awaitResourcePreparedForIndexing(
+			TransactionDetails theTransactionDetails, IBaseResource theResource) {
+		// nothing
+	}
+
 	private void validateResourcePresent(IBaseResource theResource, Integer theOrder, String theVerb) {
 		if (theResource == null) {
 			String msg = myContext
@@ -2612,17 +2808,7 @@ public abstract class BaseTransactionProcessor {
 					myVersionAdapter.createBundle(org.hl7.fhir.r4.model.Bundle.BundleType.TRANSACTION.toCode());
 			myVersionAdapter.addEntry(subRequestBundle, myNextReqEntry);
 
-			IInterceptorBroadcaster compositeBroadcaster =
-					CompositeInterceptorBroadcaster.newCompositeBroadcaster(myInterceptorBroadcaster, myRequestDetails);
-
-			// Interceptor call: STORAGE_TRANSACTION_PROCESSING
-			if (compositeBroadcaster.hasHooks(Pointcut.STORAGE_TRANSACTION_PROCESSING)) {
-				HookParams params = new HookParams()
-						.add(RequestDetails.class, myRequestDetails)
-						.addIfMatchesType(ServletRequestDetails.class, myRequestDetails)
-						.add(IBaseBundle.class, subRequestBundle);
-				compositeBroadcaster.callHooks(Pointcut.STORAGE_TRANSACTION_PROCESSING, params);
-			}
+			callStorageTransactionProcessingHook(myRequestDetails, subRequestBundle);
 
 			IBaseBundle nextResponseBundle = processTransactionAsSubRequest(
 					myRequestDetails, subRequestBundle, "Batch sub-request", myNestedMode);
@@ -2682,6 +2868,122 @@ public abstract class BaseTransactionProcessor {
 		}
 	}
 
+	/**
+	 * Processes a group of batch entries in a single transaction. If the transaction fails
+	 * for any reason, each entry is processed again on its own so that the failure is only
+	 * reported against the entry (or entries) which caused it.
+	 */
+	private class GroupedBundleTask implements Runnable {
+
+		private final List<RetriableBundleTask> myTasks = new ArrayList<>();
+		private final List<SharedIndexedSearchParams> myResources = new ArrayList<>();
+		private final List<String> myMatchUrls = new ArrayList<>();
+
+		/**
+		 * Adds the given create to this group, unless processing it in the group could give a
+		 * different outcome than processing the entries one after another. All conditional
+		 * creates in a group are resolved before any of its resources are stored, so a
+		 * conditional create is only added if its match URL can be evaluated in memory and
+		 * matches none of the resources already in the group. Conversely, a resource matched
+		 * by the match URL of a conditional create already in the group is not added either,
+		 * since the transaction would reject the duplicate match.
+		 *
+		 * @return Returns <code>true</code> if the entry was added
+		 */
+		boolean add(RetriableBundleTask theTask) {
+			IBaseResource resource = myVersionAdapter.getResource(theTask.myNextReqEntry);
+			String matchUrl = myVersionAdapter.getEntryRequestIfNoneExist(theTask.myNextReqEntry);
+			RequestDetails requestDetails = theTask.myRequestDetails;
+
+			if (isNotBlank(matchUrl)) {
+				matchUrl = toQualifiedMatchUrl(matchUrl, myContext.getResourceType(resource));
+				if (!myInMemoryResourceMatcher.canBeEvaluatedInMemory(matchUrl).supported()) {
+					return false;
+				}
+				for (SharedIndexedSearchParams nextResource : myResources) {
+					if (mayMatch(matchUrl, nextResource, requestDetails)) {
+						return false;
+					}
+				}
+			}
+
+			SharedIndexedSearchParams resourceParams = new SharedIndexedSearchParams(resource);
+			for (String nextMatchUrl : myMatchUrls) {
+				if (mayMatch(nextMatchUrl, resourceParams, requestDetails)) {
+					return false;
+				}
+			}
+
+			myTasks.add(theTask);
+			myResources.add(resourceParams);
+			if (isNotBlank(matchUrl)) {
+				myMatchUrls.add(matchUrl);
+			}
+			return true;
+		}
+
+		private boolean mayMatch(
+				String theMatchUrl, SharedIndexedSearchParams theResource, RequestDetails theRequestDetails) {
+			InMemoryMatchResult result = mySearchParamMatcher.match(theMatchUrl, theResource, theRequestDetails);
+			return !result.supported() || result.matched();
+		}
+
+		int size() {
+			return myTasks.size();
+		}
+
+		@Override
+		public void run() {
+			if (myTasks.size() == 1) {
+				myTasks.get(0).run();
+				return;
+			}
+
+			RetriableBundleTask firstTask = myTasks.get(0);
+			IBaseBundle subRequestBundle =
+					myVersionAdapter.createBundle(org.hl7.fhir.r4.model.Bundle.BundleType.TRANSACTION.toCode());
+			for (RetriableBundleTask nextTask : myTasks) {
+				myVersionAdapter.addEntry(subRequestBundle, nextTask.myNextReqEntry);
+			}
+
+			List<IBase> subResponseEntries;
+			try {
+				callStorageTransactionProcessingHook(firstTask.myRequestDetails, subRequestBundle);
+				IBaseBundle nextResponseBundle = processTransactionAsSubRequest(
+						firstTask.myRequestDetails, subRequestBundle, "Batch sub-request", firstTask.myNestedMode);
+				subResponseEntries = myVersionAdapter.getEntries(nextResponseBundle);
+			} catch (Throwable t) {
+				ourLog.debug(
+						"Failed to process group of {} batch entries, processing individually: {}",
+						myTasks.size(),
+						t.toString());
+				myTasks.forEach(RetriableBundleTask::run);
+				return;
+			}
+
+			for (int i = 0; i < myTasks.size(); i++) {
+				RetriableBundleTask nextTask = myTasks.get(i);
+				nextTask.myResponseMap.put(nextTask.myResponseOrder, subResponseEntries.get(i));
+				nextTask.myCompletedLatch.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Prefixes a match URL which doesn't start with a resource type (e.g. <code>identifier=foo</code>
+	 * or <code>?identifier=foo</code>) with the given resource type
+	 */
+	private static String toQualifiedMatchUrl(String theMatchUrl, String theResourceType) {
+		if (theMatchUrl.startsWith("?")) {
+			return theResourceType + theMatchUrl;
+		}
+		if (!theMatchUrl.contains("?")
+				&& UNQUALIFIED_MATCH_URL_START.matcher(theMatchUrl).find()) {
+			return theResourceType + "?" + theMatchUrl;
+		}
+		return theMatchUrl;
+	}
+
 	private static class ServerResponseExceptionHolder {
 		private BaseServerResponseException myException;
 
@@ -0,0 +1,339 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.channel.impl;
+
+import ca.uhn.fhir.broker.api.BatchMessageHandlingException;
+import ca.uhn.fhir.broker.api.IBatchMessageListener;
+import ca.uhn.fhir.broker.api.IMessageListener;
+import ca.uhn.fhir.rest.server.messaging.IMessage;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An in-process channel which hands messages from producers to consumer threads through a
+ * lock-free {@link RingBuffer}, instead of submitting one executor task per message the way
+ * {@link LinkedBlockingChannel} does.
+ * <p>
+ * Each consumer thread drains up to {@literal maxBatchSize} messages at a time, waiting up to
+ * {@literal maxBatchWait} for a batch to fill once the first message has arrived. Listeners
+ * implementing {@link IBatchMessageListener} receive the whole batch in a single call, and other
+ * listeners receive the messages one at a time. Each message is processed with the same retry
+ * semantics as {@link RetryingMessageHandlerWrapper}. If a batch listener fails, the messages
+ * of the batch which it has not handled are redelivered to it one at a time with those retry
+ * semantics (see {@link ca.uhn.fhir.broker.api.BatchMessageHandlingException}).
+ * </p>
+ * <p>
+ * Consumers are started on demand in a thread pool, up to {@literal concurrentConsumers}, and
+ * exit again after being idle for a while. Producers block while the buffer is full.
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class MicroBatchingChannel {
+	private static final Logger ourLog = LoggerFactory.getLogger(MicroBatchingChannel.class);
+	private static final long CONSUMER_IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+	private static final long FULL_BUFFER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final String myChannelName;
+	private final RingBuffer<IMessage<?>> myBuffer;
+	private final int myConcurrentConsumers;
+	private final int myMaxBatchSize;
+	private final long myMaxBatchWaitNanos;
+	private final RetryPolicyProvider myRetryPolicyProvider;
+	private final List<Subscriber<?>> mySubscribers = new CopyOnWriteArrayList<>();
+	private final Queue<Thread> myIdleConsumers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger myRunningConsumers = new AtomicInteger();
+	private final ThreadPoolTaskExecutor myConsumerExecutor;
+	private volatile boolean myStopped;
+
+	public MicroBatchingChannel(
+			String theChannelName,
+			int theBufferCapacity,
+			int theConcurrentConsumers,
+			int theMaxBatchSize,
+			long theMaxBatchWaitMillis,
+			RetryPolicyProvider theRetryPolicyProvider) {
+		Validate.isTrue(theConcurrentConsumers > 0, "Concurrent consumers must be positive");
+		Validate.isTrue(theMaxBatchSize > 0, "Max batch size must be positive");
+		Validate.isTrue(theMaxBatchWaitMillis >= 0, "Max batch wait must not be negative");
+		myChannelName = theChannelName;
+		myBuffer = new RingBuffer<>(theBufferCapacity);
+		myConcurrentConsumers = theConcurrentConsumers;
+		myMaxBatchSize = theMaxBatchSize;
+		myMaxBatchWaitNanos = TimeUnit.MILLISECONDS.toNanos(theMaxBatchWaitMillis);
+		myRetryPolicyProvider = theRetryPolicyProvider;
+
+		// A consumer which is retiring may still hold its thread for a moment after a
+		// replacement has been started, so the replacement is queued rather than rejected
+		myConsumerExecutor = ThreadPoolUtil.newThreadPool(
+				theConcurrentConsumers, theConcurrentConsumers, theChannelName + "-", theConcurrentConsumers);
+		// Let running consumers finish their current batch rather than interrupting them
+		myConsumerExecutor.setWaitForTasksToCompleteOnShutdown(true);
+	}
+
+	public String getChannelName() {
+		return myChannelName;
+	}
+
+	/**
+	 * Places a message on the channel, blocking while the buffer is full
+	 *
+	 * @return false if the channel has been stopped
+	 */
+	public boolean send(@Nonnull IMessage<?> theMessage) {
+		while (!myBuffer.offer(theMessage)) {
+			if (myStopped) {
+				return false;
+			}
+			LockSupport.parkNanos(this, FULL_BUFFER_PARK_NANOS);
+		}
+		if (myStopped) {
+			return false;
+		}
+
+		Thread idleConsumer = myIdleConsumers.poll();
+		if (idleConsumer != null) {
+			LockSupport.unpark(idleConsumer);
+		} else {
+			startConsumerIfNeeded();
+		}
+		return true;
+	}
+
+	/**
+	 * Registers a listener. Every listener receives every message sent to the channel. Messages
+	 * which are not of the given message type are skipped.
+	 */
+	public <T> void subscribe(
+			@Nonnull Class<? extends IMessage<T>> theMessageType, @Nonnull IMessageListener<T> theListener) {
+		mySubscribers.add(new Subscriber<>(theMessageType, theListener));
+	}
+
+	public void unsubscribe(@Nonnull IMessageListener<?> theListener) {
+		mySubscribers.removeIf(t -> t.myListener == theListener);
+	}
+
+	public boolean hasSubscription(@Nonnull IMessageListener<?> theListener) {
+		return mySubscribers.stream().anyMatch(t -> t.myListener == theListener);
+	}
+
+	/**
+	 * Stops the consumer threads. Messages which have not been consumed yet are discarded.
+	 */
+	public void stop() {
+		myStopped = true;
+		for (Thread next = myIdleConsumers.poll(); next != null; next = myIdleConsumers.poll()) {
+			LockSupport.unpark(next);
+		}
+		myConsumerExecutor.shutdown();
+	}
+
+	@VisibleForTesting
+	public int getQueueSizeForUnitTest() {
+		return myBuffer.size();
+	}
+
+	@VisibleForTesting
+	public int getRunningConsumerCountForUnitTest() {
+		return myRunningConsumers.get();
+	}
+
+	private void startConsumerIfNeeded() {
+		while (true) {
+			int running = myRunningConsumers.get();
+			if (running >= myConcurrentConsumers) {
+				return;
+			}
+			if (myRunningConsumers.compareAndSet(running, running + 1)) {
+				break;
+			}
+		}
+
+		myConsumerExecutor.execute(this::consume);
+	}
+
+	private void consume() {
+		List<IMessage<?>> batch = new ArrayList<>(myMaxBatchSize);
+		boolean retired = false;
+		try {
+			while (drainBatch(batch)) {
+				dispatch(batch);
+				batch.clear();
+			}
+			retired = true;
+		} finally {
+			if (!retired) {
+				myRunningConsumers.decrementAndGet();
+			}
+			myIdleConsumers.remove(Thread.currentThread());
+		}
+	}
+
+	/**
+	 * Waits for the next message, and then drains up to {@literal maxBatchSize} messages, waiting
+	 * up to {@literal maxBatchWait} for the batch to fill
+	 *
+	 * @return false if this consumer thread should exit, in which case it has already been removed
+	 * 	from the running consumer count
+	 */
+	private boolean drainBatch(List<IMessage<?>> theBatch) {
+		long idleSince = System.nanoTime();
+		IMessage<?> next = myBuffer.poll();
+		while (next == null) {
+			if (myStopped) {
+				myRunningConsumers.decrementAndGet();
+				return false;
+			}
+			long idleRemaining = CONSUMER_IDLE_TIMEOUT_NANOS - (System.nanoTime() - idleSince);
+			if (idleRemaining <= 0) {
+				myRunningConsumers.decrementAndGet();
+				// A producer may have skipped starting a consumer because we were still running
+				if (myBuffer.isEmpty() || !reclaimConsumerSlot()) {
+					return false;
+				}
+				idleSince = System.nanoTime();
+			} else {
+				awaitMessage(idleRemaining);
+			}
+			next = myBuffer.poll();
+		}
+		theBatch.add(next);
+
+		long deadline = System.nanoTime() + myMaxBatchWaitNanos;
+		while (theBatch.size() < myMaxBatchSize && !myStopped) {
+			next = myBuffer.poll();
+			if (next != null) {
+				theBatch.add(next);
+				continue;
+			}
+			long waitRemaining = deadline - System.nanoTime();
+			if (waitRemaining <= 0) {
+				break;
+			}
+			awaitMessage(waitRemaining);
+		}
+		return true;
+	}
+
+	private boolean reclaimConsumerSlot() {
+		int running = myRunningConsumers.get();
+		return running < myConcurrentConsumers && myRunningConsumers.compareAndSet(running, running + 1);
+	}
+
+	private void awaitMessage(long theTimeoutNanos) {
+		Thread current = Thread.currentThread();
+		myIdleConsumers.add(current);
+		// Check again after registering, since a producer which published before we registered won't wake us
+		if (myBuffer.isEmpty() && !myStopped) {
+			LockSupport.parkNanos(this, theTimeoutNanos);
+		}
+		myIdleConsumers.remove(current);
+	}
+
+	private void dispatch(List<IMessage<?>> theBatch) {
+		for (Subscriber<?> next : mySubscribers) {
+			next.handleMessages(theBatch);
+		}
+	}
+
+	private class Subscriber<T> {
+		private final Class<? extends IMessage<T>> myMessageType;
+		private final IMessageListener<T> myListener;
+
+		private Subscriber(Class<? extends IMessage<T>> theMessageType, IMessageListener<T> theListener) {
+			myMessageType = theMessageType;
+			myListener = theListener;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void handleMessages(List<IMessage<?>> theBatch) {
+			List<IMessage<T>> messages = new ArrayList<>(theBatch.size());
+			for (IMessage<?> next : theBatch) {
+				if (myMessageType.isInstance(next)) {
+					messages.add((IMessage<T>) next);
+				} else {
+					// Wrong message types should never happen.  If it does, we should quietly fail so it doesn't
+					// clog up the channel.
+					ourLog.warn(
+							"Received unexpected message type. Expecting message of type {}, but received message of type {}. Skipping message.",
+							myMessageType,
+							next.getClass());
+				}
+			}
+
+			if (!messages.isEmpty() && myListener instanceof IBatchMessageListener<T> batchListener) {
+				int firstUnhandled;
+				try {
+					batchListener.handleMessages(Collections.unmodifiableList(messages));
+					return;
+				} catch (BatchMessageHandlingException e) {
+					firstUnhandled = Math.max(0, Math.min(e.getFailedMessageIndex(), messages.size()));
+					ourLog.warn(
+							"Failure processing message {} of batch of {} messages in channel[{}], retrying remaining messages individually: {}",
+							firstUnhandled,
+							messages.size(),
+							myChannelName,
+							e.getCause() != null ? e.getCause().toString() : e.toString());
+				} catch (Exception e) {
+					firstUnhandled = 0;
+					ourLog.warn(
+							"Failure processing batch of {} messages in channel[{}], retrying messages individually: {}",
+							messages.size(),
+							myChannelName,
+							e.toString());
+				}
+				// Messages which the listener has already handled are not redelivered
+				messages = messages.subList(firstUnhandled, messages.size());
+			}
+
+			for (IMessage<T> next : messages) {
+				handleMessageWithRetry(next);
+			}
+		}
+
+		private void handleMessageWithRetry(IMessage<T> theMessage) {
+			try {
+				RetryingMessageHandlerWrapper.newRetryTemplate(myRetryPolicyProvider, myChannelName)
+						.execute(context -> {
+							myListener.handleMessage(theMessage);
+							return null;
+						});
+			} catch (Exception e) {
+				ourLog.error(
+						"Failed to process message in channel[{}], discarding it: {}", myChannelName, e.toString());
+			}
+		}
+	}
+}
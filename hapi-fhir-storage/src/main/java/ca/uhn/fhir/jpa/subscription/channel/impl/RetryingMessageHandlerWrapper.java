@@ -49,7 +49,19 @@ class RetryingMessageHandlerWrapper implements MessageHandler {
 
 	@Override
 	public void handleMessage(@Nonnull Message<?> theMessage) throws MessagingException {
-		RetryTemplate retryTemplate = myRetryPolicyProvider.getRetryTemplate();
+		RetryTemplate retryTemplate = newRetryTemplate(myRetryPolicyProvider, myChannelName);
+		retryTemplate.execute(context -> {
+			myWrap.handleMessage(theMessage);
+			return null;
+		});
+	}
+
+	/**
+	 * Creates a retry template which logs each failure, and which gives up immediately on
+	 * failures which can not succeed on a retry
+	 */
+	static RetryTemplate newRetryTemplate(RetryPolicyProvider theRetryPolicyProvider, String theChannelName) {
+		RetryTemplate retryTemplate = theRetryPolicyProvider.getRetryTemplate();
 		RetryListener retryListener = new RetryListener() {
 			@Override
 			public <T, E extends Throwable> void onError(
@@ -57,7 +69,7 @@ class RetryingMessageHandlerWrapper implements MessageHandler {
 				ourLog.error(
 						"Failure {} processing message in channel[{}]: {}",
 						theContext.getRetryCount(),
-						myChannelName,
+						theChannelName,
 						theThrowable.toString());
 				ourLog.error("Failure", theThrowable);
 				if (theThrowable instanceof BaseUnrecoverableRuntimeException) {
@@ -75,10 +87,7 @@ class RetryingMessageHandlerWrapper implements MessageHandler {
 			}
 		};
 		retryTemplate.setListeners(new RetryListener[] {retryListener});
-		retryTemplate.execute(context -> {
-			myWrap.handleMessage(theMessage);
-			return null;
-		});
+		return retryTemplate;
 	}
 
 	public MessageHandler getWrappedHandler() {
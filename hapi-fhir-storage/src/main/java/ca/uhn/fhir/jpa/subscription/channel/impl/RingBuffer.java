@@ -0,0 +1,116 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.channel.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer/multi-consumer ring buffer. Each slot carries a sequence
+ * number which tells producers and consumers whether the slot is free to be written or ready to be
+ * read for the current lap, so neither side ever takes a lock.
+ *
+ * @param <E> the element type
+ */
+class RingBuffer<E> {
+
+	private final int myMask;
+	private final AtomicReferenceArray<E> myElements;
+	private final AtomicLongArray mySequences;
+	private final AtomicLong myHead = new AtomicLong();
+	private final AtomicLong myTail = new AtomicLong();
+
+	/**
+	 * @param theCapacity the minimum capacity, which is rounded up to a power of two
+	 */
+	RingBuffer(int theCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(2, theCapacity) - 1) << 1;
+		myMask = capacity - 1;
+		myElements = new AtomicReferenceArray<>(capacity);
+		mySequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			mySequences.set(i, i);
+		}
+	}
+
+	int capacity() {
+		return myMask + 1;
+	}
+
+	/**
+	 * @return false if the buffer is full
+	 */
+	boolean offer(E theElement) {
+		long position = myTail.get();
+		while (true) {
+			int index = (int) (position & myMask);
+			long difference = mySequences.get(index) - position;
+			if (difference == 0) {
+				if (myTail.compareAndSet(position, position + 1)) {
+					myElements.set(index, theElement);
+					mySequences.set(index, position + 1);
+					return true;
+				}
+				position = myTail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = myTail.get();
+			}
+		}
+	}
+
+	/**
+	 * @return the next element, or null if the buffer is empty
+	 */
+	E poll() {
+		long position = myHead.get();
+		while (true) {
+			int index = (int) (position & myMask);
+			long difference = mySequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (myHead.compareAndSet(position, position + 1)) {
+					E retVal = myElements.get(index);
+					myElements.set(index, null);
+					mySequences.set(index, position + myMask + 1);
+					return retVal;
+				}
+				position = myHead.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = myHead.get();
+			}
+		}
+	}
+
+	/**
+	 * @return true if no element has been claimed by a producer and not yet polled. An element which
+	 * 	is still being written counts as present, even though {@link #poll()} can not return it yet.
+	 */
+	boolean isEmpty() {
+		return myHead.get() >= myTail.get();
+	}
+
+	int size() {
+		return (int) Math.max(0, myTail.get() - myHead.get());
+	}
+}
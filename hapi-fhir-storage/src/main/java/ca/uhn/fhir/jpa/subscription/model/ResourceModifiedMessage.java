@@ -21,9 +21,12 @@ package ca.uhn.fhir.jpa.subscription.model;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.searchparam.matcher.SharedIndexedSearchParams;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.messaging.BaseResourceModifiedMessage;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nonnull;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
@@ -45,6 +48,13 @@ public class ResourceModifiedMessage extends BaseResourceModifiedMessage {
 	@JsonProperty(value = "subscriptionId")
 	private String mySubscriptionId;
 
+	/**
+	 * Search parameter indexes shared by the matchers which process this message in this JVM.
+	 * These are not serialized.
+	 */
+	@JsonIgnore
+	private transient SharedIndexedSearchParams mySharedIndexedSearchParams;
+
 	/**
 	 * Constructor
 	 */
@@ -94,6 +104,24 @@ public class ResourceModifiedMessage extends BaseResourceModifiedMessage {
 		mySubscriptionId = theSubscriptionId;
 	}
 
+	/**
+	 * Returns the search parameter indexes for the given resource (normally the resource decoded from this
+	 * message), shared by every matcher which processes this message in this JVM so that subscription and
+	 * subscription topic matching only extract each search parameter once. These are extracted from the
+	 * resource by the matchers themselves; the indexes extracted when the resource was stored are not
+	 * reused. The indexes are not serialized, so a message which has been sent through a remote broker
+	 * or persisted starts with no indexes.
+	 *
+	 * @since 8.8.0
+	 */
+	@Nonnull
+	public SharedIndexedSearchParams getSharedIndexedSearchParams(@Nonnull IBaseResource theResource) {
+		if (mySharedIndexedSearchParams == null || mySharedIndexedSearchParams.getResource() != theResource) {
+			mySharedIndexedSearchParams = new SharedIndexedSearchParams(theResource);
+		}
+		return mySharedIndexedSearchParams;
+	}
+
 	public void setPayloadToNull() {
 		myPayload = null;
 	}
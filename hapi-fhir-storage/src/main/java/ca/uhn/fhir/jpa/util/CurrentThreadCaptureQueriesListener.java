@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -90,6 +91,20 @@ public class CurrentThreadCaptureQueriesListener extends BaseCaptureQueriesListe
 		ourRollbacks.set(new AtomicInteger(0));
 	}
 
+	/**
+	 * Adds queries which were captured on another thread (e.g. a worker thread executing
+	 * part of the current request) to the queries captured for the current thread. Does
+	 * nothing if the current thread is not capturing.
+	 *
+	 * @since 8.8.0
+	 */
+	public static void addQueriesToCurrentThread(Collection<SqlQuery> theQueries) {
+		Queue<SqlQuery> queue = ourQueues.get();
+		if (queue != null) {
+			queue.addAll(theQueries);
+		}
+	}
+
 	/**
 	 * Log all captured SELECT queries
 	 *
@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Central access point for the many in-memory caches used by the JPA server. The default
+ * implementation is {@link MemoryCacheService}.
+ *
+ * @since 8.8.0
+ */
+public interface IMemoryCacheService {
+
+	/**
+	 * Fetch an item from the cache if it exists, and use the loading function to
+	 * obtain it (and store it in the cache) otherwise.
+	 */
+	<K, T> T get(CacheEnum theCache, K theKey, Function<K, T> theSupplier);
+
+	/**
+	 * Fetch an item from the cache if it exists, and use the loading function to
+	 * obtain it otherwise.
+	 * <p>
+	 * This method will put the value into the cache using {@link #putAfterCommit(CacheEnum, Object, Object)}.
+	 */
+	<K, T> T getThenPutAfterCommit(CacheEnum theCache, K theKey, Function<K, T> theSupplier);
+
+	/**
+	 * Fetch an item from the cache if it exists and use the loading function to
+	 * obtain it otherwise. If the loading function returns null, the item will not
+	 * be placed in the cache and <code>null</code> will be returned.
+	 * <p>
+	 * This method will put the value into the cache using {@link #putAfterCommit(CacheEnum, Object, Object)}.
+	 */
+	<K, T> T getThenPutAfterCommitIfNotNull(CacheEnum theCache, K theKey, Function<K, T> theSupplier);
+
+	/**
+	 * Fetch an item from the cache, returning <code>null</code> if it is not present
+	 */
+	<K, V> V getIfPresent(CacheEnum theCache, K theKey);
+
+	/**
+	 * Store an item in the cache
+	 */
+	<K, V> void put(CacheEnum theCache, K theKey, V theValue);
+
+	/**
+	 * Store an item in the cache if and when the current database transaction
+	 * successfully commits, or immediately if no transaction is active.
+	 */
+	<K, V> void putAfterCommit(CacheEnum theCache, K theKey, V theValue);
+
+	/**
+	 * Store a collection of items in the cache if and when the current database
+	 * transaction successfully commits, or immediately if no transaction is active.
+	 *
+	 * @since 8.8.0
+	 */
+	default <K, V> void putAllAfterCommit(CacheEnum theCache, Map<K, V> theValues) {
+		theValues.forEach((k, v) -> putAfterCommit(theCache, k, v));
+	}
+
+	/**
+	 * Fetch all of the given keys which are present in the cache
+	 */
+	<K, V> Map<K, V> getAllPresent(CacheEnum theCache, Collection<K> theKeys);
+
+	/**
+	 * Remove all entries from all caches
+	 */
+	void invalidateAllCaches();
+
+	/**
+	 * Remove all entries from the given caches
+	 */
+	void invalidateCaches(CacheEnum... theCaches);
+
+	/**
+	 * Returns the approximate number of entries held locally in the given cache
+	 */
+	long getEstimatedSize(CacheEnum theCache);
+
+	/**
+	 * Returns the statistics recorded for the given cache. Statistics are only recorded
+	 * if enabled using {@link MemoryCacheSettings#setStatisticsEnabled(boolean)}.
+	 */
+	MemoryCacheStatistics getStatistics(CacheEnum theCache);
+}
@@ -0,0 +1,65 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * An optional second-level cache tier which sits behind the per-JVM caches held by
+ * {@link MemoryCacheService}. When a local cache misses, the shared tier is consulted
+ * before the value is loaded from the database, and values which are loaded or put
+ * locally are also written to the shared tier. This allows a cluster of servers to
+ * avoid each resolving the same keys (e.g. forced ID lookups, match URLs and tag
+ * definitions) from the database independently.
+ * <p>
+ * Implementations backed by an external store (e.g. a distributed cache) are responsible
+ * for serializing keys and values. Note that the values stored in some caches are not
+ * serializable by default, so such implementations should only be enabled for caches
+ * whose value types they are able to handle (see {@link MemoryCacheSettings#setSharedTierEnabled(Boolean)}).
+ * </p>
+ * <p>
+ * Implementations must be thread safe. Failures should be handled by the implementation
+ * (e.g. by logging them and treating the operation as a miss) since the shared tier is
+ * an optimization and must never be required for correctness.
+ * </p>
+ *
+ * @see InMemoryCacheSharedTier
+ * @since 8.8.0
+ */
+public interface IMemoryCacheSharedTier {
+
+	/**
+	 * Returns the value cached for the given key, or <code>null</code> if none is present
+	 */
+	@Nullable
+	<K, V> V get(@Nonnull CacheEnum theCache, @Nonnull K theKey);
+
+	/**
+	 * Stores a value in the shared tier
+	 */
+	<K, V> void put(@Nonnull CacheEnum theCache, @Nonnull K theKey, @Nonnull V theValue);
+
+	/**
+	 * Removes all entries from the given cache
+	 */
+	void invalidateAll(@Nonnull CacheEnum theCache);
+}
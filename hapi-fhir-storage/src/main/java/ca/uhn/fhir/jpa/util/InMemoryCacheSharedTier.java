@@ -0,0 +1,84 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.EnumMap;
+
+/**
+ * A reference implementation of {@link IMemoryCacheSharedTier} which holds entries
+ * in-process. This is mostly useful for testing, since a single instance can be shared
+ * between several {@link MemoryCacheService} instances in order to simulate a cluster
+ * of servers sharing a distributed cache.
+ *
+ * @since 8.8.0
+ */
+public class InMemoryCacheSharedTier implements IMemoryCacheSharedTier {
+
+	public static final long DEFAULT_EXPIRE_AFTER_WRITE_MILLIS = 60 * 1000L;
+	public static final int DEFAULT_MAXIMUM_SIZE = 100_000;
+
+	private final EnumMap<CacheEnum, Cache<Object, Object>> myCaches = new EnumMap<>(CacheEnum.class);
+
+	/**
+	 * Constructor which uses the default expiry and size for each cache
+	 */
+	public InMemoryCacheSharedTier() {
+		this(DEFAULT_EXPIRE_AFTER_WRITE_MILLIS, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theExpireAfterWriteMillis The time after which entries expire from each cache
+	 * @param theMaximumSize            The maximum number of entries in each cache
+	 */
+	public InMemoryCacheSharedTier(long theExpireAfterWriteMillis, int theMaximumSize) {
+		for (CacheEnum next : CacheEnum.values()) {
+			myCaches.put(next, CacheFactory.build(theExpireAfterWriteMillis, theMaximumSize));
+		}
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	@Override
+	public <K, V> V get(@Nonnull CacheEnum theCache, @Nonnull K theKey) {
+		return (V) myCaches.get(theCache).getIfPresent(theKey);
+	}
+
+	@Override
+	public <K, V> void put(@Nonnull CacheEnum theCache, @Nonnull K theKey, @Nonnull V theValue) {
+		myCaches.get(theCache).put(theKey, theValue);
+	}
+
+	@Override
+	public void invalidateAll(@Nonnull CacheEnum theCache) {
+		myCaches.get(theCache).invalidateAll();
+	}
+
+	public long getEstimatedSize(@Nonnull CacheEnum theCache) {
+		return myCaches.get(theCache).estimatedSize();
+	}
+}
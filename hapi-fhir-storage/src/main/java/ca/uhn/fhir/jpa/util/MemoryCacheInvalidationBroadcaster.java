@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.broker.api.ChannelConsumerSettings;
+import ca.uhn.fhir.broker.api.ChannelProducerSettings;
+import ca.uhn.fhir.broker.api.IBrokerClient;
+import ca.uhn.fhir.broker.api.IChannelConsumer;
+import ca.uhn.fhir.broker.api.IChannelProducer;
+import ca.uhn.fhir.broker.api.IMessageListener;
+import ca.uhn.fhir.context.ConfigurationException;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+import ca.uhn.fhir.rest.server.messaging.IMessage;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Propagates {@link MemoryCacheService} invalidations between the servers in a cluster using
+ * the {@link IBrokerClient} abstraction. Whenever caches are invalidated on this server (e.g.
+ * because a partition was renamed, or an expunge was performed), a message is sent to the
+ * {@link #CHANNEL_NAME} channel, and any server receiving that message invalidates the same
+ * caches locally.
+ * <p>
+ * This class is registered as a bean by the JPA server configuration, but only connects to the
+ * broker if {@link JpaStorageSettings#setMemoryCacheInvalidationBroadcastEnabled(boolean)} is
+ * enabled. Note that every server in the cluster must receive every message, so the broker must
+ * be configured to deliver messages on this channel to all consumers (i.e. as a topic /
+ * publish-subscribe channel rather than a work queue).
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class MemoryCacheInvalidationBroadcaster implements IMessageListener<MemoryCacheInvalidationMessage> {
+	public static final String CHANNEL_NAME = "memory-cache-invalidation";
+	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheInvalidationBroadcaster.class);
+
+	private final IBrokerClient myBrokerClient;
+	private final MemoryCacheService myMemoryCacheService;
+	private final JpaStorageSettings myStorageSettings;
+	private final String myOriginId = UUID.randomUUID().toString();
+	private IChannelProducer<MemoryCacheInvalidationMessage> myProducer;
+	private IChannelConsumer<MemoryCacheInvalidationMessage> myConsumer;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theBrokerClient The broker client, or <code>null</code> if no broker is configured. A broker
+	 *                        is required if broadcasting is enabled.
+	 */
+	public MemoryCacheInvalidationBroadcaster(
+			@Nullable IBrokerClient theBrokerClient,
+			@Nonnull MemoryCacheService theMemoryCacheService,
+			@Nonnull JpaStorageSettings theStorageSettings) {
+		myBrokerClient = theBrokerClient;
+		myMemoryCacheService = theMemoryCacheService;
+		myStorageSettings = theStorageSettings;
+	}
+
+	@PostConstruct
+	public void start() {
+		if (!myStorageSettings.isMemoryCacheInvalidationBroadcastEnabled()) {
+			return;
+		}
+		if (myBrokerClient == null) {
+			throw new ConfigurationException(Msg.code(2853)
+					+ "Memory cache invalidation broadcasting is enabled, but no message broker is configured");
+		}
+
+		ourLog.info("Broadcasting memory cache invalidations on channel {}", CHANNEL_NAME);
+		myProducer = myBrokerClient.getOrCreateProducer(
+				CHANNEL_NAME, MemoryCacheInvalidationJsonMessage.class, new ChannelProducerSettings());
+		myConsumer = myBrokerClient.getOrCreateConsumer(
+				CHANNEL_NAME, MemoryCacheInvalidationJsonMessage.class, this, new ChannelConsumerSettings());
+		myMemoryCacheService.setInvalidationBroadcaster(this);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (myProducer == null) {
+			return;
+		}
+		myMemoryCacheService.setInvalidationBroadcaster(null);
+		myProducer = null;
+		if (myConsumer != null) {
+			myConsumer.close();
+			myConsumer = null;
+		}
+	}
+
+	/**
+	 * Notify other servers that the given caches have been invalidated
+	 */
+	public void broadcastInvalidation(@Nonnull List<CacheEnum> theCaches) {
+		if (myProducer == null || theCaches.isEmpty()) {
+			return;
+		}
+		MemoryCacheInvalidationMessage payload = new MemoryCacheInvalidationMessage(myOriginId, theCaches);
+		ourLog.debug("Broadcasting memory cache invalidation: {}", payload);
+		try {
+			myProducer.send(new MemoryCacheInvalidationJsonMessage(payload));
+		} catch (RuntimeException e) {
+			// Failing to notify other servers shouldn't fail the operation which triggered the invalidation
+			ourLog.warn("Failed to broadcast memory cache invalidation for caches {}: {}", theCaches, e.toString());
+		}
+	}
+
+	@Override
+	public void handleMessage(@Nonnull IMessage<MemoryCacheInvalidationMessage> theMessage) {
+		MemoryCacheInvalidationMessage payload = theMessage.getPayload();
+		if (myOriginId.equals(payload.getOriginId())) {
+			return;
+		}
+		ourLog.debug("Received memory cache invalidation: {}", payload);
+		myMemoryCacheService.invalidateCachesLocally(payload.getCaches());
+	}
+
+	@Override
+	public Class<MemoryCacheInvalidationMessage> getPayloadType() {
+		return MemoryCacheInvalidationMessage.class;
+	}
+
+	public String getOriginId() {
+		return myOriginId;
+	}
+}
@@ -0,0 +1,57 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.rest.server.messaging.json.BaseJsonMessage;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nonnull;
+
+/**
+ * @since 8.8.0
+ */
+public class MemoryCacheInvalidationJsonMessage extends BaseJsonMessage<MemoryCacheInvalidationMessage> {
+
+	@JsonProperty("payload")
+	private MemoryCacheInvalidationMessage myPayload;
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheInvalidationJsonMessage() {
+		super();
+	}
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheInvalidationJsonMessage(MemoryCacheInvalidationMessage thePayload) {
+		myPayload = thePayload;
+	}
+
+	@Override
+	@Nonnull
+	public MemoryCacheInvalidationMessage getPayload() {
+		return myPayload;
+	}
+
+	public void setPayload(MemoryCacheInvalidationMessage thePayload) {
+		myPayload = thePayload;
+	}
+}
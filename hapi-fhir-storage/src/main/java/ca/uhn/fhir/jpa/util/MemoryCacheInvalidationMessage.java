@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+import ca.uhn.fhir.model.api.IModelJson;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Notification sent by {@link MemoryCacheInvalidationBroadcaster} when one or more
+ * {@link MemoryCacheService} caches have been invalidated on a server.
+ *
+ * @since 8.8.0
+ */
+public class MemoryCacheInvalidationMessage implements IModelJson {
+
+	@JsonProperty("originId")
+	private String myOriginId;
+
+	@JsonProperty("caches")
+	private List<CacheEnum> myCaches;
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheInvalidationMessage() {
+		super();
+	}
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheInvalidationMessage(String theOriginId, List<CacheEnum> theCaches) {
+		myOriginId = theOriginId;
+		myCaches = theCaches;
+	}
+
+	/**
+	 * An identifier for the server which sent this message
+	 */
+	public String getOriginId() {
+		return myOriginId;
+	}
+
+	public void setOriginId(String theOriginId) {
+		myOriginId = theOriginId;
+	}
+
+	public List<CacheEnum> getCaches() {
+		if (myCaches == null) {
+			myCaches = new ArrayList<>();
+		}
+		return myCaches;
+	}
+
+	public void setCaches(List<CacheEnum> theCaches) {
+		myCaches = theCaches;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("originId", myOriginId)
+				.append("caches", myCaches)
+				.toString();
+	}
+}
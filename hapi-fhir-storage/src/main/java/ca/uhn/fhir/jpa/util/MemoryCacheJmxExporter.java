@@ -0,0 +1,186 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers a {@link MemoryCacheMXBean} for each {@link MemoryCacheService} cache with the
+ * platform MBean server, under the name <code>ca.uhn.fhir.jpa:type=MemoryCache,name=[CACHE]</code>.
+ * These can be read by any JMX client, or bridged into a metrics registry (e.g. using the
+ * Micrometer or Prometheus JMX integrations).
+ * <p>
+ * This class is registered as a bean by the JPA server configuration, but only registers the
+ * MBeans if {@link JpaStorageSettings#setMemoryCacheJmxExportEnabled(boolean)} is enabled. Note
+ * that lookup and load counters are only recorded for caches with statistics enabled (see
+ * {@link JpaStorageSettings#setMemoryCacheStatisticsEnabled(boolean)}).
+ * </p>
+ *
+ * @since 8.8.0
+ */
+public class MemoryCacheJmxExporter {
+	public static final String OBJECT_NAME_PREFIX = "ca.uhn.fhir.jpa:type=MemoryCache,name=";
+	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheJmxExporter.class);
+
+	private final MemoryCacheService myMemoryCacheService;
+	private final JpaStorageSettings myStorageSettings;
+	private final MBeanServer myMBeanServer;
+	private final List<ObjectName> myRegisteredNames = new ArrayList<>();
+
+	/**
+	 * Constructor which uses the platform MBean server
+	 */
+	public MemoryCacheJmxExporter(
+			@Nonnull MemoryCacheService theMemoryCacheService, @Nonnull JpaStorageSettings theStorageSettings) {
+		this(theMemoryCacheService, theStorageSettings, ManagementFactory.getPlatformMBeanServer());
+	}
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheJmxExporter(
+			@Nonnull MemoryCacheService theMemoryCacheService,
+			@Nonnull JpaStorageSettings theStorageSettings,
+			@Nonnull MBeanServer theMBeanServer) {
+		myMemoryCacheService = theMemoryCacheService;
+		myStorageSettings = theStorageSettings;
+		myMBeanServer = theMBeanServer;
+	}
+
+	@PostConstruct
+	public synchronized void start() {
+		if (!myStorageSettings.isMemoryCacheJmxExportEnabled() || !myRegisteredNames.isEmpty()) {
+			return;
+		}
+
+		for (CacheEnum next : CacheEnum.values()) {
+			try {
+				ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + next.name());
+				if (myMBeanServer.isRegistered(name)) {
+					ourLog.warn("Replacing existing MBean registration for {}", name);
+					myMBeanServer.unregisterMBean(name);
+				}
+				myMBeanServer.registerMBean(new CacheMXBean(myMemoryCacheService, next), name);
+				myRegisteredNames.add(name);
+			} catch (JMException e) {
+				throw new InternalErrorException(
+						Msg.code(2832) + "Failed to register MBean for cache " + next + ": " + e.getMessage(), e);
+			}
+		}
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		for (ObjectName next : myRegisteredNames) {
+			try {
+				myMBeanServer.unregisterMBean(next);
+			} catch (JMException e) {
+				ourLog.warn("Failed to unregister MBean {}: {}", next, e.toString());
+			}
+		}
+		myRegisteredNames.clear();
+	}
+
+	private static class CacheMXBean implements MemoryCacheMXBean {
+
+		private final MemoryCacheService myMemoryCacheService;
+		private final CacheEnum myCache;
+
+		private CacheMXBean(MemoryCacheService theMemoryCacheService, CacheEnum theCache) {
+			myMemoryCacheService = theMemoryCacheService;
+			myCache = theCache;
+		}
+
+		private MemoryCacheStatistics statistics() {
+			return myMemoryCacheService.getStatistics(myCache);
+		}
+
+		@Override
+		public long getHitCount() {
+			return statistics().hitCount();
+		}
+
+		@Override
+		public long getSharedTierHitCount() {
+			return statistics().sharedTierHitCount();
+		}
+
+		@Override
+		public long getMissCount() {
+			return statistics().missCount();
+		}
+
+		@Override
+		public double getHitRate() {
+			return statistics().hitRate();
+		}
+
+		@Override
+		public double getMissRate() {
+			return statistics().missRate();
+		}
+
+		@Override
+		public long getLoadCount() {
+			return statistics().loadCount();
+		}
+
+		@Override
+		public double getAverageLoadPenaltyMillis() {
+			return statistics().averageLoadPenaltyNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+		}
+
+		@Override
+		public long getEvictionCount() {
+			return statistics().evictionCount();
+		}
+
+		@Override
+		public long getEstimatedSize() {
+			return statistics().estimatedSize();
+		}
+
+		@Override
+		public long getMaximumSize() {
+			return statistics().maximumSize();
+		}
+
+		@Override
+		public long getEstimatedFootprintBytes() {
+			return statistics().estimatedFootprintBytes();
+		}
+	}
+}
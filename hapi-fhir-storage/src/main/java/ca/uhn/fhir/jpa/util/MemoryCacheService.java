@@ -33,31 +33,45 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Collection;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
-import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 /**
  * This class acts as a central spot for all of the many Caffeine caches we use in HAPI FHIR.
  * <p>
- * The API is super simplistic, and caches are all 1-minute, max 10000 entries for starters. We could definitely add nuance to this,
- * which will be much easier now that this is being centralized. Some logging/monitoring would be good too.
+ * By default caches are 1-minute, max 10000 entries (50 minutes, max 100000 entries in mass ingestion mode), with
+ * a few exceptions for caches holding data which never changes. The expiry and size of any individual cache can
+ * be adjusted using {@link JpaStorageSettings#setMemoryCacheSettings(CacheEnum, MemoryCacheSettings)}.
+ * </p>
+ * <p>
+ * Optionally, an {@link IMemoryCacheSharedTier} can be registered in order to share cached values between the
+ * servers in a cluster, and cache invalidations can be propagated to other servers by enabling
+ * {@link JpaStorageSettings#setMemoryCacheInvalidationBroadcastEnabled(boolean)} (see
+ * {@link MemoryCacheInvalidationBroadcaster}).
+ * </p>
  */
-// TODO: JA2 extract an interface for this class and use it everywhere
-public class MemoryCacheService {
+public class MemoryCacheService implements IMemoryCacheService {
+	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheService.class);
 
 	private final JpaStorageSettings myStorageSettings;
-	private final EnumMap<CacheEnum, Cache<?, ?>> myCaches = new EnumMap<>(CacheEnum.class);
+	private final EnumMap<CacheEnum, CacheHolder> myCaches = new EnumMap<>(CacheEnum.class);
+	private IMemoryCacheSharedTier mySharedTier;
+	private MemoryCacheInvalidationBroadcaster myInvalidationBroadcaster;
 
 	public MemoryCacheService(JpaStorageSettings theStorageSettings) {
 		myStorageSettings = theStorageSettings;
@@ -68,19 +82,31 @@ public class MemoryCacheService {
 	private void populateCaches() {
 		for (CacheEnum next : CacheEnum.values()) {
 
-			long timeoutSeconds;
+			long timeoutMillis;
+			int initialCapacity;
 			int maximumSize;
 
-			Cache<Object, Object> nextCache;
 			switch (next) {
 				case RES_TYPE_TO_RES_TYPE_ID:
-					nextCache = CacheFactory.buildEternal(250, 500);
+					timeoutMillis = 0;
+					initialCapacity = 250;
+					maximumSize = 500;
 					break;
 				case HASH_IDENTITY_TO_SEARCH_PARAM_IDENTITY:
-					nextCache = CacheFactory.buildEternal(5_000, 50_000);
+					timeoutMillis = 0;
+					initialCapacity = 5_000;
+					maximumSize = 50_000;
 					break;
 				case RESOURCE_IDENTIFIER_SYSTEM_TO_PID:
-					nextCache = CacheFactory.buildEternal(250, 1_000);
+					timeoutMillis = 0;
+					initialCapacity = 250;
+					maximumSize = 1_000;
+					break;
+				case COMPRESSION_DICTIONARY_BY_ID:
+					// Dictionaries are immutable, so they never need to expire
+					timeoutMillis = 0;
+					initialCapacity = 0;
+					maximumSize = 1_000;
 					break;
 				case PATIENT_IDENTIFIER_TO_FHIR_ID:
 				case NAME_TO_PARTITION:
@@ -93,28 +119,116 @@ public class MemoryCacheService {
 				case RESOURCE_CONDITIONAL_CREATE_VERSION:
 				case FHIRPATH_EXPRESSION:
 				default:
-					timeoutSeconds = SECONDS.convert(1, MINUTES);
+					timeoutMillis = MILLISECONDS.convert(1, MINUTES);
+					initialCapacity = 0;
 					maximumSize = 10000;
 					if (myStorageSettings.isMassIngestionMode()) {
-						timeoutSeconds = SECONDS.convert(50, MINUTES);
+						timeoutMillis = MILLISECONDS.convert(50, MINUTES);
 						maximumSize = 100000;
 					}
-					nextCache = CacheFactory.build(SECONDS.toMillis(timeoutSeconds), maximumSize);
 					break;
 			}
 
-			myCaches.put(next, nextCache);
+			boolean sharedTierEnabled = next.isSharedTierByDefault();
+			boolean statisticsEnabled = myStorageSettings.isMemoryCacheStatisticsEnabled()
+					|| myStorageSettings.getMemoryCacheAdaptiveSizingHeapBudgetBytes() > 0;
+			int estimatedEntrySizeBytes = next.getEstimatedEntrySizeBytes();
+			MemoryCacheSettings settings = myStorageSettings.getMemoryCacheSettings(next);
+			if (settings != null) {
+				if (settings.getExpireAfterWriteMillis() != null) {
+					timeoutMillis = Math.max(0, settings.getExpireAfterWriteMillis());
+				}
+				if (settings.getMaximumSize() != null) {
+					maximumSize = settings.getMaximumSize();
+				}
+				if (settings.getSharedTierEnabled() != null) {
+					sharedTierEnabled = settings.getSharedTierEnabled();
+				}
+				if (settings.getEstimatedEntrySizeBytes() != null) {
+					estimatedEntrySizeBytes = settings.getEstimatedEntrySizeBytes();
+				}
+				statisticsEnabled |= settings.isStatisticsEnabled();
+				ourLog.debug("Cache {} is using settings: {}", next, settings);
+			}
+
+			Cache<Object, Object> nextCache;
+			if (timeoutMillis == 0) {
+				nextCache = CacheFactory.buildEternal(Math.min(initialCapacity, maximumSize), maximumSize);
+			} else {
+				nextCache = CacheFactory.build(timeoutMillis, maximumSize);
+			}
+
+			myCaches.put(
+					next,
+					new CacheHolder(
+							nextCache, maximumSize, estimatedEntrySizeBytes, sharedTierEnabled, statisticsEnabled));
 		}
 	}
 
+	/**
+	 * Registers a shared second-level cache tier. Only caches for which the shared tier is enabled
+	 * (see {@link MemoryCacheSettings#setSharedTierEnabled(Boolean)}) will use it.
+	 *
+	 * @since 8.8.0
+	 */
+	public void setSharedTier(@Nullable IMemoryCacheSharedTier theSharedTier) {
+		mySharedTier = theSharedTier;
+	}
+
+	/**
+	 * @since 8.8.0
+	 */
+	@Nullable
+	public IMemoryCacheSharedTier getSharedTier() {
+		return mySharedTier;
+	}
+
+	/**
+	 * Registers a broadcaster which will be notified whenever caches are invalidated on this
+	 * server, so that the invalidation can be propagated to other servers.
+	 *
+	 * @since 8.8.0
+	 */
+	public void setInvalidationBroadcaster(@Nullable MemoryCacheInvalidationBroadcaster theInvalidationBroadcaster) {
+		myInvalidationBroadcaster = theInvalidationBroadcaster;
+	}
+
+	@Override
 	public <K, T> T get(CacheEnum theCache, K theKey, Function<K, T> theSupplier) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
 		return doGet(theCache, theKey, theSupplier);
 	}
 
 	protected <K, T> T doGet(CacheEnum theCache, K theKey, Function<K, T> theSupplier) {
-		Cache<K, T> cache = getCache(theCache);
-		return cache.get(theKey, theSupplier);
+		CacheHolder holder = getHolder(theCache);
+		Cache<K, T> cache = holder.getCache();
+		IMemoryCacheSharedTier sharedTier = getSharedTier(holder);
+		if (sharedTier == null && !holder.myStatisticsEnabled) {
+			return cache.get(theKey, theSupplier);
+		}
+
+		T retVal = cache.getIfPresent(theKey);
+		if (retVal != null) {
+			holder.recordHit();
+			return retVal;
+		}
+
+		return cache.get(theKey, key -> {
+			T value = null;
+			if (sharedTier != null) {
+				value = sharedTier.get(theCache, key);
+			}
+			if (value != null) {
+				holder.recordSharedTierHit();
+			} else {
+				holder.recordMiss();
+				value = holder.load(key, theSupplier);
+				if (sharedTier != null && value != null) {
+					sharedTier.put(theCache, key, value);
+				}
+			}
+			return value;
+		});
 	}
 
 	/**
@@ -123,11 +237,12 @@ public class MemoryCacheService {
 	 * <p>
 	 * This method will put the value into the cache using {@link #putAfterCommit(CacheEnum, Object, Object)}.
 	 */
+	@Override
 	public <K, T> T getThenPutAfterCommit(CacheEnum theCache, K theKey, Function<K, T> theSupplier) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
 		T retVal = getIfPresent(theCache, theKey);
 		if (retVal == null) {
-			retVal = theSupplier.apply(theKey);
+			retVal = getHolder(theCache).load(theKey, theSupplier);
 			putAfterCommit(theCache, theKey, retVal);
 		}
 		return retVal;
@@ -142,11 +257,12 @@ public class MemoryCacheService {
 	 *
 	 * @since 8.6.0
 	 */
+	@Override
 	public <K, T> T getThenPutAfterCommitIfNotNull(CacheEnum theCache, K theKey, Function<K, T> theSupplier) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
 		T retVal = getIfPresent(theCache, theKey);
 		if (retVal == null) {
-			retVal = theSupplier.apply(theKey);
+			retVal = getHolder(theCache).load(theKey, theSupplier);
 			if (retVal != null) {
 				putAfterCommit(theCache, theKey, retVal);
 			}
@@ -154,15 +270,36 @@ public class MemoryCacheService {
 		return retVal;
 	}
 
+	@Override
 	public <K, V> V getIfPresent(CacheEnum theCache, K theKey) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
 		return doGetIfPresent(theCache, theKey);
 	}
 
 	protected <K, V> V doGetIfPresent(CacheEnum theCache, K theKey) {
-		return (V) getCache(theCache).getIfPresent(theKey);
+		CacheHolder holder = getHolder(theCache);
+		Cache<K, V> cache = holder.getCache();
+		V retVal = cache.getIfPresent(theKey);
+		if (retVal != null) {
+			holder.recordHit();
+			return retVal;
+		}
+
+		IMemoryCacheSharedTier sharedTier = getSharedTier(holder);
+		if (sharedTier != null) {
+			retVal = sharedTier.get(theCache, theKey);
+			if (retVal != null) {
+				holder.recordSharedTierHit();
+				cache.put(theKey, retVal);
+				return retVal;
+			}
+		}
+
+		holder.recordMiss();
+		return null;
 	}
 
+	@Override
 	public <K, V> void put(CacheEnum theCache, K theKey, V theValue) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass())
 				: "Key type " + theKey.getClass() + " doesn't match expected " + theCache.getKeyType() + " for cache "
@@ -171,7 +308,13 @@ public class MemoryCacheService {
 	}
 
 	protected <K, V> void doPut(CacheEnum theCache, K theKey, V theValue) {
-		getCache(theCache).put(theKey, theValue);
+		CacheHolder holder = getHolder(theCache);
+		holder.getCache().put(theKey, theValue);
+
+		IMemoryCacheSharedTier sharedTier = getSharedTier(holder);
+		if (sharedTier != null) {
+			sharedTier.put(theCache, theKey, theValue);
+		}
 	}
 
 	/**
@@ -185,6 +328,7 @@ public class MemoryCacheService {
 	 * that this item will successfully save to the DB. Use this method in that case
 	 * in order to avoid cache poisoning.
 	 */
+	@Override
 	public <K, V> void putAfterCommit(CacheEnum theCache, K theKey, V theValue) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass())
 				: "Key type " + theKey.getClass() + " doesn't match expected " + theCache.getKeyType() + " for cache "
@@ -201,66 +345,315 @@ public class MemoryCacheService {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Like {@link #putAfterCommit(CacheEnum, Object, Object)}, but registers a single
+	 * transaction synchronization for the whole collection of values.
+	 */
+	@Override
+	public <K, V> void putAllAfterCommit(CacheEnum theCache, Map<K, V> theValues) {
+		if (theValues.isEmpty()) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					theValues.forEach((k, v) -> put(theCache, k, v));
+				}
+			});
+		} else {
+			theValues.forEach((k, v) -> put(theCache, k, v));
+		}
+	}
+
+	@Override
 	public <K, V> Map<K, V> getAllPresent(CacheEnum theCache, Collection<K> theKeys) {
 		return doGetAllPresent(theCache, theKeys);
 	}
 
 	@SuppressWarnings("unchecked")
 	protected <K, V> Map<K, V> doGetAllPresent(CacheEnum theCache, Collection<K> theKeys) {
-		return (Map<K, V>) getCache(theCache).getAllPresent(theKeys);
+		CacheHolder holder = getHolder(theCache);
+		Cache<K, V> cache = holder.getCache();
+		Map<K, V> retVal = (Map<K, V>) cache.getAllPresent(theKeys);
+		holder.recordHits(retVal.size());
+
+		IMemoryCacheSharedTier sharedTier = getSharedTier(holder);
+		if (sharedTier != null && retVal.size() < theKeys.size()) {
+			retVal = new HashMap<>(retVal);
+			for (K nextKey : theKeys) {
+				if (!retVal.containsKey(nextKey)) {
+					V nextValue = sharedTier.get(theCache, nextKey);
+					if (nextValue != null) {
+						holder.recordSharedTierHit();
+						cache.put(nextKey, nextValue);
+						retVal.put(nextKey, nextValue);
+					}
+				}
+			}
+		}
+
+		holder.recordMisses(theKeys.size() - retVal.size());
+		return retVal;
 	}
 
+	@Override
 	public void invalidateAllCaches() {
-		myCaches.values().forEach(Cache::invalidateAll);
+		invalidateCaches(CacheEnum.values());
 	}
 
-	private <K, T> Cache<K, T> getCache(CacheEnum theCache) {
-		return (Cache<K, T>) myCaches.get(theCache);
+	@Override
+	public void invalidateCaches(CacheEnum... theCaches) {
+		List<CacheEnum> caches = List.of(theCaches);
+		invalidateCachesLocally(caches);
+
+		if (mySharedTier != null) {
+			for (CacheEnum next : caches) {
+				if (getHolder(next).mySharedTierEnabled) {
+					mySharedTier.invalidateAll(next);
+				}
+			}
+		}
+
+		if (myInvalidationBroadcaster != null) {
+			myInvalidationBroadcaster.broadcastInvalidation(caches);
+		}
 	}
 
+	/**
+	 * Invalidates the given caches on this server only, without touching the shared tier
+	 * or notifying other servers. This is called when an invalidation is received from
+	 * another server.
+	 *
+	 * @since 8.8.0
+	 */
+	public void invalidateCachesLocally(Collection<CacheEnum> theCaches) {
+		for (CacheEnum next : theCaches) {
+			getHolder(next).getCache().invalidateAll();
+		}
+	}
+
+	private CacheHolder getHolder(CacheEnum theCache) {
+		return myCaches.get(theCache);
+	}
+
+	@Nullable
+	private IMemoryCacheSharedTier getSharedTier(CacheHolder theHolder) {
+		return theHolder.mySharedTierEnabled ? mySharedTier : null;
+	}
+
+	@Override
 	public long getEstimatedSize(CacheEnum theCache) {
-		return getCache(theCache).estimatedSize();
+		return getHolder(theCache).getCache().estimatedSize();
 	}
 
-	public void invalidateCaches(CacheEnum... theCaches) {
-		for (CacheEnum next : theCaches) {
-			getCache(next).invalidateAll();
+	@Override
+	public MemoryCacheStatistics getStatistics(CacheEnum theCache) {
+		return getHolder(theCache).getStatistics();
+	}
+
+	/**
+	 * Returns the current maximum number of entries for the given cache, or <code>-1</code>
+	 * if the cache implementation does not expose this.
+	 *
+	 * @since 8.8.0
+	 */
+	public long getMaximumSize(CacheEnum theCache) {
+		return getHolder(theCache).getCache().getMaximumSize();
+	}
+
+	/**
+	 * Returns the maximum number of entries the given cache was originally configured with,
+	 * before any adjustment by {@link #setMaximumSize(CacheEnum, long)}.
+	 *
+	 * @since 8.8.0
+	 */
+	public long getConfiguredMaximumSize(CacheEnum theCache) {
+		return getHolder(theCache).myConfiguredMaximumSize;
+	}
+
+	/**
+	 * Returns the approximate heap cost of a single entry in the given cache, which is used to
+	 * estimate the memory footprint of the cache.
+	 *
+	 * @see MemoryCacheSettings#setEstimatedEntrySizeBytes(Integer)
+	 * @since 8.8.0
+	 */
+	public int getEstimatedEntrySizeBytes(CacheEnum theCache) {
+		return getHolder(theCache).myEstimatedEntrySizeBytes;
+	}
+
+	/**
+	 * Adjusts the maximum number of entries for the given cache at runtime. If the new maximum
+	 * is smaller than the current number of entries, entries will be evicted.
+	 *
+	 * @return Returns <code>false</code> if the cache implementation does not support resizing
+	 * @since 8.8.0
+	 */
+	public boolean setMaximumSize(CacheEnum theCache, long theMaximumSize) {
+		return getHolder(theCache).getCache().setMaximumSize(theMaximumSize);
+	}
+
+	private static class CacheHolder {
+
+		private final Cache<Object, Object> myCache;
+		private final long myConfiguredMaximumSize;
+		private final int myEstimatedEntrySizeBytes;
+		private final boolean mySharedTierEnabled;
+		private final boolean myStatisticsEnabled;
+		private final LongAdder myHitCount = new LongAdder();
+		private final LongAdder mySharedTierHitCount = new LongAdder();
+		private final LongAdder myMissCount = new LongAdder();
+		private final LongAdder myLoadCount = new LongAdder();
+		private final LongAdder myLoadTimeNanos = new LongAdder();
+
+		private CacheHolder(
+				Cache<Object, Object> theCache,
+				long theConfiguredMaximumSize,
+				int theEstimatedEntrySizeBytes,
+				boolean theSharedTierEnabled,
+				boolean theStatisticsEnabled) {
+			myCache = theCache;
+			myConfiguredMaximumSize = theConfiguredMaximumSize;
+			myEstimatedEntrySizeBytes = theEstimatedEntrySizeBytes;
+			mySharedTierEnabled = theSharedTierEnabled;
+			myStatisticsEnabled = theStatisticsEnabled;
+		}
+
+		private <K, T> T load(K theKey, Function<K, T> theSupplier) {
+			if (!myStatisticsEnabled) {
+				return theSupplier.apply(theKey);
+			}
+			long start = System.nanoTime();
+			try {
+				return theSupplier.apply(theKey);
+			} finally {
+				myLoadCount.increment();
+				myLoadTimeNanos.add(System.nanoTime() - start);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private <K, V> Cache<K, V> getCache() {
+			return (Cache<K, V>) myCache;
+		}
+
+		private void recordHit() {
+			recordHits(1);
+		}
+
+		private void recordHits(int theCount) {
+			if (myStatisticsEnabled && theCount > 0) {
+				myHitCount.add(theCount);
+			}
+		}
+
+		private void recordSharedTierHit() {
+			if (myStatisticsEnabled) {
+				mySharedTierHitCount.increment();
+			}
+		}
+
+		private void recordMiss() {
+			recordMisses(1);
+		}
+
+		private void recordMisses(int theCount) {
+			if (myStatisticsEnabled && theCount > 0) {
+				myMissCount.add(theCount);
+			}
+		}
+
+		private MemoryCacheStatistics getStatistics() {
+			long estimatedSize = myCache.estimatedSize();
+			return new MemoryCacheStatistics(
+					myHitCount.sum(),
+					mySharedTierHitCount.sum(),
+					myMissCount.sum(),
+					myLoadCount.sum(),
+					myLoadTimeNanos.sum(),
+					myCache.evictionCount(),
+					estimatedSize,
+					myCache.getMaximumSize(),
+					estimatedSize * myEstimatedEntrySizeBytes);
 		}
 	}
 
 	public enum CacheEnum {
-		TAG_DEFINITION(TagDefinitionCacheKey.class),
+		TAG_DEFINITION(TagDefinitionCacheKey.class, true, 512),
 		/**
 		 * Key type: {@link ForcedIdCacheKey}
 		 * Value type: {@literal JpaResourceLookup}
 		 */
-		RESOURCE_LOOKUP_BY_FORCED_ID(ForcedIdCacheKey.class),
-		FHIRPATH_EXPRESSION(String.class),
+		RESOURCE_LOOKUP_BY_FORCED_ID(ForcedIdCacheKey.class, true, 384),
+		FHIRPATH_EXPRESSION(String.class, false, 4096),
 		/**
 		 * Key type: {@literal Long}
 		 * Value type: {@literal Optional<String>}
 		 */
-		PID_TO_FORCED_ID(JpaPid.class),
-		MATCH_URL(String.class),
+		PID_TO_FORCED_ID(JpaPid.class, true, 256),
+		MATCH_URL(String.class, true, 384),
 		RESOURCE_CONDITIONAL_CREATE_VERSION(JpaPid.class),
 		HISTORY_COUNT(HistoryCountKey.class),
 		NAME_TO_PARTITION(String.class),
 		ID_TO_PARTITION(Integer.class),
-		HASH_IDENTITY_TO_SEARCH_PARAM_IDENTITY(Long.class),
+		HASH_IDENTITY_TO_SEARCH_PARAM_IDENTITY(Long.class, false, 128),
 		RES_TYPE_TO_RES_TYPE_ID(String.class),
 		RESOURCE_IDENTIFIER_SYSTEM_TO_PID(String.class),
-		PATIENT_IDENTIFIER_TO_FHIR_ID(IdentifierKey.class);
+		PATIENT_IDENTIFIER_TO_FHIR_ID(IdentifierKey.class),
+		/**
+		 * Key type: {@literal Long}
+		 * Value type: {@literal ResourceCompressionDictionary}
+		 *
+		 * @since 8.8.0
+		 */
+		COMPRESSION_DICTIONARY_BY_ID(Long.class, false, 256 * 1024),
+		/**
+		 * Key type: {@literal String} (resource type)
+		 * Value type: {@literal Optional<ResourceCompressionDictionary>}
+		 *
+		 * @since 8.8.0
+		 */
+		RES_TYPE_TO_COMPRESSION_DICTIONARY(String.class);
 
 		private final Class<?> myKeyType;
+		private final boolean mySharedTierByDefault;
+		private final int myEstimatedEntrySizeBytes;
 
 		CacheEnum(Class<?> theKeyType) {
+			this(theKeyType, false, 256);
+		}
+
+		CacheEnum(Class<?> theKeyType, boolean theSharedTierByDefault, int theEstimatedEntrySizeBytes) {
 			myKeyType = theKeyType;
+			mySharedTierByDefault = theSharedTierByDefault;
+			myEstimatedEntrySizeBytes = theEstimatedEntrySizeBytes;
 		}
 
 		public Class<?> getKeyType() {
 			return myKeyType;
 		}
+
+		/**
+		 * Does this cache use the {@link IMemoryCacheSharedTier shared tier} (if one is registered)
+		 * unless configured otherwise using {@link MemoryCacheSettings#setSharedTierEnabled(Boolean)}?
+		 *
+		 * @since 8.8.0
+		 */
+		public boolean isSharedTierByDefault() {
+			return mySharedTierByDefault;
+		}
+
+		/**
+		 * A rough estimate of the heap cost of a single key and value in this cache, used
+		 * to estimate the memory footprint of the cache unless configured otherwise using
+		 * {@link MemoryCacheSettings#setEstimatedEntrySizeBytes(Integer)}.
+		 *
+		 * @since 8.8.0
+		 */
+		public int getEstimatedEntrySizeBytes() {
+			return myEstimatedEntrySizeBytes;
+		}
 	}
 
 	public record IdentifierKey(String system, String value) {}
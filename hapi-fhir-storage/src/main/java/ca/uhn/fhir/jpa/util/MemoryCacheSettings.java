@@ -0,0 +1,160 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Per-cache tuning for an individual {@link MemoryCacheService.CacheEnum cache} managed by
+ * {@link MemoryCacheService}. Instances are registered using
+ * {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setMemoryCacheSettings(MemoryCacheService.CacheEnum, MemoryCacheSettings)}.
+ * Any value left as <code>null</code> keeps the built-in default for that cache.
+ *
+ * @since 8.8.0
+ */
+public class MemoryCacheSettings {
+
+	private Long myExpireAfterWriteMillis;
+	private Integer myMaximumSize;
+	private Boolean mySharedTierEnabled;
+	private Integer myEstimatedEntrySizeBytes;
+	private boolean myStatisticsEnabled;
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheSettings() {
+		super();
+	}
+
+	/**
+	 * The amount of time after which an entry is expired from the local cache, or
+	 * <code>null</code> to use the default for this cache. A value of <code>0</code>
+	 * or less means that entries never expire (they are still bounded by the
+	 * {@link #getMaximumSize() maximum size}).
+	 */
+	@Nullable
+	public Long getExpireAfterWriteMillis() {
+		return myExpireAfterWriteMillis;
+	}
+
+	/**
+	 * The amount of time after which an entry is expired from the local cache, or
+	 * <code>null</code> to use the default for this cache. A value of <code>0</code>
+	 * or less means that entries never expire (they are still bounded by the
+	 * {@link #getMaximumSize() maximum size}).
+	 */
+	public MemoryCacheSettings setExpireAfterWriteMillis(@Nullable Long theExpireAfterWriteMillis) {
+		myExpireAfterWriteMillis = theExpireAfterWriteMillis;
+		return this;
+	}
+
+	/**
+	 * The maximum number of entries held in the local cache, or <code>null</code> to
+	 * use the default for this cache.
+	 */
+	@Nullable
+	public Integer getMaximumSize() {
+		return myMaximumSize;
+	}
+
+	/**
+	 * The maximum number of entries held in the local cache, or <code>null</code> to
+	 * use the default for this cache.
+	 */
+	public MemoryCacheSettings setMaximumSize(@Nullable Integer theMaximumSize) {
+		myMaximumSize = theMaximumSize;
+		return this;
+	}
+
+	/**
+	 * Should this cache read through to, and populate, the shared second-level tier
+	 * (see {@link IMemoryCacheSharedTier}) if one is registered? If <code>null</code>,
+	 * the default for this cache is used (see {@link MemoryCacheService.CacheEnum#isSharedTierByDefault()}).
+	 */
+	@Nullable
+	public Boolean getSharedTierEnabled() {
+		return mySharedTierEnabled;
+	}
+
+	/**
+	 * Should this cache read through to, and populate, the shared second-level tier
+	 * (see {@link IMemoryCacheSharedTier}) if one is registered? If <code>null</code>,
+	 * the default for this cache is used (see {@link MemoryCacheService.CacheEnum#isSharedTierByDefault()}).
+	 */
+	public MemoryCacheSettings setSharedTierEnabled(@Nullable Boolean theSharedTierEnabled) {
+		mySharedTierEnabled = theSharedTierEnabled;
+		return this;
+	}
+
+	/**
+	 * A rough estimate of the heap cost of a single key and value in this cache, used to estimate
+	 * the memory footprint of the cache and to apportion the budget used by adaptive sizing. If
+	 * <code>null</code>, the default for this cache is used (see {@link MemoryCacheService.CacheEnum#getEstimatedEntrySizeBytes()}).
+	 */
+	@Nullable
+	public Integer getEstimatedEntrySizeBytes() {
+		return myEstimatedEntrySizeBytes;
+	}
+
+	/**
+	 * A rough estimate of the heap cost of a single key and value in this cache, used to estimate
+	 * the memory footprint of the cache and to apportion the budget used by adaptive sizing. If
+	 * <code>null</code>, the default for this cache is used (see {@link MemoryCacheService.CacheEnum#getEstimatedEntrySizeBytes()}).
+	 */
+	public MemoryCacheSettings setEstimatedEntrySizeBytes(@Nullable Integer theEstimatedEntrySizeBytes) {
+		myEstimatedEntrySizeBytes = theEstimatedEntrySizeBytes;
+		return this;
+	}
+
+	/**
+	 * If enabled, hit, miss and load statistics are recorded for this cache and can be
+	 * retrieved using {@link MemoryCacheService#getStatistics(MemoryCacheService.CacheEnum)}.
+	 * Default is <code>false</code>. Statistics are always recorded if they are enabled for all
+	 * caches using {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setMemoryCacheStatisticsEnabled(boolean)}.
+	 */
+	public boolean isStatisticsEnabled() {
+		return myStatisticsEnabled;
+	}
+
+	/**
+	 * If enabled, hit, miss and load statistics are recorded for this cache and can be
+	 * retrieved using {@link MemoryCacheService#getStatistics(MemoryCacheService.CacheEnum)}.
+	 * Default is <code>false</code>. Statistics are always recorded if they are enabled for all
+	 * caches using {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setMemoryCacheStatisticsEnabled(boolean)}.
+	 */
+	public MemoryCacheSettings setStatisticsEnabled(boolean theStatisticsEnabled) {
+		myStatisticsEnabled = theStatisticsEnabled;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("expireAfterWriteMillis", myExpireAfterWriteMillis)
+				.append("maximumSize", myMaximumSize)
+				.append("sharedTierEnabled", mySharedTierEnabled)
+				.append("estimatedEntrySizeBytes", myEstimatedEntrySizeBytes)
+				.append("statisticsEnabled", myStatisticsEnabled)
+				.toString();
+	}
+}
@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+/**
+ * A point-in-time snapshot of the statistics recorded for a single cache managed by
+ * {@link MemoryCacheService}. The lookup and load counters are only recorded if statistics
+ * are enabled for the cache (see {@link MemoryCacheSettings#setStatisticsEnabled(boolean)}).
+ *
+ * @param hitCount                The number of lookups which were satisfied by the local cache
+ * @param sharedTierHitCount      The number of lookups which missed the local cache but were satisfied by the shared tier
+ * @param missCount               The number of lookups which were not satisfied by either tier
+ * @param loadCount               The number of times a value was loaded by a loading function following a miss
+ * @param totalLoadTimeNanos      The total time spent in loading functions
+ * @param evictionCount           The number of entries evicted because of the size or expiry policy, or <code>-1</code> if unknown
+ * @param estimatedSize           The approximate number of entries in the local cache
+ * @param maximumSize             The current maximum number of entries in the local cache, or <code>-1</code> if unknown
+ * @param estimatedFootprintBytes The approximate heap used by the local cache, based on {@link MemoryCacheService#getEstimatedEntrySizeBytes(MemoryCacheService.CacheEnum)}
+ * @since 8.8.0
+ */
+public record MemoryCacheStatistics(
+		long hitCount,
+		long sharedTierHitCount,
+		long missCount,
+		long loadCount,
+		long totalLoadTimeNanos,
+		long evictionCount,
+		long estimatedSize,
+		long maximumSize,
+		long estimatedFootprintBytes) {
+
+	public long requestCount() {
+		return hitCount + sharedTierHitCount + missCount;
+	}
+
+	/**
+	 * Returns the ratio of lookups satisfied by either tier, or <code>1.0</code> if no lookups have been recorded
+	 */
+	public double hitRate() {
+		long requestCount = requestCount();
+		return requestCount == 0 ? 1.0 : (double) (hitCount + sharedTierHitCount) / requestCount;
+	}
+
+	/**
+	 * Returns the ratio of lookups not satisfied by either tier, or <code>0.0</code> if no lookups have been recorded
+	 */
+	public double missRate() {
+		long requestCount = requestCount();
+		return requestCount == 0 ? 0.0 : (double) missCount / requestCount;
+	}
+
+	/**
+	 * Returns the average time spent loading a value, in nanoseconds
+	 */
+	public double averageLoadPenaltyNanos() {
+		return loadCount == 0 ? 0.0 : (double) totalLoadTimeNanos / loadCount;
+	}
+}
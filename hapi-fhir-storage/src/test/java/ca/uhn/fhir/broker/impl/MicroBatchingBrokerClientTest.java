@@ -0,0 +1,267 @@
+package ca.uhn.fhir.broker.impl;
+
+import ca.uhn.fhir.broker.api.BatchMessageHandlingException;
+import ca.uhn.fhir.broker.api.ChannelConsumerSettings;
+import ca.uhn.fhir.broker.api.ChannelProducerSettings;
+import ca.uhn.fhir.broker.api.IBatchMessageListener;
+import ca.uhn.fhir.broker.api.IChannelConsumer;
+import ca.uhn.fhir.broker.api.IChannelNamer;
+import ca.uhn.fhir.broker.api.IChannelProducer;
+import ca.uhn.fhir.broker.api.IMessageListener;
+import ca.uhn.fhir.jpa.subscription.channel.impl.RetryPolicyProvider;
+import ca.uhn.fhir.rest.server.messaging.IMessage;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.backoff.NoBackOffPolicy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MicroBatchingBrokerClientTest {
+	private static final String TEST_CHANNEL_NAME = "MicroBatchingBrokerClientTest-TestChannel";
+	private final IChannelNamer myChannelNamer = (theNameComponent, theChannelSettings) -> theNameComponent;
+	private final RetryPolicyProvider myRetryPolicyProvider = new RetryPolicyProvider() {
+		@Override
+		protected BackOffPolicy backOffPolicy() {
+			return new NoBackOffPolicy();
+		}
+	};
+	private final MicroBatchingBrokerClient myBrokerClient = new MicroBatchingBrokerClient(myChannelNamer, myRetryPolicyProvider);
+
+	@AfterEach
+	public void after() {
+		myBrokerClient.stop();
+	}
+
+	@Test
+	public void testSendReceive() {
+		IChannelProducer<String> producer = myBrokerClient.getOrCreateProducer(TEST_CHANNEL_NAME, StringMessage.class, new ChannelProducerSettings());
+		RecordingListener listener = new RecordingListener();
+		try (IChannelConsumer<String> consumer = myBrokerClient.getOrCreateConsumer(TEST_CHANNEL_NAME, StringMessage.class, listener, new ChannelConsumerSettings())) {
+			assertEquals(TEST_CHANNEL_NAME, consumer.getChannelName());
+			assertTrue(producer.send(new StringMessage("Honda")).isSuccessful());
+
+			await().until(() -> listener.getPayloads().size() == 1);
+			assertEquals("Honda", listener.getPayloads().get(0));
+		}
+	}
+
+	@Test
+	public void testBatchListenerReceivesBatchesInOrder() {
+		myBrokerClient.setMaxBatchSize(20);
+		myBrokerClient.setMaxBatchWaitMillis(200);
+		ChannelConsumerSettings consumerSettings = new ChannelConsumerSettings().setConcurrentConsumers(1);
+		RecordingBatchListener listener = new RecordingBatchListener();
+		myBrokerClient.getOrCreateConsumer(TEST_CHANNEL_NAME, StringMessage.class, listener, consumerSettings);
+		IChannelProducer<String> producer = myBrokerClient.getOrCreateProducer(TEST_CHANNEL_NAME, StringMessage.class, new ChannelProducerSettings());
+
+		for (int i = 0; i < 50; i++) {
+			assertTrue(producer.send(new StringMessage("Civic" + i)).isSuccessful());
+		}
+
+		await().until(() -> listener.getPayloads().size() == 50);
+		assertEquals(IntStream.range(0, 50).mapToObj(t -> "Civic" + t).toList(), listener.getPayloads());
+		assertThat(listener.getBatchSizes()).allSatisfy(t -> assertThat(t).isBetween(1, 20));
+		assertThat(listener.getBatchSizes().size()).isLessThan(10);
+		assertEquals(0, listener.getSingleMessageCount());
+	}
+
+	@Test
+	public void testBatchListenerFails_MessagesRetriedIndividually() {
+		myBrokerClient.setMaxBatchWaitMillis(200);
+		ChannelConsumerSettings consumerSettings = new ChannelConsumerSettings().setConcurrentConsumers(1);
+		RecordingBatchListener listener = new RecordingBatchListener();
+		listener.setFailBatches(true);
+		myBrokerClient.getOrCreateConsumer(TEST_CHANNEL_NAME, StringMessage.class, listener, consumerSettings);
+		IChannelProducer<String> producer = myBrokerClient.getOrCreateProducer(TEST_CHANNEL_NAME, StringMessage.class, new ChannelProducerSettings());
+
+		for (int i = 0; i < 5; i++) {
+			producer.send(new StringMessage("Civic" + i));
+		}
+
+		await().until(() -> listener.getPayloads().size() == 5);
+		assertEquals(5, listener.getSingleMessageCount());
+	}
+
+	@Test
+	public void testBatchListenerFailsMidBatch_EachMessageDeliveredOnce() {
+		myBrokerClient.setMaxBatchSize(10);
+		myBrokerClient.setMaxBatchWaitMillis(500);
+		ChannelConsumerSettings consumerSettings = new ChannelConsumerSettings().setConcurrentConsumers(1);
+		RecordingBatchListener listener = new RecordingBatchListener();
+		listener.setFailOncePayload("Civic2");
+		myBrokerClient.getOrCreateConsumer(TEST_CHANNEL_NAME, StringMessage.class, listener, consumerSettings);
+		IChannelProducer<String> producer = myBrokerClient.getOrCreateProducer(TEST_CHANNEL_NAME, StringMessage.class, new ChannelProducerSettings());
+
+		for (int i = 0; i < 5; i++) {
+			producer.send(new StringMessage("Civic" + i));
+		}
+
+		await().until(() -> listener.getPayloads().size() == 5);
+		assertThat(listener.getPayloads()).containsExactlyInAnyOrder("Civic0", "Civic1", "Civic2", "Civic3", "Civic4");
+		assertTrue(listener.hasFailed());
+		// Only the failed message and the ones after it in its batch are redelivered individually
+		assertThat(listener.getSingleMessageCount()).isBetween(1, 3);
+	}
+
+	@Test
+	public void testListenerFails_MessageRetried() {
+		AtomicInteger failuresRemaining = new AtomicInteger(2);
+		RecordingListener listener = new RecordingListener() {
+			@Override
+			public void handleMessage(@Nonnull IMessage<String> theMessage) {
+				if (failuresRemaining.getAndDecrement() > 0) {
+					throw new IllegalStateException("Failure");
+				}
+				super.handleMessage(theMessage);
+			}
+		};
+		myBrokerClient.getOrCreateConsumer(TEST_CHANNEL_NAME, StringMessage.class, listener, new ChannelConsumerSettings());
+		IChannelProducer<String> producer = myBrokerClient.getOrCreateProducer(TEST_CHANNEL_NAME, StringMessage.class, new ChannelProducerSettings());
+
+		producer.send(new StringMessage("Honda"));
+
+		await().until(() -> listener.getPayloads().size() == 1);
+		assertEquals(-1, failuresRemaining.get());
+	}
+
+	@Test
+	public void testManyProducersAndConsumers_SmallBuffer() throws InterruptedException {
+		myBrokerClient.setBufferCapacity(16);
+		myBrokerClient.setMaxBatchSize(8);
+		myBrokerClient.setMaxBatchWaitMillis(1);
+		ChannelConsumerSettings consumerSettings = new ChannelConsumerSettings().setConcurrentConsumers(4);
+		RecordingBatchListener listener = new RecordingBatchListener();
+		myBrokerClient.getOrCreateConsumer(TEST_CHANNEL_NAME, StringMessage.class, listener, consumerSettings);
+		IChannelProducer<String> producer = myBrokerClient.getOrCreateProducer(TEST_CHANNEL_NAME, StringMessage.class, new ChannelProducerSettings());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int thread = 0; thread < 4; thread++) {
+			int threadIndex = thread;
+			executor.submit(() -> {
+				for (int i = 0; i < 1000; i++) {
+					producer.send(new StringMessage(threadIndex + "-" + i));
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+		await().until(() -> listener.getPayloads().size() == 4000);
+		assertThat(listener.getPayloads()).doesNotHaveDuplicates();
+	}
+
+	@Test
+	public void testSendWrongMessageType() {
+		IChannelProducer<String> producer = myBrokerClient.getOrCreateProducer(TEST_CHANNEL_NAME, StringMessage.class, new ChannelProducerSettings());
+
+		IMessage<String> message = new TestMessage<>("Honda");
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Exception e = assertThrows(Exception.class, () -> ((IChannelProducer) producer).send(message));
+		assertThat(e.getMessage()).startsWith("HAPI-2846: Expecting message of type");
+	}
+
+	@Test
+	public void testClosedConsumerNoLongerReceives() {
+		RecordingListener listener = new RecordingListener();
+		IChannelConsumer<String> consumer = myBrokerClient.getOrCreateConsumer(TEST_CHANNEL_NAME, StringMessage.class, listener, new ChannelConsumerSettings());
+		RecordingListener otherListener = new RecordingListener();
+		myBrokerClient.getOrCreateConsumer(TEST_CHANNEL_NAME, StringMessage.class, otherListener, new ChannelConsumerSettings());
+		IChannelProducer<String> producer = myBrokerClient.getOrCreateProducer(TEST_CHANNEL_NAME, StringMessage.class, new ChannelProducerSettings());
+
+		consumer.close();
+		assertTrue(consumer.isClosed());
+		producer.send(new StringMessage("Honda"));
+
+		await().until(() -> otherListener.getPayloads().size() == 1);
+		assertThat(listener.getPayloads()).isEmpty();
+	}
+
+	private static class StringMessage extends TestMessage<String> {
+		StringMessage(String thePayload) {
+			super(thePayload);
+		}
+	}
+
+	private static class RecordingListener implements IMessageListener<String> {
+		private final List<String> myPayloads = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public void handleMessage(@Nonnull IMessage<String> theMessage) {
+			myPayloads.add(theMessage.getPayload());
+		}
+
+		@Override
+		public Class<String> getPayloadType() {
+			return String.class;
+		}
+
+		List<String> getPayloads() {
+			return myPayloads;
+		}
+	}
+
+	private static class RecordingBatchListener extends RecordingListener implements IBatchMessageListener<String> {
+		private final List<Integer> myBatchSizes = Collections.synchronizedList(new ArrayList<>());
+		private final AtomicInteger mySingleMessageCount = new AtomicInteger();
+		private boolean myFailBatches;
+		private String myFailOncePayload;
+		private volatile boolean myFailed;
+
+		@Override
+		public void handleMessages(@Nonnull List<IMessage<String>> theMessages) {
+			if (myFailBatches) {
+				throw new IllegalStateException("Failure");
+			}
+			myBatchSizes.add(theMessages.size());
+			for (int i = 0; i < theMessages.size(); i++) {
+				IMessage<String> next = theMessages.get(i);
+				if (!myFailed && next.getPayload().equals(myFailOncePayload)) {
+					myFailed = true;
+					throw new BatchMessageHandlingException(i, new IllegalStateException("Failure"));
+				}
+				super.handleMessage(next);
+			}
+		}
+
+		@Override
+		public void handleMessage(@Nonnull IMessage<String> theMessage) {
+			mySingleMessageCount.incrementAndGet();
+			super.handleMessage(theMessage);
+		}
+
+		void setFailBatches(boolean theFailBatches) {
+			myFailBatches = theFailBatches;
+		}
+
+		void setFailOncePayload(String theFailOncePayload) {
+			myFailOncePayload = theFailOncePayload;
+		}
+
+		boolean hasFailed() {
+			return myFailed;
+		}
+
+		List<Integer> getBatchSizes() {
+			return myBatchSizes;
+		}
+
+		int getSingleMessageCount() {
+			return mySingleMessageCount.get();
+		}
+	}
+}
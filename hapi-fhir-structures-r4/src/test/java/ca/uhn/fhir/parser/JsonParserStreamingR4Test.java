@@ -0,0 +1,207 @@
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.ClasspathUtil;
+import ca.uhn.fhir.util.StopWatch;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonParserStreamingR4Test {
+	private static final Logger ourLog = LoggerFactory.getLogger(JsonParserStreamingR4Test.class);
+	private static final FhirContext ourTreeCtx = FhirContext.forR4Cached();
+	private static final FhirContext ourStreamingCtx = FhirContext.forR4();
+
+	static {
+		ourStreamingCtx.getParserOptions().setStreamingJsonParsing(true);
+	}
+
+	@ParameterizedTest
+	@MethodSource("getInputFileNames")
+	public void testParseMatchesTreeMode(String theFileName) {
+		String input = ClasspathUtil.loadResource("/rdf-test-input/" + theFileName);
+
+		IBaseResource treeParsed = ourTreeCtx.newJsonParser().parseResource(input);
+		IBaseResource streamParsed = ourStreamingCtx.newJsonParser().parseResource(input);
+
+		assertEquals(
+				ourTreeCtx.newJsonParser().encodeResourceToString(treeParsed),
+				ourTreeCtx.newJsonParser().encodeResourceToString(streamParsed));
+	}
+
+	@Test
+	public void testResourceTypeNotFirst() {
+		String input = """
+				{
+				  "id": "A",
+				  "name": [ { "family": "Simpson" } ],
+				  "contained": [ { "id": "org", "name": "Springfield", "resourceType": "Organization" } ],
+				  "managingOrganization": { "reference": "#org" },
+				  "resourceType": "Patient"
+				}""";
+
+		Patient patient = ourStreamingCtx.newJsonParser().parseResource(Patient.class, input);
+
+		assertEquals("Patient/A", patient.getIdElement().getValue());
+		assertEquals("Simpson", patient.getNameFirstRep().getFamily());
+		assertEquals("Springfield", ((Organization) patient.getManagingOrganization().getResource()).getName());
+	}
+
+	@Test
+	public void testPrimitiveExtensionBeforeAndAfterValue() {
+		String input = """
+				{
+				  "resourceType": "Patient",
+				  "name": [ {
+				    "_family": { "extension": [ { "url": "http://foo", "valueString": "before" } ] },
+				    "family": "Simpson",
+				    "given": [ "Homer", null, "Jay" ],
+				    "prefix": [ "Mr" ],
+				    "_given": [ { "id": "g0" }, { "extension": [ { "valueString": "nullGiven", "url": "http://bar" } ] }, null ]
+				  } ],
+				  "_active": { "extension": [ { "url": "http://baz", "valueBoolean": true } ] },
+				  "_gender": { "id": "noValue" },
+				  "active": true
+				}""";
+
+		Patient patient = ourStreamingCtx.newJsonParser().parseResource(Patient.class, input);
+
+		assertEquals(
+				ourTreeCtx.newJsonParser().encodeResourceToString(ourTreeCtx.newJsonParser().parseResource(Patient.class, input)),
+				ourTreeCtx.newJsonParser().encodeResourceToString(patient));
+
+		HumanName name = patient.getNameFirstRep();
+		assertEquals("before", ((StringType) name.getFamilyElement().getExtensionByUrl("http://foo").getValue()).getValue());
+		assertThat(name.getGiven()).hasSize(3);
+		assertEquals("g0", name.getGiven().get(0).getId());
+		Extension nullGivenExt = name.getGiven().get(1).getExtensionByUrl("http://bar");
+		assertEquals("nullGiven", ((StringType) nullGivenExt.getValue()).getValue());
+		assertEquals("Jay", name.getGiven().get(2).getValue());
+		assertEquals(true, patient.getActive());
+		assertThat(patient.getActiveElement().getExtensionByUrl("http://baz")).isNotNull();
+		assertEquals("noValue", patient.getGenderElement().getId());
+	}
+
+	@Test
+	public void testDecimalPrecisionPreservedWhenBuffered() {
+		String input = """
+				{
+				  "valueQuantity": { "value": 0.10000000000000000000001 },
+				  "component": [ { "valueQuantity": { "value": 1.0e2 } } ],
+				  "resourceType": "Observation"
+				}""";
+
+		Observation obs = ourStreamingCtx.newJsonParser().parseResource(Observation.class, input);
+
+		assertEquals("0.10000000000000000000001", obs.getValueQuantity().getValueElement().getValueAsString());
+		assertEquals("100", obs.getComponentFirstRep().getValueQuantity().getValueElement().getValueAsString());
+	}
+
+	@Test
+	public void testBundleWithNestedResources() {
+		Bundle input = ClasspathUtil.loadResource(ourTreeCtx, Bundle.class, "/bundle-with-two-patient-resources.json");
+		String encoded = ourTreeCtx.newJsonParser().encodeResourceToString(input);
+
+		Bundle parsed = ourStreamingCtx.newJsonParser().parseResource(Bundle.class, encoded);
+
+		assertEquals(encoded, ourTreeCtx.newJsonParser().encodeResourceToString(parsed));
+	}
+
+	@Test
+	public void testMissingResourceType() {
+		DataFormatException e = assertThrows(DataFormatException.class, () -> ourStreamingCtx.newJsonParser().parseResource("{\"id\":\"A\"}"));
+		assertEquals("HAPI-2851: Invalid JSON content detected, missing required element: 'resourceType'", e.getMessage());
+
+		e = assertThrows(DataFormatException.class, () -> ourStreamingCtx.newJsonParser().parseResource("{\"resourceType\":\"Bundle\",\"entry\":[{\"resource\":{\"id\":\"A\"}}]}"));
+		assertEquals("HAPI-2852: Missing required element 'resourceType' from JSON resource object, unable to parse", e.getMessage());
+	}
+
+	@Test
+	public void testInvalidJson() {
+		DataFormatException e = assertThrows(DataFormatException.class, () -> ourStreamingCtx.newJsonParser().parseResource("   ["));
+		assertThat(e.getMessage()).contains("HAPI-1859: Content does not appear to be FHIR JSON");
+
+		e = assertThrows(DataFormatException.class, () -> ourStreamingCtx.newJsonParser().parseResource("{\"resourceType\":\"Patient\"} {}"));
+		assertThat(e.getMessage()).contains("HAPI-1861: Failed to parse JSON encoded FHIR content: Trailing token");
+
+		e = assertThrows(DataFormatException.class, () -> ourStreamingCtx.newJsonParser().parseResource("{\"resourceType\":\"Patient\", \"active\": "));
+		assertThat(e.getMessage()).contains("HAPI-1861: Failed to parse JSON encoded FHIR content");
+	}
+
+	@Test
+	public void testExtensionNotAnArray() {
+		String input = "{\"resourceType\":\"Patient\",\"extension\":{\"url\":\"http://foo\"}}";
+
+		DataFormatException e = assertThrows(DataFormatException.class, () -> ourStreamingCtx.newJsonParser().parseResource(input));
+		assertEquals("HAPI-2831: Syntax error parsing JSON FHIR structure: Expected ARRAY at element 'extension', found 'OBJECT'", e.getMessage());
+	}
+
+	/**
+	 * Compares throughput and allocation of the tree based and streaming parse modes.
+	 * This is a benchmark rather than a test, so it is disabled by default.
+	 */
+	@Test
+	@Disabled
+	public void testBenchmarkTreeVersusStreaming() throws IOException {
+		Bundle bundle = new Bundle();
+		for (String next : getInputFileNames().filter(t -> t.startsWith("explanationofbenefit-example") || t.startsWith("observation-example")).toList()) {
+			String resource = ClasspathUtil.loadResource("/rdf-test-input/" + next);
+			bundle.addEntry().setResource((org.hl7.fhir.r4.model.Resource) ourTreeCtx.newJsonParser().parseResource(resource));
+		}
+		String input = ourTreeCtx.newJsonParser().encodeResourceToString(bundle);
+		ourLog.info("Benchmark input is {} entries / {} chars", bundle.getEntry().size(), input.length());
+
+		for (int pass = 0; pass < 3; pass++) {
+			benchmark("tree", ourTreeCtx, input);
+			benchmark("streaming", ourStreamingCtx, input);
+		}
+	}
+
+	private static void benchmark(String theName, FhirContext theCtx, String theInput) {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		int count = 500;
+
+		long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+		StopWatch sw = new StopWatch();
+		for (int i = 0; i < count; i++) {
+			theCtx.newJsonParser().parseResource(Bundle.class, theInput);
+		}
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		ourLog.info("{}: parsed {} bundles in {} - {}/sec - {} KiB allocated per parse", theName, count, sw, sw.formatThroughput(count, TimeUnit.SECONDS), allocated / count / 1024);
+	}
+
+	private static Stream<String> getInputFileNames() throws IOException {
+		List<String> retVal = new ArrayList<>();
+		Resource[] resources = new PathMatchingResourcePatternResolver(JsonParserStreamingR4Test.class.getClassLoader()).getResources("classpath:rdf-test-input/*.json");
+		for (Resource next : resources) {
+			retVal.add(next.getFilename());
+		}
+		return retVal.stream().sorted();
+	}
+}
@@ -0,0 +1,270 @@
+package ca.uhn.fhir.rest.server;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.model.api.Include;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
+import ca.uhn.fhir.rest.annotation.Search;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.server.method.ResponsePage;
+import ca.uhn.fhir.rest.server.provider.HashMapResourceProvider;
+import ca.uhn.fhir.test.utilities.HttpClientExtension;
+import ca.uhn.fhir.test.utilities.server.RestfulServerExtension;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StreamingBundleResponseR4Test {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(StreamingBundleResponseR4Test.class);
+
+	private final List<String> myEncounterPageRanges = Collections.synchronizedList(new ArrayList<>());
+	private final HashMapResourceProvider<Patient> myPatientProvider = new HashMapResourceProvider<>(ourCtx, Patient.class);
+
+	@RegisterExtension
+	public RestfulServerExtension myServer = new RestfulServerExtension(ourCtx)
+		.registerProvider(myPatientProvider)
+		.registerProvider(new DummyObservationResourceProvider())
+		.registerProvider(new DummyEncounterResourceProvider())
+		.withPagingProvider(new FifoMemoryPagingProvider(100).setDefaultPageSize(50))
+		.setDefaultResponseEncoding(EncodingEnum.JSON);
+
+	@RegisterExtension
+	private HttpClientExtension myClient = new HttpClientExtension();
+
+	@BeforeEach
+	public void before() {
+		for (int i = 0; i < 65; i++) {
+			Patient patient = new Patient();
+			patient.setId("P" + i);
+			patient.addName().setFamily("Family " + i);
+			myPatientProvider.store(patient);
+		}
+	}
+
+	@Test
+	public void testSearch_MatchesNonStreamingResponse() throws IOException {
+		String url = myServer.getBaseUrl() + "/Patient?_count=45";
+
+		String regular = executeGet(url);
+		myServer.getRestfulServer().setStreamingBundleResponsesEnabled(true);
+		String streamed = executeGet(url);
+
+		Bundle regularBundle = ourCtx.newJsonParser().parseResource(Bundle.class, regular);
+		Bundle streamedBundle = ourCtx.newJsonParser().parseResource(Bundle.class, streamed);
+
+		assertEquals(65, streamedBundle.getTotal());
+		assertEquals(Bundle.BundleType.SEARCHSET, streamedBundle.getType());
+		assertThat(streamedBundle.getEntry()).hasSize(45);
+		assertEquals(toFullUrls(regularBundle), toFullUrls(streamedBundle));
+		assertEquals(
+			ourCtx.newJsonParser().encodeResourceToString(regularBundle.getEntry().get(44).getResource()),
+			ourCtx.newJsonParser().encodeResourceToString(streamedBundle.getEntry().get(44).getResource()));
+		assertThat(streamedBundle.getLink(Constants.LINK_NEXT)).isNotNull();
+
+		// Apart from the ID, lastUpdated and paging links, the bytes should be identical
+		assertEquals(stripVolatileContent(regularBundle), stripVolatileContent(streamedBundle));
+
+		// The next page should be streamed too
+		Bundle nextPage = ourCtx.newJsonParser().parseResource(Bundle.class, executeGet(streamedBundle.getLink(Constants.LINK_NEXT).getUrl()));
+		assertThat(nextPage.getEntry()).hasSize(20);
+		assertEquals("Patient/P45", nextPage.getEntry().get(0).getResource().getIdElement().toUnqualifiedVersionless().getValue());
+	}
+
+	@Test
+	public void testSearch_NoResults() throws IOException {
+		myServer.getRestfulServer().setStreamingBundleResponsesEnabled(true);
+
+		Bundle bundle = ourCtx.newJsonParser().parseResource(Bundle.class, executeGet(myServer.getBaseUrl() + "/Patient?_id=FOO"));
+
+		assertEquals(0, bundle.getTotal());
+		assertThat(bundle.getEntry()).isEmpty();
+	}
+
+	@Test
+	public void testSearch_ReferencedIncludesWrittenOnce() throws IOException {
+		myServer.getRestfulServer().setStreamingBundleResponsesEnabled(true);
+
+		String response = executeGet(myServer.getBaseUrl() + "/Observation?_include=Observation:subject");
+		Bundle bundle = ourCtx.newJsonParser().parseResource(Bundle.class, response);
+
+		List<String> fullUrls = toFullUrls(bundle);
+		assertThat(fullUrls).hasSize(51);
+		assertThat(fullUrls.stream().filter(t -> t.endsWith("Patient/P0"))).hasSize(1);
+		assertThat(fullUrls.stream().filter(t -> t.endsWith("Patient/P1"))).hasSize(1);
+		assertThat(fullUrls.stream().filter(t -> t.contains("Observation/"))).hasSize(49);
+	}
+
+	@Test
+	public void testSearch_PageLoadedInBatches() throws IOException {
+		myServer.getRestfulServer().setStreamingBundleResponsesEnabled(true);
+
+		Bundle bundle = ourCtx.newJsonParser().parseResource(Bundle.class, executeGet(myServer.getBaseUrl() + "/Encounter?_count=45"));
+
+		assertThat(bundle.getEntry()).hasSize(45);
+		assertEquals("Encounter/E44", bundle.getEntry().get(44).getResource().getIdElement().toUnqualifiedVersionless().getValue());
+		assertThat(bundle.getLink(Constants.LINK_NEXT)).isNotNull();
+		assertThat(myEncounterPageRanges).containsExactly("0-20", "20-40", "40-45");
+
+		myEncounterPageRanges.clear();
+		Bundle nextPage = ourCtx.newJsonParser().parseResource(Bundle.class, executeGet(bundle.getLink(Constants.LINK_NEXT).getUrl()));
+		assertThat(nextPage.getEntry()).hasSize(20);
+		assertThat(nextPage.getLink(Constants.LINK_NEXT)).isNull();
+		assertThat(myEncounterPageRanges).containsExactly("45-65");
+	}
+
+	@Test
+	public void testSearch_PageWithIncludesNotLoadedInBatches() throws IOException {
+		myServer.getRestfulServer().setStreamingBundleResponsesEnabled(true);
+
+		Bundle bundle = ourCtx.newJsonParser().parseResource(Bundle.class, executeGet(myServer.getBaseUrl() + "/Encounter?_count=45&_include=Encounter:subject"));
+
+		assertThat(bundle.getEntry()).hasSize(45);
+		assertThat(myEncounterPageRanges).containsExactly("0-45");
+	}
+
+	@Test
+	public void testSearch_NdJson() throws IOException {
+		myServer.getRestfulServer().setStreamingBundleResponsesEnabled(true);
+
+		HttpGet httpGet = new HttpGet(myServer.getBaseUrl() + "/Patient?_count=30&_format=" + Constants.FORMAT_NDJSON);
+		try (CloseableHttpResponse status = myClient.execute(httpGet)) {
+			String response = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertThat(status.getFirstHeader(Constants.HEADER_CONTENT_TYPE).getValue()).startsWith(Constants.CT_FHIR_NDJSON);
+
+			String[] lines = response.split("\n");
+			assertThat(lines).hasSize(30);
+			Patient first = ourCtx.newJsonParser().parseResource(Patient.class, lines[0]);
+			assertEquals("Family 0", first.getNameFirstRep().getFamily());
+
+			List<String> links = Arrays.stream(status.getHeaders(Constants.HEADER_LINK)).map(Header::getValue).toList();
+			assertThat(links).anyMatch(t -> t.endsWith("; rel=\"next\""));
+			assertThat(links).anyMatch(t -> t.endsWith("; rel=\"self\""));
+		}
+	}
+
+	@Test
+	public void testSearch_OutgoingResponseHookDisablesStreaming() throws IOException {
+		myServer.getRestfulServer().setStreamingBundleResponsesEnabled(true);
+		AtomicInteger entryCount = new AtomicInteger();
+		myServer.registerAnonymousInterceptor(Pointcut.SERVER_OUTGOING_RESPONSE, (thePointcut, theArgs) -> {
+			Bundle bundle = (Bundle) theArgs.get(IBaseResource.class);
+			entryCount.set(bundle.getEntry().size());
+		});
+
+		Bundle bundle = ourCtx.newJsonParser().parseResource(Bundle.class, executeGet(myServer.getBaseUrl() + "/Patient?_count=30"));
+
+		assertEquals(30, entryCount.get());
+		assertThat(bundle.getEntry()).hasSize(30);
+	}
+
+	@Test
+	public void testSearch_ElementsDisablesStreaming() throws IOException {
+		myServer.getRestfulServer().setStreamingBundleResponsesEnabled(true);
+
+		Bundle bundle = ourCtx.newJsonParser().parseResource(Bundle.class, executeGet(myServer.getBaseUrl() + "/Patient?_count=30&_elements=id"));
+
+		assertThat(bundle.getEntry()).hasSize(30);
+		assertThat(((Patient) bundle.getEntry().get(0).getResource()).hasName()).isFalse();
+	}
+
+	private String executeGet(String theUrl) throws IOException {
+		HttpGet httpGet = new HttpGet(theUrl);
+		try (CloseableHttpResponse status = myClient.execute(httpGet)) {
+			String response = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+			ourLog.debug("Response: {}", response);
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			return response;
+		}
+	}
+
+	private static List<String> toFullUrls(Bundle theBundle) {
+		return theBundle.getEntry().stream().map(Bundle.BundleEntryComponent::getFullUrl).toList();
+	}
+
+	private static String stripVolatileContent(Bundle theBundle) {
+		Bundle copy = theBundle.copy();
+		copy.setId((String) null);
+		copy.setMeta(null);
+		copy.getLink().forEach(t -> t.setUrl(null));
+		return ourCtx.newJsonParser().encodeResourceToString(copy);
+	}
+
+	public class DummyEncounterResourceProvider implements IResourceProvider {
+
+		@Override
+		public Class<? extends IBaseResource> getResourceType() {
+			return Encounter.class;
+		}
+
+		@Search
+		public IBundleProvider search(@IncludeParam(allow = {"Encounter:subject"}) Set<Include> theIncludes) {
+			List<IBaseResource> encounters = new ArrayList<>();
+			for (int i = 0; i < 65; i++) {
+				Encounter encounter = new Encounter();
+				encounter.setId("Encounter/E" + i);
+				encounters.add(encounter);
+			}
+			return new SimpleBundleProvider(encounters) {
+				@Nonnull
+				@Override
+				public List<IBaseResource> getResources(
+					int theFromIndex, int theToIndex, @Nonnull ResponsePage.ResponsePageBuilder theResponsePageBuilder) {
+					myEncounterPageRanges.add(theFromIndex + "-" + theToIndex);
+					return super.getResources(theFromIndex, theToIndex, theResponsePageBuilder);
+				}
+			};
+		}
+	}
+
+	public class DummyObservationResourceProvider implements IResourceProvider {
+
+		@Override
+		public Class<? extends IBaseResource> getResourceType() {
+			return Observation.class;
+		}
+
+		@Search
+		public IBundleProvider search(@IncludeParam(allow = {"Observation:subject"}) Set<Include> theIncludes) {
+			List<IBaseResource> retVal = new ArrayList<>();
+			for (int i = 0; i < 49; i++) {
+				Patient patient = new Patient();
+				patient.setId("Patient/P" + (i % 2));
+				Observation observation = new Observation();
+				observation.setId("Observation/O" + i);
+				Reference subject = new Reference(patient.getIdElement().toUnqualifiedVersionless());
+				subject.setResource(patient);
+				observation.setSubject(subject);
+				retVal.add(observation);
+			}
+			return new SimpleBundleProvider(retVal);
+		}
+	}
+}